@@ -0,0 +1 @@
+java -cp target/cd2sbgnml-0.4.4-app.jar fr.curie.cd2sbgnml.ConversionServer "$@"
@@ -1 +1,12 @@
-java -cp target/cd2sbgnml-0.4.4-app.jar fr.curie.cd2sbgnml.Sbgnml2CdScript -i $1 -o $2
+if [ -n "$CD2SBGNML_SERVER" ]; then
+    status=$(curl -sS -H "Content-Type: application/xml" --data-binary @"$1" -o "$2" -w "%{http_code}" \
+        "$CD2SBGNML_SERVER/sbgn2cd") || exit 1
+    if [ "$status" != "200" ]; then
+        # the response is the error message
+        echo "Conversion failed with status $status: $(cat "$2")" >&2
+        rm -f "$2"
+        exit 1
+    fi
+else
+    java -cp target/cd2sbgnml-0.4.4-app.jar fr.curie.cd2sbgnml.Sbgnml2CdScript -i $1 -o $2
+fi
@@ -0,0 +1,100 @@
+package fr.curie.cd2sbgnml.benchmark;
+
+import fr.curie.cd2sbgnml.CD2SBGNML;
+import fr.curie.cd2sbgnml.CellDesignerSBFCModel;
+import fr.curie.cd2sbgnml.SBGNSBFCModel;
+import fr.curie.cd2sbgnml.io.SchemaValidator;
+import fr.curie.cd2sbgnml.xmlcdwrappers.ModelWrapper;
+import org.openjdk.jmh.annotations.*;
+import org.sbfc.converter.exceptions.ReadModelException;
+import org.sbfc.converter.exceptions.WriteModelException;
+import org.sbgn.bindings.Sbgn;
+import org.sbml.sbml.level2.version4.Sbml;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each stage of the CellDesigner to SBGN-ML conversion, measured separately.
+ * Every stage starts from the result of the previous one, computed once in setup.
+ *
+ * Use the gc profiler (-prof gc, the default of the benchmark profile) to get allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=error")
+public class CellDesignerToSbgn {
+
+    @Param({"cellcycle_v1.1.xml", "dendcells.xml", "components44.xml"})
+    public String sample;
+
+    private final CD2SBGNML converter = new CD2SBGNML();
+    private String inputFile;
+    private Sbml sbml;
+    private Sbgn sbgn;
+    private Path outputFile;
+
+    @Setup
+    public void setup() throws ReadModelException, IOException {
+        inputFile = Samples.get(sample).toString();
+        sbml = parse();
+        sbgn = converter.toSbgn(sbml);
+        outputFile = Files.createTempFile("cd2sbgnml-benchmark", ".sbgn");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(outputFile);
+    }
+
+    /**
+     * CellDesignerSBFCModel.setModelFromFile
+     */
+    @Benchmark
+    public Sbml parse() throws ReadModelException {
+        CellDesignerSBFCModel cdModel = new CellDesignerSBFCModel();
+        cdModel.setModelFromFile(inputFile);
+        return cdModel.getSbml();
+    }
+
+    /**
+     * ModelWrapper.create, the indexing done at the start of toSbgn. Indexes are built lazily, getting the
+     * reactions builds the species and reaction wrappers.
+     */
+    @Benchmark
+    public ModelWrapper wrapModel() {
+        ModelWrapper modelW = ModelWrapper.create(sbml);
+        modelW.getListOfReactionWrapper();
+        return modelW;
+    }
+
+    /**
+     * CD2SBGNML.toSbgn, including ModelWrapper.create
+     */
+    @Benchmark
+    public Sbgn toSbgn() {
+        return converter.toSbgn(sbml);
+    }
+
+    /**
+     * SBGNSBFCModel.modelToFile
+     */
+    @Benchmark
+    public void write() throws WriteModelException {
+        new SBGNSBFCModel(sbgn).modelToFile(outputFile.toString());
+    }
+
+    /**
+     * Validation of the converted tree in memory (default validation of the scripts)
+     */
+    @Benchmark
+    public List<String> validate() {
+        return SchemaValidator.SBGN.validate(sbgn);
+    }
+}
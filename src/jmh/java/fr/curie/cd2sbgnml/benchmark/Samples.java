@@ -0,0 +1,22 @@
+package fr.curie.cd2sbgnml.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Access to the sample files used as benchmark inputs.
+ * They are taken from the samples/ directory of the project, or from the directory given by the
+ * cd2sbgnml.samples system property of the forked benchmark JVMs (JMH option: -jvmArgsAppend -Dcd2sbgnml.samples=dir).
+ */
+class Samples {
+
+    static Path get(String name) {
+        Path sample = Paths.get(System.getProperty("cd2sbgnml.samples", "samples"), name);
+        if(!Files.isRegularFile(sample)) {
+            throw new IllegalStateException("Sample not found: "+sample.toAbsolutePath()
+                    +". Run the benchmarks from the project's root directory, or set -Dcd2sbgnml.samples");
+        }
+        return sample;
+    }
+}
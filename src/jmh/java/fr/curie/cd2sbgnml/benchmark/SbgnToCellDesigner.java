@@ -0,0 +1,101 @@
+package fr.curie.cd2sbgnml.benchmark;
+
+import fr.curie.cd2sbgnml.CD2SBGNML;
+import fr.curie.cd2sbgnml.CellDesignerSBFCModel;
+import fr.curie.cd2sbgnml.SBGNML2CD;
+import fr.curie.cd2sbgnml.SBGNSBFCModel;
+import fr.curie.cd2sbgnml.io.SchemaValidator;
+import org.openjdk.jmh.annotations.*;
+import org.sbfc.converter.exceptions.ReadModelException;
+import org.sbfc.converter.exceptions.WriteModelException;
+import org.sbgn.bindings.Sbgn;
+import org.sbml.sbml.level2.version4.Sbml;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each stage of the SBGN-ML to CellDesigner conversion, measured separately.
+ * Every stage starts from the result of the previous one, computed once in setup.
+ *
+ * CellDesigner samples (.xml) are first converted to SBGN-ML in setup, so that the reverse path is measured on
+ * the same maps as CellDesignerToSbgn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=error")
+public class SbgnToCellDesigner {
+
+    @Param({"SBGN-PD_all.sbgn", "cellcycle_v1.1.xml", "dendcells.xml", "components44.xml"})
+    public String sample;
+
+    private final SBGNML2CD converter = new SBGNML2CD();
+    private Path inputFile;
+    private boolean deleteInput;
+    private Sbgn sbgn;
+    private Sbml sbml;
+    private Path outputFile;
+
+    @Setup
+    public void setup() throws ReadModelException, WriteModelException, IOException {
+        inputFile = Samples.get(sample);
+        if(sample.endsWith(".xml")) {
+            CellDesignerSBFCModel cdModel = new CellDesignerSBFCModel();
+            cdModel.setModelFromFile(inputFile.toString());
+            inputFile = Files.createTempFile("cd2sbgnml-benchmark", ".sbgn");
+            deleteInput = true;
+            new SBGNSBFCModel(new CD2SBGNML().toSbgn(cdModel.getSbml())).modelToFile(inputFile.toString());
+        }
+        sbgn = parse();
+        sbml = converter.toCD(sbgn);
+        outputFile = Files.createTempFile("cd2sbgnml-benchmark", ".xml");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if(deleteInput) {
+            Files.deleteIfExists(inputFile);
+        }
+        Files.deleteIfExists(outputFile);
+    }
+
+    /**
+     * SBGNSBFCModel.setModelFromFile
+     */
+    @Benchmark
+    public Sbgn parse() throws ReadModelException {
+        SBGNSBFCModel sbgnModel = new SBGNSBFCModel();
+        sbgnModel.setModelFromFile(inputFile.toString());
+        return sbgnModel.getModel();
+    }
+
+    /**
+     * SBGNML2CD.toCD
+     */
+    @Benchmark
+    public Sbml toCD() {
+        return converter.toCD(sbgn);
+    }
+
+    /**
+     * CellDesignerSBFCModel.modelToFile
+     */
+    @Benchmark
+    public void write() throws WriteModelException {
+        new CellDesignerSBFCModel(sbml).modelToFile(outputFile.toString());
+    }
+
+    /**
+     * Validation of the converted tree in memory (default validation of the scripts)
+     */
+    @Benchmark
+    public List<String> validate() {
+        return SchemaValidator.CELLDESIGNER.validate(sbml);
+    }
+}
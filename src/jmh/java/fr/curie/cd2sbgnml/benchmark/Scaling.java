@@ -0,0 +1,66 @@
+package fr.curie.cd2sbgnml.benchmark;
+
+import fr.curie.cd2sbgnml.CD2SBGNML;
+import fr.curie.cd2sbgnml.SBGNML2CD;
+import fr.curie.cd2sbgnml.generator.CellDesignerMapGenerator;
+import fr.curie.cd2sbgnml.generator.SbgnMapGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.sbgn.bindings.Sbgn;
+import org.sbml.sbml.level2.version4.Sbml;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion time of generated maps of growing size, in both directions.
+ * A time growing faster than the size points to a superlinear step in the conversion.
+ *
+ * Maps are generated once in setup and converted in memory. Larger sizes can be given with
+ * -Djmh.args="-p size=1000000", with enough heap for the forked JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dorg.slf4j.simpleLogger.defaultLogLevel=error"})
+public class Scaling {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    /**
+     * Convert the reactions of CellDesigner maps, or the EPNs of SBGN-ML maps, on the common ForkJoinPool
+     */
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private Sbml sbml;
+    private Sbgn sbgn;
+
+    @Setup
+    public void setup() {
+        sbml = new CellDesignerMapGenerator(size).generate();
+        sbgn = new SbgnMapGenerator(size).generate();
+    }
+
+    /**
+     * CD2SBGNML.toSbgn on a generated CellDesigner map
+     */
+    @Benchmark
+    public Sbgn toSbgn() {
+        CD2SBGNML converter = new CD2SBGNML();
+        converter.setReactionPool(parallel ? ForkJoinPool.commonPool() : null);
+        return converter.toSbgn(sbml);
+    }
+
+    /**
+     * SBGNML2CD.toCD on a generated SBGN-ML map
+     */
+    @Benchmark
+    public Sbml toCD() {
+        SBGNML2CD converter = new SBGNML2CD();
+        converter.setSpeciesPool(parallel ? ForkJoinPool.commonPool() : null);
+        return converter.toCD(sbgn);
+    }
+}
@@ -0,0 +1,333 @@
+package fr.curie.cd2sbgnml;
+
+import fr.curie.cd2sbgnml.diagnostics.AsyncLogSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Convert many files in one JVM, on a fixed size pool of worker threads.
+ *
+ * Inputs can be all the files of a directory matching a glob pattern, or all the files listed in a manifest
+ * (one path per line, empty lines and lines starting with # are ignored, relative paths are resolved against
+ * the manifest's directory). Output files keep their path relative to the input directory, or to the manifest's
+ * directory.
+ * JAXB contexts and validation schemas are shared by all the conversions.
+ */
+public class BatchConverter {
+
+    private final Logger logger = LoggerFactory.getLogger(BatchConverter.class);
+
+    /**
+     * Time given to the log of diagnostics to catch up before the summary is written.
+     */
+    private static final long FLUSH_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * One conversion of one file to another, returning the validation problems of the output and the
+     * diagnostics of the conversion.
+     */
+    public interface FileConverter {
+        ConversionResult convert(Path input, Path output) throws Exception;
+    }
+
+    public enum Status {
+        /**
+         * converted and output is valid
+         */
+        SUCCESS,
+        /**
+         * converted but output has validation problems
+         */
+        INVALID,
+        /**
+         * conversion failed
+         */
+        FAILED
+    }
+
+    /**
+     * Outcome of the conversion of one input file.
+     */
+    public static class FileResult {
+        private final Path input;
+        private final Path output;
+        private final Status status;
+        private final List<String> warnings;
+        private final int diagnosticCount;
+        private final long timeMillis;
+
+        FileResult(Path input, Path output, Status status, List<String> warnings, int diagnosticCount,
+                   long timeMillis) {
+            this.input = input;
+            this.output = output;
+            this.status = status;
+            this.warnings = warnings;
+            this.diagnosticCount = diagnosticCount;
+            this.timeMillis = timeMillis;
+        }
+
+        public Path getInput() {
+            return input;
+        }
+
+        public Path getOutput() {
+            return output;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public List<String> getWarnings() {
+            return warnings;
+        }
+
+        /**
+         * @return number of elements that could not be translated, or were translated with a loss
+         */
+        public int getDiagnosticCount() {
+            return diagnosticCount;
+        }
+
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+    }
+
+    private final FileConverter converter;
+    private final String outputExtension;
+    private final int threads;
+
+    /**
+     * @param converter the conversion to apply to each file
+     * @param outputExtension extension replacing the input file's extension in output names (ex: .sbgn)
+     * @param threads number of files converted in parallel
+     */
+    public BatchConverter(FileConverter converter, String outputExtension, int threads) {
+        if(threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1, was: "+threads);
+        }
+        this.converter = converter;
+        this.outputExtension = outputExtension;
+        this.threads = threads;
+    }
+
+    /**
+     * List the files of a directory (and its sub directories) whose path relative to the directory
+     * matches the glob pattern. Use *.xml for the directory only, **.xml to include sub directories.
+     * @param directory
+     * @param glob
+     * @return the sorted list of matching files
+     * @throws IOException
+     */
+    public static List<Path> listDirectory(Path directory, String glob) throws IOException {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:"+glob);
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(p -> matcher.matches(directory.relativize(p)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Read the list of files from a manifest file.
+     * @param manifest
+     * @return the files listed, in the manifest order
+     * @throws IOException
+     */
+    public static List<Path> readManifest(Path manifest) throws IOException {
+        Path baseDir = manifest.toAbsolutePath().getParent();
+        List<Path> result = new ArrayList<>();
+        for(String line: Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if(line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            result.add(baseDir.resolve(line));
+        }
+        return result;
+    }
+
+    /**
+     * Convert all the given files. Output files are put in outputDir, keeping their path relative to inputRoot
+     * if they are inside it, else directly in outputDir.
+     * An input whose output path is already the output of a previous input (ex: map.xml and map.xml.gz, or two
+     * map.xml outside of inputRoot) is not converted and fails, instead of overwriting the other output.
+     * @param inputs
+     * @param inputRoot directory to which relative output paths are computed, can be null
+     * @param outputDir
+     * @return one result per input, in the same order
+     * @throws IOException if the output directory cannot be created
+     */
+    public List<FileResult> run(List<Path> inputs, Path inputRoot, Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<FileResult>> futures = new ArrayList<>();
+        Map<Path, Path> inputsByOutput = new HashMap<>();
+        try {
+            for (Path input : inputs) {
+                Path output = getOutputPath(input, inputRoot, outputDir);
+                Path previousInput = inputsByOutput.putIfAbsent(output.toAbsolutePath().normalize(), input);
+                if(previousInput != null) {
+                    String message = "Output "+output+" is already the output of "+previousInput;
+                    logger.error("Conversion of {} skipped: {}", input, message);
+                    futures.add(CompletableFuture.completedFuture(new FileResult(input, output, Status.FAILED,
+                            Collections.singletonList(message), 0, 0)));
+                    continue;
+                }
+                futures.add(executor.submit(() -> convertOne(input, output)));
+            }
+
+            List<FileResult> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    // convertOne catches everything, should not happen
+                    results.add(new FileResult(inputs.get(i), null, Status.FAILED,
+                            Collections.singletonList(String.valueOf(e.getCause())), 0, 0));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Batch conversion interrupted", e);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Command line entry point: list the input files, convert them all and write the summary.
+     * @param input directory or manifest file
+     * @param isManifest true if input is a manifest
+     * @param glob pattern of files to take from the input directory
+     * @param outputDir
+     * @param summaryFileName file where the summary is written, standard output if null
+     * @return one result per input file
+     * @throws IOException
+     */
+    public List<FileResult> convertAll(Path input, boolean isManifest, String glob, Path outputDir,
+                                       String summaryFileName) throws IOException {
+        List<Path> inputs;
+        Path inputRoot;
+        if(isManifest) {
+            inputs = readManifest(input);
+            inputRoot = input.toAbsolutePath().getParent();
+        }
+        else {
+            inputs = listDirectory(input, glob);
+            inputRoot = input;
+        }
+        logger.info("{} files to convert with {} threads", inputs.size(), threads);
+
+        List<FileResult> results = run(inputs, inputRoot, outputDir);
+        // the log of the diagnostics, then the summary
+        AsyncLogSink.getDefault().flush(FLUSH_TIMEOUT_MILLIS);
+
+        if(summaryFileName == null) {
+            writeSummary(results, System.out);
+        }
+        else {
+            try (PrintStream out = new PrintStream(summaryFileName, StandardCharsets.UTF_8.name())) {
+                writeSummary(results, out);
+            }
+        }
+        return results;
+    }
+
+    private FileResult convertOne(Path input, Path output) {
+        long start = System.nanoTime();
+        Status status;
+        List<String> warnings;
+        int diagnosticCount = 0;
+        try {
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            ConversionResult result = converter.convert(input, output);
+            warnings = result.getProblems();
+            diagnosticCount = result.getDiagnostics().size();
+            status = warnings.isEmpty() ? Status.SUCCESS : Status.INVALID;
+        } catch (Exception | StackOverflowError e) {
+            logger.error("Conversion of {} failed", input, e);
+            status = Status.FAILED;
+            warnings = Collections.singletonList(String.valueOf(e));
+        }
+        long timeMillis = (System.nanoTime() - start) / 1000000;
+        logger.info("{} {} -> {} in {} ms, {} diagnostics", status, input, output, timeMillis, diagnosticCount);
+        return new FileResult(input, output, status, warnings, diagnosticCount, timeMillis);
+    }
+
+    private Path getOutputPath(Path input, Path inputRoot, Path outputDir) {
+        Path relative;
+        if(inputRoot != null && input.toAbsolutePath().startsWith(inputRoot.toAbsolutePath())) {
+            relative = inputRoot.toAbsolutePath().relativize(input.toAbsolutePath());
+        }
+        else {
+            relative = input.getFileName();
+        }
+
+        String baseName = relative.getFileName().toString();
+        if(baseName.toLowerCase().endsWith(".gz")) {
+            baseName = baseName.substring(0, baseName.length() - 3);
+        }
+        int dot = baseName.lastIndexOf('.');
+        if(dot > 0) {
+            baseName = baseName.substring(0, dot);
+        }
+        return outputDir.resolve(relative).resolveSibling(baseName + outputExtension);
+    }
+
+    /**
+     * Write a tab separated summary, one line per file: status, time in ms, number of warnings (validation
+     * problems of the output), number of diagnostics of the conversion, input, output, then the warnings
+     * themselves on indented lines. Totals are given at the end.
+     * @param results
+     * @param out
+     */
+    public static void writeSummary(List<FileResult> results, PrintStream out) {
+        out.println("status\ttime_ms\twarnings\tdiagnostics\tinput\toutput");
+        long totalTime = 0;
+        long totalDiagnostics = 0;
+        int[] counts = new int[Status.values().length];
+        for(FileResult result: results) {
+            out.println(result.getStatus()+"\t"+result.getTimeMillis()+"\t"+result.getWarnings().size()+"\t"
+                    +result.getDiagnosticCount()+"\t"+result.getInput()+"\t"+result.getOutput());
+            for(String warning: result.getWarnings()) {
+                out.println("\t"+warning.replace('\n', ' '));
+            }
+            totalTime += result.getTimeMillis();
+            totalDiagnostics += result.getDiagnosticCount();
+            counts[result.getStatus().ordinal()]++;
+        }
+        out.println("# files: "+results.size()
+                +" success: "+counts[Status.SUCCESS.ordinal()]
+                +" invalid: "+counts[Status.INVALID.ordinal()]
+                +" failed: "+counts[Status.FAILED.ordinal()]
+                +" diagnostics: "+totalDiagnostics
+                +" cumulated time ms: "+totalTime);
+        out.flush();
+    }
+}
@@ -1,5 +1,7 @@
 package fr.curie.cd2sbgnml;
 
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostics;
 import fr.curie.cd2sbgnml.graphics.CdShape;
 import fr.curie.cd2sbgnml.graphics.GeometryUtils;
 import fr.curie.cd2sbgnml.graphics.Link;
@@ -29,6 +31,8 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import static fr.curie.cd2sbgnml.model.ReactantModel.getSbgnClass;
@@ -37,12 +41,83 @@ public class CD2SBGNML extends GeneralConverter {
 
     final Logger logger = LoggerFactory.getLogger(CD2SBGNML.class);
 
-    List<Glyph> glyphList;
-    HashMap<String, Glyph> glyphMap;
-    List<StyleInfo> styleInfoList;
-    HashMap<String, Port> portMap;
+    /**
+     * Everything built during one conversion. A new context is created for each call to toSbgn, so the same
+     * converter instance can run several conversions at once.
+     */
+    public static class ConversionContext {
+        List<Glyph> glyphList = new ArrayList<>();
+        HashMap<String, Glyph> glyphMap = new HashMap<>();
+        // all StyleInfos, aggregated into styles to be added later
+        StyleTable styleTable = new StyleTable();
+        HashMap<String, Port> portMap = new HashMap<>();
+        Diagnostics diagnostics;
+    }
+
+    /**
+     * Glyphs, ports, arcs and StyleInfos built for one reaction, in the order they are added to the map.
+     */
+    private static class ReactionResult {
+        List<Glyph> glyphList = new ArrayList<>();
+        HashMap<String, Glyph> glyphMap = new HashMap<>();
+        HashMap<String, Port> portMap = new HashMap<>();
+        List<StyleInfo> styleInfoList = new ArrayList<>();
+        List<Arc> arcList = new ArrayList<>();
+
+        void addGlyph(Glyph glyph, StyleInfo styleInfo) {
+            glyphList.add(glyph);
+            glyphMap.put(glyph.getId(), glyph);
+            styleInfoList.add(styleInfo);
+        }
+
+        /**
+         * Look for a glyph of this reaction first, then for a compartment or species glyph already converted.
+         */
+        Glyph getGlyph(ConversionContext ctx, String id) {
+            Glyph glyph = glyphMap.get(id);
+            return glyph != null ? glyph : ctx.glyphMap.get(id);
+        }
+
+        Port getPort(ConversionContext ctx, String id) {
+            Port port = portMap.get(id);
+            return port != null ? port : ctx.portMap.get(id);
+        }
+    }
+
+    /**
+     * Pool used to convert reactions in parallel, null for serial conversion.
+     */
+    private ForkJoinPool reactionPool;
+
+    /**
+     * Convert the reactions of a map in parallel on the given pool. The output is the same as in serial mode,
+     * elements are added to the map in the order of the reactions.
+     * @param reactionPool pool to use, ex: ForkJoinPool.commonPool(). null to go back to serial mode (default).
+     */
+    public void setReactionPool(ForkJoinPool reactionPool) {
+        this.reactionPool = reactionPool;
+    }
 
     public Sbgn toSbgn(Sbml sbml) {
+        return toSbgn(sbml, new ConversionMetrics());
+    }
+
+    /**
+     * @param sbml
+     * @param metrics receives the time, allocations and element counts of each stage of the conversion
+     * @return the converted map
+     */
+    public Sbgn toSbgn(Sbml sbml, ConversionMetrics metrics) {
+        return toSbgn(sbml, metrics, new Diagnostics());
+    }
+
+    /**
+     * @param sbml
+     * @param metrics receives the time, allocations and element counts of each stage of the conversion
+     * @param diagnostics receives the problems found during the conversion
+     * @return the converted map
+     */
+    public Sbgn toSbgn(Sbml sbml, ConversionMetrics metrics, Diagnostics diagnostics) {
         Sbgn sbgn = new Sbgn();
         Map map = new Map();
         //map.setId("mapID"); don't put it to ensure 0.2 compatibility
@@ -50,7 +125,16 @@ public class CD2SBGNML extends GeneralConverter {
         sbgn.setMap(map);
         map.setLanguage(Language.PD.toString());
 
-        ModelWrapper modelW = ModelWrapper.create(sbml);
+        ConversionMetrics.Stage stage = metrics.start("index");
+        ModelWrapper modelW = ModelWrapper.create(sbml, diagnostics);
+        // the wrappers are built lazily, build them here so that their time is counted in this stage
+        stage.count("compartments", modelW.getListOfCompartments().size())
+                .count("species", modelW.getListOfSpecies().size())
+                .count("included species", modelW.getListOfIncludedSpecies().size())
+                .count("species aliases", modelW.getListOfSpeciesAliases().size())
+                .count("complex aliases", modelW.getListOfComplexSpeciesAliases().size())
+                .count("reactions", modelW.getListOfReactionWrapper().size());
+        stage.end();
 
         // put model notes into map notes
         if(modelW.getModel().getNotes() != null) {
@@ -61,209 +145,53 @@ public class CD2SBGNML extends GeneralConverter {
 
         //System.exit(1);
 
-        logger.debug("number of species "+modelW.getListOfSpecies().size());
-        logger.debug("number of included species "+modelW.getListOfIncludedSpecies().size());
-        logger.debug("number of compartments "+modelW.getListOfCompartments().size());
-        logger.debug("compartment aliases count: "+modelW.getListOfCompartmentAliases().size());
-
+        logger.debug("number of species {}", modelW.getListOfSpecies().size());
+        logger.debug("number of included species {}", modelW.getListOfIncludedSpecies().size());
+        logger.debug("number of compartments {}", modelW.getListOfCompartments().size());
+        logger.debug("compartment aliases count: {}", modelW.getListOfCompartmentAliases().size());
 
-        this.glyphList = new ArrayList<>();
-        this.glyphMap = new HashMap<>();
-        // store all StyleInfos to be aggregated and added later
-        this.styleInfoList = new ArrayList<>();
-        this.portMap = new HashMap<>();
+        ConversionContext ctx = new ConversionContext();
+        ctx.diagnostics = diagnostics;
 
 
         // compartment section
+        stage = metrics.start("compartments");
         for(Compartment compartment: modelW.getListOfCompartments()) {
-            processCompartment(compartment, modelW, map);
+            processCompartment(ctx, compartment, modelW, map);
         }
+        stage.end();
+        stage.count("glyphs", map.getGlyph().size());
 
         // species section
+        stage = metrics.start("species");
         for(SpeciesWrapper speciesW: modelW.getListOfSpeciesWrapper()) {
             //SpeciesWrapper speciesW = new SpeciesWrapper(species, modelW);
-            processSpecies(speciesW, modelW, map);
+            processSpecies(ctx, speciesW, modelW, map);
         }
+        stage.end();
+        stage.count("glyphs", map.getGlyph().size());
 
         // reactions
-        for(ReactionWrapper reactionW: modelW.getListOfReactionWrapper()) {
-            //ReactionWrapper reactionW = modelW.getReactionWrapperFor(reaction.getId());
-            GenericReactionModel genericReactionModel = ReactionModelFactory.create(reactionW);
-
-            // PROCESS
-            logger.debug(reactionW.getId()+" "+reactionW.getReactantList().size());
-
-            String processId = null;
-            if(reactionW.hasProcess()) {
-                Process process = genericReactionModel.getProcess();
-                Point2D processCoord = process.getGlyph().getCenter();
-
-                Glyph processGlyph = new Glyph();
-                processGlyph.setClazz(Process.getSbgnClass(genericReactionModel.getCdReactionType().toString()));
-                processId = process.getId();
-                processGlyph.setId(processId);
-
-                // include process into correct compartment
-                // only if base reactants and products are in the same compartment, else no decision is taken
-                String processCompartmentId = null;
-                boolean sameCompartmentForAllReactants = true;
-
-                List<ReactantWrapper> combinedBaseWrapper = new ArrayList<>(reactionW.getBaseReactants());
-                combinedBaseWrapper.addAll(reactionW.getBaseProducts());
-
-                for(ReactantWrapper reactantW: combinedBaseWrapper) {
-                    String reactantCompId = reactantW.getAliasW().getSpeciesW().getCompartment();
-                    if(processCompartmentId == null) {
-                        processCompartmentId = reactantCompId;
-                    }
-                    else if(!processCompartmentId.equals(reactantCompId)) {
-                        sameCompartmentForAllReactants = false;
-                        break;
-                    }
-                }
-
-                logger.debug("Final process compartment is: "+processCompartmentId);
-
-                if (sameCompartmentForAllReactants && !processCompartmentId.equals("default")) {
-                    processGlyph.setCompartmentRef(this.glyphMap.get(processCompartmentId));
-                }
-
-                Bbox processBbox = new Bbox();
-                processBbox.setX((float) processCoord.getX() - process.getSize() / 2);
-                processBbox.setY((float) processCoord.getY() - process.getSize() / 2);
-                processBbox.setH(process.getSize());
-                processBbox.setW(process.getSize());
-                processGlyph.setBbox(processBbox);
-
-                // put reaction into process glyph
-                // TODO if no process, add notes into the arc
-                processGlyph.setNotes(getSBGNNotes(reactionW.getNotes()));
-                processGlyph.setExtension(getSBGNAnnotation(reactionW.getAnnotations(), processId));
-
-                // TODO process style ?
-
-                // ports
-                Port p1 = new Port();
-                String p1Id = processId+"_p1";
-                p1.setId(p1Id);
-                p1.setX((float) process.getPortIn().getX());
-                p1.setY((float) process.getPortIn().getY());
-                processGlyph.getPort().add(p1);
-                portMap.put(p1Id, p1);
-
-                Port p2 = new Port();
-                String p2Id = processId+"_p2";
-                p2.setId(p2Id);
-                p2.setX((float) process.getPortOut().getX());
-                p2.setY((float) process.getPortOut().getY());
-                processGlyph.getPort().add(p2);
-                portMap.put(p2Id, p2);
-
-                processGlyph.setOrientation(process.getOrientation().name().toLowerCase());
-
-                glyphList.add(processGlyph);
-                glyphMap.put(processId, processGlyph);
-                styleInfoList.add(genericReactionModel.getProcess().getStyleInfo());
-                map.getGlyph().add(processGlyph);
-            }
-
-            // Possible logic gates
-            for(ReactionNodeModel nodeModel: genericReactionModel.getReactionNodeModels()) {
-                if(nodeModel instanceof LogicGate) {
-                    LogicGate logicGate = (LogicGate) nodeModel;
-
-                    Point2D logicCoord = logicGate.getGlyph().getCenter();
-
-                    Glyph logicGlyph = new Glyph();
-                    logicGlyph.setClazz(LogicGate.getSbgnClass(logicGate.getType()));
-
-                    String logicId = logicGate.getId();
-                    logicGlyph.setId(logicId);
-
-                    Bbox logicBbox = new Bbox();
-                    logicBbox.setX((float) logicCoord.getX() - logicGate.getSize() / 2);
-                    logicBbox.setY((float) logicCoord.getY() - logicGate.getSize() / 2);
-                    logicBbox.setH(logicGate.getSize());
-                    logicBbox.setW(logicGate.getSize());
-                    logicGlyph.setBbox(logicBbox);
-
-                    // assign compartment
-                    // find glyphs associated to this logic gate
-                    List<Glyph> connectedGLyphs = new ArrayList<>();
-                    for(LinkModel lm: genericReactionModel.getLinkModels()) {
-                        if(lm.getEnd().getId().equals(logicGate.getId())) {
-                            String modifierId = lm.getStart().getId();
-                            connectedGLyphs.add(glyphMap.get(modifierId));
-                        }
-                        else if(lm.getStart().getId().equals(logicGate.getId())) {
-                            String modifierId = lm.getEnd().getId();
-                            connectedGLyphs.add(glyphMap.get(modifierId));
-                        }
-                    }
-
-                    String logicCompartmentId = null;
-                    boolean sameCompartmentForAllReactants = true;
-                    Glyph compartmentGlyph = null;
-
-                    for(Glyph g: connectedGLyphs) {
-                        String glyphCompartmentId;
-                        if(g.getCompartmentRef() == null) { // glyph is outside, no compartment defined
-                            glyphCompartmentId = "default";
-                        }
-                        else {
-                            glyphCompartmentId = ((Glyph) g.getCompartmentRef()).getId();
-                        }
-
-                        if(logicCompartmentId == null) {
-                            logicCompartmentId = glyphCompartmentId;
-                            compartmentGlyph = (Glyph) g.getCompartmentRef();
-                        }
-                        else if(!logicCompartmentId.equals(glyphCompartmentId)) {
-                            sameCompartmentForAllReactants = false;
-                            break;
-                        }
-                    }
-
-                    logger.debug("Final logic compartment is: "+logicCompartmentId);
-                    if (sameCompartmentForAllReactants && !logicCompartmentId.equals("default")) {
-                        logicGlyph.setCompartmentRef(compartmentGlyph);
-                    }
-
-
-                    // ports
-                    Port p1 = new Port();
-                    String p1Id = logicId+"_p1";
-                    p1.setId(p1Id);
-                    p1.setX((float) logicGate.getPortIn().getX());
-                    p1.setY((float) logicGate.getPortIn().getY());
-                    logicGlyph.getPort().add(p1);
-                    portMap.put(p1Id, p1);
-
-                    Port p2 = new Port();
-                    String p2Id = logicId+"_p2";
-                    p2.setId(p2Id);
-                    p2.setX((float) logicGate.getPortOut().getX());
-                    p2.setY((float) logicGate.getPortOut().getY());
-                    logicGlyph.getPort().add(p2);
-                    portMap.put(p2Id, p2);
-
-                    logicGlyph.setOrientation(logicGate.getOrientation().name().toLowerCase());
-
-                    glyphList.add(logicGlyph);
-                    glyphMap.put(logicId, logicGlyph);
-                    styleInfoList.add(logicGate.getStyleInfo());
-                    map.getGlyph().add(logicGlyph);
-
-                }
-            }
-
-            for(LinkModel ln: genericReactionModel.getLinkModels()) {
-                styleInfoList.add(ln.getStyleInfo());
-                map.getArc().add(getArc(ln));
+        stage = metrics.start("reactions");
+        List<ReactionResult> reactionResults = buildReactions(ctx, modelW.getListOfReactionWrapper(), stage);
+        // merge in the order of the reactions, whatever the order in which they were built
+        for(ReactionResult result: reactionResults) {
+            for(Glyph glyph: result.glyphList) {
+                ctx.glyphList.add(glyph);
+                ctx.glyphMap.put(glyph.getId(), glyph);
+                map.getGlyph().add(glyph);
             }
+            ctx.portMap.putAll(result.portMap);
+            result.styleInfoList.forEach(ctx.styleTable::add);
+            map.getArc().addAll(result.arcList);
         }
 
+        stage.end();
+        stage.count("glyphs", map.getGlyph().size())
+                .count("arcs", map.getArc().size());
+
         // text notes on the map
+        IdGenerator textIds = new CounterIdGenerator("map");
         for(TextWrapper textW: modelW.getListofTextWrapper()) {
             if(!textW.isVisible()) {
                 continue;
@@ -283,7 +211,7 @@ public class CD2SBGNML extends GeneralConverter {
             textGlyph.setLabel(textLabel);
 
             textGlyph.setClazz("annotation");
-            textGlyph.setId("text_"+UUID.randomUUID());
+            textGlyph.setId(textIds.next("text"));
 
             // set reference point
             Glyph.Callout callout = new Glyph.Callout();
@@ -298,15 +226,19 @@ public class CD2SBGNML extends GeneralConverter {
 
 
         // finally process style info objects
+        stage = metrics.start("styles");
         SBGNBase.Extension ext = new SBGNBase.Extension();
-        ext.getAny().add(getAllStyles(styleInfoList, sbml));
+        ext.getAny().add(getAllStyles(ctx.styleTable, sbml));
         map.setExtension(ext);
+        stage.end();
+        stage.count("style infos", ctx.styleTable.getRefCount())
+                .count("styles", ctx.styleTable.getStyleCount());
 
 
         return sbgn;
     }
 
-    public void processCompartment(Compartment compartment, ModelWrapper modelW, Map map) {
+    public void processCompartment(ConversionContext ctx, Compartment compartment, ModelWrapper modelW, Map map) {
         if(! compartment.getId().equals("default")) {
             for(CompartmentAlias alias : modelW.getCompartmentAliasFor(compartment.getId())) {
                 Bounds cdBounds = alias.getBounds();
@@ -319,7 +251,7 @@ public class CD2SBGNML extends GeneralConverter {
                 String compartmentId = compartment.getId()+"_"+alias.getId();
                 compGlyph.setId(compartmentId);
                 if (!compartment.getOutside().equals("default")) {
-                    compGlyph.setCompartmentRef(glyphMap.get(compartment.getOutside()));
+                    compGlyph.setCompartmentRef(ctx.glyphMap.get(compartment.getOutside()));
                 }
 
                 // label
@@ -376,9 +308,9 @@ public class CD2SBGNML extends GeneralConverter {
                         Utils.getRDFAnnotations(compartment.getAnnotation().getAny()), compartmentId));
 
                 // keep references
-                glyphList.add(compGlyph);
-                glyphMap.put(compartment.getId(), compGlyph);
-                styleInfoList.add(new StyleInfo(alias, compartmentId));
+                ctx.glyphList.add(compGlyph);
+                ctx.glyphMap.put(compartment.getId(), compGlyph);
+                ctx.styleTable.add(new StyleInfo(alias, compartmentId));
 
                 // add to output
                 map.getGlyph().add(compGlyph);
@@ -386,14 +318,15 @@ public class CD2SBGNML extends GeneralConverter {
         }
     }
 
-    public Glyph processSpeciesAlias(SpeciesWrapper species, AliasWrapper alias, ModelWrapper modelW, boolean isClone) {
-        Glyph glyph = getGlyph(alias, isClone);
+    public Glyph processSpeciesAlias(ConversionContext ctx, SpeciesWrapper species, AliasWrapper alias,
+                                     ModelWrapper modelW, boolean isClone) {
+        Glyph glyph = getGlyph(ctx, alias, isClone);
 
         if(species.getReferenceNotes() != null) {
             // TODO is piling up <html> elements in 1 note ok ?
             if(glyph.getNotes() != null) {
                 glyph.getNotes().getAny().set(0, Utils.mergeHtmls(glyph.getNotes().getAny().get(0), species.getReferenceNotes()));
-                logger.debug("MULTIPLE NOTES "+glyph.getNotes().getAny());
+                logger.debug("MULTIPLE NOTES {}", glyph.getNotes().getAny());
             }
             else {
                 glyph.setNotes(getSBGNNotes(species.getReferenceNotes()));
@@ -404,21 +337,22 @@ public class CD2SBGNML extends GeneralConverter {
             if(modelW.getIncludedAliasWrapperFor(alias.getId()) == null) {
                 // empty complex, should probably not happen
                 //throw new IllegalStateException("empty complex for species "+species.getId()+" alias: "+alias.getId()+" name: "+species.getName());
-                logger.warn("Empty complex for species "+species.getId()+" alias: "+alias.getId()+" name: "+species.getName());
+                modelW.getDiagnostics().warn(Diagnostic.Type.EMPTY_COMPLEX, alias.getId(),
+                        "Empty complex for species "+species.getId()+" name: "+species.getName());
             }
             else {
                 for(AliasWrapper includedAlias: modelW.getIncludedAliasWrapperFor(alias.getId())) {
                     SpeciesWrapper includedSpecies = modelW.getSpeciesWrapperFor(includedAlias.getSpeciesId());
-                    Glyph includedGlyph = processSpeciesAlias(includedSpecies, includedAlias, modelW, isClone);
+                    Glyph includedGlyph = processSpeciesAlias(ctx, includedSpecies, includedAlias, modelW, isClone);
                     glyph.getGlyph().add(includedGlyph);
 
                     /*
                     In ACSN, we need to keep references to included species also because some have links. Which
                     shouldn't happen.
                      */
-                    glyphList.add(includedGlyph);
-                    glyphMap.put(includedGlyph.getId(), includedGlyph);
-                    styleInfoList.add(includedAlias.getStyleInfo());
+                    ctx.glyphList.add(includedGlyph);
+                    ctx.glyphMap.put(includedGlyph.getId(), includedGlyph);
+                    ctx.styleTable.add(includedAlias.getStyleInfo());
                 }
             }
         }
@@ -426,7 +360,7 @@ public class CD2SBGNML extends GeneralConverter {
         return glyph;
     }
 
-    public void processSpecies(SpeciesWrapper species, ModelWrapper modelW, Map map) {
+    public void processSpecies(ConversionContext ctx, SpeciesWrapper species, ModelWrapper modelW, Map map) {
         boolean isClone = false;
         if(species.getAliases().size() > 1) {
             isClone = true;
@@ -434,30 +368,32 @@ public class CD2SBGNML extends GeneralConverter {
         for(AliasWrapper alias : species.getAliases()) {
             // included species is already added inside its complex when complex is processed
             if(!species.isIncludedSpecies()) {
-                Glyph glyph = processSpeciesAlias(species, alias, modelW, isClone);
+                Glyph glyph = processSpeciesAlias(ctx, species, alias, modelW, isClone);
 
                 // keep references
-                glyphList.add(glyph);
-                glyphMap.put(glyph.getId(), glyph);
-                styleInfoList.add(alias.getStyleInfo());
+                ctx.glyphList.add(glyph);
+                ctx.glyphMap.put(glyph.getId(), glyph);
+                ctx.styleTable.add(alias.getStyleInfo());
                 // add to map
                 map.getGlyph().add(glyph);
             }
         }
     }
 
-    public Glyph getGlyph(AliasWrapper aliasW, boolean isClone) {
+    public Glyph getGlyph(ConversionContext ctx, AliasWrapper aliasW, boolean isClone) {
         String id = aliasW.getSpeciesW().getId()+"_"+aliasW.getId();
         SpeciesWrapper species = aliasW.getSpeciesW();
 
         Rectangle2D.Float bboxRect = (Rectangle2D.Float) aliasW.getBounds();
 
         Glyph glyph = new Glyph();
+        // ids of the state variables and units of info
+        IdGenerator auxIds = new CounterIdGenerator(id);
 
         // basic info
         glyph.setId(id);
         if (! species.isIncludedSpecies() && !species.getCompartment().equals("default")) {
-            glyph.setCompartmentRef(this.glyphMap.get(species.getCompartment()));
+            glyph.setCompartmentRef(ctx.glyphMap.get(species.getCompartment()));
         }
 
         // label
@@ -481,7 +417,7 @@ public class CD2SBGNML extends GeneralConverter {
         // structural state
         if(species.getStructuralState() != null) {
 
-            Glyph statevar = getStateVariable("", species.getStructuralState(), bboxRect, 90);
+            Glyph statevar = getStateVariable("", species.getStructuralState(), bboxRect, 90, auxIds);
             glyph.getGlyph().add(statevar);
 
         }
@@ -492,7 +428,8 @@ public class CD2SBGNML extends GeneralConverter {
             Glyph unitOfInfo = getUnitOfInfo(aliasW.getInfo().getSbgnText(),
                     bboxRect,
                     // clockwork here !!!
-                    - GeometryUtils.unsignedRadianToSignedDegree(aliasW.getInfo().angle));
+                    - GeometryUtils.unsignedRadianToSignedDegree(aliasW.getInfo().angle),
+                    auxIds);
             glyph.getGlyph().add(unitOfInfo);
 
         }
@@ -515,7 +452,8 @@ public class CD2SBGNML extends GeneralConverter {
 
                 Glyph unitOfInfoMultimer = getUnitOfInfo("N:" + species.getMultimer(),
                         bboxRect,
-                        angle);
+                        angle,
+                        auxIds);
                 glyph.getGlyph().add(unitOfInfoMultimer);
             }
 
@@ -524,7 +462,8 @@ public class CD2SBGNML extends GeneralConverter {
         // state variables
         for(ResidueWrapper residueW: species.getResidues()) {
 
-            Glyph residue = getStateVariableFromResidueWrapper(residueW, bboxRect);
+            Glyph residue = getStateVariableFromResidueWrapper(residueW, bboxRect, auxIds, ctx.diagnostics,
+                    aliasW.getId());
 
             glyph.getGlyph().add(residue);
         }
@@ -532,40 +471,40 @@ public class CD2SBGNML extends GeneralConverter {
         // add additional units of info depending on the situation
         // eg for receptors, ion channels, truncated, genes...
         if(species.getType() == SpeciesWrapper.ReferenceType.RECEPTOR) {
-            Glyph receptorUnitOfInfo = getUnitOfInfo("receptor", bboxRect, 90);
+            Glyph receptorUnitOfInfo = getUnitOfInfo("receptor", bboxRect, 90, auxIds);
             glyph.getGlyph().add(receptorUnitOfInfo);
         }
         else if(species.getType() == SpeciesWrapper.ReferenceType.ION_CHANNEL) {
-            Glyph receptorUnitOfInfo = getUnitOfInfo("ion channel", bboxRect, 90);
+            Glyph receptorUnitOfInfo = getUnitOfInfo("ion channel", bboxRect, 90, auxIds);
             glyph.getGlyph().add(receptorUnitOfInfo);
 
             Glyph activeStateVar;
             if(aliasW.isActive()) {
-                activeStateVar = getStateVariable("", "open", bboxRect, -90);
+                activeStateVar = getStateVariable("", "open", bboxRect, -90, auxIds);
             }
             else {
-                activeStateVar = getStateVariable("", "closed", bboxRect, -90);
+                activeStateVar = getStateVariable("", "closed", bboxRect, -90, auxIds);
             }
             glyph.getGlyph().add(activeStateVar);
         }
         else if(species.getType() == SpeciesWrapper.ReferenceType.TRUNCATED) {
-            Glyph receptorUnitOfInfo = getUnitOfInfo("truncated", bboxRect, 90);
+            Glyph receptorUnitOfInfo = getUnitOfInfo("truncated", bboxRect, 90, auxIds);
             glyph.getGlyph().add(receptorUnitOfInfo);
         }
         else if(species.getType() == SpeciesWrapper.ReferenceType.RNA) {
-            Glyph rnaUnitOfInfo = getUnitOfInfo("RNA", bboxRect, 90);
+            Glyph rnaUnitOfInfo = getUnitOfInfo("RNA", bboxRect, 90, auxIds);
             glyph.getGlyph().add(rnaUnitOfInfo);
         }
         else if(species.getType() == SpeciesWrapper.ReferenceType.ANTISENSE_RNA) {
-            Glyph rnaUnitOfInfo = getUnitOfInfo("asRNA", bboxRect, 90);
+            Glyph rnaUnitOfInfo = getUnitOfInfo("asRNA", bboxRect, 90, auxIds);
             glyph.getGlyph().add(rnaUnitOfInfo);
         }
         /*else if(species.getCdClass().equals("ION")) {
-            Glyph ionUnitOfInfo = getUnitOfInfo("ion", bboxRect, 90);
+            Glyph ionUnitOfInfo = getUnitOfInfo("ion", bboxRect, 90, auxIds);
             glyph.getGlyph().add(ionUnitOfInfo);
         }*/
         else if(species.getCdClass().equals("DRUG")) {
-            Glyph drugUnitOfInfo = getUnitOfInfo("drug", bboxRect, 90);
+            Glyph drugUnitOfInfo = getUnitOfInfo("drug", bboxRect, 90, auxIds);
             glyph.getGlyph().add(drugUnitOfInfo);
         }
 
@@ -580,7 +519,8 @@ public class CD2SBGNML extends GeneralConverter {
         return glyph;
     }
 
-    public Glyph getStateVariable(String prefix, String value, Rectangle2D.Float parentBbox, float angle) {
+    public Glyph getStateVariable(String prefix, String value, Rectangle2D.Float parentBbox, float angle,
+                                  IdGenerator idGenerator) {
 
         Glyph unitOfInfo = new Glyph();
 
@@ -598,17 +538,19 @@ public class CD2SBGNML extends GeneralConverter {
         unitOfInfo.setBbox(infoBbox);
 
         unitOfInfo.setClazz("state variable");
-        unitOfInfo.setId("_" + UUID.randomUUID());
+        unitOfInfo.setId(idGenerator.next("sv"));
 
         return unitOfInfo;
     }
 
-    public Glyph getStateVariableFromResidueWrapper(ResidueWrapper residueW, Rectangle2D.Float parentBbox) {
+    public Glyph getStateVariableFromResidueWrapper(ResidueWrapper residueW, Rectangle2D.Float parentBbox,
+                                                   IdGenerator idGenerator, Diagnostics diagnostics,
+                                                   String parentId) {
 
         Glyph unitOfInfo = new Glyph();
 
         String prefix = residueW.name;
-        String value = ResidueWrapper.getShortState(residueW.state);
+        String value = ResidueWrapper.getShortState(residueW.state, diagnostics, parentId);
         State state = new State();
         state.setValue(value);
         state.setVariable(prefix);
@@ -631,12 +573,12 @@ public class CD2SBGNML extends GeneralConverter {
         unitOfInfo.setBbox(infoBbox);
 
         unitOfInfo.setClazz("state variable");
-        unitOfInfo.setId("_" + UUID.randomUUID());
+        unitOfInfo.setId(idGenerator.next("sv"));
 
         return unitOfInfo;
     }
 
-    public Glyph getUnitOfInfo(String text, Rectangle2D.Float parentBbox, float angle) {
+    public Glyph getUnitOfInfo(String text, Rectangle2D.Float parentBbox, float angle, IdGenerator idGenerator) {
 
         Glyph unitOfInfo = new Glyph();
         Label infoLabel = new Label();
@@ -652,22 +594,243 @@ public class CD2SBGNML extends GeneralConverter {
         unitOfInfo.setBbox(infoBbox);
 
         unitOfInfo.setClazz("unit of information");
-        unitOfInfo.setId("_" + UUID.randomUUID());
+        unitOfInfo.setId(idGenerator.next("ui"));
 
         return unitOfInfo;
     }
 
-    public Arc getArc(LinkModel linkM) {
+    /**
+     * Build the glyphs and arcs of all the reactions, on the reaction pool if one is set.
+     * @param ctx
+     * @param reactions
+     * @param stage counts the allocations of the workers
+     * @return one result per reaction, in the same order
+     */
+    private List<ReactionResult> buildReactions(ConversionContext ctx, List<ReactionWrapper> reactions,
+                                                ConversionMetrics.Stage stage) {
+        if(reactionPool == null) {
+            List<ReactionResult> results = new ArrayList<>();
+            for(ReactionWrapper reactionW: reactions) {
+                results.add(buildReaction(ctx, reactionW));
+            }
+            return results;
+        }
+
+        try {
+            return reactionPool.submit(() -> reactions.parallelStream()
+                    .map(reactionW -> stage.measureWorker(() -> buildReaction(ctx, reactionW)))
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while converting reactions", e);
+        } catch (ExecutionException e) {
+            // throw the same exception as the serial mode would
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Build the process, logic gates and arcs of a reaction. Nothing is added to the context or the map, so
+     * reactions can be built in parallel once compartments and species are done.
+     * @param ctx
+     * @param reactionW
+     * @return the elements of the reaction, to be merged in the map
+     */
+    private ReactionResult buildReaction(ConversionContext ctx, ReactionWrapper reactionW) {
+        ReactionResult result = new ReactionResult();
+        GenericReactionModel genericReactionModel = ReactionModelFactory.create(reactionW);
+
+        // PROCESS
+        logger.debug("{} {}", reactionW.getId(), reactionW.getReactantList().size());
+
+        String processId = null;
+        if(reactionW.hasProcess()) {
+            Process process = genericReactionModel.getProcess();
+            Point2D processCoord = process.getGlyph().getCenter();
+
+            Glyph processGlyph = new Glyph();
+            processGlyph.setClazz(Process.getSbgnClass(genericReactionModel.getCdReactionType().toString()));
+            processId = process.getId();
+            processGlyph.setId(processId);
+
+            // include process into correct compartment
+            // only if base reactants and products are in the same compartment, else no decision is taken
+            String processCompartmentId = null;
+            boolean sameCompartmentForAllReactants = true;
+
+            List<ReactantWrapper> combinedBaseWrapper = new ArrayList<>(reactionW.getBaseReactants());
+            combinedBaseWrapper.addAll(reactionW.getBaseProducts());
+
+            for(ReactantWrapper reactantW: combinedBaseWrapper) {
+                String reactantCompId = reactantW.getAliasW().getSpeciesW().getCompartment();
+                if(processCompartmentId == null) {
+                    processCompartmentId = reactantCompId;
+                }
+                else if(!processCompartmentId.equals(reactantCompId)) {
+                    sameCompartmentForAllReactants = false;
+                    break;
+                }
+            }
+
+            logger.debug("Final process compartment is: {}", processCompartmentId);
+
+            if (sameCompartmentForAllReactants && !processCompartmentId.equals("default")) {
+                processGlyph.setCompartmentRef(ctx.glyphMap.get(processCompartmentId));
+            }
+
+            Bbox processBbox = new Bbox();
+            processBbox.setX((float) processCoord.getX() - process.getSize() / 2);
+            processBbox.setY((float) processCoord.getY() - process.getSize() / 2);
+            processBbox.setH(process.getSize());
+            processBbox.setW(process.getSize());
+            processGlyph.setBbox(processBbox);
+
+            // put reaction into process glyph
+            // TODO if no process, add notes into the arc
+            processGlyph.setNotes(getSBGNNotes(reactionW.getNotes()));
+            processGlyph.setExtension(getSBGNAnnotation(reactionW.getAnnotations(), processId));
+
+            // TODO process style ?
+
+            // ports
+            Port p1 = new Port();
+            String p1Id = processId+"_p1";
+            p1.setId(p1Id);
+            p1.setX((float) process.getPortIn().getX());
+            p1.setY((float) process.getPortIn().getY());
+            processGlyph.getPort().add(p1);
+            result.portMap.put(p1Id, p1);
+
+            Port p2 = new Port();
+            String p2Id = processId+"_p2";
+            p2.setId(p2Id);
+            p2.setX((float) process.getPortOut().getX());
+            p2.setY((float) process.getPortOut().getY());
+            processGlyph.getPort().add(p2);
+            result.portMap.put(p2Id, p2);
+
+            processGlyph.setOrientation(process.getOrientation().name().toLowerCase());
+
+            result.addGlyph(processGlyph, genericReactionModel.getProcess().getStyleInfo());
+        }
+
+        // Possible logic gates
+        for(ReactionNodeModel nodeModel: genericReactionModel.getReactionNodeModels()) {
+            if(nodeModel instanceof LogicGate) {
+                LogicGate logicGate = (LogicGate) nodeModel;
+
+                Point2D logicCoord = logicGate.getGlyph().getCenter();
+
+                Glyph logicGlyph = new Glyph();
+                logicGlyph.setClazz(LogicGate.getSbgnClass(logicGate.getType()));
+
+                String logicId = logicGate.getId();
+                logicGlyph.setId(logicId);
+
+                Bbox logicBbox = new Bbox();
+                logicBbox.setX((float) logicCoord.getX() - logicGate.getSize() / 2);
+                logicBbox.setY((float) logicCoord.getY() - logicGate.getSize() / 2);
+                logicBbox.setH(logicGate.getSize());
+                logicBbox.setW(logicGate.getSize());
+                logicGlyph.setBbox(logicBbox);
+
+                // assign compartment
+                // find glyphs associated to this logic gate
+                List<Glyph> connectedGLyphs = new ArrayList<>();
+                for(LinkModel lm: genericReactionModel.getIncidentLinks(logicId)) {
+                    String modifierId = lm.getEnd().getId().equals(logicId)
+                            ? lm.getStart().getId()
+                            : lm.getEnd().getId();
+                    connectedGLyphs.add(result.getGlyph(ctx, modifierId));
+                }
+
+                String logicCompartmentId = null;
+                boolean sameCompartmentForAllReactants = true;
+                Glyph compartmentGlyph = null;
+
+                for(Glyph g: connectedGLyphs) {
+                    String glyphCompartmentId;
+                    if(g.getCompartmentRef() == null) { // glyph is outside, no compartment defined
+                        glyphCompartmentId = "default";
+                    }
+                    else {
+                        glyphCompartmentId = ((Glyph) g.getCompartmentRef()).getId();
+                    }
+
+                    if(logicCompartmentId == null) {
+                        logicCompartmentId = glyphCompartmentId;
+                        compartmentGlyph = (Glyph) g.getCompartmentRef();
+                    }
+                    else if(!logicCompartmentId.equals(glyphCompartmentId)) {
+                        sameCompartmentForAllReactants = false;
+                        break;
+                    }
+                }
+
+                logger.debug("Final logic compartment is: {}", logicCompartmentId);
+                if (sameCompartmentForAllReactants && !logicCompartmentId.equals("default")) {
+                    logicGlyph.setCompartmentRef(compartmentGlyph);
+                }
+
+
+                // ports
+                Port p1 = new Port();
+                String p1Id = logicId+"_p1";
+                p1.setId(p1Id);
+                p1.setX((float) logicGate.getPortIn().getX());
+                p1.setY((float) logicGate.getPortIn().getY());
+                logicGlyph.getPort().add(p1);
+                result.portMap.put(p1Id, p1);
+
+                Port p2 = new Port();
+                String p2Id = logicId+"_p2";
+                p2.setId(p2Id);
+                p2.setX((float) logicGate.getPortOut().getX());
+                p2.setY((float) logicGate.getPortOut().getY());
+                logicGlyph.getPort().add(p2);
+                result.portMap.put(p2Id, p2);
+
+                logicGlyph.setOrientation(logicGate.getOrientation().name().toLowerCase());
+
+                result.addGlyph(logicGlyph, logicGate.getStyleInfo());
+
+            }
+        }
+
+        for(LinkModel ln: genericReactionModel.getLinkModels()) {
+            result.styleInfoList.add(ln.getStyleInfo());
+            result.arcList.add(getArc(ctx, result, ln));
+        }
+
+        return result;
+    }
+
+    public Arc getArc(ConversionContext ctx, LinkModel linkM) {
+        return getArc(ctx, new ReactionResult(), linkM);
+    }
+
+    /**
+     * @param ctx
+     * @param result reaction being built, its glyphs and ports can be sources and targets of the arc
+     * @param linkM
+     * @return the arc of the link
+     */
+    private Arc getArc(ConversionContext ctx, ReactionResult result, LinkModel linkM) {
 
         /*
         In ACSN, some subunits of a complex have connections. They are not added to the global glyphMap index, so they
         cannot be referenced here.
          */
-        if(!this.glyphMap.containsKey(linkM.getStart().getId())) {
-            logger.error("No source for link: "+linkM.getId()+" missing glyph "+linkM.getStart().getId());
+        if(result.getGlyph(ctx, linkM.getStart().getId()) == null) {
+            ctx.diagnostics.error(Diagnostic.Type.MISSING_ARC_END, linkM.getId(),
+                    "No source for link, missing glyph "+linkM.getStart().getId());
         }
-        if(!this.glyphMap.containsKey(linkM.getEnd().getId())) {
-            logger.error("No target for link: "+linkM.getId()+" missing glyph "+linkM.getEnd().getId());
+        if(result.getGlyph(ctx, linkM.getEnd().getId()) == null) {
+            ctx.diagnostics.error(Diagnostic.Type.MISSING_ARC_END, linkM.getId(),
+                    "No target for link, missing glyph "+linkM.getEnd().getId());
         }
 
         GenericReactionElement genericSource = linkM.getStart();
@@ -684,17 +847,18 @@ public class CD2SBGNML extends GeneralConverter {
             if(linkM.isReversed()) {
                 portNumber = "p1";
             }
-            source = portMap.get(genericSource.getId()+"_"+portNumber);
+            source = result.getPort(ctx, genericSource.getId()+"_"+portNumber);
             // TODO for reversible reactions, some product link can start from the input port!
         }
         else {
             if(genericSource instanceof ReactantModel
                     && genericSource.getGlyph().getCdShape() == CdShape.PHENOTYPE) {
-                logger.warn("Arc with id: "+linkM.getId()+" is coming from phenotype glyph "+genericSource.getId()
+                ctx.diagnostics.warn(Diagnostic.Type.ARC_FROM_PHENOTYPE, linkM.getId(),
+                        "Arc is coming from phenotype glyph "+genericSource.getId()
                         +". Outgoing arcs are forbidden for phenotypes in SBGN, but are kept here.");
             }
 
-            source = glyphMap.get(genericSource.getId());
+            source = result.getGlyph(ctx, genericSource.getId());
         }
 
         // here we want to avoid linking to a process' port if the link is a catalysis, stimulation and so on.
@@ -705,11 +869,11 @@ public class CD2SBGNML extends GeneralConverter {
             if(linkM.isReversed()) {
                 portNumber = "p2";
             }
-            target = portMap.get(genericTarget.getId()+"_"+portNumber);
+            target = result.getPort(ctx, genericTarget.getId()+"_"+portNumber);
             // TODO for reversible reactions, some product link can start from the input port!
         }
         else {
-            target = glyphMap.get(genericTarget.getId());
+            target = result.getGlyph(ctx, genericTarget.getId());
         }
 
         arc1.setSource(source);
@@ -744,6 +908,16 @@ public class CD2SBGNML extends GeneralConverter {
     }
 
     public Element getAllStyles(List<StyleInfo> styleInfoList, Sbml sbmldoc) {
+        return getAllStyles(new StyleTable(styleInfoList), sbmldoc);
+    }
+
+    /**
+     * Build the renderInformation element, with the colors and styles in the order they were first used.
+     * @param styleTable
+     * @param sbmldoc
+     * @return
+     */
+    public Element getAllStyles(StyleTable styleTable, Sbml sbmldoc) {
         // convert to DOM document
         Document baseDoc = null;
         try {
@@ -756,7 +930,6 @@ public class CD2SBGNML extends GeneralConverter {
 
         //Document baseDoc = sbmldoc.getSbml().getDomNode().getOwnerDocument();
 
-        java.util.Map<String, String> colorMap = StyleInfo.getMapOfColorDefinitions(styleInfoList);
         Element renderInformation = baseDoc.createElement("renderInformation");
         renderInformation.setAttribute("xmlns", "http://www.sbml.org/sbml/level3/version1/render/version1");
         renderInformation.setAttribute("id", "renderInformation");
@@ -767,11 +940,12 @@ public class CD2SBGNML extends GeneralConverter {
         Element listofcolors = baseDoc.createElement("listOfColorDefinitions");
         renderInformation.appendChild(listofcolors);
 
-        for(String color: colorMap.keySet()){
+        for(int i=0; i < styleTable.getColorCount(); i++){
             Element colorDef = baseDoc.createElement("colorDefinition");
-            colorDef.setAttribute("id", colorMap.get(color));
+            colorDef.setAttribute("id", styleTable.getColorId(i));
 
             // switch from argb to rgba
+            String color = StyleInfo.toHex(styleTable.getColor(i));
             String alpha = color.substring(0,2);
             color = "#"+color.substring(2) + alpha;
 
@@ -783,32 +957,16 @@ public class CD2SBGNML extends GeneralConverter {
         Element listofstyles = baseDoc.createElement("listOfStyles");
         renderInformation.appendChild(listofstyles);
 
-        // first pass to aggregate all styles
-        HashMap<String, StyleInfo> styleMap = new HashMap<>();
-        HashMap<String, List<String>> idListMap = new HashMap<>();
-        for(StyleInfo sinfo: styleInfoList) {
-            if(!styleMap.containsKey(sinfo.getId())) {
-                styleMap.put(sinfo.getId(), sinfo);
-                List<String> idList = new ArrayList<>();
-                idList.add(sinfo.getRefId());
-                idListMap.put(sinfo.getId(), idList);
-            }
-            else {
-                idListMap.get(sinfo.getId()).add(sinfo.getRefId());
-            }
-        }
-
-        for(String styleId: styleMap.keySet()) {
-            StyleInfo sinfo = styleMap.get(styleId);
+        for(int i=0; i < styleTable.getStyleCount(); i++) {
             Element styleE = baseDoc.createElement("style");
-            styleE.setAttribute("id", styleId);
-            styleE.setAttribute("idList", idListMap.get(styleId).stream ().collect (Collectors.joining (" ")));
+            styleE.setAttribute("id", styleTable.getStyleId(i));
+            styleE.setAttribute("idList", styleTable.getIdList(i));
 
             Element g = baseDoc.createElement("g");
-            g.setAttribute("fontSize", String.valueOf(sinfo.getFontSize()));
-            g.setAttribute("stroke", colorMap.get(sinfo.getLineColor()));
-            g.setAttribute("strokeWidth", String.valueOf(sinfo.getLineWidth()));
-            g.setAttribute("fill", colorMap.get(sinfo.getBgColor()));
+            g.setAttribute("fontSize", String.valueOf(styleTable.getFontSize(i)));
+            g.setAttribute("stroke", styleTable.getColorId(styleTable.getColorIndex(styleTable.getLineColor(i))));
+            g.setAttribute("strokeWidth", String.valueOf(styleTable.getLineWidth(i)));
+            g.setAttribute("fill", styleTable.getColorId(styleTable.getColorIndex(styleTable.getBgColor(i))));
 
             styleE.appendChild(g);
             listofstyles.appendChild(styleE);
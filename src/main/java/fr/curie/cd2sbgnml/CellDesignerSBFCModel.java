@@ -1,25 +1,21 @@
 package fr.curie.cd2sbgnml;
 
-import fr.curie.cd2sbgnml.xmlcdwrappers.Utils;
+import fr.curie.cd2sbgnml.io.CellDesignerReader;
+import fr.curie.cd2sbgnml.io.CellDesignerWriter;
+import fr.curie.cd2sbgnml.io.ValidationMode;
 import org.sbfc.converter.exceptions.ReadModelException;
 import org.sbfc.converter.exceptions.WriteModelException;
 import org.sbfc.converter.models.GeneralModel;
 import org.sbml.sbml.level2.version4.Sbml;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
 import java.io.File;
 import java.io.IOException;
-import java.io.StringReader;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
 
 public class CellDesignerSBFCModel implements GeneralModel {
 
@@ -44,67 +40,49 @@ public class CellDesignerSBFCModel implements GeneralModel {
     }
 
     public void setModelFromFile(String s) throws ReadModelException {
-        byte[] encoded = new byte[0];
         try {
-            encoded = Files.readAllBytes(Paths.get(s));
-        } catch (IOException e) {
+            this.sbml = CellDesignerReader.read(Paths.get(s));
+        } catch (IOException | JAXBException | SAXException e) {
             e.printStackTrace();
+            throw new ReadModelException(e);
         }
-        String sbmlString = new String(encoded, StandardCharsets.UTF_8);
-        this.setModelFromString(sbmlString);
     }
 
     public void setModelFromString(String s) throws ReadModelException {
-        /*
-            ACSN and other maps don't have proper namespace: xmlns="http://www.sbml.org/sbml/level2"
-            we need to put a level here.
-         */
-        Pattern p = Pattern.compile("xmlns=\"http://www\\.sbml\\.org/sbml/level2\"");
-        Matcher m = p.matcher(s);
-        if(m.find()) {
-            logger.warn("Namespace definition was messed up, it has been set to: " +
-                    "xmlns=\"http://www.sbml.org/sbml/level2/version4\"");
-            s = s.replaceFirst("xmlns=\"http://www\\.sbml\\.org/sbml/level2\"",
-                    "xmlns=\"http://www.sbml.org/sbml/level2/version4\"");
-        }
-
-        /*
-            ACSN and other maps have their <celldesigner:extension> element removed, everywhere.
-         */
-        // if one extension is present, then consider the rest valid. If none, we need to add them.
-        Pattern p2 = Pattern.compile("<annotation>[\\n\\s]*<celldesigner:extension>");
-        Matcher m2 = p2.matcher(s);
-        if(!m2.find()) {
-            logger.warn("<celldesigner:extension> elements are missing, they were added automatically.");
-            s = s.replaceAll("<annotation>", "<annotation><celldesigner:extension>");
-            s = s.replaceAll("</annotation>", "</celldesigner:extension></annotation>");
+        try {
+            this.sbml = CellDesignerReader.read(s);
+        } catch (IOException | JAXBException | SAXException e) {
+            e.printStackTrace();
+            throw new ReadModelException(e);
         }
+    }
 
+    public void modelToFile(String s) throws WriteModelException {
         try {
-            JAXBContext jaxbContext = JAXBContext.newInstance(Sbml.class);
-            Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-            this.sbml = (Sbml) jaxbUnmarshaller.unmarshal(new StringReader(s));
-
+            CellDesignerWriter.write(this.sbml, Paths.get(s));
         } catch (JAXBException e) {
-            e.printStackTrace();
-            throw new ReadModelException(e.getCause());
+            throw new WriteModelException(e.getCause());
+        } catch (IOException e) {
+            throw new WriteModelException(e);
         }
 
     }
 
-    public void modelToFile(String s) throws WriteModelException {
-        File file = new File(s);
-        Marshaller marshaller = null;
+    /**
+     * Write the model to the given file and validate the output against the CellDesigner schema.
+     * @param fileName
+     * @param mode
+     * @return the validation problems of the output, empty if it is valid or if validation is OFF
+     * @throws WriteModelException
+     */
+    public List<String> modelToFile(String fileName, ValidationMode mode) throws WriteModelException {
         try {
-            marshaller = JAXBContext.newInstance(Sbml.class).createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            marshaller.setProperty("com.sun.xml.bind.namespacePrefixMapper", new Utils.DefaultNamespacePrefixMapper());
-            marshaller.marshal(this.sbml, file);
+            return CellDesignerWriter.write(this.sbml, Paths.get(fileName), mode);
         } catch (JAXBException e) {
             throw new WriteModelException(e.getCause());
+        } catch (IOException e) {
+            throw new WriteModelException(e);
         }
-
     }
 
     public String modelToString() throws WriteModelException {
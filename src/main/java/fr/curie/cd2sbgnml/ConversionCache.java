@@ -0,0 +1,366 @@
+package fr.curie.cd2sbgnml;
+
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostics;
+import fr.curie.cd2sbgnml.io.ValidationMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of conversion outputs, so that files already converted are not parsed and converted again.
+ *
+ * Entries are keyed by a SHA-256 hash of the input bytes, the conversion direction, the build of the converter and
+ * the options changing the output. An entry holds the output file as written, the validation problems that were
+ * found for it and the diagnostics of its conversion. When the total size of the entries goes over the limit, least
+ * recently used entries are deleted. Use times are kept as the last modified times of the entry files, so they last
+ * between runs.
+ *
+ * The cache is only an optimization: any error while reading or writing it is logged and the conversion is
+ * done normally. A ConversionCache can be shared by the threads of a batch conversion.
+ *
+ * The build of the converter is identified by a hash of its jar, or of its class files when it is run from a
+ * directory, so that entries written by other builds are never used, even if they have the same version.
+ */
+public class ConversionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversionCache.class);
+
+    public static final String CD_TO_SBGN = "cd2sbgn";
+    public static final String SBGN_TO_CD = "sbgn2cd";
+
+    private static final String BUILD_ID = getBuildId();
+
+    private final Path directory;
+    private final long maxBytes;
+
+    // entry key -> size in bytes, least recently used first
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * Open the cache directory, creating it if needed. Existing entries are kept.
+     * @param directory
+     * @param maxBytes maximum total size of the entries
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public ConversionCache(Path directory, long maxBytes) throws IOException {
+        if(maxBytes < 0) {
+            throw new IllegalArgumentException("Cache size must be positive, was: "+maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for(Path file: stream) {
+                if(isKey(file.getFileName().toString()) && Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        // oldest use first, as in the access ordered map
+        List<long[]> times = new ArrayList<>();
+        for(int i=0; i < files.size(); i++) {
+            times.add(new long[]{Files.getLastModifiedTime(files.get(i)).toMillis(), i});
+        }
+        times.sort((a, b) -> Long.compare(a[0], b[0]));
+        for(long[] time: times) {
+            Path file = files.get((int) time[1]);
+            long size = Files.size(file);
+            entries.put(file.getFileName().toString(), size);
+            totalBytes += size;
+        }
+        logger.info("Conversion cache {}: {} entries, {} bytes", directory, entries.size(), totalBytes);
+        synchronized (this) {
+            evict();
+        }
+    }
+
+    /**
+     * @param outputFileName
+     * @param validation
+     * @return the options of the scripts changing the output file or its validation problems
+     */
+    static String getOptions(String outputFileName, ValidationMode validation) {
+        return "validation="+validation+",gzip="+outputFileName.toLowerCase().endsWith(".gz");
+    }
+
+    /**
+     * Compute the key of a conversion.
+     * @param input input file
+     * @param direction CD_TO_SBGN or SBGN_TO_CD
+     * @param options anything else than the input changing the output or its validation problems
+     * @return the key, null if the input cannot be read
+     */
+    public String getKey(Path input, String direction, String options) {
+        MessageDigest digest = newDigest();
+        digest.update((direction+"\0"+BUILD_ID+"\0"+options+"\0").getBytes(StandardCharsets.UTF_8));
+        try {
+            update(digest, input);
+        } catch (IOException e) {
+            logger.warn("Cannot read {} to compute its cache key", input, e);
+            return null;
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Write the cached output of a conversion to the output file.
+     * @param key
+     * @param output
+     * @param diagnostics receives the diagnostics of the cached conversion, if it is in the cache
+     * @return the validation problems of the cached output, null if the conversion is not in the cache
+     */
+    public List<String> get(String key, Path output, Diagnostics diagnostics) {
+        Long size;
+        synchronized (this) {
+            size = entries.get(key);
+        }
+        if(size == null) {
+            return null;
+        }
+
+        Path file = directory.resolve(key);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int problemCount = in.readInt();
+            List<String> problems = new ArrayList<>(problemCount);
+            for(int i=0; i < problemCount; i++) {
+                problems.add(readString(in));
+            }
+            int diagnosticCount = in.readInt();
+            List<Diagnostic> cachedDiagnostics = new ArrayList<>(diagnosticCount);
+            for(int i=0; i < diagnosticCount; i++) {
+                cachedDiagnostics.add(new Diagnostic(
+                        Diagnostic.Severity.valueOf(readString(in)),
+                        Diagnostic.Type.valueOf(readString(in)),
+                        readString(in),
+                        readString(in)));
+            }
+            Path tmp = Files.createTempFile(output.toAbsolutePath().getParent(), ".cache", ".tmp");
+            try {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, output, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            for(Diagnostic diagnostic: cachedDiagnostics) {
+                diagnostics.report(diagnostic);
+            }
+            return problems;
+        } catch (NoSuchFileException e) {
+            // deleted by another process
+            remove(key);
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Cannot copy cache entry {} to {}, the entry is deleted", file, output, e);
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Store the output of a conversion. Least recently used entries are deleted if the cache is full.
+     * @param key
+     * @param output the output file, as written by the conversion
+     * @param problems validation problems of the output
+     * @param diagnostics diagnostics of the conversion
+     */
+    public void put(String key, Path output, List<String> problems, Diagnostics diagnostics) {
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(directory, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(problems.size());
+                for(String problem: problems) {
+                    writeString(out, problem);
+                }
+                List<Diagnostic> events = diagnostics.getAll();
+                out.writeInt(events.size());
+                for(Diagnostic diagnostic: events) {
+                    writeString(out, diagnostic.getSeverity().name());
+                    writeString(out, diagnostic.getType().name());
+                    writeString(out, diagnostic.getElementId());
+                    writeString(out, diagnostic.getMessage());
+                }
+                Files.copy(output, out);
+            }
+            long size = Files.size(tmp);
+            // with the lock, so that the directory always has the files of the entries
+            synchronized (this) {
+                Files.move(tmp, directory.resolve(key), StandardCopyOption.REPLACE_EXISTING);
+                tmp = null;
+                Long previous = entries.put(key, size);
+                totalBytes += size - (previous == null ? 0 : previous);
+                evict();
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot store {} in the cache", output, e);
+        } finally {
+            if(tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    logger.warn("Cannot delete temporary cache file {}", tmp, e);
+                }
+            }
+        }
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Forget an entry and delete its file.
+     * @param key
+     */
+    private synchronized void remove(String key) {
+        Long size = entries.remove(key);
+        if(size != null) {
+            totalBytes -= size;
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(key));
+        } catch (IOException e) {
+            logger.warn("Cannot delete cache entry {}", key, e);
+        }
+    }
+
+    /**
+     * Delete least recently used entries until the total size fits. Must hold the lock.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while(totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            try {
+                Files.deleteIfExists(directory.resolve(entry.getKey()));
+            } catch (IOException e) {
+                logger.warn("Cannot delete cache entry {}", entry.getKey(), e);
+            }
+            totalBytes -= entry.getValue();
+            it.remove();
+        }
+    }
+
+    private static boolean isKey(String fileName) {
+        if(fileName.length() != 64) {
+            return false;
+        }
+        for(int i=0; i < fileName.length(); i++) {
+            if(Character.digit(fileName.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write a string as its length in bytes and its UTF-8 bytes, -1 for null.
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if(s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // all Java platforms must provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, Path file) throws IOException {
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for(byte b: bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return hash of the jar containing the converter, or of all the files of the class directory with their
+     * relative paths
+     */
+    static String getBuildId() {
+        try {
+            Path code = Paths.get(ConversionCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            MessageDigest digest = newDigest();
+            if(Files.isDirectory(code)) {
+                List<Path> files;
+                try (Stream<Path> paths = Files.walk(code)) {
+                    files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+                for(Path file: files) {
+                    digest.update((code.relativize(file)+"\0").getBytes(StandardCharsets.UTF_8));
+                    update(digest, file);
+                }
+            }
+            else {
+                update(digest, code);
+            }
+            return toHex(digest.digest());
+        } catch (Exception e) {
+            // keys are still stable for this build, but may be the same as those of other builds
+            logger.warn("Cannot identify the build of the converter, clear the cache after changing it", e);
+            return "unknown";
+        }
+    }
+}
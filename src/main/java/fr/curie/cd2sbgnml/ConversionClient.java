@@ -0,0 +1,142 @@
+package fr.curie.cd2sbgnml;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Send a file to a running ConversionServer and write the converted file, from Java code or from the command
+ * line. The shell scripts send their files with curl instead, so that no JVM is started.
+ */
+public class ConversionClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversionClient.class);
+
+    /**
+     * Environment variable giving the url of the server, ex: http://localhost:8080
+     */
+    public static final String SERVER_VARIABLE = "CD2SBGNML_SERVER";
+
+    @Parameter(names = { "-i", "--input"}, required = true, description = "Input file")
+    private String inputFileName;
+
+    @Parameter(names = { "-o", "--output" }, required = true, description = "Output file")
+    private String outputFileName;
+
+    @Parameter(names = { "-d", "--direction" }, required = true,
+            description = "Conversion to run: "+ConversionCache.CD_TO_SBGN+" or "+ConversionCache.SBGN_TO_CD)
+    private String direction;
+
+    @Parameter(names = { "-s", "--server" },
+            description = "Url of the server, default is the "+SERVER_VARIABLE+" environment variable")
+    private String server = System.getenv(SERVER_VARIABLE);
+
+    @Parameter(names = { "-h", "--help" }, help = true)
+    private boolean help = false;
+
+    public static void main(String[] args) {
+        ConversionClient app = new ConversionClient();
+        JCommander jCommander = JCommander.newBuilder()
+                .addObject(app)
+                .build();
+        jCommander.parse(args);
+        if(app.help) {
+            jCommander.usage();
+            return;
+        }
+        if(app.server == null) {
+            app.server = "http://localhost:8080";
+        }
+
+        try {
+            for(String problem: convert(new URL(app.server), app.direction, Paths.get(app.inputFileName),
+                    Paths.get(app.outputFileName))) {
+                logger.error("Output validation: "+problem);
+            }
+        } catch (IOException e) {
+            logger.error("Conversion of "+app.inputFileName+" failed", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Convert a file with a ConversionServer.
+     * @param server url of the server
+     * @param direction ConversionCache.CD_TO_SBGN or ConversionCache.SBGN_TO_CD
+     * @param input
+     * @param output
+     * @return the validation problems of the output, empty if it is valid or if validation is OFF on the server
+     * @throws IOException if the server cannot be reached or the conversion failed
+     */
+    public static List<String> convert(URL server, String direction, Path input, Path output) throws IOException {
+        if(!ConversionCache.CD_TO_SBGN.equals(direction) && !ConversionCache.SBGN_TO_CD.equals(direction)) {
+            throw new IllegalArgumentException("Unknown conversion: "+direction);
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(server, "/"+direction).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(Files.size(input));
+            connection.setRequestProperty("Content-Type", "application/xml");
+            try (OutputStream os = connection.getOutputStream()) {
+                Files.copy(input, os);
+            }
+
+            int status = connection.getResponseCode();
+            if(status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Server answered "+status+": "+readError(connection));
+            }
+
+            Path tmp = Files.createTempFile(output.toAbsolutePath().getParent(), ".cd2sbgnml", ".tmp");
+            try (InputStream is = connection.getInputStream()) {
+                Files.copy(is, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, output, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+
+            List<String> problems = new ArrayList<>();
+            for(Map.Entry<String, List<String>> header: connection.getHeaderFields().entrySet()) {
+                if(ConversionServer.PROBLEM_HEADER.equalsIgnoreCase(header.getKey())) {
+                    problems.addAll(header.getValue());
+                }
+            }
+            return problems;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String readError(HttpURLConnection connection) throws IOException {
+        InputStream is = connection.getErrorStream();
+        if(is == null) {
+            return connection.getResponseMessage();
+        }
+        try (InputStream in = is) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
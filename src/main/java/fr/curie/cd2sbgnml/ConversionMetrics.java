@@ -0,0 +1,227 @@
+package fr.curie.cd2sbgnml;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Wall time, allocated memory and element counts of each stage of a conversion, in the order the stages were run.
+ *
+ * Allocated bytes are those of the thread running the stage, as given by the JVM (HotSpot and OpenJDK). They
+ * are -1 when the JVM doesn't provide them. Work done by other threads for the stage is counted when it is run
+ * through Stage.measureWorker.
+ *
+ * A ConversionMetrics object is filled by one conversion, it is not meant to be shared between threads.
+ */
+public class ConversionMetrics {
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private static final boolean allocationSupported = isAllocationSupported();
+
+    /**
+     * A named step of a conversion. Counts can be added before or after the stage is ended.
+     */
+    public static class Stage {
+        private final String name;
+        private final long threadId;
+        private final long startNanos;
+        private final long startBytes;
+        private final LongAdder workerBytes = new LongAdder();
+        private long wallNanos = -1;
+        private long allocatedBytes = -1;
+        private final Map<String, Integer> counts = new LinkedHashMap<>();
+
+        private Stage(String name) {
+            this.name = name;
+            this.threadId = Thread.currentThread().getId();
+            this.startBytes = getCurrentThreadAllocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Stop measuring time and memory for this stage. Calling it again has no effect.
+         */
+        public void end() {
+            if(wallNanos >= 0) {
+                return;
+            }
+            wallNanos = System.nanoTime() - startNanos;
+            long endBytes = getCurrentThreadAllocatedBytes();
+            if(startBytes >= 0 && endBytes >= 0) {
+                allocatedBytes = endBytes - startBytes + workerBytes.sum();
+            }
+        }
+
+        /**
+         * Run part of the stage, counting the bytes allocated by the current thread if it isn't the one running
+         * the stage. Can be called by several threads at once.
+         * @param work
+         * @param <T>
+         * @return the result of work
+         */
+        public <T> T measureWorker(Supplier<T> work) {
+            if(Thread.currentThread().getId() == threadId) {
+                // already counted by the stage
+                return work.get();
+            }
+            long start = getCurrentThreadAllocatedBytes();
+            try {
+                return work.get();
+            } finally {
+                if(start >= 0) {
+                    workerBytes.add(getCurrentThreadAllocatedBytes() - start);
+                }
+            }
+        }
+
+        /**
+         * @param element name of the counted elements, ex: species, reactions
+         * @param count
+         * @return this stage
+         */
+        public Stage count(String element, int count) {
+            counts.put(element, count);
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return time spent in the stage, -1 if the stage isn't ended
+         */
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * @return bytes allocated by the thread during the stage and by the work measured on other threads,
+         * -1 if unknown
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public Map<String, Integer> getCounts() {
+            return Collections.unmodifiableMap(counts);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(name).append(": ");
+            sb.append(String.format("%.1f ms", wallNanos / 1e6));
+            if(allocatedBytes >= 0) {
+                sb.append(String.format(", %.1f MB allocated", allocatedBytes / (1024d * 1024d)));
+            }
+            for(Map.Entry<String, Integer> entry: counts.entrySet()) {
+                sb.append(", ").append(entry.getKey()).append(": ").append(entry.getValue());
+            }
+            return sb.toString();
+        }
+    }
+
+    private final List<Stage> stages = new ArrayList<>();
+
+    /**
+     * Start measuring a new stage. It must be ended with Stage.end().
+     * @param name
+     * @return the new stage
+     */
+    public Stage start(String name) {
+        Stage stage = new Stage(name);
+        stages.add(stage);
+        return stage;
+    }
+
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    /**
+     * @param name
+     * @return the first stage with this name, null if there is none
+     */
+    public Stage getStage(String name) {
+        for(Stage stage: stages) {
+            if(stage.getName().equals(name)) {
+                return stage;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return sum of the wall time of all ended stages
+     */
+    public long getTotalWallNanos() {
+        long total = 0;
+        for(Stage stage: stages) {
+            if(stage.getWallNanos() > 0) {
+                total += stage.getWallNanos();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return sum of the allocated bytes of all stages, -1 if unknown
+     */
+    public long getTotalAllocatedBytes() {
+        if(!allocationSupported) {
+            return -1;
+        }
+        long total = 0;
+        for(Stage stage: stages) {
+            if(stage.getAllocatedBytes() > 0) {
+                total += stage.getAllocatedBytes();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return one line per stage
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for(Stage stage: stages) {
+            sb.append(stage).append(System.lineSeparator());
+        }
+        sb.append(String.format("total: %.1f ms", getTotalWallNanos() / 1e6));
+        if(allocationSupported) {
+            sb.append(String.format(", %.1f MB allocated", getTotalAllocatedBytes() / (1024d * 1024d)));
+        }
+        return sb.toString();
+    }
+
+    private static boolean isAllocationSupported() {
+        if(!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        try {
+            if(sunBean.isThreadAllocatedMemorySupported() && !sunBean.isThreadAllocatedMemoryEnabled()) {
+                sunBean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled();
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    private static long getCurrentThreadAllocatedBytes() {
+        if(!allocationSupported) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+    }
+}
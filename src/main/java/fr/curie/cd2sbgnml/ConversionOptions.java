@@ -0,0 +1,59 @@
+package fr.curie.cd2sbgnml;
+
+import fr.curie.cd2sbgnml.io.ValidationMode;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Options of the conversions run by Cd2SbgnmlScript and Sbgnml2CdScript. Setters return the options so they
+ * can be chained:
+ * new ConversionOptions().setValidation(ValidationMode.STRICT).setCache(cache)
+ *
+ * Options are only read by the conversions, the same object can be used by several threads once set.
+ */
+public class ConversionOptions {
+
+    private ValidationMode validation = ValidationMode.FAST;
+    private ForkJoinPool pool;
+    private ConversionCache cache;
+
+    public ValidationMode getValidation() {
+        return validation;
+    }
+
+    /**
+     * @param validation validation of the output, FAST by default
+     * @return these options
+     */
+    public ConversionOptions setValidation(ValidationMode validation) {
+        this.validation = validation;
+        return this;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @param pool pool to convert the reactions (CellDesigner input) or the EPNs (SBGN-ML input) in parallel,
+     *             null to convert them serially, which is the default
+     * @return these options
+     */
+    public ConversionOptions setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    public ConversionCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @param cache cache of the conversion outputs, null to always convert, which is the default
+     * @return these options
+     */
+    public ConversionOptions setCache(ConversionCache cache) {
+        this.cache = cache;
+        return this;
+    }
+}
@@ -0,0 +1,44 @@
+package fr.curie.cd2sbgnml;
+
+import fr.curie.cd2sbgnml.diagnostics.Diagnostics;
+
+import java.util.List;
+
+/**
+ * Outcome of a conversion run by Cd2SbgnmlScript or Sbgnml2CdScript, once the output file is written.
+ */
+public class ConversionResult {
+
+    private final List<String> problems;
+    private final ConversionMetrics metrics;
+    private final Diagnostics diagnostics;
+
+    ConversionResult(List<String> problems, ConversionMetrics metrics, Diagnostics diagnostics) {
+        this.problems = problems;
+        this.metrics = metrics;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * @return the validation problems of the output, empty if it is valid or if validation is OFF
+     */
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    /**
+     * @return the stages of the conversion: reading of the input, each stage of the converter, then writing of
+     * the output with its validation. A cache lookup stage replaces them if the output was taken from the cache.
+     */
+    public ConversionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the elements that could not be translated, or were translated with a loss. For an output taken
+     * from the cache, those of the conversion that was cached.
+     */
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+}
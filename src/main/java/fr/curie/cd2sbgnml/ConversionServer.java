@@ -0,0 +1,337 @@
+package fr.curie.cd2sbgnml;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import fr.curie.cd2sbgnml.diagnostics.AsyncLogSink;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
+import fr.curie.cd2sbgnml.generator.CellDesignerMapGenerator;
+import fr.curie.cd2sbgnml.generator.SbgnMapGenerator;
+import fr.curie.cd2sbgnml.io.CellDesignerWriter;
+import fr.curie.cd2sbgnml.io.SbgnWriter;
+import fr.curie.cd2sbgnml.io.ValidationMode;
+import org.sbfc.converter.exceptions.ConversionException;
+import org.sbfc.converter.exceptions.ReadModelException;
+import org.sbfc.converter.exceptions.WriteModelException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Long running conversion server, so that each conversion doesn't pay the JVM startup, the loading of the JAXB
+ * classes and the building of the JAXB contexts.
+ *
+ * The input file is POSTed as the request body to /cd2sbgn or /sbgn2cd, the response body is the converted file.
+ * SBGN-ML inputs can be gzip compressed. The number of validation problems of the output is given in the
+ * X-Validation-Problems response header, and each problem in an X-Validation-Problem header. In the same way, the
+ * number of diagnostics of the conversion (elements not translated or translated with a loss) is given in the
+ * X-Conversion-Diagnostics header, and the first ones in X-Conversion-Diagnostic headers.
+ * Inputs that cannot be read or converted give a 400 response, inputs larger than the --max-size option, before or
+ * after decompression, a 413, other failures a 500, all with the error as plain text.
+ *
+ * Conversions are run on a fixed number of worker threads, with a bounded queue of waiting requests. When the
+ * queue is full, the thread accepting connections runs the conversion itself, so no new request is accepted
+ * until a worker is free. Both pipelines are run on small generated maps at startup, before accepting requests.
+ *
+ * See ConversionClient for the client side.
+ */
+public class ConversionServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversionServer.class);
+
+    public static final String PROBLEM_COUNT_HEADER = "X-Validation-Problems";
+    public static final String PROBLEM_HEADER = "X-Validation-Problem";
+    public static final String DIAGNOSTIC_COUNT_HEADER = "X-Conversion-Diagnostics";
+    public static final String DIAGNOSTIC_HEADER = "X-Conversion-Diagnostic";
+
+    /**
+     * Diagnostics given one by one in the response headers, big maps can have thousands.
+     */
+    private static final int MAX_DIAGNOSTIC_HEADERS = 100;
+
+    /**
+     * Number of species or EPNs of the maps converted at startup.
+     */
+    private static final int WARMUP_MAP_SIZE = 200;
+
+    @Parameter(names = { "-p", "--port" }, description = "Port to listen on")
+    private int port = 8080;
+
+    @Parameter(names = { "-b", "--bind" },
+            description = "Address to listen on. Default only accepts connections from the local machine")
+    private String host = "localhost";
+
+    @Parameter(names = { "-t", "--threads" }, description = "Number of conversions run in parallel")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = { "-q", "--queue" }, description = "Number of requests waiting for a free worker")
+    private int queueSize = 64;
+
+    @Parameter(names = { "-w", "--warmup" }, description = "Number of conversions of each pipeline at startup")
+    private int warmup = 3;
+
+    @Parameter(names = { "-v", "--validation" },
+            description = "Validation of the output: OFF, FAST (tree in memory validated after writing) or STRICT (output file read again)")
+    private ValidationMode validation = ValidationMode.FAST;
+
+    @Parameter(names = { "-m", "--max-size" }, description = "Maximum size of the input files, in MB")
+    private long maxSize = 256;
+
+    @Parameter(names = { "-c", "--cache" },
+            description = "Directory of the conversion cache: files already converted with the same options are "
+                    +"copied from it instead of being converted again")
+    private String cacheDirectory;
+
+    @Parameter(names = { "--cache-size" }, description = "Maximum size of the conversion cache, in MB")
+    private long cacheSize = 1024;
+
+    @Parameter(names = { "-h", "--help" }, help = true)
+    private boolean help = false;
+
+    private ConversionOptions options;
+    private ThreadPoolExecutor executor;
+
+    public static void main(String[] args) throws IOException {
+        ConversionServer app = new ConversionServer();
+        JCommander jCommander = JCommander.newBuilder()
+                .addObject(app)
+                .build();
+        jCommander.parse(args);
+        if(app.help) {
+            jCommander.usage();
+            return;
+        }
+        HttpServer server = app.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            logger.info("Stopping server");
+            app.stop(server);
+            AsyncLogSink.getDefault().flush(1000);
+        }));
+        logger.info("Listening on http://{}:{} with {} workers", app.host, server.getAddress().getPort(),
+                app.threads);
+    }
+
+    /**
+     * Run the warm up, then start accepting requests.
+     * @return the started server
+     * @throws IOException if the server cannot listen on its address
+     */
+    HttpServer start() throws IOException {
+        if(threads < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("Number of threads and queue size must be at least 1");
+        }
+        if(maxSize < 1) {
+            throw new IllegalArgumentException("Maximum size of the input files must be at least 1 MB");
+        }
+
+        options = new ConversionOptions().setValidation(validation);
+        if(cacheDirectory != null) {
+            options.setCache(new ConversionCache(Paths.get(cacheDirectory), cacheSize * 1024 * 1024));
+        }
+        warmUp();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/"+ConversionCache.CD_TO_SBGN, exchange -> handle(exchange, true));
+        server.createContext("/"+ConversionCache.SBGN_TO_CD, exchange -> handle(exchange, false));
+
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new ThreadPoolExecutor.CallerRunsPolicy());
+        server.setExecutor(executor);
+        server.start();
+        return server;
+    }
+
+    /**
+     * Stop accepting requests, and stop the workers once the running conversions are done.
+     * @param server returned by start
+     */
+    void stop(HttpServer server) {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * Convert generated maps with both pipelines, so that JAXB contexts, schemas and converter code are loaded
+     * and compiled before the first request.
+     */
+    private void warmUp() throws IOException {
+        if(warmup < 1) {
+            return;
+        }
+        long start = System.nanoTime();
+        Path cdInput = Files.createTempFile("cd2sbgnml-warmup", ".xml");
+        Path sbgnInput = Files.createTempFile("cd2sbgnml-warmup", ".sbgn");
+        Path output = Files.createTempFile("cd2sbgnml-warmup", ".out");
+        try {
+            CellDesignerWriter.write(new CellDesignerMapGenerator(WARMUP_MAP_SIZE).generate(), cdInput);
+            SbgnWriter.write(new SbgnMapGenerator(WARMUP_MAP_SIZE).generate(), sbgnInput);
+            // no cache here, the conversions must really be run
+            ConversionOptions options = new ConversionOptions().setValidation(validation);
+            for(int i=0; i < warmup; i++) {
+                Cd2SbgnmlScript.convertAndValidate(cdInput.toString(), output.toString(), options);
+                Sbgnml2CdScript.convertAndValidate(sbgnInput.toString(), output.toString(), options);
+            }
+        } catch (JAXBException | ReadModelException | ConversionException | WriteModelException e) {
+            // requests will be slower, but can still succeed
+            logger.warn("Warm up failed", e);
+        } finally {
+            Files.deleteIfExists(cdInput);
+            Files.deleteIfExists(sbgnInput);
+            Files.deleteIfExists(output);
+        }
+        logger.info("Warm up done in {} ms", (System.nanoTime() - start) / 1000000);
+    }
+
+    private void handle(HttpExchange exchange, boolean cdToSbgn) throws IOException {
+        Path input = null;
+        Path output = null;
+        try {
+            if(!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendText(exchange, 405, "Only POST is supported");
+                return;
+            }
+            // the length is given in advance, except for chunked requests which are checked while reading
+            long maxBytes = maxSize * 1024 * 1024;
+            String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+            long length;
+            try {
+                length = contentLength == null ? 0 : Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                sendText(exchange, 400, "Invalid Content-Length: "+contentLength);
+                return;
+            }
+            byte[] body = length <= maxBytes ? readAll(exchange.getRequestBody(), maxBytes) : null;
+            if(body == null) {
+                sendText(exchange, 413, "Input is larger than "+maxSize+" MB");
+                return;
+            }
+            int receivedBytes = body.length;
+            // decompressed here, as a few kB of gzip can expand to gigabytes
+            if(!cdToSbgn && isGzip(body)) {
+                try {
+                    body = readAll(new GZIPInputStream(new ByteArrayInputStream(body)), maxBytes);
+                } catch (IOException e) {
+                    sendText(exchange, 400, getMessage(e));
+                    return;
+                }
+                if(body == null) {
+                    sendText(exchange, 413, "Decompressed input is larger than "+maxSize+" MB");
+                    return;
+                }
+            }
+
+            long start = System.nanoTime();
+            input = Files.createTempFile("cd2sbgnml", cdToSbgn ? ".xml" : ".sbgn");
+            Files.write(input, body);
+            output = Files.createTempFile("cd2sbgnml", cdToSbgn ? ".sbgn" : ".xml");
+
+            ConversionResult result;
+            try {
+                result = cdToSbgn
+                        ? Cd2SbgnmlScript.convertAndValidate(input.toString(), output.toString(), options)
+                        : Sbgnml2CdScript.convertAndValidate(input.toString(), output.toString(), options);
+            } catch (ReadModelException | ConversionException e) {
+                logger.error("Conversion of request from {} failed", exchange.getRemoteAddress(), e);
+                sendText(exchange, 400, getMessage(e));
+                return;
+            } catch (WriteModelException | RuntimeException | StackOverflowError e) {
+                logger.error("Conversion of request from {} failed", exchange.getRemoteAddress(), e);
+                sendText(exchange, 500, getMessage(e));
+                return;
+            }
+
+            List<String> problems = result.getProblems();
+            exchange.getResponseHeaders().set("Content-Type", "application/xml");
+            exchange.getResponseHeaders().set(PROBLEM_COUNT_HEADER, String.valueOf(problems.size()));
+            for(String problem: problems.subList(0, Math.min(problems.size(), MAX_DIAGNOSTIC_HEADERS))) {
+                exchange.getResponseHeaders().add(PROBLEM_HEADER, problem.replace('\r', ' ').replace('\n', ' '));
+            }
+            List<Diagnostic> diagnostics = result.getDiagnostics().getAll();
+            exchange.getResponseHeaders().set(DIAGNOSTIC_COUNT_HEADER, String.valueOf(diagnostics.size()));
+            for(Diagnostic diagnostic: diagnostics.subList(0, Math.min(diagnostics.size(), MAX_DIAGNOSTIC_HEADERS))) {
+                exchange.getResponseHeaders().add(DIAGNOSTIC_HEADER,
+                        diagnostic.getSeverity()+" "+diagnostic.toString().replace('\r', ' ').replace('\n', ' '));
+            }
+            exchange.sendResponseHeaders(200, Files.size(output));
+            try (OutputStream os = exchange.getResponseBody()) {
+                Files.copy(output, os);
+            }
+            logger.info("{}: {} bytes converted in {} ms, {} validation problems, {} diagnostics",
+                    exchange.getRequestURI(), receivedBytes, (System.nanoTime() - start) / 1000000, problems.size(),
+                    diagnostics.size());
+            if(logger.isDebugEnabled()) {
+                logger.debug("Conversion stages:{}{}", System.lineSeparator(), result.getMetrics());
+            }
+        } finally {
+            exchange.close();
+            if(input != null) {
+                Files.deleteIfExists(input);
+            }
+            if(output != null) {
+                Files.deleteIfExists(output);
+            }
+        }
+    }
+
+    /**
+     * @param body
+     * @return true if the body starts with the gzip magic number
+     */
+    private static boolean isGzip(byte[] body) {
+        return body.length >= 2 && (body[0] & 0xff) == 0x1f && (body[1] & 0xff) == 0x8b;
+    }
+
+    private static String getMessage(Throwable e) {
+        // SBFC exceptions only wrap the real cause
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return String.valueOf(cause);
+    }
+
+    /**
+     * @param is closed once read
+     * @param maxBytes
+     * @return the content of the stream, or null as soon as more than maxBytes are read
+     * @throws IOException
+     */
+    static byte[] readAll(InputStream is, long maxBytes) throws IOException {
+        try (InputStream in = is) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = in.read(buffer)) > 0) {
+                if(bytes.size() + read > maxBytes) {
+                    return null;
+                }
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
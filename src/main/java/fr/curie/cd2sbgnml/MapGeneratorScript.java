@@ -0,0 +1,56 @@
+package fr.curie.cd2sbgnml;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import fr.curie.cd2sbgnml.generator.CellDesignerMapGenerator;
+import fr.curie.cd2sbgnml.generator.SbgnMapGenerator;
+import fr.curie.cd2sbgnml.io.CellDesignerWriter;
+import fr.curie.cd2sbgnml.io.SbgnWriter;
+
+import javax.xml.bind.JAXBException;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Write synthetic maps of a given size, for scale testing.
+ */
+public class MapGeneratorScript {
+
+    public enum Format {CELLDESIGNER, SBGN}
+
+    @Parameter(names = { "-o", "--output" }, required = true, description = "Output file")
+    private String outputFileName;
+
+    @Parameter(names = { "-n", "--size" }, description = "Number of species (CellDesigner) or EPNs (SBGN)")
+    private int size = 1000;
+
+    @Parameter(names = { "-f", "--format" }, description = "Format of the generated map: CELLDESIGNER or SBGN")
+    private Format format = Format.CELLDESIGNER;
+
+    @Parameter(names = { "-c", "--compartment-size" }, description = "Approximate number of elements per compartment")
+    private int compartmentSize = 100;
+
+    @Parameter(names = { "-h", "--help" }, help = true)
+    private boolean help = false;
+
+    public static void main(String[] args) throws IOException, JAXBException {
+        MapGeneratorScript app = new MapGeneratorScript();
+        JCommander jCommander = JCommander.newBuilder()
+                .addObject(app)
+                .build();
+        jCommander.parse(args);
+        if(app.help) {
+            jCommander.usage();
+            return;
+        }
+
+        if(app.format == Format.SBGN) {
+            SbgnWriter.write(new SbgnMapGenerator(app.size, app.compartmentSize).generate(),
+                    Paths.get(app.outputFileName));
+        }
+        else {
+            CellDesignerWriter.write(new CellDesignerMapGenerator(app.size, app.compartmentSize).generate(),
+                    Paths.get(app.outputFileName));
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package fr.curie.cd2sbgnml;
 
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostics;
 import fr.curie.cd2sbgnml.graphics.AnchorPoint;
 import fr.curie.cd2sbgnml.graphics.CdShape;
 import fr.curie.cd2sbgnml.graphics.GeometryUtils;
 import fr.curie.cd2sbgnml.graphics.Link;
+import fr.curie.cd2sbgnml.graphics.PolylineBuffer;
 import fr.curie.cd2sbgnml.model.LinkModel;
 import fr.curie.cd2sbgnml.model.LogicGate;
 import fr.curie.cd2sbgnml.model.Process;
@@ -37,6 +40,8 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import static org.sbgn.GlyphClazz.*;
@@ -47,68 +52,152 @@ public class SBGNML2CD extends GeneralConverter {
     final Logger logger = LoggerFactory.getLogger(SBGNML2CD.class);
 
     /**
-     * Global translation factors that are to be applied to all elements
+     * Units of information CellDesigner can display with a prefix, others are kept as free input.
+     * Also N:\d+ for multimers.
      */
-    Rectangle2D mapBounds;
-    Sbml sbml;
-    boolean mapHasStyle;
-    java.util.Map<String, StyleInfo> styleMap;
+    private static final Set<String> RECOGNIZED_INFO = new HashSet<>(Arrays.asList(
+            "pc:T", "pc:V", "pc:pH",
+            "mt:ion", "mt:rad", "mt:rna", "mt:dna", "mt:prot", "mt:psac",
+            "ct:gene", "ct:tss","ct:coding","ct:grr","ct:mRNA"
+    ));
+
     /**
-     * Keep track of created aliasWrappers to be referred to.
+     * Everything built during one conversion. A new context is created for each call to toCD, so the same
+     * converter instance can run several conversions at once.
      */
-    java.util.Map<String, AliasWrapper> aliasWrapperMap;
-    java.util.Map<String, SpeciesWrapper> speciesWrapperMap;
-    java.util.Map<String, Protein> protMap;
-    java.util.Map<String, RNA> rnaMap;
-    java.util.Map<String, Gene> geneMap;
-    java.util.Map<String, AntisenseRNA> asrnaMap;
+    public static class ConversionContext {
+        /**
+         * Global translation factors that are to be applied to all elements
+         */
+        Rectangle2D mapBounds;
+        Sbml sbml;
+        Diagnostics diagnostics;
+        boolean mapHasStyle;
+        java.util.Map<String, StyleInfo> styleMap;
+        /**
+         * Keep track of created aliasWrappers to be referred to.
+         */
+        java.util.Map<String, AliasWrapper> aliasWrapperMap;
+        java.util.Map<String, SpeciesWrapper> speciesWrapperMap;
+        java.util.Map<String, Protein> protMap;
+        java.util.Map<String, RNA> rnaMap;
+        java.util.Map<String, Gene> geneMap;
+        java.util.Map<String, AntisenseRNA> asrnaMap;
 
 
-    /**
-     * This map indexes all the arcs connected to each process node.
-     */
-    java.util.Map<String, List<Arc>> processToArcs;
+        /**
+         * This map indexes all the arcs connected to each process node.
+         */
+        java.util.Map<String, List<Arc>> processToArcs;
+
+        /**
+         * This list will contain all arcs that are not linked to any process node.
+         * For example, phenotype arcs.
+         * Or AF map arcs.
+         */
+        List<Arc> orphanArcs;
+
+        /**
+         * HashSet containing all logic gate glyphs that aren't associated to any process.
+         * The set is first built with all logic gates in the map, and they are removed as reactions are processed, if
+         * they are connected to a process.
+         * After all reactions are processed, only the orphan logic gates will remain in the set.
+         */
+        HashSet<Glyph> orphanLogicGates;
+
+        /**
+         * Those 2 maps index the source and target glyph attached to each link.
+         */
+        java.util.Map<String, Glyph> arcToSource;
+        java.util.Map<String, Glyph> arcToTarget;
+
+        java.util.Map<String, Glyph> idToGlyph;
+
+        java.util.Map<String, Glyph> portToGlyph;
+
+        java.util.Map<String, List<Arc>> glyphToArc;
+
+        /**
+         * Reused by the conversions of all the links, reactions are converted by one thread.
+         */
+        final PolylineBuffer polylineBuffer = new PolylineBuffer();
+    }
 
     /**
-     * This list will contain all arcs that are not linked to any process node.
-     * For example, phenotype arcs.
-     * Or AF map arcs.
+     * Species, aliases and references built from one top level glyph and its subunits, in the order they are
+     * added to the model.
      */
-    List<Arc> orphanArcs;
+    private static class SpeciesResult {
+        java.util.Map<String, SpeciesWrapper> speciesWrapperMap = new LinkedHashMap<>();
+        java.util.Map<String, AliasWrapper> aliasWrapperMap = new LinkedHashMap<>();
+        java.util.Map<String, Protein> protMap = new LinkedHashMap<>();
+        java.util.Map<String, RNA> rnaMap = new LinkedHashMap<>();
+        java.util.Map<String, Gene> geneMap = new LinkedHashMap<>();
+        java.util.Map<String, AntisenseRNA> asrnaMap = new LinkedHashMap<>();
+        List<ListOfComplexSpeciesAliases.ComplexSpeciesAlias> complexSpeciesAliases = new ArrayList<>();
+        List<SpeciesAlias> speciesAliases = new ArrayList<>();
+        /**
+         * Only collected here, they are reported to the conversion when merged, in the order of the glyphs.
+         */
+        Diagnostics diagnostics = new Diagnostics(null);
+    }
 
     /**
-     * HashSet containing all logic gate glyphs that aren't associated to any process.
-     * The set is first built with all logic gates in the map, and they are removed as reactions are processed, if
-     * they are connected to a process.
-     * After all reactions are processed, only the orphan logic gates will remain in the set.
+     * Pool used to convert the EPNs in parallel, null for serial conversion.
      */
-    HashSet<Glyph> orphanLogicGates;
+    private ForkJoinPool speciesPool;
 
     /**
-     * Those 2 maps index the source and target glyph attached to each link.
+     * Convert the entity pool nodes of a map in parallel on the given pool. The output is the same as in serial
+     * mode, species and aliases are added to the model in the order of the glyphs.
+     * @param speciesPool pool to use, ex: ForkJoinPool.commonPool(). null to go back to serial mode (default).
      */
-    java.util.Map<String, Glyph> arcToSource;
-    java.util.Map<String, Glyph> arcToTarget;
+    public void setSpeciesPool(ForkJoinPool speciesPool) {
+        this.speciesPool = speciesPool;
+    }
 
-    java.util.Map<String, Glyph> idToGlyph;
 
-    java.util.Map<String, Glyph> portToGlyph;
+    public Sbml toCD(Sbgn sbgn) {
+        return toCD(sbgn, new ConversionMetrics());
+    }
 
-    java.util.Map<String, List<Arc>> glyphToArc;
+    /**
+     * @param sbgn
+     * @param metrics receives the time, allocations and element counts of each stage of the conversion
+     * @return the converted model
+     */
+    public Sbml toCD(Sbgn sbgn, ConversionMetrics metrics) {
+        return toCD(sbgn, metrics, new Diagnostics());
+    }
 
+    /**
+     * @param sbgn
+     * @param metrics receives the time, allocations and element counts of each stage of the conversion
+     * @param diagnostics receives the problems found during the conversion
+     * @return the converted model
+     */
+    public Sbml toCD(Sbgn sbgn, ConversionMetrics metrics, Diagnostics diagnostics) {
 
-    public Sbml toCD(Sbgn sbgn) {
+        ConversionContext ctx = new ConversionContext();
+        ctx.diagnostics = diagnostics;
 
-        sbgn = SBGNUtils.sanitizeIds(sbgn);
+        ConversionMetrics.Stage stage = metrics.start("sanitize ids");
+        java.util.Map<String, String> newIds = SBGNUtils.sanitizeIds(sbgn, ctx.diagnostics);
+        stage.end();
+        stage.count("renamed ids", newIds.size());
 
         // consider only the first map
         Map sbgnMap = sbgn.getMap(); //.get(0);
 
         // init celldesigner file
-        sbml = this.initFile(sbgnMap);
+        stage = metrics.start("index");
+        ctx.sbml = initFile(ctx, sbgnMap);
 
         // init the index maps
-        this.buildMaps(sbgnMap);
+        buildMaps(ctx, sbgnMap);
+        stage.end();
+        stage.count("glyphs", sbgnMap.getGlyph().size())
+                .count("arcs", sbgnMap.getArc().size());
 
         // put notes and annotations from map to model
         if(sbgnMap.getNotes() != null
@@ -116,14 +205,14 @@ public class SBGNML2CD extends GeneralConverter {
             Element notesE = sbgnMap.getNotes().getAny().get(0);
             SBase.Notes notes = new SBase.Notes();
             notes.getAny().add(notesE);
-            sbml.getModel().setNotes(notes);
+            ctx.sbml.getModel().setNotes(notes);
         }
 
         if(sbgnMap.getExtension() != null) {
             for(Element e: sbgnMap.getExtension().getAny()){
                 if(e.getTagName().equals("annotation")) {
                     Element rdf = SBGNUtils.sanitizeRdfURNs((Element) e.getElementsByTagName("rdf:RDF").item(0));
-                    sbml.getModel().getAnnotation().getAny().add(rdf);
+                    ctx.sbml.getModel().getAnnotation().getAny().add(rdf);
                 }
             }
         }
@@ -135,33 +224,26 @@ public class SBGNML2CD extends GeneralConverter {
          */
 
         // first pass for EPNs
-        for(Glyph glyph: sbgnMap.getGlyph()){
-            String clazz = glyph.getClazz();
-            switch (GlyphClazz.fromClazz(clazz)) {
-                case COMPARTMENT:
-                    processCompartment(glyph);
-                    break;
-                case MACROMOLECULE:
-                case MACROMOLECULE_MULTIMER:
-                case NUCLEIC_ACID_FEATURE:
-                case NUCLEIC_ACID_FEATURE_MULTIMER:
-                case SIMPLE_CHEMICAL:
-                case SIMPLE_CHEMICAL_MULTIMER:
-                case UNSPECIFIED_ENTITY:
-                case PHENOTYPE:
-                case SOURCE_AND_SINK:
-                case PERTURBING_AGENT:
-                case SUBMAP:
-                    processSpecies(glyph, false, false, null, null);
-                    break;
-                case COMPLEX:
-                case COMPLEX_MULTIMER:
-                    processSpecies(glyph, false, true, null, null);
-                    break;
+        // species are built separately for each glyph, possibly in parallel, then merged in document order
+        stage = metrics.start("species");
+        List<SpeciesResult> speciesResults = buildSpecies(ctx, sbgnMap.getGlyph(), stage);
+        for(int i=0; i < sbgnMap.getGlyph().size(); i++) {
+            Glyph glyph = sbgnMap.getGlyph().get(i);
+            if(GlyphClazz.fromClazz(glyph.getClazz()) == COMPARTMENT) {
+                processCompartment(ctx, glyph);
+            }
+            else if(speciesResults.get(i) != null) {
+                mergeSpecies(ctx, speciesResults.get(i));
             }
         }
 
+        stage.end();
+        stage.count("compartments", ctx.sbml.getModel().getListOfCompartments().getCompartment().size())
+                .count("species", ctx.speciesWrapperMap.size())
+                .count("aliases", ctx.aliasWrapperMap.size());
+
         // 2nd pass for process/reactions
+        stage = metrics.start("reactions");
         for(Glyph glyph: sbgnMap.getGlyph()){
             String clazz = glyph.getClazz();
             switch (GlyphClazz.fromClazz(clazz)) {
@@ -170,60 +252,63 @@ public class SBGNML2CD extends GeneralConverter {
                 case UNCERTAIN_PROCESS:
                 case ASSOCIATION:
                 case DISSOCIATION:
-                    processReaction(glyph);
+                    processReaction(ctx, glyph);
                     break;
             }
         }
 
         // now process the remaining orphan arcs
-        for(Arc orphanArc: orphanArcs) {
-            processOrphanArc(orphanArc);
+        for(Arc orphanArc: ctx.orphanArcs) {
+            processOrphanArc(ctx, orphanArc);
         }
 
         // process the remaining orphan logic gates
-        for(Glyph orphanLogic: orphanLogicGates) {
-            processLogicReaction(orphanLogic);
+        for(Glyph orphanLogic: ctx.orphanLogicGates) {
+            processLogicReaction(ctx, orphanLogic);
         }
 
-        processEnd();
-
+        stage.end();
+        stage.count("reactions", ctx.sbml.getModel().getListOfReactions().getReaction().size());
 
+        stage = metrics.start("lists");
+        processEnd(ctx);
+        stage.end();
 
-        return sbml;
+        return ctx.sbml;
     }
 
-    private void processEnd() {
-        for(SpeciesWrapper speciesW: speciesWrapperMap.values()){
+    private void processEnd(ConversionContext ctx) {
+        for(SpeciesWrapper speciesW: ctx.speciesWrapperMap.values()){
             // add species to correct list
             if(speciesW.isIncludedSpecies()) {
                 ListOfIncludedSpecies listOfIncludedSpecies =
-                        sbml.getModel().getAnnotation().getExtension().getListOfIncludedSpecies();
+                        ctx.sbml.getModel().getAnnotation().getExtension().getListOfIncludedSpecies();
 
                 // create listofincluded if not already there
                 if(listOfIncludedSpecies == null) {
                     listOfIncludedSpecies = new ListOfIncludedSpecies();
-                    sbml.getModel().getAnnotation().getExtension().setListOfIncludedSpecies(listOfIncludedSpecies);
+                    ctx.sbml.getModel().getAnnotation().getExtension().setListOfIncludedSpecies(listOfIncludedSpecies);
                 }
                 org.sbml._2001.ns.celldesigner.Species species = speciesW.getCDIncludedSpecies();
                 listOfIncludedSpecies.getSpecies().add(species);
             }
             else {
                 Species species = speciesW.getCDNormalSpecies();
-                sbml.getModel().getListOfSpecies().getSpecies().add(species);
+                ctx.sbml.getModel().getListOfSpecies().getSpecies().add(species);
             }
         }
 
-        for(Protein p: protMap.values()) {
-            sbml.getModel().getAnnotation().getExtension().getListOfProteins().getProtein().add(p);
+        for(Protein p: ctx.protMap.values()) {
+            ctx.sbml.getModel().getAnnotation().getExtension().getListOfProteins().getProtein().add(p);
         }
-        for(Gene p: geneMap.values()) {
-            sbml.getModel().getAnnotation().getExtension().getListOfGenes().getGene().add(p);
+        for(Gene p: ctx.geneMap.values()) {
+            ctx.sbml.getModel().getAnnotation().getExtension().getListOfGenes().getGene().add(p);
         }
-        for(RNA p: rnaMap.values()) {
-            sbml.getModel().getAnnotation().getExtension().getListOfRNAs().getRNA().add(p);
+        for(RNA p: ctx.rnaMap.values()) {
+            ctx.sbml.getModel().getAnnotation().getExtension().getListOfRNAs().getRNA().add(p);
         }
-        for(AntisenseRNA p: asrnaMap.values()) {
-            sbml.getModel().getAnnotation().getExtension().getListOfAntisenseRNAs().getAntisenseRNA().add(p);
+        for(AntisenseRNA p: ctx.asrnaMap.values()) {
+            ctx.sbml.getModel().getAnnotation().getExtension().getListOfAntisenseRNAs().getAntisenseRNA().add(p);
         }
     }
 
@@ -232,8 +317,8 @@ public class SBGNML2CD extends GeneralConverter {
      * They can have more than 2 baseReactants. Instead of modifications, they have gateMembers listed.
      * @param logicGlyph
      */
-    private void processLogicReaction(Glyph logicGlyph) {
-        List<Arc> connectedArcs = glyphToArc.get(logicGlyph.getId());
+    private void processLogicReaction(ConversionContext ctx, Glyph logicGlyph) {
+        List<Arc> connectedArcs = ctx.glyphToArc.get(logicGlyph.getId());
         Point2D.Float logicCoords = new Point2D.Float(
                 logicGlyph.getBbox().getX() + logicGlyph.getBbox().getW() / 2,
                 logicGlyph.getBbox().getY() + logicGlyph.getBbox().getH() / 2
@@ -253,9 +338,9 @@ public class SBGNML2CD extends GeneralConverter {
         List<String> speciesModifiers = new ArrayList<>();
 
         for(Arc arc: reactants) {
-            Glyph g = arcToSource.get(arc.getId());
+            Glyph g = ctx.arcToSource.get(arc.getId());
 
-            AliasWrapper aliasW = aliasWrapperMap.get(g.getId()+"_alias1");
+            AliasWrapper aliasW = ctx.aliasWrapperMap.get(g.getId()+"_alias1");
 
             ReactantWrapper baseWrapper = new ReactantWrapper(aliasW, ReactantType.BASE_REACTANT);
             //baseWrapper.setAnchorPoint(AnchorPoint.CENTER); // set to CENTER for now, but better computed after
@@ -273,8 +358,8 @@ public class SBGNML2CD extends GeneralConverter {
             speciesModifiers.add(aliasW.getSpeciesId());
         }
 
-        Glyph baseProductGlyph = arcToTarget.get(productArc.getId());
-        AliasWrapper aliasW = aliasWrapperMap.get(baseProductGlyph.getId()+"_alias1");
+        Glyph baseProductGlyph = ctx.arcToTarget.get(productArc.getId());
+        AliasWrapper aliasW = ctx.aliasWrapperMap.get(baseProductGlyph.getId()+"_alias1");
         ReactantWrapper baseProductW = new ReactantWrapper(aliasW, ReactantType.BASE_PRODUCT);
         baseProductW.setModificationLinkType(
                 ModificationLinkType.valueOf(
@@ -285,7 +370,7 @@ public class SBGNML2CD extends GeneralConverter {
                 reactionCDClass, baseReactantsW, Collections.singletonList(baseProductW));
 
         // 1st product link = logic gate associated link
-        SimpleEntry<Link, Link> tmpProductLink = baseLinkProcessingStep1(baseProductW,
+        SimpleEntry<Link, Link> tmpProductLink = baseLinkProcessingStep1(ctx, baseProductW,
                 baseProductGlyph,
                 productArc,
                 logicCoords,
@@ -296,9 +381,9 @@ public class SBGNML2CD extends GeneralConverter {
         Link productLink = tmpProductLink.getValue();
         // apply translation factor on logic gate
         Point2D.Float logicPoint = new Point2D.Float(
-                (float) (logicCoords.getX() - mapBounds.getX()),
-                (float) (logicCoords.getY() - mapBounds.getY()));
-        LineWrapper productLineWrapper = buildLineWrapper(productArc.getId(), localEditPointsProduct, logicPoint);
+                (float) (logicCoords.getX() - ctx.mapBounds.getX()),
+                (float) (logicCoords.getY() - ctx.mapBounds.getY()));
+        LineWrapper productLineWrapper = buildLineWrapper(ctx, productArc.getId(), localEditPointsProduct, logicPoint);
 
         LogicGateWrapper logicW = new LogicGateWrapper(
                 baseProductW,
@@ -314,7 +399,7 @@ public class SBGNML2CD extends GeneralConverter {
         int i=0;
         //java.util.Map<String, List<Point2D.Float>> arcsId2Editpoints = new LinkedHashMap<>();
         for(ReactantWrapper reactantW: baseReactantsW) {
-            List<Point2D.Float> localEditPoints0 = baseLinkProcessingStep1(reactantW,
+            List<Point2D.Float> localEditPoints0 = baseLinkProcessingStep1(ctx, reactantW,
                     baseReactantGlyphs.get(i),
                     baseReactantArcs.get(i),
                     logicCoords,
@@ -322,12 +407,8 @@ public class SBGNML2CD extends GeneralConverter {
                     new ReactionFeatures(false, true, false, true)).getKey().getEditPoints();
 
             reactantW.setTargetLineIndex("-1,0");
-            List<String> editPointStringList = new ArrayList<>();
-            for(Point2D.Float p: localEditPoints0) {
-                editPointStringList.add(p.getX()+","+p.getY());
-            }
 
-            LineWrapper lineWrapper = buildLineWrapper(baseReactantArcs.get(i).getId(),
+            LineWrapper lineWrapper = buildLineWrapper(ctx, baseReactantArcs.get(i).getId(),
                     localEditPoints0, null);
             reactantW.setLineWrapper(lineWrapper);
 
@@ -338,30 +419,27 @@ public class SBGNML2CD extends GeneralConverter {
 
         //arcsId2Editpoints.put(productArc.getId(), localEditPointsProduct);
 
-        List<String> baseReactionEditPointString = new ArrayList<>();
         /*List<Point2D.Float> mergedList = new ArrayList<>();
         mergedList.addAll(productLink.getEditPoints());
         mergedList.add(logicCoords);*/
-        for(Point2D.Float p: logicW.getLineWrapper().getEditPoints()) {
-            baseReactionEditPointString.add(p.getX()+","+p.getY());
-        }
+        EditPointList baseReactionEditPoints = logicW.getLineWrapper().getEditPoints().copy();
 
         Line line = new Line();
         line.setWidth(BigDecimal.valueOf(1));
         line.setColor("ff000000");
 
 
-        LineWrapper baseLineWrapper = new LineWrapper(null, baseReactionEditPointString, line);
+        LineWrapper baseLineWrapper = new LineWrapper(null, baseReactionEditPoints, line);
         reactionW.setLineWrapper(baseLineWrapper);
 
-        sbml.getModel().getListOfReactions().getReaction().add(reactionW.getCDReaction());
+        ctx.sbml.getModel().getListOfReactions().getReaction().add(reactionW.getCDReaction());
 
 
     }
 
-    private void processReaction(Glyph processGlyph) {
+    private void processReaction(ConversionContext ctx, Glyph processGlyph) {
         // TODO add arc notes and annotations to reaction
-        List<Arc> connectedArcs = processToArcs.get(processGlyph.getId());
+        List<Arc> connectedArcs = ctx.processToArcs.get(processGlyph.getId());
         Point2D.Float processCoords = new Point2D.Float(
                 processGlyph.getBbox().getX(),
                 processGlyph.getBbox().getY()
@@ -421,12 +499,12 @@ public class SBGNML2CD extends GeneralConverter {
         for(Arc arc: reactants) {
             Glyph g;
             if(isReversible) { // what is considered reactant was previously a product
-                g = arcToTarget.get(arc.getId());
+                g = ctx.arcToTarget.get(arc.getId());
             }
             else {
-                g = arcToSource.get(arc.getId());
+                g = ctx.arcToSource.get(arc.getId());
             }
-            AliasWrapper aliasW = aliasWrapperMap.get(g.getId()+"_alias1");
+            AliasWrapper aliasW = ctx.aliasWrapperMap.get(g.getId()+"_alias1");
 
             // set the first 2 as basereactants for association, if dissociation or normal reaction only the 1st
             if((reactionCDClass == ReactionType.HETERODIMER_ASSOCIATION &&  i==1)
@@ -451,8 +529,8 @@ public class SBGNML2CD extends GeneralConverter {
 
         i = 0;
         for(Arc arc: products) {
-            Glyph g = arcToTarget.get(arc.getId());
-            AliasWrapper aliasW = aliasWrapperMap.get(g.getId()+"_alias1");
+            Glyph g = ctx.arcToTarget.get(arc.getId());
+            AliasWrapper aliasW = ctx.aliasWrapperMap.get(g.getId()+"_alias1");
 
             // for dissociation consider first 2 as base, for association and normal only the 1st
             if(i == 0 || (reactionCDClass == ReactionType.DISSOCIATION && i == 1)) {
@@ -476,8 +554,8 @@ public class SBGNML2CD extends GeneralConverter {
 
         i = 0;
         for(Arc arc: modifiers) {
-            Glyph g = arcToSource.get(arc.getId());
-            AliasWrapper aliasW = aliasWrapperMap.get(g.getId()+"_alias1");
+            Glyph g = ctx.arcToSource.get(arc.getId());
+            AliasWrapper aliasW = ctx.aliasWrapperMap.get(g.getId()+"_alias1");
 
             ReactantWrapper modifWrapper = new ReactantWrapper(aliasW, ReactantType.MODIFICATION);
             //baseWrapper.setAnchorPoint(AnchorPoint.CENTER); // set to CENTER for now, but better computed after
@@ -506,7 +584,7 @@ public class SBGNML2CD extends GeneralConverter {
             ReactantWrapper baseReactantW1 = baseReactantsW.get(1);
             ReactantWrapper baseProductW = baseProductsW.get(0);
 
-            SimpleEntry<Point2D.Float, Point2D.Float> tmpResult = getAssocDissocPoints(
+            SimpleEntry<Point2D.Float, Point2D.Float> tmpResult = getAssocDissocPoints(ctx, 
                     Arrays.asList(baseReactantW0, baseReactantW1, baseProductW),
                     processGlyph,
                     processCoords,
@@ -517,15 +595,15 @@ public class SBGNML2CD extends GeneralConverter {
             Point2D.Float localAssocPoint = tmpResult.getValue();
 
 
-            List<Point2D.Float> localEditPoints0 = baseLinkProcessingStep1(
+            List<Point2D.Float> localEditPoints0 = baseLinkProcessingStep1(ctx, 
                     baseReactantW0, baseReactantGlyphs.get(0),
                     baseReactantArcs.get(0), absAssocPoint, true, reactionFeatures).getKey().getEditPoints();
 
-            List<Point2D.Float> localEditPoints1 = baseLinkProcessingStep1(
+            List<Point2D.Float> localEditPoints1 = baseLinkProcessingStep1(ctx, 
                     baseReactantW1, baseReactantGlyphs.get(1),
                     baseReactantArcs.get(1), absAssocPoint, true, reactionFeatures).getKey().getEditPoints();
 
-            SimpleEntry<Link, Link> tmpResultPoints = baseLinkProcessingStep1(
+            SimpleEntry<Link, Link> tmpResultPoints = baseLinkProcessingStep1(ctx, 
                     baseProductW, baseProductGlyphs.get(0),
                     baseProductArcs.get(0), absAssocPoint, false, reactionFeatures);
             List<Point2D.Float> localEditPoints2 = tmpResultPoints.getKey().getEditPoints();
@@ -538,7 +616,7 @@ public class SBGNML2CD extends GeneralConverter {
             arcsId2Editpoints.put(baseReactantArcs.get(0).getId(), localEditPoints0);
             arcsId2Editpoints.put(baseReactantArcs.get(1).getId(), localEditPoints1);
             arcsId2Editpoints.put(baseProductArcs.get(0).getId(), localEditPoints2);
-            LineWrapper lineWrapper = buildLineWrapperWithProcess(
+            LineWrapper lineWrapper = buildLineWrapperWithProcess(ctx, 
                     arcsId2Editpoints,
                     processGlyph.getId(),
                     localAssocPoint
@@ -554,7 +632,7 @@ public class SBGNML2CD extends GeneralConverter {
             ReactantWrapper baseProductW1 = baseProductsW.get(0);
             ReactantWrapper baseProductW2 = baseProductsW.get(1);
 
-            SimpleEntry<Point2D.Float, Point2D.Float> tmpResult = getAssocDissocPoints(
+            SimpleEntry<Point2D.Float, Point2D.Float> tmpResult = getAssocDissocPoints(ctx, 
                     Arrays.asList(baseReactantW, baseProductW1, baseProductW2),
                     processGlyph,
                     processCoords,
@@ -565,18 +643,18 @@ public class SBGNML2CD extends GeneralConverter {
             Point2D.Float localDissocPoint = tmpResult.getValue();
 
 
-            SimpleEntry<Link, Link> tmpResultPoints = baseLinkProcessingStep1(
+            SimpleEntry<Link, Link> tmpResultPoints = baseLinkProcessingStep1(ctx, 
                     baseReactantW, baseReactantGlyphs.get(0),
                     baseReactantArcs.get(0), absDissocPoint, true, reactionFeatures);
             List<Point2D.Float> localEditPoints0 = tmpResultPoints.getKey().getEditPoints();
             Point2D.Float finalStartPoint = tmpResultPoints.getKey().getStart();
             Link reactantLink = tmpResultPoints.getValue();
 
-            List<Point2D.Float> localEditPoints1 = baseLinkProcessingStep1(
+            List<Point2D.Float> localEditPoints1 = baseLinkProcessingStep1(ctx, 
                     baseProductW1, baseProductGlyphs.get(0),
                     baseProductArcs.get(0), absDissocPoint, false, reactionFeatures).getKey().getEditPoints();
 
-            List<Point2D.Float> localEditPoints2 = baseLinkProcessingStep1(
+            List<Point2D.Float> localEditPoints2 = baseLinkProcessingStep1(ctx, 
                     baseProductW2, baseProductGlyphs.get(1),
                     baseProductArcs.get(1), absDissocPoint, false, reactionFeatures).getKey().getEditPoints();
 
@@ -587,7 +665,7 @@ public class SBGNML2CD extends GeneralConverter {
             arcsId2Editpoints.put(baseReactantArcs.get(0).getId(), localEditPoints0);
             arcsId2Editpoints.put(baseProductArcs.get(0).getId(), localEditPoints1);
             arcsId2Editpoints.put(baseProductArcs.get(1).getId(), localEditPoints2);
-            LineWrapper lineWrapper = buildLineWrapperWithProcess(
+            LineWrapper lineWrapper = buildLineWrapperWithProcess(ctx, 
                     arcsId2Editpoints,
                     processGlyph.getId(),
                     localDissocPoint
@@ -647,12 +725,10 @@ public class SBGNML2CD extends GeneralConverter {
                     baseProductW,
                     SBGNUtils.getRectangleFromGlyph(baseProductGlyph));
 
-            List<Point2D.Float> localEditPoints = GeometryUtils.convertPoints(
-                    editPointsOnly,
-                    GeometryUtils.getTransformsToLocalCoords(
-                            finalStartPoint,
-                            finalEndPoint
-                    ));
+            List<Point2D.Float> localEditPoints = ctx.polylineBuffer.getLocalEditPoints(
+                    finalStartPoint,
+                    finalEndPoint,
+                    editPointsOnly);
 
             // get segment on which CellDesigner will put process
             if(editPointsOnly.size() > 0) {
@@ -678,7 +754,7 @@ public class SBGNML2CD extends GeneralConverter {
                     localEditPoints.subList(0,processSegmentIndex));
             arcsId2Editpoints.put(baseProductArcs.get(0).getId(),
                     localEditPoints.subList(processSegmentIndex, localEditPoints.size()));
-            LineWrapper lineWrapper = buildLineWrapperWithProcess(
+            LineWrapper lineWrapper = buildLineWrapperWithProcess(ctx, 
                     arcsId2Editpoints,
                     processGlyph.getId(),
                     null
@@ -739,14 +815,12 @@ public class SBGNML2CD extends GeneralConverter {
             // infer coordinates for the process' anchor point 0
             Point2D.Float anchor0 = pr.getAbsoluteAnchorCoords(0);
 
-            List<Point2D.Float> localEditPoints = GeometryUtils.convertPoints(
-                    editPointsOnly,
-                    GeometryUtils.getTransformsToLocalCoords(
-                            finalStartPoint,
-                            anchor0
-                    ));
+            List<Point2D.Float> localEditPoints = ctx.polylineBuffer.getLocalEditPoints(
+                    finalStartPoint,
+                    anchor0,
+                    editPointsOnly);
 
-            LineWrapper lineWrapper = buildLineWrapper(additionalArc.getId(), localEditPoints, null);
+            LineWrapper lineWrapper = buildLineWrapper(ctx, additionalArc.getId(), localEditPoints, null);
 
             additionalW.setLineWrapper(lineWrapper);
             reactionW.getAdditionalReactants().add(additionalW);
@@ -794,14 +868,12 @@ public class SBGNML2CD extends GeneralConverter {
             // infer coordinates for the process' anchor point 0
             Point2D.Float anchor1 = pr.getAbsoluteAnchorCoords(1);
 
-            List<Point2D.Float> localEditPoints = GeometryUtils.convertPoints(
-                    editPointsOnly,
-                    GeometryUtils.getTransformsToLocalCoords(
-                            anchor1,
-                            finalEndPoint
-                    ));
+            List<Point2D.Float> localEditPoints = ctx.polylineBuffer.getLocalEditPoints(
+                    anchor1,
+                    finalEndPoint,
+                    editPointsOnly);
 
-            LineWrapper lineWrapper = buildLineWrapper(additionalArc.getId(), localEditPoints, null);
+            LineWrapper lineWrapper = buildLineWrapper(ctx, additionalArc.getId(), localEditPoints, null);
 
             additionalW.setLineWrapper(lineWrapper);
             reactionW.getAdditionalProducts().add(additionalW);
@@ -819,19 +891,19 @@ public class SBGNML2CD extends GeneralConverter {
                 So get only direct links to EPNs and connect them to newly created logicWrapper.
              */
             if(SBGNUtils.isLogicGate(modificationGlyph)) {
-                List<Arc> arcsConnectedToLogic = glyphToArc.get(modificationGlyph.getId());
+                List<Arc> arcsConnectedToLogic = ctx.glyphToArc.get(modificationGlyph.getId());
 
                 List<ReactantWrapper> connectedReactantsW = new ArrayList<>();
                 List<String> logicModifiers = new ArrayList<>();
                 List<String> logicAliases = new ArrayList<>();
                 for(Arc logicArc: arcsConnectedToLogic) {
-                    Glyph sourceGlyhp = arcToSource.get(logicArc.getId());
+                    Glyph sourceGlyhp = ctx.arcToSource.get(logicArc.getId());
                     // discard other connected logic gates, and the arc coming from the current gate itself
                     if(SBGNUtils.isLogicGate(sourceGlyhp)) {
                         continue;
                     }
 
-                    AliasWrapper aliasW = aliasWrapperMap.get(sourceGlyhp.getId()+"_alias1");
+                    AliasWrapper aliasW = ctx.aliasWrapperMap.get(sourceGlyhp.getId()+"_alias1");
 
                     ReactantWrapper modifWrapper = new ReactantWrapper(aliasW, ReactantType.MODIFICATION);
 
@@ -841,7 +913,7 @@ public class SBGNML2CD extends GeneralConverter {
                                     LinkModel.getCdClass(
                                             ArcClazz.fromClazz(modificationArc.getClazz()))));
 
-                    ReactantWrapper processedLogicModifW = processModifierToLogic(logicArc, sourceGlyhp,
+                    ReactantWrapper processedLogicModifW = processModifierToLogic(ctx, logicArc, sourceGlyhp,
                             modifWrapper, modificationGlyph);
 
                     // we can't directly add the connected reactants, need the logic gate first.
@@ -852,7 +924,7 @@ public class SBGNML2CD extends GeneralConverter {
                 }
 
                 // process the logic gate itself
-                ReactantWrapper processedlogicW = processLogicGate(modificationArc,
+                ReactantWrapper processedlogicW = processLogicGate(ctx, modificationArc,
                         modificationGlyph, modificationW, pr);
 
                 LogicGateWrapper finalLogicW = new LogicGateWrapper(
@@ -863,7 +935,7 @@ public class SBGNML2CD extends GeneralConverter {
                         processedlogicW.getModificationLinkType()
                 );
 
-                orphanLogicGates.remove(modificationGlyph);
+                ctx.orphanLogicGates.remove(modificationGlyph);
 
                 /*SpeciesWrapper logicSpW = new SpeciesWrapper(modificationGlyph.getId(),
                         modificationGlyph.getId(), null);
@@ -881,7 +953,7 @@ public class SBGNML2CD extends GeneralConverter {
             }
             // non logic gates modifiers
             else {
-                ReactantWrapper processedModifW = processModifier(modificationArc,
+                ReactantWrapper processedModifW = processModifier(ctx, modificationArc,
                         modificationGlyph, modificationW, pr);
                 reactionW.getModifiers().add(processedModifW);
             }
@@ -890,7 +962,7 @@ public class SBGNML2CD extends GeneralConverter {
             for(ModifierSpeciesReference speciesReference:
                     reactionW.getCDReaction().getListOfModifiers().getModifierSpeciesReference()) {
                 String speciesId = speciesReference.getSpecies();
-                SpeciesWrapper speciesW = speciesWrapperMap.get(speciesId);
+                SpeciesWrapper speciesW = ctx.speciesWrapperMap.get(speciesId);
 
                 speciesW.getCatalyzedReactions().add(reactionW.getId());
             }
@@ -900,21 +972,22 @@ public class SBGNML2CD extends GeneralConverter {
         setNotes(reactionW, processGlyph);
         setAnnotations(reactionW, processGlyph);
 
-        sbml.getModel().getListOfReactions().getReaction().add(reactionW.getCDReaction());
+        ctx.sbml.getModel().getListOfReactions().getReaction().add(reactionW.getCDReaction());
 
     }
 
-    private void processOrphanArc(Arc orphanArc) {
+    private void processOrphanArc(ConversionContext ctx, Arc orphanArc) {
         // process orphan arcs
-        Glyph targetGlyph = arcToTarget.get(orphanArc.getId());
-        Glyph sourceGlyph = arcToSource.get(orphanArc.getId());
+        Glyph targetGlyph = ctx.arcToTarget.get(orphanArc.getId());
+        Glyph sourceGlyph = ctx.arcToSource.get(orphanArc.getId());
 
-        AliasWrapper sourceAliasW = aliasWrapperMap.get(sourceGlyph.getId()+"_alias1");
-        AliasWrapper targetAliasW = aliasWrapperMap.get(targetGlyph.getId()+"_alias1");
+        AliasWrapper sourceAliasW = ctx.aliasWrapperMap.get(sourceGlyph.getId()+"_alias1");
+        AliasWrapper targetAliasW = ctx.aliasWrapperMap.get(targetGlyph.getId()+"_alias1");
 
         // case where one of the glyphs could not be translated (ex: submaps)
         if(sourceAliasW == null || targetAliasW == null) {
-            logger.warn("Discarding arc because its source or target could not be translated"); // TODO more details
+            ctx.diagnostics.warn(Diagnostic.Type.UNTRANSLATED_ARC, orphanArc.getId(),
+                    "Discarding arc because its source or target could not be translated");
             return;
         }
 
@@ -954,14 +1027,12 @@ public class SBGNML2CD extends GeneralConverter {
                 SBGNUtils.getRectangleFromGlyph(targetGlyph));
 
 
-        List<Point2D.Float> localEditPoints = GeometryUtils.convertPoints(
-                editPointsOnly,
-                GeometryUtils.getTransformsToLocalCoords(
-                        finalStartPoint,
-                        finalEndPoint
-                ));
+        List<Point2D.Float> localEditPoints = ctx.polylineBuffer.getLocalEditPoints(
+                finalStartPoint,
+                finalEndPoint,
+                editPointsOnly);
 
-        LineWrapper lineWrapper = buildLineWrapper(orphanArc.getId(), localEditPoints, null);
+        LineWrapper lineWrapper = buildLineWrapper(ctx, orphanArc.getId(), localEditPoints, null);
 
         ReactionWrapper reactionW = new ReactionWrapper(
                 orphanArc.getId(),
@@ -972,14 +1043,15 @@ public class SBGNML2CD extends GeneralConverter {
         reactionW.setLineWrapper(lineWrapper);
         reactionW.setHasProcess(false);
 
-        sbml.getModel().getListOfReactions().getReaction().add(reactionW.getCDReaction());
+        ctx.sbml.getModel().getListOfReactions().getReaction().add(reactionW.getCDReaction());
 
         /*additionalW.setLineWrapper(lineWrapper);
         reactionW.getAdditionalProducts().add(additionalW);*/
     }
 
-    private ReactantWrapper processModifierToLogic(Arc modificationArc, Glyph modificationGlyph,
-                                            ReactantWrapper modificationW, Glyph logicGateGlyph) {
+    private ReactantWrapper processModifierToLogic(ConversionContext ctx, Arc modificationArc,
+                                                   Glyph modificationGlyph, ReactantWrapper modificationW,
+                                                   Glyph logicGateGlyph) {
         List<Point2D.Float> modificationPoints = SBGNUtils.getPoints(modificationArc);
         if(logicGateGlyph.getPort().size() > 0) {
             modificationPoints.add(new Point2D.Float(
@@ -1019,21 +1091,19 @@ public class SBGNML2CD extends GeneralConverter {
                 SBGNUtils.getRectangleFromGlyph(modificationGlyph));
 
 
-        List<Point2D.Float> localEditPoints = GeometryUtils.convertPoints(
-                editPointsOnly,
-                GeometryUtils.getTransformsToLocalCoords(
-                        finalStartPoint,
-                        finalEndPoint
-                ));
+        List<Point2D.Float> localEditPoints = ctx.polylineBuffer.getLocalEditPoints(
+                finalStartPoint,
+                finalEndPoint,
+                editPointsOnly);
 
-        LineWrapper lineWrapper = buildLineWrapper(modificationArc.getId(), localEditPoints, null);
+        LineWrapper lineWrapper = buildLineWrapper(ctx, modificationArc.getId(), localEditPoints, null);
 
         modificationW.setLineWrapper(lineWrapper);
         return modificationW;
     }
 
-    private ReactantWrapper processLogicGate(Arc modificationArc, Glyph modificationGlyph,
-                                            ReactantWrapper modificationW, Process pr) {
+    private ReactantWrapper processLogicGate(ConversionContext ctx, Arc modificationArc, Glyph modificationGlyph,
+                                             ReactantWrapper modificationW, Process pr) {
 
         List<Point2D.Float> modificationPoints = new ArrayList<>();
         if(modificationGlyph.getPort().size() > 0) {
@@ -1068,20 +1138,18 @@ public class SBGNML2CD extends GeneralConverter {
         // for logic gates, just take the center of the glyph
         Point2D.Float finalStartPoint = startPoint;
 
-        List<Point2D.Float> localEditPoints = GeometryUtils.convertPoints(
-                editPointsOnly,
-                GeometryUtils.getTransformsToLocalCoords(
-                        finalStartPoint,
-                        finalEndPoint
-                ));
+        List<Point2D.Float> localEditPoints = ctx.polylineBuffer.getLocalEditPoints(
+                finalStartPoint,
+                finalEndPoint,
+                editPointsOnly);
 
         // logic gates have their own coordinate added to the edit point, in global coord system
         // we need to adjust to map translation factor
         Point2D.Float logicPoint = new Point2D.Float(
-                (float) (finalStartPoint.getX() - mapBounds.getX()),
-                (float) (finalStartPoint.getY() - mapBounds.getY()));
+                (float) (finalStartPoint.getX() - ctx.mapBounds.getX()),
+                (float) (finalStartPoint.getY() - ctx.mapBounds.getY()));
 
-        LineWrapper lineWrapper = buildLineWrapper(modificationArc.getId(), localEditPoints, logicPoint);
+        LineWrapper lineWrapper = buildLineWrapper(ctx, modificationArc.getId(), localEditPoints, logicPoint);
 
         modificationW.setLineWrapper(lineWrapper);
         return modificationW;
@@ -1095,7 +1163,7 @@ public class SBGNML2CD extends GeneralConverter {
      * @param prOrLogic
      * @return
      */
-    private ReactantWrapper processModifier(Arc modificationArc, Glyph modificationGlyph,
+    private ReactantWrapper processModifier(ConversionContext ctx, Arc modificationArc, Glyph modificationGlyph,
                                  ReactantWrapper modificationW, Object prOrLogic) {
         List<Point2D.Float> modificationPoints = SBGNUtils.getPoints(modificationArc);
 
@@ -1135,8 +1203,8 @@ public class SBGNML2CD extends GeneralConverter {
         if(SBGNUtils.isLogicGate(modificationGlyph)) {
             // for logic gates, just take the center of the glyph
             finalStartPoint = new Point2D.Float(
-                    (float) (modificationGlyph.getBbox().getX() - mapBounds.getX() + modificationGlyph.getBbox().getW() / 2),
-                    (float) (modificationGlyph.getBbox().getY() - mapBounds.getY() + modificationGlyph.getBbox().getH() / 2)
+                    (float) (modificationGlyph.getBbox().getX() - ctx.mapBounds.getX() + modificationGlyph.getBbox().getW() / 2),
+                    (float) (modificationGlyph.getBbox().getY() - ctx.mapBounds.getY() + modificationGlyph.getBbox().getH() / 2)
             );
         }
         else {
@@ -1147,12 +1215,10 @@ public class SBGNML2CD extends GeneralConverter {
         }
 
 
-        List<Point2D.Float> localEditPoints = GeometryUtils.convertPoints(
-                editPointsOnly,
-                GeometryUtils.getTransformsToLocalCoords(
-                        finalStartPoint,
-                        finalEndPoint
-                ));
+        List<Point2D.Float> localEditPoints = ctx.polylineBuffer.getLocalEditPoints(
+                finalStartPoint,
+                finalEndPoint,
+                editPointsOnly);
 
         LineWrapper lineWrapper;
         // logic gates have their own coordinate added to the edit point, in global coord system
@@ -1160,10 +1226,10 @@ public class SBGNML2CD extends GeneralConverter {
             Point2D.Float logicPoint = new Point2D.Float(
                     (float) finalStartPoint.getX(),
                     (float) finalStartPoint.getY());
-            lineWrapper = buildLineWrapper(modificationArc.getId(), localEditPoints, logicPoint);
+            lineWrapper = buildLineWrapper(ctx, modificationArc.getId(), localEditPoints, logicPoint);
         }
         else {
-            lineWrapper = buildLineWrapper(modificationArc.getId(), localEditPoints, null);
+            lineWrapper = buildLineWrapper(ctx, modificationArc.getId(), localEditPoints, null);
         }
 
         modificationW.setLineWrapper(lineWrapper);
@@ -1216,13 +1282,99 @@ public class SBGNML2CD extends GeneralConverter {
         return connectScheme;
     }
 
-    private void processSpecies(Glyph glyph, boolean isIncluded, boolean isComplex,
-                                String parentSpeciesId, String parentAliasId) {
+    /**
+     * Build the species of all the glyphs, on the species pool if one is set.
+     * @param ctx
+     * @param glyphs top level glyphs of the map
+     * @param stage counts the allocations of the workers
+     * @return for each glyph, in the same order, its species or null if the glyph is not an EPN
+     */
+    private List<SpeciesResult> buildSpecies(ConversionContext ctx, List<Glyph> glyphs,
+                                             ConversionMetrics.Stage stage) {
+        if(speciesPool == null) {
+            List<SpeciesResult> results = new ArrayList<>();
+            for(Glyph glyph: glyphs) {
+                results.add(buildSpecies(ctx, glyph));
+            }
+            return results;
+        }
+
+        try {
+            return speciesPool.submit(() -> glyphs.parallelStream()
+                    .map(glyph -> stage.measureWorker(() -> buildSpecies(ctx, glyph)))
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while converting species", e);
+        } catch (ExecutionException e) {
+            // throw the same exception as the serial mode would
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * @param ctx
+     * @param glyph
+     * @return the species of the glyph and of its subunits, null if the glyph is not an EPN
+     */
+    private SpeciesResult buildSpecies(ConversionContext ctx, Glyph glyph) {
+        SpeciesResult result = new SpeciesResult();
+        switch (GlyphClazz.fromClazz(glyph.getClazz())) {
+            case MACROMOLECULE:
+            case MACROMOLECULE_MULTIMER:
+            case NUCLEIC_ACID_FEATURE:
+            case NUCLEIC_ACID_FEATURE_MULTIMER:
+            case SIMPLE_CHEMICAL:
+            case SIMPLE_CHEMICAL_MULTIMER:
+            case UNSPECIFIED_ENTITY:
+            case PHENOTYPE:
+            case SOURCE_AND_SINK:
+            case PERTURBING_AGENT:
+            case SUBMAP:
+                processSpecies(ctx, result, glyph, false, false, null, null);
+                return result;
+            case COMPLEX:
+            case COMPLEX_MULTIMER:
+                processSpecies(ctx, result, glyph, false, true, null, null);
+                return result;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Add the species, aliases and references built for one glyph to the model, and report its diagnostics.
+     * @param ctx
+     * @param result
+     */
+    private void mergeSpecies(ConversionContext ctx, SpeciesResult result) {
+        result.diagnostics.getAll().forEach(ctx.diagnostics::report);
+        // entries are put one by one, as putAll could size the maps differently and change their iteration order
+        result.protMap.forEach(ctx.protMap::put);
+        result.geneMap.forEach(ctx.geneMap::put);
+        result.rnaMap.forEach(ctx.rnaMap::put);
+        result.asrnaMap.forEach(ctx.asrnaMap::put);
+        result.speciesWrapperMap.forEach(ctx.speciesWrapperMap::put);
+        result.aliasWrapperMap.forEach(ctx.aliasWrapperMap::put);
+        ctx.sbml.getModel().getAnnotation().getExtension().getListOfComplexSpeciesAliases()
+                .getComplexSpeciesAlias().addAll(result.complexSpeciesAliases);
+        ctx.sbml.getModel().getAnnotation().getExtension().getListOfSpeciesAliases()
+                .getSpeciesAlias().addAll(result.speciesAliases);
+    }
+
+    /**
+     * Build the species and alias of a glyph, and recursively of its subunits. Only ctx fields set before the
+     * first pass are read, everything built goes to result.
+     */
+    private void processSpecies(ConversionContext ctx, SpeciesResult result, Glyph glyph, boolean isIncluded,
+                                boolean isComplex, String parentSpeciesId, String parentAliasId) {
         String label = glyph.getLabel() == null ? "": glyph.getLabel().getText();
         label = Utils.UTF8charsToCD(label);
-        List<Glyph> unitOfInfoList = glyph.getGlyph().stream()
-                .filter(g->GlyphClazz.fromClazz(g.getClazz()) == UNIT_OF_INFORMATION)
-                .collect(Collectors.toList());
+        UnitsOfInfo unitsOfInfo = UnitsOfInfo.classify(glyph);
+        List<Glyph> unitOfInfoList = new ArrayList<>(unitsOfInfo.getUnits());
 
         // first determine specific subtypes
         SpeciesWrapper.ReferenceType subType = null;
@@ -1234,17 +1386,17 @@ public class SBGNML2CD extends GeneralConverter {
                 case MACROMOLECULE_MULTIMER:
                     subType = SpeciesWrapper.ReferenceType.GENERIC; // default
 
-                    Optional<Glyph> g = SBGNUtils.getUnitOfInfo(glyph, "receptor");
+                    Optional<Glyph> g = unitsOfInfo.get(UnitsOfInfo.Marker.RECEPTOR);
                     if(g.isPresent()) {
                         subType = SpeciesWrapper.ReferenceType.RECEPTOR;
                         unitOfInfoList.remove(g.get());
                     }
-                    g = SBGNUtils.getUnitOfInfo(glyph, "ion channel");
+                    g = unitsOfInfo.get(UnitsOfInfo.Marker.ION_CHANNEL);
                     if(g.isPresent()) {
                         subType = SpeciesWrapper.ReferenceType.ION_CHANNEL;
                         unitOfInfoList.remove(g.get());
                     }
-                    g = SBGNUtils.getUnitOfInfo(glyph, "truncated");
+                    g = unitsOfInfo.get(UnitsOfInfo.Marker.TRUNCATED);
                     if(g.isPresent()) {
                         subType = SpeciesWrapper.ReferenceType.TRUNCATED;
                         unitOfInfoList.remove(g.get());
@@ -1253,12 +1405,12 @@ public class SBGNML2CD extends GeneralConverter {
                 case NUCLEIC_ACID_FEATURE:
                 case NUCLEIC_ACID_FEATURE_MULTIMER:
                     subType = SpeciesWrapper.ReferenceType.GENE; // default
-                    g = SBGNUtils.getUnitOfInfo(glyph, "rna");
+                    g = unitsOfInfo.get(UnitsOfInfo.Marker.RNA);
                     if(g.isPresent()) {
                         subType = SpeciesWrapper.ReferenceType.RNA;
                         unitOfInfoList.remove(g.get());
                     }
-                    g = SBGNUtils.getUnitOfInfo(glyph, "asrna");
+                    g = unitsOfInfo.get(UnitsOfInfo.Marker.ANTISENSE_RNA);
                     if(g.isPresent()) {
                         subType = SpeciesWrapper.ReferenceType.ANTISENSE_RNA;
                         unitOfInfoList.remove(g.get());
@@ -1266,12 +1418,12 @@ public class SBGNML2CD extends GeneralConverter {
                     break;
                 case SIMPLE_CHEMICAL:
                 case SIMPLE_CHEMICAL_MULTIMER:
-                    g = SBGNUtils.getUnitOfInfo(glyph, "ion");
+                    g = unitsOfInfo.get(UnitsOfInfo.Marker.ION);
                     if(g.isPresent()) {
                         ionFlag = true;
                         unitOfInfoList.remove(g.get());
                     }
-                    g = SBGNUtils.getUnitOfInfo(glyph, "drug");
+                    g = unitsOfInfo.get(UnitsOfInfo.Marker.DRUG);
                     if(g.isPresent()) {
                         drugFlag = true;
                         unitOfInfoList.remove(g.get());
@@ -1297,7 +1449,7 @@ public class SBGNML2CD extends GeneralConverter {
             ResidueWrapper resW = new ResidueWrapper("rs"+i);
             //resW.useAngle = true;
             resW.name = variable;
-            resW.state = ResidueWrapper.getLongState(value);
+            resW.state = ResidueWrapper.getLongState(value, result.diagnostics, stateVar.getId());
             resW.angle = (float) angle;
             resW.relativePos = (float) topRatio;
             residueList.add(resW);
@@ -1308,12 +1460,6 @@ public class SBGNML2CD extends GeneralConverter {
 
         // process unit of info
         // certain values are allowed by CellDesigner. Other things are considered free input.
-        HashSet<String> recognizedInfo = new HashSet<>(Arrays.asList(
-                "pc:T", "pc:V", "pc:pH",
-                "mt:ion", "mt:rad", "mt:rna", "mt:dna", "mt:prot", "mt:psac",
-                "ct:gene", "ct:tss","ct:coding","ct:grr","ct:mRNA"
-                )); // also N:\d+
-
         List<AliasInfoWrapper> infoWrapperList = new ArrayList<>();
         for(Glyph infoUnit: unitOfInfoList) {
             // !! beware angle direction is inversed for units of info...
@@ -1324,7 +1470,7 @@ public class SBGNML2CD extends GeneralConverter {
             String value = infoUnit.getLabel().getText();
             String prefix;
             String infoLabel;
-            if(recognizedInfo.contains(value) || value.startsWith("N:")) {
+            if(RECOGNIZED_INFO.contains(value) || value.startsWith("N:")) {
                 String[] tmp = value.split(":");
                 prefix = tmp[0];
                 infoLabel = tmp[1];
@@ -1374,7 +1520,7 @@ public class SBGNML2CD extends GeneralConverter {
                         }
                     }
 
-                    protMap.put(referenceId, prot);
+                    result.protMap.put(referenceId, prot);
                     //sbml.getModel().getAnnotation().getExtension().getListOfProteins().getProtein().add(prot);
                     break;
                 case GENE:
@@ -1404,7 +1550,7 @@ public class SBGNML2CD extends GeneralConverter {
                         }
                     }
 
-                    geneMap.put(referenceId, gene);
+                    result.geneMap.put(referenceId, gene);
                     //sbml.getModel().getAnnotation().getExtension().getListOfGenes().getGene().add(gene);
                     break;
                 case RNA:
@@ -1435,7 +1581,7 @@ public class SBGNML2CD extends GeneralConverter {
                     }
 
 
-                    rnaMap.put(referenceId, rna);
+                    result.rnaMap.put(referenceId, rna);
                     //sbml.getModel().getAnnotation().getExtension().getListOfRNAs().getRNA().add(rna);
                     break;
                 case ANTISENSE_RNA:
@@ -1465,7 +1611,7 @@ public class SBGNML2CD extends GeneralConverter {
                         }
                     }
 
-                    asrnaMap.put(referenceId, asrna);
+                    result.asrnaMap.put(referenceId, asrna);
                     //sbml.getModel().getAnnotation().getExtension().getListOfAntisenseRNAs().getAntisenseRNA().add(asrna);
                     break;
             }
@@ -1487,7 +1633,7 @@ public class SBGNML2CD extends GeneralConverter {
 
         // find and set the toplevel complex parent
         if(isIncluded) {
-            AliasWrapper parentComplexAliasW = aliasWrapperMap.get(parentAliasId);
+            AliasWrapper parentComplexAliasW = result.aliasWrapperMap.get(parentAliasId);
             // we need to go up the chain in case of multiple inclusion levels
             while(parentComplexAliasW.getTopLevelParent() != null) {
                 parentComplexAliasW = parentComplexAliasW.getTopLevelParent();
@@ -1509,7 +1655,8 @@ public class SBGNML2CD extends GeneralConverter {
                 speciesW.setCdClass(ReactantModel.getCdClass(glyph.getClazz(), subType));
             }
             catch (Exception e) {
-                logger.error(e.getMessage()+" Glyph will be skipped and will not appear in translation.");
+                result.diagnostics.error(Diagnostic.Type.UNTRANSLATED_GLYPH, glyph.getId(),
+                        e.getMessage()+" Glyph will be skipped and will not appear in translation.");
                 return;
             }
         }
@@ -1528,7 +1675,7 @@ public class SBGNML2CD extends GeneralConverter {
         }
 
         // we allow elements to not be multimer, but still have a N:\d unit of info
-        int multimerCount = SBGNUtils.getMultimerFromInfo(glyph);
+        int multimerCount = unitsOfInfo.getMultimer();
         if(multimerCount > 0) {
             speciesW.setMultimer(multimerCount);
         }
@@ -1546,7 +1693,7 @@ public class SBGNML2CD extends GeneralConverter {
             speciesW.setComplex(parentSpeciesId);
             speciesW.setIncludedSpecies(true);
         }
-        speciesWrapperMap.put(speciesW.getId(), speciesW);
+        result.speciesWrapperMap.put(speciesW.getId(), speciesW);
 
         // PROCESS ALIAS
         // compartmentRef
@@ -1556,15 +1703,15 @@ public class SBGNML2CD extends GeneralConverter {
 
         Rectangle2D.Float bounds = new Rectangle2D.Float();
         bounds.setRect(
-                glyph.getBbox().getX()- (float) mapBounds.getX(),
-                glyph.getBbox().getY()- (float) mapBounds.getY(),
+                glyph.getBbox().getX()- (float) ctx.mapBounds.getX(),
+                glyph.getBbox().getY()- (float) ctx.mapBounds.getY(),
                 glyph.getBbox().getW(),
                 glyph.getBbox().getH());
         aliasW.setBounds(bounds);
 
         // style
-        if(mapHasStyle)
-            aliasW.setStyleInfo(styleMap.get(glyph.getId()));
+        if(ctx.mapHasStyle)
+            aliasW.setStyleInfo(ctx.styleMap.get(glyph.getId()));
         else
             aliasW.setStyleInfo(new StyleInfo(aliasW.getId()));
 
@@ -1579,26 +1726,23 @@ public class SBGNML2CD extends GeneralConverter {
             aliasW.setInfo(infoWrapperList.get(0));
 
             if(infoWrapperList.size() > 1) {
-                for(int j=1; i < unitOfInfoList.size(); i++) {
+                for(int j=1; j < unitOfInfoList.size(); j++) {
                     Glyph discardedUnit = unitOfInfoList.get(j);
-                    logger.error("Unit of information with id: "+discardedUnit.getId()+" and content: "
-                            +discardedUnit.getLabel().getText()+" on glyph with id: "+ glyph.getId()+" cannot be" +
-                            "translated and will be lost.");
+                    result.diagnostics.error(Diagnostic.Type.LOST_UNIT_OF_INFO, discardedUnit.getId(),
+                            "Unit of information with content: "+discardedUnit.getLabel().getText()
+                            +" on glyph with id: "+ glyph.getId()+" cannot be translated and will be lost.");
                 }
             }
         }
 
         // add alias to correct list
         if(isComplex) {
-            ListOfComplexSpeciesAliases.ComplexSpeciesAlias complexSpeciesAlias = aliasW.getCDComplexSpeciesAlias();
-            sbml.getModel().getAnnotation().getExtension().getListOfComplexSpeciesAliases()
-                    .getComplexSpeciesAlias().add(complexSpeciesAlias);
+            result.complexSpeciesAliases.add(aliasW.getCDComplexSpeciesAlias());
         }
         else {
-            SpeciesAlias speciesAlias = aliasW.getCDSpeciesAlias();
-            sbml.getModel().getAnnotation().getExtension().getListOfSpeciesAliases().getSpeciesAlias().add(speciesAlias);
+            result.speciesAliases.add(aliasW.getCDSpeciesAlias());
         }
-        aliasWrapperMap.put(aliasW.getId(), aliasW);
+        result.aliasWrapperMap.put(aliasW.getId(), aliasW);
 
         // recursively process included glyphs
         for(Glyph subglyph: glyph.getGlyph()) {
@@ -1611,22 +1755,22 @@ public class SBGNML2CD extends GeneralConverter {
                 if(subClazz == COMPLEX || subClazz == COMPLEX_MULTIMER) {
                     isSubGlyphComplex = true;
                 }
-                processSpecies(subglyph, true, isSubGlyphComplex, glyph.getId(), aliasId);
+                processSpecies(ctx, result, subglyph, true, isSubGlyphComplex, glyph.getId(), aliasId);
             }
         }
 
 
     }
 
-    private void processCompartment(Glyph glyph) {
+    private void processCompartment(ConversionContext ctx, Glyph glyph) {
 
         String label = glyph.getLabel() == null ? "": glyph.getLabel().getText();
         CompartmentWrapper compM = new CompartmentWrapper(
                 glyph.getId(),
                 label,
                 new Rectangle2D.Float(
-                        glyph.getBbox().getX() - (float) mapBounds.getX(),
-                        glyph.getBbox().getY() - (float) mapBounds.getY(),
+                        glyph.getBbox().getX() - (float) ctx.mapBounds.getX(),
+                        glyph.getBbox().getY() - (float) ctx.mapBounds.getY(),
                         glyph.getBbox().getW(),
                         glyph.getBbox().getH())
         );
@@ -1635,8 +1779,8 @@ public class SBGNML2CD extends GeneralConverter {
             compM.setOutside(((Glyph) glyph.getCompartmentRef()).getId());
         }
 
-        if(mapHasStyle) {
-            compM.setStyleInfo(styleMap.get(glyph.getId()));
+        if(ctx.mapHasStyle) {
+            compM.setStyleInfo(ctx.styleMap.get(glyph.getId()));
         }
 
         // label is precisely placed
@@ -1652,15 +1796,15 @@ public class SBGNML2CD extends GeneralConverter {
         setNotes(compM, glyph);
         setAnnotations(compM, glyph);
 
-        sbml.getModel().getListOfCompartments().getCompartment()
+        ctx.sbml.getModel().getListOfCompartments().getCompartment()
                 .add(compM.getCDCompartment());
-        sbml.getModel().getAnnotation().getExtension().getListOfCompartmentAliases().getCompartmentAlias()
+        ctx.sbml.getModel().getAnnotation().getExtension().getListOfCompartmentAliases().getCompartmentAlias()
                 .add(compM.getCDCompartmentAlias());
 
     }
 
 
-    private Sbml initFile(Map map) {
+    private Sbml initFile(ConversionContext ctx, Map map) {
 
         Sbml sbml = new Sbml();
         sbml.setLevel(BigInteger.valueOf(2));
@@ -1678,10 +1822,10 @@ public class SBGNML2CD extends GeneralConverter {
         ModelAnnotationType.Extension ext = new ModelAnnotationType.Extension();
         ext.setModelVersion(BigDecimal.valueOf(4.0));
 
-        this.mapBounds = SBGNUtils.getMapBounds(map);
+        ctx.mapBounds = SBGNUtils.getMapBounds(map);
         ModelDisplay modelDisplay = new ModelDisplay();
-        modelDisplay.setSizeX((short) mapBounds.getWidth());
-        modelDisplay.setSizeY((short) mapBounds.getHeight());
+        modelDisplay.setSizeX((short) ctx.mapBounds.getWidth());
+        modelDisplay.setSizeY((short) ctx.mapBounds.getHeight());
         ext.setModelDisplay(modelDisplay);
 
         ext.setListOfSpeciesAliases(new ListOfSpeciesAliases());
@@ -1752,31 +1896,31 @@ public class SBGNML2CD extends GeneralConverter {
         return sbml;
     }
 
-    private void buildMaps(Map map) {
-
-        idToGlyph = new HashMap<>();
-        arcToSource = new HashMap<>();
-        arcToTarget = new HashMap<>();
-        processToArcs = new HashMap<>();
-        portToGlyph = new HashMap<>();
-        aliasWrapperMap = new HashMap<>();
-        speciesWrapperMap = new HashMap<>();
-        glyphToArc = new HashMap<>();
-        orphanArcs = new ArrayList<>();
-        orphanLogicGates = new HashSet<>();
-        protMap = new HashMap<>();
-        rnaMap = new HashMap<>();
-        geneMap = new HashMap<>();
-        asrnaMap = new HashMap<>();
+    private void buildMaps(ConversionContext ctx, Map map) {
+
+        ctx.idToGlyph = new HashMap<>();
+        ctx.arcToSource = new HashMap<>();
+        ctx.arcToTarget = new HashMap<>();
+        ctx.processToArcs = new HashMap<>();
+        ctx.portToGlyph = new HashMap<>();
+        ctx.aliasWrapperMap = new HashMap<>();
+        ctx.speciesWrapperMap = new HashMap<>();
+        ctx.glyphToArc = new HashMap<>();
+        ctx.orphanArcs = new ArrayList<>();
+        ctx.orphanLogicGates = new HashSet<>();
+        ctx.protMap = new HashMap<>();
+        ctx.rnaMap = new HashMap<>();
+        ctx.geneMap = new HashMap<>();
+        ctx.asrnaMap = new HashMap<>();
 
         // parse all the style info
-        styleMap = new HashMap<>();
-        mapHasStyle = false;
+        ctx.styleMap = new HashMap<>();
+        ctx.mapHasStyle = false;
         if(map.getExtension() != null) {
             for (Element e : map.getExtension().getAny()) {
                 if (e.getTagName().equals("renderInformation")) {
-                    styleMap = SBGNUtils.mapStyleinfo(e);
-                    mapHasStyle = true;
+                    ctx.styleMap = SBGNUtils.mapStyleinfo(e);
+                    ctx.mapHasStyle = true;
                 }
             }
         }
@@ -1784,16 +1928,16 @@ public class SBGNML2CD extends GeneralConverter {
         java.util.Map<String, Glyph> terminalId2Submap = new HashMap<>();
         for(Glyph g: map.getGlyph()) {
             GlyphClazz clazz = GlyphClazz.fromClazz(g.getClazz());
-            idToGlyph.put(g.getId(), g);
+            ctx.idToGlyph.put(g.getId(), g);
             for(Port p: g.getPort()) {
-                portToGlyph.put(p.getId(), g);
+                ctx.portToGlyph.put(p.getId(), g);
             }
             if(clazz == PROCESS || clazz == UNCERTAIN_PROCESS || clazz == OMITTED_PROCESS
                     || clazz == ASSOCIATION || clazz == DISSOCIATION) {
-                processToArcs.put(g.getId(), new ArrayList<>());
+                ctx.processToArcs.put(g.getId(), new ArrayList<>());
             }
             if(clazz == AND || clazz == OR || clazz == NOT) {
-                orphanLogicGates.add(g);
+                ctx.orphanLogicGates.add(g);
             }
 
             // in case of submap, go inside and index all terminals
@@ -1805,7 +1949,7 @@ public class SBGNML2CD extends GeneralConverter {
                 }
             }
 
-            glyphToArc.put(g.getId(), new ArrayList<>());
+            ctx.glyphToArc.put(g.getId(), new ArrayList<>());
         }
 
         for(Arc arc: map.getArc()) {
@@ -1815,23 +1959,24 @@ public class SBGNML2CD extends GeneralConverter {
 
             if(arc.getSource() instanceof Port) {
                 Port p = (Port) arc.getSource();
-                sourceGlyph = portToGlyph.get(p.getId());
+                sourceGlyph = ctx.portToGlyph.get(p.getId());
             }
             // for terminals, make links point directly at the parent submap
             else if(arc.getSource() instanceof Glyph && ((Glyph) arc.getSource()).getClazz().equals("terminal")) {
                 // terminal should always be the target, not the source.
-                logger.warn("The arc: "+arc.getId()+" has a source terminal (id: "+((Glyph) arc.getSource()).getId()+"). " +
+                ctx.diagnostics.warn(Diagnostic.Type.SOURCE_TERMINAL, arc.getId(),
+                        "The arc has a source terminal (id: "+((Glyph) arc.getSource()).getId()+"). " +
                         "But Arcs should always have terminals as target.");
                 sourceGlyph = terminalId2Submap.get(((Glyph) arc.getSource()).getId());
             }
             else { // glyph itself
                 sourceGlyph = (Glyph) arc.getSource();
             }
-            arcToSource.put(arc.getId(), sourceGlyph);
+            ctx.arcToSource.put(arc.getId(), sourceGlyph);
 
             if(arc.getTarget() instanceof Port) {
                 Port p = (Port) arc.getTarget();
-                targetGlyph = portToGlyph.get(p.getId());
+                targetGlyph = ctx.portToGlyph.get(p.getId());
             }
             // for terminals, make links point directly at the parent submap
             else if(arc.getTarget() instanceof Glyph && ((Glyph) arc.getTarget()).getClazz().equals("terminal")) {
@@ -1840,22 +1985,22 @@ public class SBGNML2CD extends GeneralConverter {
             else { // glyph itself
                 targetGlyph = (Glyph) arc.getTarget();
             }
-            arcToTarget.put(arc.getId(), targetGlyph);
+            ctx.arcToTarget.put(arc.getId(), targetGlyph);
 
-            if(processToArcs.containsKey(sourceGlyph.getId())){
-                processToArcs.get(sourceGlyph.getId()).add(arc);
+            if(ctx.processToArcs.containsKey(sourceGlyph.getId())){
+                ctx.processToArcs.get(sourceGlyph.getId()).add(arc);
                 isConnectedToProcess = true;
             }
-            if(processToArcs.containsKey(targetGlyph.getId())){
-                processToArcs.get(targetGlyph.getId()).add(arc);
+            if(ctx.processToArcs.containsKey(targetGlyph.getId())){
+                ctx.processToArcs.get(targetGlyph.getId()).add(arc);
                 isConnectedToProcess = true;
             }
 
-            if(glyphToArc.containsKey(sourceGlyph.getId())){
-                glyphToArc.get(sourceGlyph.getId()).add(arc);
+            if(ctx.glyphToArc.containsKey(sourceGlyph.getId())){
+                ctx.glyphToArc.get(sourceGlyph.getId()).add(arc);
             }
-            if(glyphToArc.containsKey(targetGlyph.getId())){
-                glyphToArc.get(targetGlyph.getId()).add(arc);
+            if(ctx.glyphToArc.containsKey(targetGlyph.getId())){
+                ctx.glyphToArc.get(targetGlyph.getId()).add(arc);
             }
 
             /*//
@@ -1868,7 +2013,7 @@ public class SBGNML2CD extends GeneralConverter {
                     &&
                         ((!SBGNUtils.isLogicGate(sourceGlyph)
                             && !SBGNUtils.isLogicGate(targetGlyph)))) {
-                orphanArcs.add(arc);
+                ctx.orphanArcs.add(arc);
             }
         }
 
@@ -1916,13 +2061,14 @@ public class SBGNML2CD extends GeneralConverter {
     }
 
 
-    public SimpleEntry<Link, Link> baseLinkProcessingStep1(ReactantWrapper reactantW, Glyph glyph, Arc arc,
+    public SimpleEntry<Link, Link> baseLinkProcessingStep1(ConversionContext ctx, ReactantWrapper reactantW,
+                                       Glyph glyph, Arc arc,
                                        Point2D.Float absAssocPoint,
                                        boolean isReactant, ReactionFeatures options) {
         // get point lists in correct order
         // apply the mapBounds correction to each point of the arc to get consistent coords
         List<Point2D.Float> reactantPoints0 = applyCorrection(SBGNUtils.getPoints(arc),
-                (float) mapBounds.getX(),(float) mapBounds.getY());
+                (float) ctx.mapBounds.getX(),(float) ctx.mapBounds.getY());
         if(options.isReversible() && isReactant) {
             Collections.reverse(reactantPoints0);
         }
@@ -1932,8 +2078,8 @@ public class SBGNML2CD extends GeneralConverter {
         // infer best anchorpoints possible
         Rectangle2D.Float baseRect0 = SBGNUtils.getRectangleFromGlyph(glyph);
         baseRect0.setRect(
-                baseRect0.getX() - mapBounds.getX(),
-                baseRect0.getY() - mapBounds.getY(),
+                baseRect0.getX() - ctx.mapBounds.getX(),
+                baseRect0.getY() - ctx.mapBounds.getY(),
                 baseRect0.getWidth(),
                 baseRect0.getHeight());
         AnchorPoint startAnchor0;
@@ -1976,7 +2122,8 @@ public class SBGNML2CD extends GeneralConverter {
         return new SimpleEntry<>(new Link(finalAndLocalPoints), reactantLink0);
     }
 
-    public SimpleEntry<Point2D.Float, Point2D.Float> getAssocDissocPoints(List<ReactantWrapper> reactants,
+    public SimpleEntry<Point2D.Float, Point2D.Float> getAssocDissocPoints(ConversionContext ctx,
+                                                                          List<ReactantWrapper> reactants,
                                                                           Glyph processGlyph,
                                                                           Point2D.Float processCoords,
                                                                           Arc arc, boolean isAssociation) {
@@ -2006,14 +2153,14 @@ public class SBGNML2CD extends GeneralConverter {
                 }
             }
             absAssocPoint = new Point2D.Float(
-                    consumptionPort.getX() - (float) mapBounds.getX(),
-                    consumptionPort.getY() - (float) mapBounds.getY());
+                    consumptionPort.getX() - (float) ctx.mapBounds.getX(),
+                    consumptionPort.getY() - (float) ctx.mapBounds.getY());
 
         }
         else {
             absAssocPoint = new Point2D.Float(
-                    (float) (processCoords.getX() - mapBounds.getX()),
-                    (float) (processCoords.getY() - mapBounds.getY())
+                    (float) (processCoords.getX() - ctx.mapBounds.getX()),
+                    (float) (processCoords.getY() - ctx.mapBounds.getY())
             );
         }
 
@@ -2062,7 +2209,8 @@ public class SBGNML2CD extends GeneralConverter {
      * @param localAssocPoint
      * @return
      */
-    public LineWrapper buildLineWrapperWithProcess(java.util.Map<String, List<Point2D.Float>> arcIds2LocalEditPoints,
+    public LineWrapper buildLineWrapperWithProcess(ConversionContext ctx,
+                                                   java.util.Map<String, List<Point2D.Float>> arcIds2LocalEditPoints,
                                                    String processGLyphId, Point2D.Float localAssocPoint) {
         // finally set up the xml elements and add to reactions
         List<String> arcsIds = new ArrayList<>();
@@ -2098,12 +2246,12 @@ public class SBGNML2CD extends GeneralConverter {
         /*
             Set a style only if all components' style are the same
          */
-        if(mapHasStyle) {
+        if(ctx.mapHasStyle) {
             boolean areAllStyleTheSame = true;
-            StyleInfo arcStyle1 = styleMap.get(arcsIds.get(0));
+            StyleInfo arcStyle1 = ctx.styleMap.get(arcsIds.get(0));
             // check all styles are homogeneous by comparing all other arcs styles to arcStyle1
             for(int i=1; i < arcsIds.size(); i++) {
-                StyleInfo arcStyle2 = styleMap.get(arcsIds.get(i));
+                StyleInfo arcStyle2 = ctx.styleMap.get(arcsIds.get(i));
                 if(arcStyle1.getLineWidth() != arcStyle2.getLineWidth()
                         || !arcStyle1.getLineColor().equals(arcStyle2.getLineColor())) {
                     areAllStyleTheSame = false;
@@ -2111,7 +2259,7 @@ public class SBGNML2CD extends GeneralConverter {
                 }
             }
             // finally check that all arc's styles are consistent with process glyph style
-            StyleInfo processGlyphStyle = styleMap.get(processGLyphId);
+            StyleInfo processGlyphStyle = ctx.styleMap.get(processGLyphId);
             if(arcStyle1.getLineWidth() != processGlyphStyle.getLineWidth()
                     || !arcStyle1.getLineColor().equals(processGlyphStyle.getLineColor())) {
                 areAllStyleTheSame = false;
@@ -2127,19 +2275,15 @@ public class SBGNML2CD extends GeneralConverter {
         line.setWidth(BigDecimal.valueOf(lineWidth));
         line.setColor(lineColor);
 
-        List<String> editPointString = new ArrayList<>();
-        List<Point2D.Float> mergedList = new ArrayList<>();
+        EditPointList mergedList = new EditPointList();
         for(List<Point2D.Float> editPoints: editPointsList) {
             mergedList.addAll(editPoints);
         }
         if(isBranchReactionType) { // the assocPoint needs to be added at the end of the string
             mergedList.add(localAssocPoint);
         }
-        for(Point2D.Float p: mergedList) {
-            editPointString.add(p.getX()+","+p.getY());
-        }
 
-        LineWrapper lineWrapper = new LineWrapper(connectScheme, editPointString, line);
+        LineWrapper lineWrapper = new LineWrapper(connectScheme, mergedList, line);
         if(isBranchReactionType) {
             // here the number of edit points is needed
             lineWrapper.setNum0(segmentCountList.get(0) - 1);
@@ -2158,12 +2302,13 @@ public class SBGNML2CD extends GeneralConverter {
      * @param additionalPoint for logic gates, their coordinates must be added at the end of the edit points string
      * @return
      */
-    public LineWrapper buildLineWrapper(String arcId, List<Point2D.Float> localEditPoints, Point2D.Float additionalPoint) {
+    public LineWrapper buildLineWrapper(ConversionContext ctx, String arcId, List<Point2D.Float> localEditPoints,
+                                        Point2D.Float additionalPoint) {
 
         String lineColor = "ff000000";
         float lineWidth = 1;
-        if(mapHasStyle) {
-            StyleInfo styleInfo = styleMap.get(arcId);
+        if(ctx.mapHasStyle) {
+            StyleInfo styleInfo = ctx.styleMap.get(arcId);
             lineWidth = styleInfo.getLineWidth();
             lineColor = styleInfo.getLineColor();
         }
@@ -2177,16 +2322,13 @@ public class SBGNML2CD extends GeneralConverter {
         line.setColor(lineColor);
         line.setType("Straight");
 
-        List<String> editPointString = new ArrayList<>();
-        for(Point2D.Float p: localEditPoints) {
-            editPointString.add(p.getX()+","+p.getY());
-        }
-
+        EditPointList editPoints = new EditPointList(localEditPoints.size() + 1);
+        editPoints.addAll(localEditPoints);
         if(additionalPoint != null) {
-            editPointString.add(additionalPoint.getX()+","+additionalPoint.getY());
+            editPoints.add(additionalPoint);
         }
 
-        return new LineWrapper(connectScheme, editPointString, line);
+        return new LineWrapper(connectScheme, editPoints, line);
     }
 
     public static AnchorPoint inferAnchorPoint(Point2D.Float p, ReactantWrapper reactantW, Rectangle2D.Float rect) {
@@ -1,5 +1,7 @@
 package fr.curie.cd2sbgnml;
 
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostics;
 import fr.curie.cd2sbgnml.xmlcdwrappers.StyleInfo;
 import org.sbgn.ArcClazz;
 import org.sbgn.GlyphClazz;
@@ -159,7 +161,7 @@ public class SBGNUtils {
 
     /**
      * Return wether the glyph has at least one unit of information with label matching regexp.
-     * Case insensitive.
+     * Case insensitive. To look for several CellDesigner markers, use UnitsOfInfo.classify instead.
      * @param glyph
      * @param regexp
      * @return
@@ -199,19 +201,7 @@ public class SBGNUtils {
      * @return 0 if no unit of info concerning multimer, else number of multimer
      */
     public static int getMultimerFromInfo(Glyph glyph) {
-        if(SBGNUtils.hasUnitOfInfo(glyph, "N\\s*:\\s*\\d+")){
-            Pattern p = Pattern.compile("N\\s*:\\s*(\\d+)", Pattern.CASE_INSENSITIVE);
-            for(Glyph subglyph: glyph.getGlyph()) {
-                if(subglyph.getClazz().equals("unit of information")) {
-                    String info = subglyph.getLabel().getText();
-                    Matcher m = p.matcher(info);
-                    if(m.find()){
-                        return Integer.parseInt(m.group(1));
-                    }
-                }
-            }
-        }
-        return 0;
+        return UnitsOfInfo.classify(glyph).getMultimer();
     }
 
     /**
@@ -362,11 +352,29 @@ public class SBGNUtils {
 
     public static void sanitizeSubGlyphs(List<Glyph> subglyphs) {
         for(Glyph g: subglyphs) {
-            g.setId(g.getId().replaceAll("-", "_"));
+            g.setId(replaceDashes(g.getId()));
             sanitizeSubGlyphs(g.getGlyph());
         }
     }
 
+    /**
+     * @param id
+     * @return id with all '-' replaced by '_', the same string if there is no '-'
+     */
+    public static String replaceDashes(String id) {
+        int first = id.indexOf('-');
+        if(first < 0) {
+            return id;
+        }
+        char[] chars = id.toCharArray();
+        for(int i=first; i < chars.length; i++) {
+            if(chars[i] == '-') {
+                chars[i] = '_';
+            }
+        }
+        return new String(chars);
+    }
+
     /**
      * CellDesigner doesn't like ids with '-' we need to go over all the sbgn and change that to '_'
      * This is because SBML ids aren't defined as xsd:id.
@@ -378,38 +386,143 @@ public class SBGNUtils {
      * @return
      */
     public static Sbgn sanitizeIds(Sbgn sbgn) {
-        for(Glyph g: sbgn.getMap()/*.get(0)*/.getGlyph()){
-
-            g.setId(g.getId().replaceAll("-", "_"));
-
-            sanitizeSubGlyphs(g.getGlyph());
+        sanitizeIds(sbgn, new Diagnostics());
+        return sbgn;
+    }
 
-            if(g.getPort().size() > 0) {
-                for(Port p: g.getPort()) {
-                     p.setId(p.getId().replaceAll("-", "_"));
+    /**
+     * Replace '-' by '_' in the ids of glyphs, subglyphs, ports of top level glyphs and arcs, and in the
+     * idList of styles.
+     *
+     * Ids without '-' are left untouched. If the new id of an element is already used by another element, a
+     * suffix is added to make it unique and an ID_COLLISION warning is reported.
+     * Arc ends and compartment references point to the elements themselves, they follow the new ids.
+     *
+     * @param sbgn
+     * @param diagnostics
+     * @return new id of each changed id, in document order
+     */
+    public static Map<String, String> sanitizeIds(Sbgn sbgn, Diagnostics diagnostics) {
+        org.sbgn.bindings.Map sbgnMap = sbgn.getMap();
+
+        // gather all ids, and the elements that need a new one
+        Set<String> usedIds = new HashSet<>();
+        List<Object> toRename = new ArrayList<>();
+        for(Glyph g: sbgnMap.getGlyph()) {
+            collectIds(g, usedIds, toRename);
+            for(Port p: g.getPort()) {
+                usedIds.add(p.getId());
+                if(p.getId().indexOf('-') >= 0) {
+                    toRename.add(p);
                 }
             }
         }
+        for(Arc a: sbgnMap.getArc()) {
+            usedIds.add(a.getId());
+            if(a.getId().indexOf('-') >= 0) {
+                toRename.add(a);
+            }
+        }
 
-        for(Arc a: sbgn.getMap()/*.get(0)*/.getArc()) {
-            a.setId(a.getId().replaceAll("-", "_"));
+        Map<String, String> newIds = new LinkedHashMap<>();
+        for(Object element: toRename) {
+            String oldId = getSbgnId(element);
+            String newId = newIds.get(oldId);
+            if(newId == null) {
+                newId = replaceDashes(oldId);
+                if(usedIds.contains(newId)) {
+                    String candidate = newId;
+                    for(int i=2; usedIds.contains(candidate); i++) {
+                        candidate = newId + "_" + i;
+                    }
+                    diagnostics.warn(Diagnostic.Type.ID_COLLISION, oldId,
+                            "Id "+newId+" is already used, "+candidate+" will be used instead.");
+                    newId = candidate;
+                }
+                usedIds.add(newId);
+                newIds.put(oldId, newId);
+            }
+            setSbgnId(element, newId);
         }
 
         // change ids in style
-        if(sbgn.getMap()/*.get(0)*/.getExtension() != null) {
-            for (Element e : sbgn.getMap()/*.get(0)*/.getExtension().getAny()) {
+        if(sbgnMap.getExtension() != null) {
+            for (Element e : sbgnMap.getExtension().getAny()) {
                 if (e.getTagName().equals("renderInformation")) {
                     NodeList nodeList = e.getElementsByTagName("style");
 
                     for (int i = 0; i < nodeList.getLength(); i++) {
                         Element e2 = (Element) nodeList.item(i);
-                        e2.setAttribute("idList", e2.getAttribute("idList").replaceAll("-", "_"));
+                        String idList = e2.getAttribute("idList");
+                        if(idList.indexOf('-') >= 0) {
+                            e2.setAttribute("idList", remapIdList(idList, newIds));
+                        }
                     }
                 }
             }
         }
 
-        return sbgn;
+        return newIds;
+    }
+
+    private static void collectIds(Glyph g, Set<String> usedIds, List<Object> toRename) {
+        usedIds.add(g.getId());
+        if(g.getId().indexOf('-') >= 0) {
+            toRename.add(g);
+        }
+        for(Glyph subglyph: g.getGlyph()) {
+            collectIds(subglyph, usedIds, toRename);
+        }
+    }
+
+    private static String getSbgnId(Object element) {
+        if(element instanceof Glyph) {
+            return ((Glyph) element).getId();
+        }
+        if(element instanceof Port) {
+            return ((Port) element).getId();
+        }
+        return ((Arc) element).getId();
+    }
+
+    private static void setSbgnId(Object element, String id) {
+        if(element instanceof Glyph) {
+            ((Glyph) element).setId(id);
+        }
+        else if(element instanceof Port) {
+            ((Port) element).setId(id);
+        }
+        else {
+            ((Arc) element).setId(id);
+        }
+    }
+
+    /**
+     * @param idList space separated ids
+     * @param newIds
+     * @return idList with each id replaced by its new id. Ids of elements that weren't renamed only get
+     * their '-' replaced.
+     */
+    private static String remapIdList(String idList, Map<String, String> newIds) {
+        StringBuilder sb = new StringBuilder(idList.length() + 8);
+        int i = 0;
+        while(i < idList.length()) {
+            char c = idList.charAt(i);
+            if(c == ' ') {
+                sb.append(c);
+                i++;
+                continue;
+            }
+            int end = idList.indexOf(' ', i);
+            if(end < 0) {
+                end = idList.length();
+            }
+            String id = idList.substring(i, end);
+            String newId = newIds.get(id);
+            sb.append(newId != null ? newId : replaceDashes(id));
+            i = end;
+        }
+        return sb.toString();
     }
 
     /**
@@ -2,74 +2,180 @@ package fr.curie.cd2sbgnml;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
+import fr.curie.cd2sbgnml.diagnostics.AsyncLogSink;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostics;
+import fr.curie.cd2sbgnml.io.ValidationMode;
 import org.sbfc.converter.exceptions.ConversionException;
 import org.sbfc.converter.exceptions.ReadModelException;
 import org.sbfc.converter.exceptions.WriteModelException;
-import org.sbml.sbml.level2.version4.Sbml;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xml.sax.SAXException;
 
-import javax.xml.XMLConstants;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.bind.util.ValidationEventCollector;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class Sbgnml2CdScript {
-    @Parameter(names = { "-i", "--input"}, required = true)
+
+    private static final Logger logger = LoggerFactory.getLogger(Sbgnml2CdScript.class);
+
+    @Parameter(names = { "-i", "--input"}, required = true,
+            description = "Input file. In batch mode, a directory or a manifest file (with -m)")
     private String inputFileName;
 
-    @Parameter(names = { "-o", "--output" }, required = true)
+    @Parameter(names = { "-o", "--output" }, required = true,
+            description = "Output file. In batch mode, the output directory")
     private String outputFileName;
 
-    public static void main(String[] args) {
-        Logger logger = LoggerFactory.getLogger(Sbgnml2CdScript.class);
+    @Parameter(names = { "-g", "--glob" },
+            description = "Batch mode: files of the input directory to convert, ex: *.sbgn or **.sbgn to recurse")
+    private String glob = "*.sbgn*";
+
+    @Parameter(names = { "-m", "--manifest" },
+            description = "Batch mode: input is a file listing the files to convert, one per line")
+    private boolean manifest = false;
+
+    @Parameter(names = { "-t", "--threads" }, description = "Batch mode: number of files converted in parallel")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = { "-s", "--summary" },
+            description = "Batch mode: write the summary to this file instead of the standard output")
+    private String summaryFileName;
+
+    @Parameter(names = { "-v", "--validation" },
+            description = "Validation of the output: OFF, FAST (tree in memory validated after writing) or STRICT (output file read again)")
+    private ValidationMode validation = ValidationMode.FAST;
+
+    @Parameter(names = { "-e", "--parallel-epns" },
+            description = "Convert the entity pool nodes of each map in parallel, on all available cores")
+    private boolean parallelEpns = false;
+
+    @Parameter(names = { "-c", "--cache" },
+            description = "Directory of the conversion cache: files already converted with the same options are "
+                    +"copied from it instead of being converted again")
+    private String cacheDirectory;
 
+    @Parameter(names = { "--cache-size" }, description = "Maximum size of the conversion cache, in MB")
+    private long cacheSize = 1024;
+
+    @Parameter(names = { "-h", "--help" }, help = true)
+    private boolean help = false;
+
+    public static void main(String[] args) throws IOException {
         Sbgnml2CdScript app = new Sbgnml2CdScript();
-        JCommander.newBuilder()
+        JCommander jCommander = JCommander.newBuilder()
                 .addObject(app)
-                .build()
-                .parse(args);
+                .build();
+        jCommander.parse(args);
+        if(app.help) {
+            jCommander.usage();
+            return;
+        }
 
-        convert(app.inputFileName, app.outputFileName);
+        ConversionOptions options = new ConversionOptions()
+                .setValidation(app.validation)
+                .setPool(app.parallelEpns ? ForkJoinPool.commonPool() : null)
+                .setCache(app.cacheDirectory == null ? null
+                        : new ConversionCache(Paths.get(app.cacheDirectory), app.cacheSize * 1024 * 1024));
+        Path input = Paths.get(app.inputFileName);
+        if(app.manifest || input.toFile().isDirectory()) {
+            BatchConverter batchConverter = new BatchConverter(
+                    (in, out) -> convertAndValidate(in.toString(), out.toString(), options),
+                    ".xml",
+                    app.threads);
+            batchConverter.convertAll(input, app.manifest, app.glob,
+                    Paths.get(app.outputFileName), app.summaryFileName);
+        }
+        else {
+            convert(app.inputFileName, app.outputFileName, options);
+        }
     }
 
     public static void convert(String inputFileName, String outputFileName) {
-        SBGNML2CD toCDConverter = new SBGNML2CD();
-
+        convert(inputFileName, outputFileName, new ConversionOptions());
+    }
 
-        SBGNSBFCModel sbgnModel = new SBGNSBFCModel();
+    /**
+     * Convert and log the validation problems and the conversion stages, errors are printed.
+     * @param inputFileName
+     * @param outputFileName
+     * @param options
+     */
+    public static void convert(String inputFileName, String outputFileName, ConversionOptions options) {
         try {
-            sbgnModel.setModelFromFile(inputFileName);
-        } catch (ReadModelException e) {
+            ConversionResult result = convertAndValidate(inputFileName, outputFileName, options);
+            for(String problem: result.getProblems()) {
+                logger.error("Output validation: "+problem);
+            }
+            // diagnostics of the conversion are logged first
+            AsyncLogSink.getDefault().flush(1000);
+            logger.info("Conversion stages:"+System.lineSeparator()+result.getMetrics());
+            Diagnostics diagnostics = result.getDiagnostics();
+            if(diagnostics.size() > 0) {
+                logger.warn("Conversion diagnostics: "+diagnostics.count(Diagnostic.Severity.ERROR)+" errors, "
+                        +diagnostics.count(Diagnostic.Severity.WARNING)+" warnings "+diagnostics.countByType());
+            }
+        } catch (ConversionException | ReadModelException | WriteModelException e) {
             e.printStackTrace();
         }
+    }
 
-        try {
-            CellDesignerSBFCModel cellDesignerSBFCModel = (CellDesignerSBFCModel) toCDConverter.convert(sbgnModel);
-            cellDesignerSBFCModel.modelToFile(outputFileName);
-        } catch (ConversionException | ReadModelException | WriteModelException e) {
-            e.printStackTrace();
+    /**
+     * Convert an SBGN-ML file to CellDesigner and validate the result.
+     * If options have a cache and the same input was already converted with the same options, the output is
+     * copied from the cache instead.
+     * @param inputFileName
+     * @param outputFileName
+     * @param options
+     * @return the validation problems of the output, the stages and the diagnostics of the conversion
+     * @throws ReadModelException
+     * @throws ConversionException
+     * @throws WriteModelException
+     */
+    public static ConversionResult convertAndValidate(String inputFileName, String outputFileName,
+                                                      ConversionOptions options)
+            throws ReadModelException, ConversionException, WriteModelException {
+        ConversionMetrics metrics = new ConversionMetrics();
+        Diagnostics diagnostics = new Diagnostics();
+        ConversionCache cache = options.getCache();
+        String cacheKey = null;
+        if(cache != null) {
+            ConversionMetrics.Stage stage = metrics.start("cache lookup");
+            cacheKey = cache.getKey(Paths.get(inputFileName), ConversionCache.SBGN_TO_CD,
+                    ConversionCache.getOptions(outputFileName, options.getValidation()));
+            List<String> cachedProblems = cacheKey == null ? null : cache.get(cacheKey, Paths.get(outputFileName),
+                    diagnostics);
+            stage.end();
+            stage.count("hit", cachedProblems == null ? 0 : 1);
+            if(cachedProblems != null) {
+                return new ConversionResult(cachedProblems, metrics, diagnostics);
+            }
         }
 
-        // VALIDATION
+        SBGNML2CD toCDConverter = new SBGNML2CD();
+        toCDConverter.setSpeciesPool(options.getPool());
 
-        SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        try {
-            Schema schema = sf.newSchema(
-                            Sbgnml2CdScript.class.getResource("/schema/CellDesigner.xsd"));
-            JAXBContext jc = JAXBContext.newInstance(Sbml.class);
-
-            Unmarshaller unmarshaller = jc.createUnmarshaller();
-            unmarshaller.setSchema(schema);
-            unmarshaller.setEventHandler(new ValidationEventCollector());
-            unmarshaller.unmarshal(new File(outputFileName));
-        } catch (SAXException | JAXBException e) {
-            e.printStackTrace();
+        ConversionMetrics.Stage stage = metrics.start("read");
+        SBGNSBFCModel sbgnModel = new SBGNSBFCModel();
+        sbgnModel.setModelFromFile(inputFileName);
+        stage.end();
+
+        CellDesignerSBFCModel cellDesignerSBFCModel =
+                new CellDesignerSBFCModel(toCDConverter.toCD(sbgnModel.getModel(), metrics, diagnostics));
+
+        stage = metrics.start("write");
+        List<String> problems = cellDesignerSBFCModel.modelToFile(outputFileName, options.getValidation());
+        stage.end();
+        stage.count("validation problems", problems.size());
+
+        if(cacheKey != null) {
+            stage = metrics.start("cache store");
+            cache.put(cacheKey, Paths.get(outputFileName), problems, diagnostics);
+            stage.end();
         }
+        return new ConversionResult(problems, metrics, diagnostics);
     }
 }
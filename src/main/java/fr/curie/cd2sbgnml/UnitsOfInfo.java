@@ -0,0 +1,117 @@
+package fr.curie.cd2sbgnml;
+
+import org.sbgn.GlyphClazz;
+import org.sbgn.bindings.Glyph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Units of information of a glyph, with the CellDesigner subtypes and the multimer count they carry.
+ *
+ * All units are scanned once, against patterns compiled at class loading. The result is the same as calling
+ * SBGNUtils.getUnitOfInfo for each marker and SBGNUtils.getMultimerFromInfo: for each marker, the first unit
+ * whose label contains it, case insensitive.
+ */
+public class UnitsOfInfo {
+
+    /**
+     * Labels of units of information that translate to a CellDesigner subtype.
+     * Markers may contain each other: a unit "asRNA" is both RNA and ANTISENSE_RNA.
+     */
+    public enum Marker {
+        RECEPTOR("receptor"),
+        ION_CHANNEL("ion channel"),
+        TRUNCATED("truncated"),
+        RNA("rna"),
+        ANTISENSE_RNA("asrna"),
+        ION("ion"),
+        DRUG("drug");
+
+        private final Pattern pattern;
+
+        Marker(String regexp) {
+            this.pattern = Pattern.compile(regexp, Pattern.CASE_INSENSITIVE);
+        }
+    }
+
+    private static final Marker[] MARKERS = Marker.values();
+
+    private static final Pattern MULTIMER_PATTERN = Pattern.compile("N\\s*:\\s*(\\d+)", Pattern.CASE_INSENSITIVE);
+
+    private final List<Glyph> units;
+    private final Map<Marker, Glyph> markers;
+    private final int multimer;
+
+    private UnitsOfInfo(List<Glyph> units, Map<Marker, Glyph> markers, int multimer) {
+        this.units = units;
+        this.markers = markers;
+        this.multimer = multimer;
+    }
+
+    /**
+     * @param glyph
+     * @return the units of information found in the direct subglyphs of glyph
+     */
+    public static UnitsOfInfo classify(Glyph glyph) {
+        List<Glyph> units = new ArrayList<>();
+        Map<Marker, Glyph> markers = new EnumMap<>(Marker.class);
+        int multimer = 0;
+        boolean multimerFound = false;
+
+        for(Glyph subglyph: glyph.getGlyph()) {
+            if(GlyphClazz.fromClazz(subglyph.getClazz()) != GlyphClazz.UNIT_OF_INFORMATION) {
+                continue;
+            }
+            units.add(subglyph);
+            if(subglyph.getLabel() == null) {
+                continue;
+            }
+
+            String info = subglyph.getLabel().getText();
+            Matcher matcher = MULTIMER_PATTERN.matcher(info);
+            for(Marker marker: MARKERS) {
+                if(!markers.containsKey(marker) && matcher.usePattern(marker.pattern).reset().find()) {
+                    markers.put(marker, subglyph);
+                }
+            }
+            if(!multimerFound && matcher.usePattern(MULTIMER_PATTERN).reset().find()) {
+                multimer = Integer.parseInt(matcher.group(1));
+                multimerFound = true;
+            }
+        }
+        return new UnitsOfInfo(Collections.unmodifiableList(units), markers, multimer);
+    }
+
+    /**
+     * @return all units of information, in document order
+     */
+    public List<Glyph> getUnits() {
+        return units;
+    }
+
+    /**
+     * @param marker
+     * @return the first unit of information containing the marker
+     */
+    public Optional<Glyph> get(Marker marker) {
+        return Optional.ofNullable(markers.get(marker));
+    }
+
+    public boolean has(Marker marker) {
+        return markers.containsKey(marker);
+    }
+
+    /**
+     * @return count of the first N:\d+ unit of information, 0 if there is none
+     */
+    public int getMultimer() {
+        return multimer;
+    }
+}
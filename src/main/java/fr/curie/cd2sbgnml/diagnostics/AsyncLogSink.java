@@ -0,0 +1,197 @@
+package fr.curie.cd2sbgnml.diagnostics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes diagnostics to a logger from a background thread, so that converting threads don't format or write
+ * log lines themselves.
+ *
+ * Events go through a bounded ring buffer. Any number of threads can publish without locking: each one claims a
+ * slot with a compare-and-set on the tail counter, and each slot has a sequence number telling whether it is
+ * free or holds an event. A single daemon thread takes the events in order and logs them. When the buffer is
+ * empty, the thread blocks until the next event is published.
+ * Events are only queued if the logger is enabled for their level. When the buffer is full, events are dropped
+ * from the log (they are still in the Diagnostics of their run) and the number dropped is logged afterwards, at
+ * the latest by flush().
+ *
+ * The thread being a daemon, events still in the buffer when the JVM exits may not be logged. Call flush() before
+ * exiting, a shutdown hook also does it.
+ */
+public class AsyncLogSink {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Time flush() waits before looking again at the events logged.
+     */
+    private static final long FLUSH_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static class Holder {
+        static final AsyncLogSink DEFAULT =
+                new AsyncLogSink(LoggerFactory.getLogger(Diagnostics.class), DEFAULT_CAPACITY);
+    }
+
+    private final Logger logger;
+    private final int mask;
+    private final AtomicReferenceArray<Diagnostic> slots;
+    /**
+     * For slot i: i + n * capacity when free for the n-th round, i + n * capacity + 1 when it holds an event.
+     */
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong reportedDrops = new AtomicLong();
+    // only written by the background thread
+    private volatile long head;
+    // true when the background thread may be blocked, publishers must then wake it up
+    private volatile boolean waiting;
+    private final Thread thread;
+
+    /**
+     * @return the sink shared by all the conversions of the JVM, its thread is started on first call
+     */
+    public static AsyncLogSink getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    /**
+     * Create a sink and start its background thread.
+     * @param logger
+     * @param capacity maximum number of events waiting to be logged, rounded up to a power of 2
+     */
+    public AsyncLogSink(Logger logger, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.logger = logger;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for(int i=0; i < size; i++) {
+            sequences.set(i, i);
+        }
+
+        thread = new Thread(this::drainLoop, "cd2sbgnml-diagnostics");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(TimeUnit.SECONDS.toMillis(1))));
+    }
+
+    /**
+     * Queue an event to be logged, if the logger is enabled for its level.
+     * @param diagnostic
+     * @return false if the event was not queued, because its level is disabled or the buffer is full
+     */
+    public boolean publish(Diagnostic diagnostic) {
+        if(!isEnabled(diagnostic.getSeverity())) {
+            return false;
+        }
+
+        long position = tail.get();
+        while(true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if(difference == 0) {
+                if(tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, diagnostic);
+                    sequences.set(index, position + 1);
+                    if(waiting) {
+                        LockSupport.unpark(thread);
+                    }
+                    return true;
+                }
+                position = tail.get();
+            }
+            else if(difference < 0) {
+                // the slot still holds the event of the previous round: buffer is full
+                dropped.incrementAndGet();
+                return false;
+            }
+            else {
+                // another thread took this slot
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Wait until the events published before this call are logged, then log the number of events dropped.
+     * @param timeoutMillis
+     * @return false if the timeout was reached first
+     */
+    public boolean flush(long timeoutMillis) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        boolean flushed = true;
+        while(head < target) {
+            if(System.nanoTime() > deadline) {
+                flushed = false;
+                break;
+            }
+            LockSupport.parkNanos(FLUSH_PARK_NANOS);
+        }
+        reportDrops();
+        return flushed;
+    }
+
+    /**
+     * @return number of events not logged because the buffer was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private boolean isEnabled(Diagnostic.Severity severity) {
+        return severity == Diagnostic.Severity.ERROR ? logger.isErrorEnabled() : logger.isWarnEnabled();
+    }
+
+    /**
+     * Log the number of events dropped since the last call, from any thread.
+     */
+    private void reportDrops() {
+        long drops = dropped.get();
+        long reported = reportedDrops.get();
+        // if another thread reports at the same time, it logs the drops
+        if(drops > reported && reportedDrops.compareAndSet(reported, drops)) {
+            logger.warn("{} diagnostics were not logged because too many were reported at once", drops - reported);
+        }
+    }
+
+    private void drainLoop() {
+        while(true) {
+            long position = head;
+            int index = (int) position & mask;
+            if(sequences.get(index) != position + 1) {
+                reportDrops();
+                waiting = true;
+                // look again: an event published before waiting was set did not wake this thread up
+                if(sequences.get(index) != position + 1) {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+                continue;
+            }
+
+            Diagnostic diagnostic = slots.get(index);
+            slots.set(index, null);
+            sequences.set(index, position + mask + 1);
+            try {
+                if(diagnostic.getSeverity() == Diagnostic.Severity.ERROR) {
+                    logger.error("{}", diagnostic);
+                }
+                else {
+                    logger.warn("{}", diagnostic);
+                }
+            } catch (RuntimeException e) {
+                // keep the thread alive whatever the logger does
+                e.printStackTrace();
+            }
+            head = position + 1;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package fr.curie.cd2sbgnml.diagnostics;
+
+/**
+ * One problem found during a conversion: something that could not be translated, or was translated with a loss.
+ */
+public class Diagnostic {
+
+    public enum Severity {
+        /**
+         * the element is translated, but with a possible loss or approximation
+         */
+        WARNING,
+        /**
+         * the element, or part of it, is not translated
+         */
+        ERROR
+    }
+
+    public enum Type {
+        // both directions
+        UNKNOWN_RESIDUE_STATE,
+        // CellDesigner to SBGN-ML
+        NO_REACTION,
+        COMPLEX_WITH_SIMPLE_ALIAS,
+        UNKNOWN_RESIDUE,
+        MISSING_CONNECT_SCHEME,
+        EMPTY_COMPLEX,
+        MISSING_ARC_END,
+        ARC_FROM_PHENOTYPE,
+        INVALID_MODIFIER,
+        LOGIC_GATE_REMOVED,
+        // SBGN-ML to CellDesigner
+        UNTRANSLATED_ARC,
+        UNTRANSLATED_GLYPH,
+        LOST_UNIT_OF_INFO,
+        SOURCE_TERMINAL,
+        ID_COLLISION
+    }
+
+    private final Severity severity;
+    private final Type type;
+    private final String elementId;
+    private final String message;
+
+    /**
+     * @param severity
+     * @param type
+     * @param elementId id of the element concerned, in the input file. Can be null.
+     * @param message
+     */
+    public Diagnostic(Severity severity, Type type, String elementId, String message) {
+        this.severity = severity;
+        this.type = type;
+        this.elementId = elementId;
+        this.message = message;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getElementId() {
+        return elementId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return type+(elementId == null ? "" : " "+elementId)+": "+message;
+    }
+}
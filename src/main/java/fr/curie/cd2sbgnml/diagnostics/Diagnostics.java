@@ -0,0 +1,90 @@
+package fr.curie.cd2sbgnml.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Diagnostics of one conversion run. Events can be reported from several threads at once, without locking.
+ * Each event is also passed to the AsyncLogSink, to appear in the log.
+ */
+public class Diagnostics {
+
+    private final ConcurrentLinkedQueue<Diagnostic> events = new ConcurrentLinkedQueue<>();
+    private final AsyncLogSink sink;
+
+    public Diagnostics() {
+        this(AsyncLogSink.getDefault());
+    }
+
+    /**
+     * @param sink where events are logged, null to only collect them
+     */
+    public Diagnostics(AsyncLogSink sink) {
+        this.sink = sink;
+    }
+
+    public void report(Diagnostic diagnostic) {
+        events.add(diagnostic);
+        if(sink != null) {
+            sink.publish(diagnostic);
+        }
+    }
+
+    /**
+     * @param type
+     * @param elementId id of the element concerned, can be null
+     * @param message
+     */
+    public void warn(Diagnostic.Type type, String elementId, String message) {
+        report(new Diagnostic(Diagnostic.Severity.WARNING, type, elementId, message));
+    }
+
+    /**
+     * @param type
+     * @param elementId id of the element concerned, can be null
+     * @param message
+     */
+    public void error(Diagnostic.Type type, String elementId, String message) {
+        report(new Diagnostic(Diagnostic.Severity.ERROR, type, elementId, message));
+    }
+
+    /**
+     * @return all events, in the order they were reported
+     */
+    public List<Diagnostic> getAll() {
+        return Collections.unmodifiableList(new ArrayList<>(events));
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    /**
+     * @param severity
+     * @return number of events of this severity
+     */
+    public int count(Diagnostic.Severity severity) {
+        int count = 0;
+        for(Diagnostic diagnostic: events) {
+            if(diagnostic.getSeverity() == severity) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of events of each type, only for types that occurred
+     */
+    public Map<Diagnostic.Type, Integer> countByType() {
+        Map<Diagnostic.Type, Integer> result = new EnumMap<>(Diagnostic.Type.class);
+        for(Diagnostic diagnostic: events) {
+            result.merge(diagnostic.getType(), 1, Integer::sum);
+        }
+        return result;
+    }
+}
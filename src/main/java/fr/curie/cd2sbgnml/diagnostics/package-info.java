@@ -0,0 +1,7 @@
+/**
+ * Warnings and errors found during a conversion, collected as typed events for each run.
+ *
+ * Events are also written to the log by a background thread, through a bounded ring buffer, so converting
+ * threads never wait on the log output.
+ */
+package fr.curie.cd2sbgnml.diagnostics;
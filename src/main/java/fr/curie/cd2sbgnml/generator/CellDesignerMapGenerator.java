@@ -0,0 +1,486 @@
+package fr.curie.cd2sbgnml.generator;
+
+import fr.curie.cd2sbgnml.graphics.AnchorPoint;
+import fr.curie.cd2sbgnml.xmlcdwrappers.*;
+import fr.curie.cd2sbgnml.xmlcdwrappers.ReactantWrapper.ReactantType;
+import fr.curie.cd2sbgnml.xmlcdwrappers.SpeciesWrapper.ReferenceType;
+import org.sbml._2001.ns.celldesigner.*;
+import org.sbml.sbml.level2.version4.Compartment;
+import org.sbml.sbml.level2.version4.Model;
+import org.sbml.sbml.level2.version4.OriginalModel.ListOfCompartments;
+import org.sbml.sbml.level2.version4.OriginalModel.ListOfReactions;
+import org.sbml.sbml.level2.version4.OriginalModel.ListOfSpecies;
+import org.sbml.sbml.level2.version4.Sbml;
+
+import java.awt.geom.Rectangle2D;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Builds synthetic CellDesigner models of any size, to measure how the conversion scales.
+ *
+ * Species are laid out on a grid and grouped by compartments. Their classes cycle through all the
+ * CellDesigner classes, and complexes contain an included protein and a nested complex. Each reaction
+ * connects neighbouring species and reaction types cycle through all the types that can be read by
+ * CD2SBGNML. Some reactions get a modifier, or a logic gate with 2 modifiers.
+ *
+ * BOOLEAN_LOGIC_GATE reactions are not generated: they are only produced when translating SBGN-ML, logic gates
+ * appear here as modifications of the other reactions.
+ * Some reaction types written by CellDesigner 4.4 (MODULATION, TRIGGER, the reduced influences...) are missing
+ * from the schema of the project, so a generated model is not fully valid against it, like real 4.4 files.
+ *
+ * The same parameters always give the same model.
+ */
+public class CellDesignerMapGenerator {
+
+    /**
+     * Below this, neighbouring species used in a reaction could be the same.
+     */
+    public static final int MIN_SPECIES_COUNT = 16;
+
+    private static final String[] SPECIES_CLASSES = {
+            "PROTEIN", "GENE", "RNA", "ANTISENSE_RNA", "SIMPLE_MOLECULE", "PROTEIN", "ION", "COMPLEX",
+            "PROTEIN", "DRUG", "PROTEIN", "UNKNOWN", "PHENOTYPE", "DEGRADED"};
+    private static final ReferenceType[] PROTEIN_TYPES = {
+            ReferenceType.GENERIC, ReferenceType.RECEPTOR, ReferenceType.ION_CHANNEL, ReferenceType.TRUNCATED};
+    private static final ModificationLinkType[] MODIFIER_TYPES = {
+            ModificationLinkType.CATALYSIS, ModificationLinkType.UNKNOWN_CATALYSIS,
+            ModificationLinkType.INHIBITION, ModificationLinkType.UNKNOWN_INHIBITION,
+            ModificationLinkType.PHYSICAL_STIMULATION, ModificationLinkType.MODULATION,
+            ModificationLinkType.TRIGGER};
+    private static final LogicGateWrapper.LogicGateType[] GATE_TYPES = {
+            LogicGateWrapper.LogicGateType.AND, LogicGateWrapper.LogicGateType.OR,
+            LogicGateWrapper.LogicGateType.NOT, LogicGateWrapper.LogicGateType.UNKNOWN};
+
+    /**
+     * Reaction types that are drawn with a process in CellDesigner. Others directly link 2 species.
+     */
+    private static final Set<ReactionType> PROCESS_TYPES = EnumSet.of(
+            ReactionType.STATE_TRANSITION, ReactionType.KNOWN_TRANSITION_OMITTED, ReactionType.UNKNOWN_TRANSITION,
+            ReactionType.TRANSPORT, ReactionType.TRUNCATION, ReactionType.TRANSCRIPTION, ReactionType.TRANSLATION,
+            ReactionType.HETERODIMER_ASSOCIATION, ReactionType.DISSOCIATION);
+
+    private final int speciesCount;
+    private final GridLayout layout;
+    private final List<ReactionType> reactionTypes;
+
+    private Sbml sbml;
+    private List<SpeciesWrapper> speciesList;
+    private List<AliasWrapper> topLevelAliases;
+    private Map<Integer, String> compartmentIds;
+
+    /**
+     * @param speciesCount number of top level species. Complexes add 3 included species each.
+     */
+    public CellDesignerMapGenerator(int speciesCount) {
+        this(speciesCount, 100);
+    }
+
+    /**
+     * @param speciesCount number of top level species. Complexes add 3 included species each.
+     * @param speciesPerCompartment approximate number of species in each compartment
+     */
+    public CellDesignerMapGenerator(int speciesCount, int speciesPerCompartment) {
+        if(speciesCount < MIN_SPECIES_COUNT) {
+            throw new IllegalArgumentException("At least "+MIN_SPECIES_COUNT+" species are needed, got: "
+                    +speciesCount);
+        }
+        this.speciesCount = speciesCount;
+        this.layout = new GridLayout(speciesCount, speciesPerCompartment);
+        this.reactionTypes = new ArrayList<>(EnumSet.complementOf(EnumSet.of(ReactionType.BOOLEAN_LOGIC_GATE)));
+    }
+
+    /**
+     * @return a new CellDesigner model, with one reaction for every 2 species
+     */
+    public Sbml generate() {
+        sbml = initFile();
+        speciesList = new ArrayList<>();
+        topLevelAliases = new ArrayList<>();
+        compartmentIds = new LinkedHashMap<>();
+
+        for(int i=0; i < speciesCount; i++) {
+            addSpecies(i);
+        }
+
+        for(int j=0; j < speciesCount / 2; j++) {
+            addReaction(j);
+        }
+
+        // species are written last, once all the reactions they catalyze are known
+        for(SpeciesWrapper speciesW: speciesList) {
+            if(speciesW.isIncludedSpecies()) {
+                sbml.getModel().getAnnotation().getExtension().getListOfIncludedSpecies().getSpecies()
+                        .add(speciesW.getCDIncludedSpecies());
+            }
+            else {
+                sbml.getModel().getListOfSpecies().getSpecies().add(speciesW.getCDNormalSpecies());
+            }
+        }
+
+        return sbml;
+    }
+
+    private Sbml initFile() {
+        Sbml sbml = new Sbml();
+        sbml.setLevel(BigInteger.valueOf(2));
+        sbml.setVersion(BigInteger.valueOf(4));
+
+        Model model = new Model();
+        sbml.setModel(model);
+        model.setId("synthetic_"+speciesCount);
+        model.setMetaid("synthetic_"+speciesCount);
+
+        ModelAnnotationType annotation = new ModelAnnotationType();
+        model.setAnnotation(annotation);
+
+        ModelAnnotationType.Extension ext = new ModelAnnotationType.Extension();
+        ext.setModelVersion(BigDecimal.valueOf(4.0));
+
+        // the canvas size is a short, big maps overflow it
+        ModelDisplay modelDisplay = new ModelDisplay();
+        modelDisplay.setSizeX((short) Math.min(layout.getWidth(), Short.MAX_VALUE));
+        modelDisplay.setSizeY((short) Math.min(layout.getHeight(), Short.MAX_VALUE));
+        ext.setModelDisplay(modelDisplay);
+
+        ext.setListOfSpeciesAliases(new ListOfSpeciesAliases());
+        ext.setListOfAntisenseRNAs(new ListOfAntisenseRNAs());
+        ext.setListOfBlockDiagrams(new ListOfBlockDiagrams());
+        ext.setListOfCompartmentAliases(new ListOfCompartmentAliases());
+        ext.setListOfComplexSpeciesAliases(new ListOfComplexSpeciesAliases());
+        ext.setListOfGenes(new ListOfGenes());
+        ext.setListOfGroups(new ListOfGroups());
+        ext.setListOfProteins(new ListOfProteins());
+        ext.setListOfRNAs(new ListOfRNAs());
+        ext.setListOfIncludedSpecies(new ListOfIncludedSpecies());
+        annotation.setExtension(ext);
+
+        ListOfCompartments listOfCompartments = new ListOfCompartments();
+        model.setListOfCompartments(listOfCompartments);
+
+        Compartment defaultCompartment = new Compartment();
+        listOfCompartments.getCompartment().add(defaultCompartment);
+        defaultCompartment.setId("default");
+        defaultCompartment.setMetaid("default");
+        defaultCompartment.setSize(1d);
+        defaultCompartment.setUnits("volume");
+
+        model.setListOfSpecies(new ListOfSpecies());
+        model.setListOfReactions(new ListOfReactions());
+
+        return sbml;
+    }
+
+    /**
+     * Get the compartment of the ith species, create it the first time.
+     * @param i
+     * @return the compartment id
+     */
+    private String getCompartment(int i) {
+        int tileIndex = layout.getTileIndex(i);
+        String compartmentId = compartmentIds.get(tileIndex);
+        if(compartmentId == null) {
+            compartmentId = "c"+(tileIndex+1);
+            CompartmentWrapper compW = new CompartmentWrapper(compartmentId, "compartment "+(tileIndex+1),
+                    layout.getTile(tileIndex));
+
+            sbml.getModel().getListOfCompartments().getCompartment().add(compW.getCDCompartment());
+            sbml.getModel().getAnnotation().getExtension().getListOfCompartmentAliases().getCompartmentAlias()
+                    .add(compW.getCDCompartmentAlias());
+            compartmentIds.put(tileIndex, compartmentId);
+        }
+        return compartmentId;
+    }
+
+    private void addSpecies(int i) {
+        String compartmentId = getCompartment(i);
+        Rectangle2D.Float cell = layout.getCell(i);
+        String cdClass = SPECIES_CLASSES[i % SPECIES_CLASSES.length];
+
+        AliasWrapper aliasW;
+        if(cdClass.equals("COMPLEX")) {
+            Rectangle2D.Float bounds = new Rectangle2D.Float(cell.x + 20, cell.y + 15, 160, 110);
+            aliasW = createComplex("s"+i, "complex "+i, compartmentId, bounds, null);
+
+            // included protein, and a nested complex holding a simple molecule
+            createSimpleSpecies("s"+i+"_1", "PROTEIN", ReferenceType.GENERIC, compartmentId,
+                    new Rectangle2D.Float(cell.x + 30, cell.y + 45, 60, 30), aliasW);
+            AliasWrapper nestedW = createComplex("s"+i+"_2", "nested complex "+i, compartmentId,
+                    new Rectangle2D.Float(cell.x + 100, cell.y + 30, 70, 80), aliasW);
+            createSimpleSpecies("s"+i+"_3", "SIMPLE_MOLECULE", null, compartmentId,
+                    new Rectangle2D.Float(cell.x + 110, cell.y + 55, 50, 30), nestedW);
+        }
+        else {
+            ReferenceType type = null;
+            switch(cdClass) {
+                case "PROTEIN": type = PROTEIN_TYPES[(i / SPECIES_CLASSES.length) % PROTEIN_TYPES.length]; break;
+                case "GENE": type = ReferenceType.GENE; break;
+                case "RNA": type = ReferenceType.RNA; break;
+                case "ANTISENSE_RNA": type = ReferenceType.ANTISENSE_RNA; break;
+            }
+            Rectangle2D.Float bounds = new Rectangle2D.Float(cell.x + 60, cell.y + 50, 80, 40);
+            aliasW = createSimpleSpecies("s"+i, cdClass, type, compartmentId, bounds, null);
+        }
+        topLevelAliases.add(aliasW);
+    }
+
+    private AliasWrapper createComplex(String id, String name, String compartmentId, Rectangle2D bounds,
+                                       AliasWrapper parentAliasW) {
+        SpeciesWrapper speciesW = new SpeciesWrapper(id, name, null, id);
+        speciesW.setCdClass("COMPLEX");
+        AliasWrapper aliasW = new AliasWrapper(id+"_alias1", AliasWrapper.AliasType.COMPLEX, speciesW);
+        setUpSpecies(speciesW, aliasW, compartmentId, bounds, parentAliasW);
+
+        sbml.getModel().getAnnotation().getExtension().getListOfComplexSpeciesAliases().getComplexSpeciesAlias()
+                .add(aliasW.getCDComplexSpeciesAlias());
+        return aliasW;
+    }
+
+    private AliasWrapper createSimpleSpecies(String id, String cdClass, ReferenceType type, String compartmentId,
+                                             Rectangle2D bounds, AliasWrapper parentAliasW) {
+        String name = cdClass.toLowerCase()+" "+id;
+        String referenceId = type == null ? id : "ref_"+id;
+        SpeciesWrapper speciesW = new SpeciesWrapper(id, name, type, referenceId);
+        speciesW.setCdClass(cdClass);
+
+        if(type != null) {
+            addReference(speciesW);
+        }
+
+        AliasWrapper aliasW = new AliasWrapper(id+"_alias1", AliasWrapper.AliasType.SPECIES, speciesW);
+        setUpSpecies(speciesW, aliasW, compartmentId, bounds, parentAliasW);
+
+        sbml.getModel().getAnnotation().getExtension().getListOfSpeciesAliases().getSpeciesAlias()
+                .add(aliasW.getCDSpeciesAlias());
+        return aliasW;
+    }
+
+    private void setUpSpecies(SpeciesWrapper speciesW, AliasWrapper aliasW, String compartmentId,
+                              Rectangle2D bounds, AliasWrapper parentAliasW) {
+        speciesW.getAliases().add(aliasW);
+        aliasW.setBounds(bounds);
+        aliasW.setStyleInfo(new StyleInfo(aliasW.getId()));
+
+        if(parentAliasW == null) {
+            speciesW.setCompartment(compartmentId);
+            aliasW.setCompartmentAlias(compartmentId+"_alias1");
+        }
+        else {
+            AliasWrapper topLevelParent = parentAliasW;
+            while(topLevelParent.getTopLevelParent() != null) {
+                topLevelParent = topLevelParent.getTopLevelParent();
+            }
+            aliasW.setTopLevelParent(topLevelParent);
+            aliasW.setComplexAlias(parentAliasW.getId());
+            speciesW.setComplex(parentAliasW.getSpeciesId());
+            speciesW.setIncludedSpecies(true);
+        }
+        speciesList.add(speciesW);
+    }
+
+    /**
+     * Create the protein, gene, rna or antisense rna referenced by a species. Generic proteins get a
+     * phosphorylated residue and are dimers.
+     * @param speciesW
+     */
+    private void addReference(SpeciesWrapper speciesW) {
+        ModelAnnotationType.Extension ext = sbml.getModel().getAnnotation().getExtension();
+        String referenceId = speciesW.getReferenceId();
+        switch(speciesW.getType()) {
+            case GENERIC:
+            case RECEPTOR:
+            case ION_CHANNEL:
+            case TRUNCATED:
+                Protein prot = new Protein();
+                prot.setId(referenceId);
+                prot.setName(speciesW.getName());
+                prot.setType(speciesW.getType().toString());
+
+                if(speciesW.getType() == ReferenceType.GENERIC) {
+                    ResidueWrapper resW = new ResidueWrapper("rs1");
+                    resW.name = "S"+speciesW.getId().substring(1);
+                    resW.state = "phosphorylated";
+                    resW.angle = 1.57f;
+                    speciesW.getResidues().add(resW);
+                    speciesW.setMultimer(2);
+
+                    ModificationResidue modificationResidue = new ModificationResidue();
+                    modificationResidue.setId(resW.id);
+                    modificationResidue.setName(resW.name);
+                    modificationResidue.setSide("none");
+                    modificationResidue.setAngle(BigDecimal.valueOf(resW.angle));
+                    ListOfModificationResidues listOfModificationResidues = new ListOfModificationResidues();
+                    listOfModificationResidues.getModificationResidue().add(modificationResidue);
+                    prot.setListOfModificationResidues(listOfModificationResidues);
+                }
+                ext.getListOfProteins().getProtein().add(prot);
+                break;
+            case GENE:
+                Gene gene = new Gene();
+                gene.setId(referenceId);
+                gene.setName(speciesW.getName());
+                gene.setType("GENE");
+                ext.getListOfGenes().getGene().add(gene);
+                break;
+            case RNA:
+                RNA rna = new RNA();
+                rna.setId(referenceId);
+                rna.setName(speciesW.getName());
+                rna.setType("RNA");
+                ext.getListOfRNAs().getRNA().add(rna);
+                break;
+            case ANTISENSE_RNA:
+                AntisenseRNA asrna = new AntisenseRNA();
+                asrna.setId(referenceId);
+                asrna.setName(speciesW.getName());
+                asrna.setType("ANTISENSE_RNA");
+                ext.getListOfAntisenseRNAs().getAntisenseRNA().add(asrna);
+                break;
+        }
+    }
+
+    private AliasWrapper getAlias(int i) {
+        return topLevelAliases.get(i % speciesCount);
+    }
+
+    private void addReaction(int j) {
+        ReactionType type = reactionTypes.get(j % reactionTypes.size());
+        int k = 2 * j;
+        String id = "re"+(j+1);
+
+        List<ReactantWrapper> baseReactants = new ArrayList<>();
+        List<ReactantWrapper> baseProducts = new ArrayList<>();
+        baseReactants.add(createReactant(getAlias(k), ReactantType.BASE_REACTANT, AnchorPoint.E));
+        LineWrapper lineWrapper;
+
+        // the 3 species of a branch must not be aligned, or the edit point of the branch can't be placed,
+        // so the second branch is taken in the row below
+        int below = k + layout.getColumns();
+        if(type == ReactionType.HETERODIMER_ASSOCIATION) {
+            baseReactants.add(createReactant(getAlias(below), ReactantType.BASE_REACTANT, AnchorPoint.E));
+            baseProducts.add(createReactant(getAlias(k+1), ReactantType.BASE_PRODUCT, AnchorPoint.W));
+            lineWrapper = new LineWrapper(getBranchConnectScheme(), Collections.singletonList("0.4,0.3"), getLine());
+        }
+        else if(type == ReactionType.DISSOCIATION || type == ReactionType.TRUNCATION) {
+            baseProducts.add(createReactant(getAlias(k+1), ReactantType.BASE_PRODUCT, AnchorPoint.W));
+            baseProducts.add(createReactant(getAlias(below+1), ReactantType.BASE_PRODUCT, AnchorPoint.W));
+            lineWrapper = new LineWrapper(getBranchConnectScheme(), Collections.singletonList("0.6,0.3"), getLine());
+        }
+        else {
+            baseProducts.add(createReactant(getAlias(k+1), ReactantType.BASE_PRODUCT, AnchorPoint.W));
+            lineWrapper = new LineWrapper(
+                    getSimpleConnectScheme(PROCESS_TYPES.contains(type) ? "0" : null),
+                    new ArrayList<>(), getLine());
+        }
+
+        ReactionWrapper reactionW = new ReactionWrapper(id, type, baseReactants, baseProducts);
+        reactionW.setLineWrapper(lineWrapper);
+
+        // modifiers can only be attached to a process, taken in the row below
+        if(PROCESS_TYPES.contains(type)) {
+            if(j % 4 == 0) {
+                addLogicGate(reactionW, j, getAlias(below), getAlias(below + 1));
+            }
+            else if(j % 4 == 2) {
+                ReactantWrapper modifierW = createReactant(getAlias(below), ReactantType.MODIFICATION,
+                        AnchorPoint.CENTER);
+                modifierW.setModificationLinkType(MODIFIER_TYPES[(j / 4) % MODIFIER_TYPES.length]);
+                modifierW.setTargetLineIndex("-1,2");
+                modifierW.setLineWrapper(new LineWrapper(getSimpleConnectScheme(null), new ArrayList<>(), getLine()));
+                reactionW.getModifiers().add(modifierW);
+            }
+
+            for(ReactantWrapper modifierW: reactionW.getModifiers()) {
+                if(modifierW.getAliasW() != null) {
+                    modifierW.getAliasW().getSpeciesW().getCatalyzedReactions().add(id);
+                }
+            }
+        }
+
+        sbml.getModel().getListOfReactions().getReaction().add(reactionW.getCDReaction());
+    }
+
+    /**
+     * A logic gate is listed as a modification, followed by the modifications of its inputs.
+     */
+    private void addLogicGate(ReactionWrapper reactionW, int j, AliasWrapper input1, AliasWrapper input2) {
+        ModificationLinkType linkType = MODIFIER_TYPES[(j / 4) % MODIFIER_TYPES.length];
+
+        ReactantWrapper gateW = new ReactantWrapper((AliasWrapper) null, ReactantType.MODIFICATION);
+        gateW.setTargetLineIndex("-1,2");
+        gateW.setAnchorPoint(AnchorPoint.CENTER);
+        // the gate itself is positioned in absolute coordinates between its inputs
+        float gateX = (float) (input1.getBounds().getCenterX() + input2.getBounds().getCenterX()) / 2;
+        float gateY = (float) input1.getBounds().getMinY() - 20;
+        gateW.setLineWrapper(new LineWrapper(getSimpleConnectScheme(null),
+                Collections.singletonList(gateX+","+gateY), getLine()));
+
+        LogicGateWrapper logicW = new LogicGateWrapper(gateW,
+                GATE_TYPES[(j / 4) % GATE_TYPES.length],
+                Arrays.asList(input1.getSpeciesId(), input2.getSpeciesId()),
+                Arrays.asList(input1.getId(), input2.getId()),
+                linkType);
+        reactionW.getModifiers().add(logicW);
+
+        for(AliasWrapper input: Arrays.asList(input1, input2)) {
+            ReactantWrapper inputW = createReactant(input, ReactantType.MODIFICATION, AnchorPoint.CENTER);
+            inputW.setModificationLinkType(linkType);
+            inputW.setTargetLineIndex("-1,0");
+            inputW.setLineWrapper(new LineWrapper(getSimpleConnectScheme(null), new ArrayList<>(), getLine()));
+            reactionW.getModifiers().add(inputW);
+        }
+    }
+
+    private ReactantWrapper createReactant(AliasWrapper aliasW, ReactantType type, AnchorPoint anchorPoint) {
+        ReactantWrapper reactantW = new ReactantWrapper(aliasW, type);
+        reactantW.setAnchorPoint(anchorPoint);
+        return reactantW;
+    }
+
+    /**
+     * @param rectangleIndex segment holding the process, null if the link doesn't have any
+     * @return a connectScheme for a link made of 1 segment
+     */
+    private ConnectScheme getSimpleConnectScheme(String rectangleIndex) {
+        ConnectScheme connectScheme = new ConnectScheme();
+        connectScheme.setConnectPolicy("direct");
+        connectScheme.setRectangleIndex(rectangleIndex);
+
+        ListOfLineDirection listOfLineDirection = new ListOfLineDirection();
+        connectScheme.setListOfLineDirection(listOfLineDirection);
+        LineDirection lineDirection = new LineDirection();
+        lineDirection.setIndex((short) 0);
+        lineDirection.setValue("unknown");
+        listOfLineDirection.getLineDirection().add(lineDirection);
+
+        return connectScheme;
+    }
+
+    /**
+     * @return a connectScheme for an association or dissociation, with 3 arms of 1 segment
+     */
+    private ConnectScheme getBranchConnectScheme() {
+        ConnectScheme connectScheme = new ConnectScheme();
+        connectScheme.setConnectPolicy("direct");
+
+        ListOfLineDirection listOfLineDirection = new ListOfLineDirection();
+        connectScheme.setListOfLineDirection(listOfLineDirection);
+        for(int arm=0; arm < 3; arm++) {
+            LineDirection lineDirection = new LineDirection();
+            lineDirection.setArm((short) arm);
+            lineDirection.setIndex((short) 0);
+            lineDirection.setValue("unknown");
+            listOfLineDirection.getLineDirection().add(lineDirection);
+        }
+
+        return connectScheme;
+    }
+
+    private Line getLine() {
+        Line line = new Line();
+        line.setWidth(BigDecimal.valueOf(1));
+        line.setColor("ff000000");
+        return line;
+    }
+}
@@ -0,0 +1,81 @@
+package fr.curie.cd2sbgnml.generator;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Places the elements of a generated map on a square grid, one element per cell.
+ * Cells are grouped in square tiles, each tile being a compartment.
+ */
+class GridLayout {
+
+    static final float CELL_WIDTH = 200;
+    static final float CELL_HEIGHT = 140;
+    static final float MARGIN = 20;
+
+    private final int columns;
+    private final int tileSide;
+    private final int tileColumns;
+    private final int rows;
+
+    /**
+     * @param elementCount number of cells to lay out
+     * @param elementsPerCompartment approximate number of cells in each compartment
+     */
+    GridLayout(int elementCount, int elementsPerCompartment) {
+        this.columns = (int) Math.ceil(Math.sqrt(elementCount));
+        this.rows = (elementCount + columns - 1) / columns;
+        this.tileSide = Math.max(1, (int) Math.round(Math.sqrt(elementsPerCompartment)));
+        this.tileColumns = (columns + tileSide - 1) / tileSide;
+    }
+
+    int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @param i
+     * @return the cell of the ith element
+     */
+    Rectangle2D.Float getCell(int i) {
+        return new Rectangle2D.Float(
+                MARGIN + (i % columns) * CELL_WIDTH,
+                MARGIN + (i / columns) * CELL_HEIGHT,
+                CELL_WIDTH,
+                CELL_HEIGHT);
+    }
+
+    /**
+     * @param i
+     * @return the index of the compartment containing the ith element
+     */
+    int getTileIndex(int i) {
+        return ((i / columns) / tileSide) * tileColumns + (i % columns) / tileSide;
+    }
+
+    int getTileCount() {
+        int tileRows = (rows + tileSide - 1) / tileSide;
+        return tileRows * tileColumns;
+    }
+
+    /**
+     * @param tileIndex
+     * @return the bounds of the compartment, slightly larger than the cells it contains
+     */
+    Rectangle2D.Float getTile(int tileIndex) {
+        int tileX = tileIndex % tileColumns;
+        int tileY = tileIndex / tileColumns;
+        return new Rectangle2D.Float(
+                MARGIN + tileX * tileSide * CELL_WIDTH - MARGIN / 2,
+                MARGIN + tileY * tileSide * CELL_HEIGHT - MARGIN / 2,
+                tileSide * CELL_WIDTH,
+                tileSide * CELL_HEIGHT);
+    }
+
+    float getWidth() {
+        return 2 * MARGIN + columns * CELL_WIDTH;
+    }
+
+    float getHeight() {
+        return 2 * MARGIN + rows * CELL_HEIGHT;
+    }
+}
@@ -0,0 +1,289 @@
+package fr.curie.cd2sbgnml.generator;
+
+import org.sbgn.bindings.*;
+import org.sbgn.bindings.Map;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.*;
+
+/**
+ * Builds synthetic SBGN-ML process description maps of any size, to measure how the conversion scales.
+ *
+ * Entity pool nodes are laid out on a grid and grouped by compartments. Their classes cycle through all the
+ * EPN classes, some of them carry state variables and units of information, and complexes contain a
+ * macromolecule and a nested complex. Each process connects neighbouring EPNs and process classes cycle
+ * through process, omitted, uncertain, association and dissociation. Some processes get a modulating arc, or
+ * a logic gate with its logic arcs.
+ *
+ * The same parameters always give the same map.
+ */
+public class SbgnMapGenerator {
+
+    /**
+     * Below this, neighbouring EPNs used in a process could be the same.
+     */
+    public static final int MIN_EPN_COUNT = 16;
+
+    private static final String[] EPN_CLASSES = {
+            "macromolecule", "nucleic acid feature", "simple chemical", "unspecified entity",
+            "macromolecule multimer", "complex", "nucleic acid feature multimer", "simple chemical multimer",
+            "perturbing agent", "phenotype", "source and sink", "macromolecule", "complex multimer",
+            "simple chemical"};
+    private static final String[] PROCESS_CLASSES = {
+            "process", "omitted process", "uncertain process", "association", "dissociation"};
+    private static final String[] MODIFIER_CLASSES = {
+            "catalysis", "inhibition", "stimulation", "modulation", "necessary stimulation"};
+    private static final String[] LOGIC_CLASSES = {"and", "or", "not"};
+
+    private final int epnCount;
+    private final GridLayout layout;
+
+    private Map map;
+    private List<Glyph> epnList;
+    private java.util.Map<Integer, Glyph> compartments;
+    private int arcCounter;
+
+    /**
+     * @param epnCount number of top level entity pool nodes. Complexes add 3 subunits each.
+     */
+    public SbgnMapGenerator(int epnCount) {
+        this(epnCount, 100);
+    }
+
+    /**
+     * @param epnCount number of top level entity pool nodes. Complexes add 3 subunits each.
+     * @param epnPerCompartment approximate number of EPNs in each compartment
+     */
+    public SbgnMapGenerator(int epnCount, int epnPerCompartment) {
+        if(epnCount < MIN_EPN_COUNT) {
+            throw new IllegalArgumentException("At least "+MIN_EPN_COUNT+" EPNs are needed, got: "+epnCount);
+        }
+        this.epnCount = epnCount;
+        this.layout = new GridLayout(epnCount, epnPerCompartment);
+    }
+
+    /**
+     * @return a new SBGN-ML map, with one process for every 2 EPNs
+     */
+    public Sbgn generate() {
+        Sbgn sbgn = new Sbgn();
+        map = new Map();
+        map.setLanguage("process description");
+        sbgn.setMap(map);
+
+        epnList = new ArrayList<>();
+        compartments = new LinkedHashMap<>();
+        arcCounter = 0;
+
+        for(int i=0; i < epnCount; i++) {
+            epnList.add(createEpn(i));
+        }
+
+        // compartments first, then EPNs, then processes and logic gates
+        map.getGlyph().addAll(compartments.values());
+        map.getGlyph().addAll(epnList);
+        for(int j=0; j < epnCount / 2; j++) {
+            addProcess(j);
+        }
+
+        return sbgn;
+    }
+
+    /**
+     * Get the compartment of the ith EPN, create it the first time.
+     * @param i
+     * @return the compartment glyph
+     */
+    private Glyph getCompartment(int i) {
+        int tileIndex = layout.getTileIndex(i);
+        Glyph compartment = compartments.get(tileIndex);
+        if(compartment == null) {
+            compartment = createGlyph("c"+(tileIndex+1), "compartment", "compartment "+(tileIndex+1),
+                    layout.getTile(tileIndex));
+            compartments.put(tileIndex, compartment);
+        }
+        return compartment;
+    }
+
+    private Glyph createEpn(int i) {
+        Rectangle2D.Float cell = layout.getCell(i);
+        String clazz = EPN_CLASSES[i % EPN_CLASSES.length];
+        String id = "epn"+i;
+
+        Glyph glyph;
+        if(clazz.startsWith("complex")) {
+            glyph = createGlyph(id, clazz, null, new Rectangle2D.Float(cell.x + 20, cell.y + 15, 160, 110));
+            glyph.getGlyph().add(createGlyph(id+"_1", "macromolecule", "subunit "+i,
+                    new Rectangle2D.Float(cell.x + 30, cell.y + 45, 60, 30)));
+            Glyph nested = createGlyph(id+"_2", "complex", null,
+                    new Rectangle2D.Float(cell.x + 100, cell.y + 30, 70, 80));
+            nested.getGlyph().add(createGlyph(id+"_3", "simple chemical", "nested "+i,
+                    new Rectangle2D.Float(cell.x + 110, cell.y + 55, 50, 30)));
+            glyph.getGlyph().add(nested);
+        }
+        else {
+            Rectangle2D.Float bounds = new Rectangle2D.Float(cell.x + 60, cell.y + 50, 80, 40);
+            glyph = createGlyph(id, clazz, clazz.equals("source and sink") ? null : clazz+" "+i, bounds);
+
+            switch(clazz) {
+                case "macromolecule":
+                    glyph.getGlyph().add(createStateVariable(id+"_sv1", "S"+i, "P", bounds));
+                    glyph.getGlyph().add(createUnitOfInfo(id+"_ui1", i % 2 == 0 ? "mt:prot" : "receptor", bounds));
+                    break;
+                case "nucleic acid feature":
+                    glyph.getGlyph().add(createUnitOfInfo(id+"_ui1", "ct:gene", bounds));
+                    break;
+                case "macromolecule multimer":
+                case "nucleic acid feature multimer":
+                case "simple chemical multimer":
+                    glyph.getGlyph().add(createUnitOfInfo(id+"_ui1", "N:2", bounds));
+                    break;
+            }
+        }
+        glyph.setCompartmentRef(getCompartment(i));
+        return glyph;
+    }
+
+    private Glyph getEpn(int i) {
+        return epnList.get(i % epnCount);
+    }
+
+    private void addProcess(int j) {
+        String clazz = PROCESS_CLASSES[j % PROCESS_CLASSES.length];
+        int k = 2 * j;
+        String id = "pr"+(j+1);
+
+        // process sits at the right border of the cell of its first reactant
+        Rectangle2D.Float cell = layout.getCell(k);
+        Glyph process = createGlyph(id, clazz, null,
+                new Rectangle2D.Float(cell.x + cell.width - 12, cell.y + cell.height / 2 - 12, 24, 24));
+        Port in = createPort(id+".1", cell.x + cell.width - 24, cell.y + cell.height / 2);
+        Port out = createPort(id+".2", cell.x + cell.width + 24, cell.y + cell.height / 2);
+        process.getPort().add(in);
+        process.getPort().add(out);
+        map.getGlyph().add(process);
+
+        // the second branch of associations and dissociations, and the modulations, come from the row below
+        int below = k + layout.getColumns();
+        addArc("consumption", getEpn(k), in);
+        if(clazz.equals("association")) {
+            addArc("consumption", getEpn(below), in);
+        }
+        addArc("production", out, getEpn(k+1));
+        if(clazz.equals("dissociation")) {
+            addArc("production", out, getEpn(below + 1));
+        }
+
+        String modifierClass = MODIFIER_CLASSES[(j / 4) % MODIFIER_CLASSES.length];
+        if(j % 4 == 0) {
+            String logicClass = LOGIC_CLASSES[(j / 4) % LOGIC_CLASSES.length];
+            Glyph logic = createGlyph("lg"+(j+1), logicClass, null,
+                    new Rectangle2D.Float(cell.x + cell.width - 21, cell.y + cell.height - 21, 42, 42));
+            logic.setOrientation("vertical");
+            Port logicIn = createPort("lg"+(j+1)+".1", cell.x + cell.width, cell.y + cell.height + 42);
+            Port logicOut = createPort("lg"+(j+1)+".2", cell.x + cell.width, cell.y + cell.height - 42);
+            logic.getPort().add(logicIn);
+            logic.getPort().add(logicOut);
+            map.getGlyph().add(logic);
+
+            addArc("logic arc", getEpn(below), logicIn);
+            if(!logicClass.equals("not")) {
+                addArc("logic arc", getEpn(below + 1), logicIn);
+            }
+            addArc(modifierClass, logicOut, process);
+        }
+        else if(j % 4 == 2) {
+            addArc(modifierClass, getEpn(below), process);
+        }
+    }
+
+    private Glyph createGlyph(String id, String clazz, String label, Rectangle2D.Float bounds) {
+        Glyph glyph = new Glyph();
+        glyph.setId(id);
+        glyph.setClazz(clazz);
+        if(label != null) {
+            Label l = new Label();
+            l.setText(label);
+            glyph.setLabel(l);
+        }
+        glyph.setBbox(getBbox(bounds));
+        return glyph;
+    }
+
+    private Glyph createStateVariable(String id, String variable, String value, Rectangle2D.Float parent) {
+        Glyph stateVariable = new Glyph();
+        stateVariable.setId(id);
+        stateVariable.setClazz("state variable");
+        Glyph.State state = new Glyph.State();
+        state.setVariable(variable);
+        state.setValue(value);
+        stateVariable.setState(state);
+        // centered on the top border
+        stateVariable.setBbox(getBbox(new Rectangle2D.Float(
+                parent.x + parent.width / 2 - 15, parent.y - 7, 30, 14)));
+        return stateVariable;
+    }
+
+    private Glyph createUnitOfInfo(String id, String text, Rectangle2D.Float parent) {
+        Glyph unitOfInfo = createGlyph(id, "unit of information", text,
+                // centered on the bottom border
+                new Rectangle2D.Float(parent.x + parent.width / 2 - 20, parent.y + parent.height - 7, 40, 14));
+        return unitOfInfo;
+    }
+
+    private Port createPort(String id, float x, float y) {
+        Port port = new Port();
+        port.setId(id);
+        port.setX(x);
+        port.setY(y);
+        return port;
+    }
+
+    /**
+     * Add a straight arc between 2 glyphs or ports, going from center to center.
+     * @param clazz
+     * @param source
+     * @param target
+     */
+    private void addArc(String clazz, Object source, Object target) {
+        arcCounter++;
+        Arc arc = new Arc();
+        arc.setId("a"+arcCounter);
+        arc.setClazz(clazz);
+        arc.setSource(source);
+        arc.setTarget(target);
+
+        Point2D.Float start = getCenter(source);
+        Arc.Start s = new Arc.Start();
+        s.setX(start.x);
+        s.setY(start.y);
+        arc.setStart(s);
+
+        Point2D.Float end = getCenter(target);
+        Arc.End e = new Arc.End();
+        e.setX(end.x);
+        e.setY(end.y);
+        arc.setEnd(e);
+
+        map.getArc().add(arc);
+    }
+
+    private Point2D.Float getCenter(Object glyphOrPort) {
+        if(glyphOrPort instanceof Port) {
+            Port port = (Port) glyphOrPort;
+            return new Point2D.Float(port.getX(), port.getY());
+        }
+        Bbox bbox = ((Glyph) glyphOrPort).getBbox();
+        return new Point2D.Float(bbox.getX() + bbox.getW() / 2, bbox.getY() + bbox.getH() / 2);
+    }
+
+    private Bbox getBbox(Rectangle2D.Float rect) {
+        Bbox bbox = new Bbox();
+        bbox.setX(rect.x);
+        bbox.setY(rect.y);
+        bbox.setW(rect.width);
+        bbox.setH(rect.height);
+        return bbox;
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Generation of synthetic CellDesigner and SBGN-ML maps of any size, built directly with the JAXB bindings.
+ *
+ * They are meant for scale tests and benchmarks, to see how conversion time and memory grow with the size of
+ * the map. MapGeneratorScript writes them to files.
+ */
+package fr.curie.cd2sbgnml.generator;
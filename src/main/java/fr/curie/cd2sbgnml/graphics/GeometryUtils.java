@@ -42,16 +42,11 @@ public class GeometryUtils {
      * @return AffineTransform that, if applied to local coordinates, yield the global coordinates.
      */
     public static AffineTransform getTransformsToGlobalCoords(Point2D origin, Point2D px) {
-
-        AffineTransform initTransform = getTransformsToLocalCoords(origin, px);
-        AffineTransform reverse = null;
-        try {
-            reverse = initTransform.createInverse();
-        } catch (NoninvertibleTransformException e) {
-            logger.error("Matrix transform error, results may be incorrect: "+e.getMessage());
-            e.printStackTrace();
+        AffineTransform transform = new AffineTransform();
+        if(!setToGlobalCoords(transform, origin.getX(), origin.getY(), px.getX(), px.getY())) {
+            return null;
         }
-        return reverse;
+        return transform;
     }
 
     /**
@@ -61,39 +56,68 @@ public class GeometryUtils {
      * @return
      */
     public static AffineTransform getTransformsToLocalCoords(Point2D origin, Point2D px) {
+        return setToLocalCoords(new AffineTransform(), origin.getX(), origin.getY(), px.getX(), px.getY());
+    }
 
-        Point2D originCopy = new Point2D.Double(origin.getX(), origin.getY());
-        Point2D pxCopy = new Point2D.Double(px.getX(), px.getY());
-
-        // set new coordinate system origin to center of start element
-        AffineTransform t1_5 = new AffineTransform();
-        t1_5.translate(-originCopy.getX(), -originCopy.getY());
-        t1_5.transform(pxCopy, pxCopy);
-        //System.out.println("after set to origin: " + originCopy + " " + pxCopy);
-
-        // get angle of destination element from X axis
-        double angle = angle(new Point2D.Float(1,0), pxCopy);
-        //System.out.println("angle: " + pxCopy + " " + angle);
-
-        // rotate system to align destination on X axis
-        AffineTransform t2 = new AffineTransform();
-        t2.rotate(-angle);
-        t2.transform(pxCopy, pxCopy);
-        //System.out.println("after align destination on X: " + pxCopy);
-
-        // scale to have destination element at 1 on X
-        AffineTransform t3 = new AffineTransform();
-        t3.scale(1 / pxCopy.getX(), 1 / pxCopy.getX());
-        t3.transform(pxCopy, pxCopy);
-        //System.out.println("after scale destination to 1 on X: " + pxCopy);
+    /**
+     * Same as getTransformsToLocalCoords(Point2D origin, Point2D px), but reuses the given transform instead of
+     * creating new objects.
+     * @param out the transform to be set
+     * @param originX
+     * @param originY
+     * @param pxX
+     * @param pxY
+     * @return out
+     */
+    public static AffineTransform setToLocalCoords(AffineTransform out, double originX, double originY,
+                                                   double pxX, double pxY) {
+        // px relative to origin. A translation by 0 was an identity the old concatenated transforms skipped, so px
+        // is then kept as it is, -0.0 included, and no 0 * infinite scale = NaN is added below
+        boolean translated = originX != 0 || originY != 0;
+        double x = translated ? pxX - originX : pxX;
+        double y = translated ? pxY - originY : pxY;
+
+        // angle of px from X axis: angle((1,0), p) inlined, the 1.0 and 0.0 terms keep its signed zeros
+        double angle = Math.atan2(1.0 * y - 0.0 * x, 1.0 * x + 0.0 * y);
+
+        // rotate system to align destination on X axis, only the X coordinate of px is needed
+        out.setToRotation(-angle);
+        double alignedX = out.getScaleX() * x + out.getShearX() * y;
+
+        // scale to have destination element at 1 on X, then rotate, then set the origin
+        out.setToScale(1 / alignedX, 1 / alignedX);
+        out.rotate(-angle);
+        if(translated) {
+            out.translate(-originX, -originY);
+        }
 
-        // finally merge all transforms into one
-        AffineTransform finalTransform = new AffineTransform();
-        finalTransform.concatenate(t3);
-        finalTransform.concatenate(t2);
-        finalTransform.concatenate(t1_5);
+        // + 0.0 turns -0.0 into 0.0, as concatenating the old separate transforms to an identity did
+        out.setTransform(out.getScaleX() + 0.0, out.getShearY() + 0.0, out.getShearX() + 0.0,
+                out.getScaleY() + 0.0, out.getTranslateX(), out.getTranslateY());
+        return out;
+    }
 
-        return finalTransform;
+    /**
+     * Same as getTransformsToGlobalCoords(Point2D origin, Point2D px), but reuses the given transform instead of
+     * creating new objects.
+     * @param out the transform to be set
+     * @param originX
+     * @param originY
+     * @param pxX
+     * @param pxY
+     * @return false if the transform couldn't be computed, out is then left in an undefined state
+     */
+    public static boolean setToGlobalCoords(AffineTransform out, double originX, double originY,
+                                            double pxX, double pxY) {
+        setToLocalCoords(out, originX, originY, pxX, pxY);
+        try {
+            out.invert();
+            return true;
+        } catch (NoninvertibleTransformException e) {
+            logger.error("Matrix transform error, results may be incorrect: "+e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
     }
 
     public static AffineTransform getTransformsToLocalCoords(Point2D origin, Point2D px, Point2D py) {
@@ -660,7 +684,7 @@ public class GeometryUtils {
         Line2D.Float l2 = new Line2D.Float(p2, p3);
         Line2D.Float l3 = new Line2D.Float(p3, p4);
         Line2D.Float l4 = new Line2D.Float(p4, p1);
-        logger.trace(rect+" -- "+line);
+        logger.trace("{} -- {}", rect, line);
         Point2D.Float i1 = getLineLineIntersection(line, l1);
         Point2D.Float i2 = getLineLineIntersection(line, l2);
         Point2D.Float i3 = getLineLineIntersection(line, l3);
@@ -753,14 +777,135 @@ public class GeometryUtils {
      * @return a new list of points
      */
     public static List<Point2D.Float> convertPoints(List<Point2D.Float> points, AffineTransform transform) {
+        float[] coords = toCoords(points, new float[2 * points.size()], 0);
+        transform.transform(coords, 0, coords, 0, points.size());
+        return toPoints(coords, 0, points.size());
+    }
+
+    /*
+        Primitive versions of the coordinate system changes, working on float[] buffers of interleaved x,y
+        coordinates. They write into an output buffer and reuse a transform given by the caller, a whole polyline
+        is converted in one call. PolylineBuffer keeps them between calls for the list versions.
+     */
 
-        List<Point2D.Float> convertedPoints = new ArrayList<>();
-        for (Point2D editP : points) {
-            Point2D p = new Point2D.Double(editP.getX(), editP.getY());
-            transform.transform(p, p);
-            convertedPoints.add(new Point2D.Float((float) p.getX(), (float) p.getY()));
+    /**
+     * Copy points into a coordinate buffer.
+     * @param points
+     * @param dst buffer with room for 2 * points.size() floats after dstOff
+     * @param dstOff index of the first x coordinate to write
+     * @return dst
+     */
+    public static float[] toCoords(List<? extends Point2D> points, float[] dst, int dstOff) {
+        for(Point2D p: points) {
+            dst[dstOff++] = (float) p.getX();
+            dst[dstOff++] = (float) p.getY();
         }
-        return convertedPoints;
+        return dst;
+    }
+
+    /**
+     * @param coords
+     * @param off index of the x coordinate of the first point
+     * @param count number of points
+     * @return a new list of points
+     */
+    public static List<Point2D.Float> toPoints(float[] coords, int off, int count) {
+        List<Point2D.Float> points = new ArrayList<>(count);
+        for(int i=0; i < count; i++) {
+            points.add(new Point2D.Float(coords[off + 2 * i], coords[off + 2 * i + 1]));
+        }
+        return points;
+    }
+
+    /**
+     * Apply a transform to count points. Gives the same coordinates as convertPoints on lists.
+     * src and dst can be the same buffer.
+     * @param src
+     * @param srcOff
+     * @param dst
+     * @param dstOff
+     * @param count number of points
+     * @param transform
+     * @return dst
+     */
+    public static float[] convertPoints(float[] src, int srcOff, float[] dst, int dstOff, int count,
+                                        AffineTransform transform) {
+        transform.transform(src, srcOff, dst, dstOff, count);
+        return dst;
+    }
+
+    /**
+     * Convert a polyline given as edit points local to the segment (start, end) to global coordinates.
+     * Reuses the given transform.
+     * @param startX
+     * @param startY
+     * @param endX
+     * @param endY
+     * @param localEditPoints local coordinates of the points between start and end
+     * @param localOff index of the x coordinate of the first edit point
+     * @param count number of edit points
+     * @param transform set to the local to global transform of (start, end)
+     * @param dst buffer of at least 2 * (count + 2) floats, receives start, the converted points and end.
+     *            Can be localEditPoints.
+     * @return dst, or null if the transform couldn't be computed
+     */
+    public static float[] getGlobalPolyline(float startX, float startY, float endX, float endY,
+                                            float[] localEditPoints, int localOff, int count,
+                                            AffineTransform transform, float[] dst) {
+        if(!setToGlobalCoords(transform, startX, startY, endX, endY)) {
+            return null;
+        }
+        dst[0] = startX;
+        dst[1] = startY;
+        transform.transform(localEditPoints, localOff, dst, 2, count);
+        dst[2 * count + 2] = endX;
+        dst[2 * count + 3] = endY;
+        return dst;
+    }
+
+    /**
+     * Convert the edit points of a link going from start to end to the local coordinates of the segment
+     * (start, end), as CellDesigner stores them.
+     * @param startX
+     * @param startY
+     * @param endX
+     * @param endY
+     * @param globalEditPoints
+     * @param count number of edit points
+     * @param transform set to the global to local transform of (start, end)
+     * @param dst buffer of at least 2 * count floats, can be globalEditPoints
+     * @return dst
+     */
+    public static float[] getLocalEditPoints(float startX, float startY, float endX, float endY,
+                                             float[] globalEditPoints, int count,
+                                             AffineTransform transform, float[] dst) {
+        setToLocalCoords(transform, startX, startY, endX, endY);
+        transform.transform(globalEditPoints, 0, dst, 0, count);
+        return dst;
+    }
+
+    /**
+     * List version of getGlobalPolyline. Callers converting many links should reuse a PolylineBuffer instead.
+     * @param start
+     * @param end
+     * @param localEditPoints
+     * @return start, the edit points in global coordinates, and end
+     */
+    public static List<Point2D.Float> getGlobalPolyline(Point2D.Float start, Point2D.Float end,
+                                                        List<Point2D.Float> localEditPoints) {
+        return new PolylineBuffer().getGlobalPolyline(start, end, localEditPoints);
+    }
+
+    /**
+     * List version of getLocalEditPoints. Callers converting many links should reuse a PolylineBuffer instead.
+     * @param start
+     * @param end
+     * @param globalEditPoints
+     * @return a new list of points in the local coordinates of the segment (start, end)
+     */
+    public static List<Point2D.Float> getLocalEditPoints(Point2D start, Point2D end,
+                                                         List<Point2D.Float> globalEditPoints) {
+        return new PolylineBuffer().getLocalEditPoints(start, end, globalEditPoints);
     }
 
     public static Point2D.Float getMiddle(Point2D.Float p1, Point2D.Float p2) {
@@ -787,8 +932,9 @@ public class GeometryUtils {
 
         Point2D.Float p1 = points.get(segment);
         Point2D.Float p2 = points.get(segment + 1);
-        logger.trace("middle of "+p1+" "+p2+" -> "+getMiddle(p1, p2));
-        return getMiddle(p1, p2);
+        Point2D.Float middle = getMiddle(p1, p2);
+        logger.trace("middle of {} {} -> {}", p1, p2, middle);
+        return middle;
     }
 
     public static SimpleEntry<List<Point2D.Float>, List<Point2D.Float>> splitPolylineAtSegment(List<Point2D.Float> points, int segment) {
@@ -841,7 +987,7 @@ public class GeometryUtils {
                     glyph.getWidth(),
                     glyph.getHeight());
             Line2D.Float segment = new Line2D.Float(p1, p2);
-            logger.trace("Intersect segement: "+segment.getP1()+" "+segment.getP2()+" with rectangle "+rect);
+            logger.trace("Intersect segement: {} {} with rectangle {}", p1, p2, rect);
             List<Point2D.Float> intersections2 = GeometryUtils.getLineRectangleIntersection(segment, rect);
             if(intersections2.isEmpty()) {
                 return p1;
@@ -867,7 +1013,7 @@ public class GeometryUtils {
                                                              Glyph endGlyph,
                                                              AnchorPoint startAnchor,
                                                              AnchorPoint endAnchor) {
-        logger.trace("NORMALIZE points: " + points);
+        logger.trace("NORMALIZE points: {}", points);
         Point2D.Float cdSpaceStart = points.get(0);
         Point2D.Float cdSpaceEnd = points.get(points.size() - 1);
 
@@ -884,7 +1030,7 @@ public class GeometryUtils {
                 cdSpaceEnd, points.get(points.size() - 2), endGlyph, endAnchor);
         result.add(normalized2);
 
-        logger.trace("NORMALIZE RESULT: " + result);
+        logger.trace("NORMALIZE RESULT: {}", result);
 
         return result;
     }
@@ -1240,12 +1386,77 @@ public class GeometryUtils {
         return (float) ((p1.getY() - p2.getY()) / (p1.getX() - p2.getX()));
     }
 
+    /**
+     * Coefficients of the anchor points of each shape, indexed by shape ordinal.
+     * All the shapes are linear in width and height, so for an anchor of ordinal a:
+     * x = width * table[4a] + height * table[4a+1] and y = width * table[4a+2] + height * table[4a+3].
+     * Computed once from the relative positions for boxes of size 1x0 and 0x1, CENTER staying at 0,0.
+     */
+    private static final double[][] ANCHOR_TABLES = buildAnchorTables();
+
+    private static double[][] buildAnchorTables() {
+        double[][] tables = new double[CdShape.values().length][];
+        for(CdShape shape: CdShape.values()) {
+            double[] table = new double[4 * AnchorPoint.values().length];
+            for(AnchorPoint anchorPoint: AnchorPoint.values()) {
+                if(anchorPoint == AnchorPoint.CENTER) {
+                    continue;
+                }
+                int i = 4 * anchorPoint.ordinal();
+                if(shape == CdShape.ELLIPSE || shape == CdShape.CIRCLE) {
+                    // kept in double, as ellipsePerimeterPointFromAngle computes them
+                    double theta = perimeterAnchorPointToAngle(anchorPoint) * Math.PI / 180;
+                    table[i] = 0.5 * Math.cos(theta);
+                    table[i + 3] = -0.5 * Math.sin(theta);
+                }
+                else {
+                    Point2D.Float unitWidth = computeRelativeAnchorCoordinate(shape, 1, 0, anchorPoint);
+                    Point2D.Float unitHeight = computeRelativeAnchorCoordinate(shape, 0, 1, anchorPoint);
+                    table[i] = unitWidth.x;
+                    table[i + 1] = unitHeight.x;
+                    table[i + 2] = unitWidth.y;
+                    table[i + 3] = unitHeight.y;
+                }
+            }
+            tables[shape.ordinal()] = table;
+        }
+        return tables;
+    }
+
     /**
      * Get relative coordinate of an anchor point from center of the shape
      * @param anchorPoint
      * @return
      */
     public static Point2D.Float getRelativeAnchorCoordinate(CdShape shape, float width, float height, AnchorPoint anchorPoint) {
+        float[] coords = getRelativeAnchorCoordinate(shape, width, height, anchorPoint, new float[2], 0);
+        return new Point2D.Float(coords[0], coords[1]);
+    }
+
+    /**
+     * Primitive version of getRelativeAnchorCoordinate, using the precomputed anchor tables.
+     * @param shape
+     * @param width
+     * @param height
+     * @param anchorPoint
+     * @param dst
+     * @param dstOff
+     * @return dst
+     */
+    public static float[] getRelativeAnchorCoordinate(CdShape shape, float width, float height,
+                                                      AnchorPoint anchorPoint, float[] dst, int dstOff) {
+        double[] table = ANCHOR_TABLES[shape.ordinal()];
+        int i = 4 * anchorPoint.ordinal();
+        dst[dstOff] = (float) (width * table[i] + height * table[i + 1]);
+        dst[dstOff + 1] = (float) (width * table[i + 2] + height * table[i + 3]);
+        return dst;
+    }
+
+    /**
+     * Compute the relative coordinate of an anchor point with the formulas of each shape.
+     * Only used to fill the anchor tables, and to check them in tests.
+     */
+    static Point2D.Float computeRelativeAnchorCoordinate(CdShape shape, float width, float height, AnchorPoint anchorPoint) {
 
         Point2D.Float relativeAnchorPoint;
         if(anchorPoint != AnchorPoint.CENTER) {
@@ -1286,14 +1497,15 @@ public class GeometryUtils {
     }
 
     public static Point2D.Float getAbsoluteAnchorPoint(CdShape shape, Rectangle2D.Float bbox, AnchorPoint anchorPoint) {
-        Point2D.Float relativePoint = getRelativeAnchorCoordinate(
+        float[] relativePoint = getRelativeAnchorCoordinate(
                 shape,
                 (float) bbox.getWidth(),
                 (float) bbox.getHeight(),
-                anchorPoint);
+                anchorPoint,
+                new float[2], 0);
         return new Point2D.Float(
-                (float) (relativePoint.getX() + bbox.getX() + bbox.getWidth() / 2),
-                (float) (relativePoint.getY() + bbox.getY() + bbox.getHeight() / 2)
+                (float) (relativePoint[0] + bbox.getX() + bbox.getWidth() / 2),
+                (float) (relativePoint[1] + bbox.getY() + bbox.getHeight() / 2)
         );
     }
 
@@ -1305,23 +1517,29 @@ public class GeometryUtils {
      * @return
      */
     public static AnchorPoint getNearestAnchorPoint(Point2D.Float p, Rectangle2D.Float bbox, CdShape shape) {
-        Point2D.Float currentRelativeAnchor;
-        AnchorPoint result = AnchorPoint.CENTER;
-        Point2D.Float relativeP  = new Point2D.Float(
-                (float) (p.getX() - bbox.getX() - bbox.getWidth() / 2),
-                (float) (p.getY() - bbox.getY() - bbox.getHeight() / 2)
-        );
-        logger.trace("Nearest anchro point: "+p+" "+relativeP+" "+bbox+" "+shape);
+        float relativeX = (float) (p.getX() - bbox.getX() - bbox.getWidth() / 2);
+        float relativeY = (float) (p.getY() - bbox.getY() - bbox.getHeight() / 2);
+        if(logger.isTraceEnabled()) {
+            logger.trace("Nearest anchor point: {} {},{} {} {}", p, relativeX, relativeY, bbox, shape);
+        }
+
+        float width = bbox.width;
+        float height = bbox.height;
+        double[] table = ANCHOR_TABLES[shape.ordinal()];
+        AnchorPoint[] anchorPoints = AnchorPoint.values();
+        int result = AnchorPoint.CENTER.ordinal();
         double minDist = Double.MAX_VALUE;
-        for(AnchorPoint a:AnchorPoint.values()){
-            currentRelativeAnchor = getRelativeAnchorCoordinate(shape,
-                    (float) bbox.getWidth(), (float) bbox.getHeight(), a);
-            double dist = relativeP.distance(currentRelativeAnchor);
+        for(int a=0, i=0; a < anchorPoints.length; a++, i+=4) {
+            float anchorX = (float) (width * table[i] + height * table[i + 1]);
+            float anchorY = (float) (width * table[i + 2] + height * table[i + 3]);
+            double dx = (double) relativeX - anchorX;
+            double dy = (double) relativeY - anchorY;
+            double dist = Math.sqrt(dx * dx + dy * dy);
             if(dist < minDist) {
                 minDist = dist;
                 result = a;
             }
         }
-        return result;
+        return anchorPoints[result];
     }
 }
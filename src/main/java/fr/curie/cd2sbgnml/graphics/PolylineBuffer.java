@@ -0,0 +1,71 @@
+package fr.curie.cd2sbgnml.graphics;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coordinate buffer and transform reused by all the edit point conversions of one reaction or one map, instead of
+ * allocating them for each link. Only the returned lists and their points are new objects.
+ *
+ * Not thread-safe, each thread needs its own.
+ */
+public class PolylineBuffer {
+
+    private final AffineTransform transform = new AffineTransform();
+    private float[] coords = new float[32];
+
+    /**
+     * @param size
+     * @return the coordinate buffer, grown to hold at least size floats
+     */
+    private float[] getCoords(int size) {
+        if(coords.length < size) {
+            coords = new float[Math.max(size, 2 * coords.length)];
+        }
+        return coords;
+    }
+
+    /**
+     * Convert a polyline given as edit points local to the segment (start, end) to global coordinates.
+     * See GeometryUtils.getGlobalPolyline.
+     * @param start
+     * @param end
+     * @param localEditPoints
+     * @return start, the edit points in global coordinates, and end
+     */
+    public List<Point2D.Float> getGlobalPolyline(Point2D.Float start, Point2D.Float end,
+                                                 List<Point2D.Float> localEditPoints) {
+        int count = localEditPoints.size();
+        float[] coords = GeometryUtils.toCoords(localEditPoints, getCoords(2 * (count + 2)), 2);
+        // no transform needed, and maybe none possible, for a straight line
+        if(count > 0 && GeometryUtils.getGlobalPolyline(start.x, start.y, end.x, end.y, coords, 2, count,
+                transform, coords) == null) {
+            throw new IllegalStateException("Cannot compute global coordinates from "+start+" "+end);
+        }
+        List<Point2D.Float> points = new ArrayList<>(count + 2);
+        points.add(start);
+        for(int i=1; i <= count; i++) {
+            points.add(new Point2D.Float(coords[2 * i], coords[2 * i + 1]));
+        }
+        points.add(end);
+        return points;
+    }
+
+    /**
+     * Convert the edit points of a link going from start to end to the local coordinates of the segment
+     * (start, end). See GeometryUtils.getLocalEditPoints.
+     * @param start
+     * @param end
+     * @param globalEditPoints
+     * @return a new list of points in the local coordinates of the segment (start, end)
+     */
+    public List<Point2D.Float> getLocalEditPoints(Point2D start, Point2D end, List<Point2D.Float> globalEditPoints) {
+        int count = globalEditPoints.size();
+        float[] coords = GeometryUtils.toCoords(globalEditPoints, getCoords(2 * count), 0);
+        GeometryUtils.setToLocalCoords(transform, start.getX(), start.getY(), end.getX(), end.getY())
+                .transform(coords, 0, coords, 0, count);
+        return GeometryUtils.toPoints(coords, 0, count);
+    }
+}
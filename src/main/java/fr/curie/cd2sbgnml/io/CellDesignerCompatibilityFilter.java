@@ -0,0 +1,77 @@
+package fr.curie.cd2sbgnml.io;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * SAX filter fixing, on the fly, the 2 usual problems of CellDesigner files produced by other tools (ACSN...).
+ *
+ * - the sbml namespace lacks the version: xmlns="http://www.sbml.org/sbml/level2" is changed to
+ * xmlns="http://www.sbml.org/sbml/level2/version4".
+ *
+ * - the &lt;celldesigner:extension&gt; element is missing everywhere. If asked to, the content of each sbml
+ * &lt;annotation&gt; element is wrapped into an &lt;celldesigner:extension&gt; element.
+ *
+ * Both things were previously done with regexp over the whole file content.
+ */
+class CellDesignerCompatibilityFilter extends XMLFilterImpl {
+
+    static final String SBML_NS = "http://www.sbml.org/sbml/level2/version4";
+    static final String SBML_UNVERSIONED_NS = "http://www.sbml.org/sbml/level2";
+    static final String CELLDESIGNER_NS = "http://www.sbml.org/2001/ns/celldesigner";
+
+    private static final String EXTENSION = "extension";
+    private static final String EXTENSION_QNAME = "celldesigner:extension";
+    private static final String ANNOTATION = "annotation";
+
+    private final boolean wrapAnnotations;
+    private boolean namespaceFixed = false;
+
+    /**
+     * @param wrapAnnotations true if the content of all annotations need to be wrapped in an extension element
+     */
+    CellDesignerCompatibilityFilter(boolean wrapAnnotations) {
+        this.wrapAnnotations = wrapAnnotations;
+    }
+
+    /**
+     * @return true if the unversioned sbml namespace was encountered and replaced
+     */
+    boolean isNamespaceFixed() {
+        return namespaceFixed;
+    }
+
+    private String fixNamespace(String uri) {
+        if(SBML_UNVERSIONED_NS.equals(uri)) {
+            namespaceFixed = true;
+            return SBML_NS;
+        }
+        return uri;
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        super.startPrefixMapping(prefix, fixNamespace(uri));
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+        uri = fixNamespace(uri);
+        super.startElement(uri, localName, qName, atts);
+
+        if(wrapAnnotations && ANNOTATION.equals(localName) && SBML_NS.equals(uri)) {
+            super.startElement(CELLDESIGNER_NS, EXTENSION, EXTENSION_QNAME, new AttributesImpl());
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        uri = fixNamespace(uri);
+        if(wrapAnnotations && ANNOTATION.equals(localName) && SBML_NS.equals(uri)) {
+            super.endElement(CELLDESIGNER_NS, EXTENSION, EXTENSION_QNAME);
+        }
+        super.endElement(uri, localName, qName);
+    }
+}
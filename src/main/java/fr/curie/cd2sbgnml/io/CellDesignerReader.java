@@ -0,0 +1,209 @@
+package fr.curie.cd2sbgnml.io;
+
+import org.sbml.sbml.level2.version4.Sbml;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.UnmarshallerHandler;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+/**
+ * Read CellDesigner files directly from a stream into the JAXB object model.
+ *
+ * The file is never fully loaded as text in memory. Fixes needed for some CellDesigner files
+ * (see CellDesignerCompatibilityFilter) are applied while parsing.
+ * Checking if &lt;celldesigner:extension&gt; elements are missing needs a quick pre-scan of the file, which
+ * stops at the first annotation for normal CellDesigner files.
+ */
+public class CellDesignerReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(CellDesignerReader.class);
+
+    private static final XMLInputFactory xmlInputFactory = XmlParsers.newXMLInputFactory();
+
+    /**
+     * Expected start of the annotations, used when the pre-scan cannot read the document.
+     */
+    private static final Pattern EXTENSION_PATTERN = Pattern.compile("<annotation>[\\n\\s]*<celldesigner:extension>");
+
+    /**
+     * Source of the xml content that can be opened several times.
+     */
+    private interface InputOpener {
+        InputSource open() throws IOException;
+    }
+
+    /**
+     * Parse a CellDesigner file.
+     * @param file
+     * @return the unmarshalled Sbml object
+     * @throws IOException
+     * @throws JAXBException
+     * @throws SAXException if the file isn't well-formed xml
+     */
+    public static Sbml read(Path file) throws IOException, JAXBException, SAXException {
+        return read(() -> new InputSource(new BufferedInputStream(Files.newInputStream(file))));
+    }
+
+    /**
+     * Parse CellDesigner content already held as a String.
+     * @param content
+     * @return the unmarshalled Sbml object
+     * @throws IOException
+     * @throws JAXBException
+     * @throws SAXException if the content isn't well-formed xml
+     */
+    public static Sbml read(String content) throws IOException, JAXBException, SAXException {
+        return read(() -> new InputSource(new StringReader(content)));
+    }
+
+    private static Sbml read(InputOpener opener) throws IOException, JAXBException, SAXException {
+        // if one extension is present, then consider the rest valid. If none, we need to add them.
+        Boolean hasExtension;
+        InputSource scanSource = opener.open();
+        try {
+            hasExtension = hasExtensionInAnnotation(scanSource);
+        } finally {
+            close(scanSource);
+        }
+        if(hasExtension == null) {
+            // a document the pre-scan cannot read isn't a document without extension, look for them in the text
+            scanSource = opener.open();
+            try {
+                hasExtension = hasExtensionInText(scanSource);
+            } finally {
+                close(scanSource);
+            }
+        }
+        boolean wrapAnnotations = !hasExtension;
+        if(wrapAnnotations) {
+            logger.warn("<celldesigner:extension> elements are missing, they were added automatically.");
+        }
+
+        CellDesignerCompatibilityFilter filter = new CellDesignerCompatibilityFilter(wrapAnnotations);
+        Unmarshaller unmarshaller = JaxbContextRegistry.CELLDESIGNER.borrowUnmarshaller();
+        InputSource source = opener.open();
+        boolean parsed = false;
+        try {
+            UnmarshallerHandler handler = unmarshaller.getUnmarshallerHandler();
+            XmlParsers.parse(filter, handler, source);
+
+            if(filter.isNamespaceFixed()) {
+                /*
+                    ACSN and other maps don't have proper namespace: xmlns="http://www.sbml.org/sbml/level2"
+                    we need to put a level here.
+                 */
+                logger.warn("Namespace definition was messed up, it has been set to: " +
+                        "xmlns=\""+CellDesignerCompatibilityFilter.SBML_NS+"\"");
+            }
+            Sbml sbml = (Sbml) handler.getResult();
+            parsed = true;
+            return sbml;
+        } finally {
+            close(source);
+            // the handler of an unmarshaller stopped in the middle of a document keeps its state, don't reuse it
+            if(parsed) {
+                JaxbContextRegistry.CELLDESIGNER.release(unmarshaller);
+            }
+        }
+    }
+
+    /**
+     * Scan the document until an &lt;annotation&gt; directly followed by &lt;celldesigner:extension&gt; is found.
+     * @param source
+     * @return true if at least one annotation is in the expected CellDesigner format, null if the document
+     * could not be scanned
+     * @throws IOException
+     */
+    private static Boolean hasExtensionInAnnotation(InputSource source) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            synchronized (xmlInputFactory) {
+                if (source.getCharacterStream() != null) {
+                    reader = xmlInputFactory.createXMLStreamReader(source.getCharacterStream());
+                } else {
+                    reader = xmlInputFactory.createXMLStreamReader(source.getByteStream());
+                }
+            }
+
+            boolean afterAnnotation = false;
+            while(reader.hasNext()) {
+                int event = reader.next();
+                if(event == XMLStreamConstants.START_ELEMENT) {
+                    if(afterAnnotation
+                            && "celldesigner".equals(reader.getPrefix())
+                            && "extension".equals(reader.getLocalName())) {
+                        return true;
+                    }
+                    afterAnnotation = "annotation".equals(reader.getLocalName())
+                            && (reader.getPrefix() == null || reader.getPrefix().isEmpty());
+                }
+                else if(!(event == XMLStreamConstants.CHARACTERS && reader.isWhiteSpace())
+                        && event != XMLStreamConstants.SPACE) {
+                    afterAnnotation = false;
+                }
+            }
+            return false;
+        } catch (XMLStreamException e) {
+            // malformed content will be reported by the real parsing step
+            logger.debug("Pre-scan of the annotations failed", e);
+            return null;
+        } finally {
+            if(reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    logger.debug("Could not close xml reader", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Look for an annotation in the expected CellDesigner format in the raw text of the document, which is
+     * fully read.
+     * @param source
+     * @return true if at least one annotation is in the expected CellDesigner format
+     * @throws IOException
+     */
+    private static boolean hasExtensionInText(InputSource source) throws IOException {
+        Reader reader = source.getCharacterStream() != null
+                ? source.getCharacterStream()
+                : new InputStreamReader(source.getByteStream(), StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[8192];
+        int read;
+        while((read = reader.read(buffer)) > 0) {
+            sb.append(buffer, 0, read);
+        }
+        return EXTENSION_PATTERN.matcher(sb).find();
+    }
+
+    private static void close(InputSource source) throws IOException {
+        InputStream is = source.getByteStream();
+        if(is != null) {
+            is.close();
+        }
+        Reader reader = source.getCharacterStream();
+        if(reader != null) {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package fr.curie.cd2sbgnml.io;
+
+import org.sbml.sbml.level2.version4.Sbml;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Write CellDesigner files by marshalling directly to a buffered output stream.
+ */
+public class CellDesignerWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Write the model to a file.
+     * @param sbml
+     * @param file
+     * @throws IOException
+     * @throws JAXBException
+     */
+    public static void write(Sbml sbml, Path file) throws IOException, JAXBException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE)) {
+            Marshaller marshaller = JaxbContextRegistry.CELLDESIGNER.borrowMarshaller();
+            try {
+                marshaller.marshal(sbml, out);
+            } finally {
+                JaxbContextRegistry.CELLDESIGNER.release(marshaller);
+            }
+        }
+    }
+
+    /**
+     * Write the model to a file and validate it.
+     * @param sbml
+     * @param file
+     * @param mode
+     * @return the validation problems of the output, empty if it is valid or if validation is OFF
+     * @throws IOException
+     * @throws JAXBException
+     */
+    public static List<String> write(Sbml sbml, Path file, ValidationMode mode)
+            throws IOException, JAXBException {
+        write(sbml, file);
+        return SchemaValidator.CELLDESIGNER.validate(sbml, file, mode);
+    }
+}
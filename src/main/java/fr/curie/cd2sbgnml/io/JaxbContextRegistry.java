@@ -0,0 +1,164 @@
+package fr.curie.cd2sbgnml.io;
+
+import fr.curie.cd2sbgnml.xmlcdwrappers.Utils;
+import org.sbml.sbml.level2.version4.Sbml;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.ValidationEvent;
+import javax.xml.bind.ValidationEventHandler;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Process-wide holder of the JAXB contexts used to read and write CellDesigner and SBGN-ML files.
+ *
+ * Building a JAXBContext is expensive (especially for the CellDesigner bindings), but the context itself is
+ * thread-safe. It is built once, lazily, and kept for the whole life of the JVM.
+ * Marshallers and unmarshallers are not thread-safe, so they are pooled: borrow one, use it in a single thread,
+ * then give it back with release(). Instances are handed out already configured the way the converter writes files.
+ *
+ * Typical use:
+ * <pre>
+ *     Unmarshaller u = JaxbContextRegistry.CELLDESIGNER.borrowUnmarshaller();
+ *     try {
+ *         sbml = (Sbml) u.unmarshal(source);
+ *     } finally {
+ *         JaxbContextRegistry.CELLDESIGNER.release(u);
+ *     }
+ * </pre>
+ */
+public class JaxbContextRegistry {
+
+    /**
+     * Maximum number of idle marshallers or unmarshallers kept for each context.
+     * Borrowing more than that at the same time is possible, the surplus is simply not kept.
+     */
+    private static final int MAX_POOL_SIZE = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Context for CellDesigner files (Sbml level 2 version 4 + celldesigner namespace).
+     */
+    public static final JaxbContextRegistry CELLDESIGNER = new JaxbContextRegistry(Binding.CELLDESIGNER);
+
+    /**
+     * Context for SBGN-ML files (libsbgn org.sbgn.bindings).
+     */
+    public static final JaxbContextRegistry SBGN = new JaxbContextRegistry(Binding.SBGN);
+
+    /**
+     * Same behavior as the default handler of a new unmarshaller: only fatal errors stop the unmarshalling.
+     * Resetting the handler to null would install DefaultValidationEventHandler instead, which also stops on errors
+     * such as unknown elements, which are present in many CellDesigner files.
+     */
+    private static final ValidationEventHandler LENIENT_EVENT_HANDLER =
+            event -> event.getSeverity() != ValidationEvent.FATAL_ERROR;
+
+    private enum Binding {CELLDESIGNER, SBGN}
+
+    private final Binding binding;
+    private volatile JAXBContext context;
+    private final BlockingQueue<Unmarshaller> unmarshallerPool = new ArrayBlockingQueue<>(MAX_POOL_SIZE);
+    private final BlockingQueue<Marshaller> marshallerPool = new ArrayBlockingQueue<>(MAX_POOL_SIZE);
+
+    private JaxbContextRegistry(Binding binding) {
+        this.binding = binding;
+    }
+
+    /**
+     * Return the shared context, building it on first call.
+     * @return the JAXBContext for this set of bindings
+     * @throws JAXBException if the context cannot be built
+     */
+    public JAXBContext getContext() throws JAXBException {
+        JAXBContext result = this.context;
+        if(result == null) {
+            synchronized (this) {
+                result = this.context;
+                if(result == null) {
+                    switch (binding) {
+                        case CELLDESIGNER: result = JAXBContext.newInstance(Sbml.class); break;
+                        case SBGN: result = JAXBContext.newInstance("org.sbgn.bindings"); break;
+                        default: throw new IllegalStateException("Unknown binding: "+binding);
+                    }
+                    this.context = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get an unmarshaller from the pool, or a new one if none is available.
+     * It must not be shared between threads, and should be given back with release().
+     * @return an unmarshaller for this context
+     * @throws JAXBException
+     */
+    public Unmarshaller borrowUnmarshaller() throws JAXBException {
+        Unmarshaller unmarshaller = unmarshallerPool.poll();
+        if(unmarshaller == null) {
+            unmarshaller = getContext().createUnmarshaller();
+        }
+        return unmarshaller;
+    }
+
+    /**
+     * Give back an unmarshaller to the pool. Schema and event handler possibly set by the caller are cleared.
+     * @param unmarshaller
+     */
+    public void release(Unmarshaller unmarshaller) {
+        if(unmarshaller == null) {
+            return;
+        }
+        try {
+            unmarshaller.setSchema(null);
+            unmarshaller.setEventHandler(LENIENT_EVENT_HANDLER);
+            unmarshaller.setListener(null);
+        } catch (JAXBException e) {
+            // could not be reset properly, don't keep it
+            return;
+        }
+        unmarshallerPool.offer(unmarshaller);
+    }
+
+    /**
+     * Get a marshaller from the pool, or a new one if none is available.
+     * Marshallers are configured to output formatted UTF-8. For CellDesigner, the usual namespace prefixes are used.
+     * It must not be shared between threads, and should be given back with release().
+     * @return a marshaller for this context
+     * @throws JAXBException
+     */
+    public Marshaller borrowMarshaller() throws JAXBException {
+        Marshaller marshaller = marshallerPool.poll();
+        if(marshaller == null) {
+            marshaller = getContext().createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            if(binding == Binding.CELLDESIGNER) {
+                marshaller.setProperty("com.sun.xml.bind.namespacePrefixMapper",
+                        new Utils.DefaultNamespacePrefixMapper());
+            }
+        }
+        return marshaller;
+    }
+
+    /**
+     * Give back a marshaller to the pool. Schema and event handler possibly set by the caller are cleared.
+     * @param marshaller
+     */
+    public void release(Marshaller marshaller) {
+        if(marshaller == null) {
+            return;
+        }
+        try {
+            marshaller.setSchema(null);
+            marshaller.setEventHandler(null);
+            marshaller.setListener(null);
+        } catch (JAXBException e) {
+            return;
+        }
+        marshallerPool.offer(marshaller);
+    }
+}
@@ -0,0 +1,37 @@
+package fr.curie.cd2sbgnml.io;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * SAX filter setting the libsbgn namespace to always be 0.2, to avoid compatibility problems.
+ * Files in 0.3 are read as if they were 0.2, which is what the rest of the converter expects.
+ */
+class SbgnNamespaceFilter extends XMLFilterImpl {
+
+    static final String SBGN_02_NS = "http://sbgn.org/libsbgn/0.2";
+    static final String SBGN_03_NS = "http://sbgn.org/libsbgn/0.3";
+
+    private String fixNamespace(String uri) {
+        if(SBGN_03_NS.equals(uri)) {
+            return SBGN_02_NS;
+        }
+        return uri;
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        super.startPrefixMapping(prefix, fixNamespace(uri));
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+        super.startElement(fixNamespace(uri), localName, qName, atts);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        super.endElement(fixNamespace(uri), localName, qName);
+    }
+}
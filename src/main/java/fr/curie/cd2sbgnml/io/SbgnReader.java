@@ -0,0 +1,105 @@
+package fr.curie.cd2sbgnml.io;
+
+import org.sbgn.bindings.Sbgn;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.UnmarshallerHandler;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Read SBGN-ML files directly from a stream into the libsbgn JAXB object model.
+ *
+ * A possible BOM at the start of the file is skipped (BOM is present in output of Newt), and the libsbgn 0.3
+ * namespace is mapped to 0.2 while parsing (see SbgnNamespaceFilter).
+ * Text content is kept as is, line breaks included. Gzip compressed files (.gz) are supported.
+ */
+public class SbgnReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Parse an SBGN-ML file.
+     * @param file
+     * @return the unmarshalled Sbgn object
+     * @throws IOException
+     * @throws JAXBException
+     * @throws SAXException if the file isn't well-formed xml
+     */
+    public static Sbgn read(Path file) throws IOException, JAXBException, SAXException {
+        try (InputStream is = open(file)) {
+            return read(is);
+        }
+    }
+
+    /**
+     * Open a buffered stream on an SBGN-ML file, decompressing it if its name ends with .gz
+     * @param file
+     * @return a new stream, to be closed by the caller
+     * @throws IOException
+     */
+    public static InputStream open(Path file) throws IOException {
+        InputStream is = Files.newInputStream(file);
+        if(SbgnWriter.isGzip(file)) {
+            try {
+                is = new GZIPInputStream(is, BUFFER_SIZE);
+            } catch (IOException | RuntimeException e) {
+                // the gzip header couldn't be read, nobody else will close the file
+                is.close();
+                throw e;
+            }
+        }
+        return new BufferedInputStream(is, BUFFER_SIZE);
+    }
+
+    /**
+     * Parse SBGN-ML content from a stream. The stream is not closed.
+     * @param is
+     * @return the unmarshalled Sbgn object
+     * @throws IOException
+     * @throws JAXBException
+     * @throws SAXException if the content isn't well-formed xml
+     */
+    public static Sbgn read(InputStream is) throws IOException, JAXBException, SAXException {
+        if(!is.markSupported()) {
+            is = new BufferedInputStream(is);
+        }
+        skipBOM(is);
+
+        SbgnNamespaceFilter filter = new SbgnNamespaceFilter();
+        Unmarshaller unmarshaller = JaxbContextRegistry.SBGN.borrowUnmarshaller();
+        boolean parsed = false;
+        try {
+            UnmarshallerHandler handler = unmarshaller.getUnmarshallerHandler();
+            XmlParsers.parse(filter, handler, new InputSource(is));
+            Sbgn sbgn = (Sbgn) handler.getResult();
+            parsed = true;
+            return sbgn;
+        } finally {
+            // the handler of an unmarshaller stopped in the middle of a document keeps its state, don't reuse it
+            if(parsed) {
+                JaxbContextRegistry.SBGN.release(unmarshaller);
+            }
+        }
+    }
+
+    /**
+     * Skip the UTF-8 BOM bytes (0xEF 0xBB 0xBF) if they are present at the current position.
+     * See https://stackoverflow.com/a/18275066
+     * @param is a stream supporting mark/reset
+     * @throws IOException
+     */
+    static void skipBOM(InputStream is) throws IOException {
+        is.mark(3);
+        if(is.read() != 0xEF || is.read() != 0xBB || is.read() != 0xBF) {
+            is.reset();
+        }
+    }
+}
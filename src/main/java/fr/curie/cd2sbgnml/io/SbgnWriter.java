@@ -0,0 +1,104 @@
+package fr.curie.cd2sbgnml.io;
+
+import org.sbgn.bindings.Sbgn;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Write SBGN-ML files by marshalling directly to a buffered output stream.
+ *
+ * Nothing is built in memory apart from the JAXB tree itself. If the target file name ends with .gz
+ * (ex: map.sbgn.gz), the output is gzip compressed.
+ */
+public class SbgnWriter {
+
+    public static final String GZIP_EXTENSION = ".gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Write the map to a file, compressed if the file name ends with .gz
+     * @param sbgn
+     * @param file
+     * @throws IOException
+     * @throws JAXBException
+     */
+    public static void write(Sbgn sbgn, Path file) throws IOException, JAXBException {
+        write(sbgn, file, isGzip(file));
+    }
+
+    /**
+     * Write the map to a file.
+     * @param sbgn
+     * @param file
+     * @param gzip true to compress the output
+     * @throws IOException
+     * @throws JAXBException
+     */
+    public static void write(Sbgn sbgn, Path file, boolean gzip) throws IOException, JAXBException {
+        // each stream is closed even if the next one cannot be created
+        try (OutputStream fileOut = Files.newOutputStream(file);
+             OutputStream zipOut = gzip ? new GZIPOutputStream(fileOut, BUFFER_SIZE) : fileOut;
+             OutputStream out = new BufferedOutputStream(zipOut, BUFFER_SIZE)) {
+            write(sbgn, out);
+        }
+    }
+
+    /**
+     * Write the map to a file, compressed if the file name ends with .gz, and validate it.
+     * @param sbgn
+     * @param file
+     * @param mode
+     * @return the validation problems of the output, empty if it is valid or if validation is OFF
+     * @throws IOException
+     * @throws JAXBException
+     */
+    public static List<String> write(Sbgn sbgn, Path file, ValidationMode mode)
+            throws IOException, JAXBException {
+        write(sbgn, file);
+        return SchemaValidator.SBGN.validate(sbgn, file, mode);
+    }
+
+    /**
+     * Marshal the map to the given stream, formatted and UTF-8 encoded. The stream is flushed but not closed.
+     * @param sbgn
+     * @param os
+     * @throws IOException
+     * @throws JAXBException
+     */
+    public static void write(Sbgn sbgn, OutputStream os) throws IOException, JAXBException {
+        /*
+            Marshal through a Writer and not directly to the stream: JAXB doesn't indent the DOM content of
+            notes and extensions the same way in both cases, and we want the same output as before.
+         */
+        Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+        Marshaller marshaller = JaxbContextRegistry.SBGN.borrowMarshaller();
+        try {
+            marshaller.marshal(sbgn, writer);
+        } finally {
+            JaxbContextRegistry.SBGN.release(marshaller);
+        }
+        // files have always ended with a line break
+        writer.write(System.lineSeparator());
+        writer.flush();
+    }
+
+    /**
+     * @param file
+     * @return true if the file name ends with .gz
+     */
+    public static boolean isGzip(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(GZIP_EXTENSION);
+    }
+}
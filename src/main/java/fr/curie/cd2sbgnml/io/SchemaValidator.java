@@ -0,0 +1,172 @@
+package fr.curie.cd2sbgnml.io;
+
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.ValidationEvent;
+import javax.xml.bind.ValidationEventLocator;
+import javax.xml.bind.util.JAXBSource;
+import javax.xml.bind.util.ValidationEventCollector;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validate output files against the xsd schema of their format.
+ *
+ * Each schema is compiled only once, on first use. Schema objects are thread-safe and shared by all validations.
+ * The JAXB tree of a conversion can be validated directly in memory (ValidationMode.FAST), or the
+ * written file can be read again (ValidationMode.STRICT).
+ */
+public class SchemaValidator {
+
+    /**
+     * CellDesigner schema, provided in the schema/ directory of the project.
+     */
+    public static final SchemaValidator CELLDESIGNER =
+            new SchemaValidator(JaxbContextRegistry.CELLDESIGNER, "/schema/CellDesigner.xsd");
+
+    /**
+     * SBGN-ML schema, provided by libsbgn.
+     */
+    public static final SchemaValidator SBGN = new SchemaValidator(JaxbContextRegistry.SBGN, "/SBGN.xsd");
+
+    private final JaxbContextRegistry registry;
+    private final String schemaResource;
+    private volatile Schema schema;
+
+    private SchemaValidator(JaxbContextRegistry registry, String schemaResource) {
+        this.registry = registry;
+        this.schemaResource = schemaResource;
+    }
+
+    /**
+     * Return the compiled schema, compiling it on first call.
+     * @return the schema
+     * @throws SAXException if the schema cannot be found or compiled
+     */
+    public Schema getSchema() throws SAXException {
+        Schema result = this.schema;
+        if(result == null) {
+            synchronized (this) {
+                result = this.schema;
+                if(result == null) {
+                    URL url = SchemaValidator.class.getResource(schemaResource);
+                    if(url == null) {
+                        throw new SAXException("Could not find schema "+schemaResource+" in classpath");
+                    }
+                    SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+                    result = sf.newSchema(url);
+                    this.schema = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Validate a file. Gzip compressed files (.gz) are supported.
+     * @param file
+     * @return a description of each problem found, empty if the file is valid
+     */
+    public List<String> validateFile(Path file) {
+        List<String> problems = new ArrayList<>();
+        ValidationEventCollector collector = new ValidationEventCollector();
+        Unmarshaller unmarshaller = null;
+        try (InputStream is = SbgnReader.open(file)) {
+            unmarshaller = registry.borrowUnmarshaller();
+            unmarshaller.setSchema(getSchema());
+            unmarshaller.setEventHandler(collector);
+            unmarshaller.unmarshal(is);
+        } catch (JAXBException | SAXException | IOException e) {
+            // if the problem was already reported as an event, don't report it twice
+            if(!collector.hasEvents()) {
+                Throwable cause = e instanceof JAXBException && e.getCause() != null ? e.getCause() : e;
+                problems.add(String.valueOf(cause.getMessage()));
+            }
+        } finally {
+            registry.release(unmarshaller);
+        }
+
+        for(ValidationEvent event: collector.getEvents()) {
+            problems.add(format(event));
+        }
+        return problems;
+    }
+
+    /**
+     * Validate a JAXB tree in memory. The tree is streamed to the validator as SAX events, no xml text is
+     * produced or parsed.
+     * @param jaxbTree root of the tree (Sbml or Sbgn object)
+     * @return a description of each problem found, empty if the tree is valid
+     */
+    public List<String> validate(Object jaxbTree) {
+        List<String> problems = new ArrayList<>();
+        Marshaller marshaller = null;
+        try {
+            marshaller = registry.borrowMarshaller();
+            Validator validator = getSchema().newValidator();
+            validator.setErrorHandler(new ErrorHandler() {
+                @Override
+                public void warning(SAXParseException e) {
+                    problems.add(e.getMessage());
+                }
+
+                @Override
+                public void error(SAXParseException e) {
+                    problems.add(e.getMessage());
+                }
+
+                @Override
+                public void fatalError(SAXParseException e) throws SAXException {
+                    problems.add(e.getMessage());
+                    throw e;
+                }
+            });
+            validator.validate(new JAXBSource(marshaller, jaxbTree));
+        } catch (JAXBException | SAXException | IOException e) {
+            // if the problem was already reported by the error handler, don't report it twice
+            if(problems.isEmpty()) {
+                Throwable cause = e instanceof JAXBException && e.getCause() != null ? e.getCause() : e;
+                problems.add(String.valueOf(cause.getMessage()));
+            }
+        } finally {
+            registry.release(marshaller);
+        }
+        return problems;
+    }
+
+    /**
+     * Validate the output of a conversion the way the mode requires.
+     * @param jaxbTree the tree that was written, validated in FAST mode
+     * @param writtenFile the file it was written to, read again in STRICT mode
+     * @param mode
+     * @return a description of each problem found, empty if the output is valid or if validation is OFF
+     */
+    public List<String> validate(Object jaxbTree, Path writtenFile, ValidationMode mode) {
+        switch (mode) {
+            case FAST: return validate(jaxbTree);
+            case STRICT: return validateFile(writtenFile);
+            default: return new ArrayList<>();
+        }
+    }
+
+    static String format(ValidationEvent event) {
+        ValidationEventLocator locator = event.getLocator();
+        if(locator != null && locator.getLineNumber() >= 0) {
+            return "line "+locator.getLineNumber()+" column "+locator.getColumnNumber()+": "+event.getMessage();
+        }
+        return event.getMessage();
+    }
+}
@@ -0,0 +1,20 @@
+package fr.curie.cd2sbgnml.io;
+
+/**
+ * How much checking is done on the files written by a conversion.
+ */
+public enum ValidationMode {
+    /**
+     * No validation.
+     */
+    OFF,
+    /**
+     * The JAXB tree in memory is validated against the schema. The written file is not parsed again, but
+     * problems are reported without line numbers.
+     */
+    FAST,
+    /**
+     * The written file is read again and validated, problems are reported with their line and column.
+     */
+    STRICT
+}
@@ -0,0 +1,83 @@
+package fr.curie.cd2sbgnml.io;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import java.io.IOException;
+
+/**
+ * Parsers of the input files, which can come from anyone through ConversionServer.
+ *
+ * DOCTYPEs with internal entities are accepted, as CellDesigner and JAXB accept them, but nothing outside the
+ * document is ever read: external DTDs are not loaded, and a reference to an external entity fails the parsing,
+ * as it did with the JAXB unmarshallers.
+ */
+final class XmlParsers {
+
+    private static final SAXParserFactory saxParserFactory;
+    static {
+        saxParserFactory = SAXParserFactory.newInstance();
+        saxParserFactory.setNamespaceAware(true);
+        try {
+            saxParserFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            saxParserFactory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            saxParserFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalStateException("Cannot configure the xml parser", e);
+        }
+    }
+
+    private XmlParsers() {}
+
+    /**
+     * Parse a document through a filter, with a namespace aware SAX reader that cannot access external
+     * resources.
+     * @param filter receives the events of the reader
+     * @param handler receives the events of the filter
+     * @param source
+     * @throws IOException
+     * @throws SAXException if the document isn't well-formed xml or references an external entity
+     */
+    static void parse(XMLFilterImpl filter, ContentHandler handler, InputSource source)
+            throws IOException, SAXException {
+        XMLReader xmlReader;
+        try {
+            // factories are not guaranteed to be thread-safe
+            synchronized (saxParserFactory) {
+                xmlReader = saxParserFactory.newSAXParser().getXMLReader();
+            }
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+        // external general entities stay enabled, so that referencing one is an error instead of a silently
+        // skipped entity, but no protocol is allowed to read them
+        xmlReader.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        xmlReader.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+
+        filter.setParent(xmlReader);
+        // the filter is the entity resolver of its parent during the parse, and asks its own resolver
+        filter.setEntityResolver((publicId, systemId) -> {
+            throw new SAXException("External entities are not allowed: "+systemId);
+        });
+        filter.setContentHandler(handler);
+        filter.parse(source);
+    }
+
+    /**
+     * @return a new StAX factory resolving internal entities only
+     */
+    static XMLInputFactory newXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        return factory;
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Reading, writing and validation of CellDesigner and SBGN-ML files.
+ *
+ * JAXB contexts are shared for the whole process through JaxbContextRegistry, so converting many files
+ * only pays the cost of building them once.
+ */
+package fr.curie.cd2sbgnml.io;
@@ -25,7 +25,15 @@ public class AssociationReactionModel extends GenericReactionModel {
     private final Logger logger = LoggerFactory.getLogger(AssociationReactionModel.class);
 
     public AssociationReactionModel(ReactionWrapper reactionW) {
-        super(reactionW);
+        this(reactionW, new CounterIdGenerator(reactionW.getId()));
+    }
+
+    /**
+     * @param reactionW
+     * @param idGenerator gives the ids of the processes, links and logic gates created for this reaction
+     */
+    public AssociationReactionModel(ReactionWrapper reactionW, IdGenerator idGenerator) {
+        super(reactionW, idGenerator);
 
         ReactantWrapper startR1 = reactionW.getBaseReactants().get(0);
         ReactantWrapper startR2 = reactionW.getBaseReactants().get(1);
@@ -46,9 +54,9 @@ public class AssociationReactionModel extends GenericReactionModel {
                 startR1.getCenterPoint(),
                 startR2.getCenterPoint(),
                 endR.getCenterPoint(), assocGlyphLocalCoords);
-        logger.trace("result: " + assocGlyphLocalCoords + " -> " + assocGlyphGlobalCoords);
+        logger.trace("result: {} -> {}", assocGlyphLocalCoords, assocGlyphGlobalCoords);
 
-        String assocId = "assoc_" + UUID.randomUUID();
+        String assocId = this.getIdGenerator().next("assoc");
         AssocDissoc association = new AssocDissoc(assocGlyphGlobalCoords, assocId, new StyleInfo(assocId));
 
         // get the relevant points
@@ -62,13 +70,13 @@ public class AssociationReactionModel extends GenericReactionModel {
         // branch 0
         List<Point2D.Float> absoluteEditPoints0 = getBranchPoints(reactionW, association.getGlyph().getCenter(), startR1coordPoint, 0);
         Collections.reverse(absoluteEditPoints0);
-        String link0Id = "cons_" + UUID.randomUUID();
+        String link0Id = this.getIdGenerator().next("cons");
         LinkModel link0 = new LinkModel(startModel0, association, new Link(absoluteEditPoints0),
                 link0Id, "consumption", new StyleInfo(lineW.getLineWidth(), lineW.getLineColor(), link0Id));
 
         List<Point2D.Float> absoluteEditPoints1 = getBranchPoints(reactionW, association.getGlyph().getCenter(), startR2coordPoint, 1);
         Collections.reverse(absoluteEditPoints1);
-        String link1Id = "cons_" + UUID.randomUUID();
+        String link1Id = this.getIdGenerator().next("cons");
         LinkModel link1 = new LinkModel(startModel1, association, new Link(absoluteEditPoints1),
                 link1Id, "consumption", new StyleInfo(lineW.getLineWidth(), lineW.getLineColor(), link1Id));
 
@@ -89,7 +97,7 @@ public class AssociationReactionModel extends GenericReactionModel {
                 else, if the link is pointing to the center and not the border of the glyph, process will get shifted
                 as the link is longer than what it appears.
              */
-            String prId = "pr_"+UUID.randomUUID();
+            String prId = this.getIdGenerator().next("pr");
             Process process = new Process(
                     GeometryUtils.getMiddleOfPolylineSegment(absoluteEditPoints2, reactionW.getProcessSegmentIndex()),
                     prId,
@@ -126,12 +134,12 @@ public class AssociationReactionModel extends GenericReactionModel {
             normalizedSubLinesTuple1.set(normalizedSubLinesTuple1.size() - 1, process.getPortIn());
             normalizedSubLinesTuple2.set(0, process.getPortOut());
 
-            String l21Id = "cons_" + UUID.randomUUID();
+            String l21Id = this.getIdGenerator().next("cons");
             LinkModel l21 = new LinkModel(association, process, new Link(normalizedSubLinesTuple1),
                     l21Id, "consumption", new StyleInfo(lineW.getLineWidth(),
                     lineW.getLineColor(), l21Id));
 
-            String l22Id = "prod_" + UUID.randomUUID();
+            String l22Id = this.getIdGenerator().next("prod");
             LinkModel l22 = new LinkModel(process, endModel, new Link(normalizedSubLinesTuple2),
                     l22Id, "production", new StyleInfo(lineW.getLineWidth(),
                     lineW.getLineColor(), l22Id));
@@ -152,10 +160,10 @@ public class AssociationReactionModel extends GenericReactionModel {
             this.getReactantModels().add(endModel);
             this.getReactionNodeModels().add(process);
             //this.getReactionNodeModels().add(association);
-            this.getLinkModels().add(mergedLink0);
-            this.getLinkModels().add(mergedLink1);
+            this.addLinkModel(mergedLink0);
+            this.addLinkModel(mergedLink1);
             //this.getLinkModels().add(l21);
-            this.getLinkModels().add(l22);
+            this.addLinkModel(l22);
 
             this.addModifiers(reactionW, process);
             this.addAdditionalReactants(reactionW, process);
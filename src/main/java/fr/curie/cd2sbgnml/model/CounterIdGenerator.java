@@ -0,0 +1,27 @@
+package fr.curie.cd2sbgnml.model;
+
+/**
+ * Builds ids from a base id that is already unique in the map, ex: the id of the reaction, and a counter.
+ * Ids are of the form prefix_base_n, with n starting at 1.
+ *
+ * Each instance has its own counter, so a generator must not be shared by elements using the same base,
+ * but instances used for different bases don't depend on each other.
+ */
+public class CounterIdGenerator implements IdGenerator {
+
+    private final String base;
+    private int counter;
+
+    /**
+     * @param base unique id of the element to which the generated ids belong
+     */
+    public CounterIdGenerator(String base) {
+        this.base = base;
+    }
+
+    @Override
+    public String next(String prefix) {
+        counter++;
+        return prefix + "_" + base + "_" + counter;
+    }
+}
@@ -25,7 +25,15 @@ public class DissociationReactionModel extends GenericReactionModel{
     private final Logger logger = LoggerFactory.getLogger(DissociationReactionModel.class);
 
     public DissociationReactionModel(ReactionWrapper reactionW) {
-        super(reactionW);
+        this(reactionW, new CounterIdGenerator(reactionW.getId()));
+    }
+
+    /**
+     * @param reactionW
+     * @param idGenerator gives the ids of the processes, links and logic gates created for this reaction
+     */
+    public DissociationReactionModel(ReactionWrapper reactionW, IdGenerator idGenerator) {
+        super(reactionW, idGenerator);
 
         ReactantWrapper startR = reactionW.getBaseReactants().get(0);
         ReactantWrapper endR1 = reactionW.getBaseProducts().get(0);
@@ -46,9 +54,9 @@ public class DissociationReactionModel extends GenericReactionModel{
                 startR.getCenterPoint(),
                 endR1.getCenterPoint(),
                 endR2.getCenterPoint(), assocGlyphLocalCoords);
-        logger.trace("result: " + assocGlyphLocalCoords + " -> " + assocGlyphGlobalCoords);
+        logger.trace("result: {} -> {}", assocGlyphLocalCoords, assocGlyphGlobalCoords);
 
-        String dissocId = "dissoc_" + UUID.randomUUID();
+        String dissocId = this.getIdGenerator().next("dissoc");
         AssocDissoc dissociation = new AssocDissoc(assocGlyphGlobalCoords, dissocId, new StyleInfo(dissocId));
 
         // get the relevant points
@@ -72,7 +80,7 @@ public class DissociationReactionModel extends GenericReactionModel{
                 AnchorPoint.CENTER,
                 endModel1.getAnchorPoint());
 
-        String link1Id = "prod_" + UUID.randomUUID();
+        String link1Id = this.getIdGenerator().next("prod");
         LinkModel link1 = new LinkModel(dissociation, endModel1, new Link(absoluteEditPoints1),
                 link1Id, "production", new StyleInfo(lineW.getLineWidth(), lineW.getLineColor(), link1Id));
 
@@ -83,7 +91,7 @@ public class DissociationReactionModel extends GenericReactionModel{
                 AnchorPoint.CENTER,
                 endModel2.getAnchorPoint());
 
-        String link2Id = "prod_" + UUID.randomUUID();
+        String link2Id = this.getIdGenerator().next("prod");
         LinkModel link2 = new LinkModel(dissociation, endModel2, new Link(absoluteEditPoints2),
                 link2Id, "production", new StyleInfo(lineW.getLineWidth(), lineW.getLineColor(), link2Id));
 
@@ -98,7 +106,7 @@ public class DissociationReactionModel extends GenericReactionModel{
 
                 also here the segment indexes are reversed, as the number starts from dissociation glyph
              */
-            String prId = "pr_"+UUID.randomUUID();
+            String prId = this.getIdGenerator().next("pr");
             Process process = new Process(
                     GeometryUtils.getMiddleOfPolylineSegment(absoluteEditPoints0,
                             absoluteEditPoints0.size() - 2 - reactionW.getProcessSegmentIndex()),
@@ -135,14 +143,14 @@ public class DissociationReactionModel extends GenericReactionModel{
             normalizedSubLinesTuple1.set(normalizedSubLinesTuple1.size() - 1, process.getPortIn());
             normalizedSubLinesTuple2.set(0, process.getPortOut());
 
-            String l21Id = "cons_" + UUID.randomUUID();
+            String l21Id = this.getIdGenerator().next("cons");
             LinkModel l21 = new LinkModel(startModel, process, new Link(normalizedSubLinesTuple1),
                     l21Id, "consumption", new StyleInfo(lineW.getLineWidth(), lineW.getLineColor(), l21Id));
 
-            String l22Id = "cons_" + UUID.randomUUID();
+            String l22Id = this.getIdGenerator().next("cons");
             LinkModel l22 = new LinkModel(process, dissociation, new Link(normalizedSubLinesTuple2),
                     l22Id, "consumption", new StyleInfo(lineW.getLineWidth(), lineW.getLineColor(), l22Id));
-            logger.trace("link edit points: "+l21.getLink().getStart()+" "+l21.getLink().getEditPoints());
+            logger.trace("link edit points: {} {}", l21.getLink().getStart(), l21.getLink().getEditPoints());
 
             // merge links to get rid of association glyph
             LinkModel mergedLink1 = l22.mergeWith(link1, "production", link1.getId());
@@ -159,10 +167,10 @@ public class DissociationReactionModel extends GenericReactionModel{
             this.getReactantModels().add(endModel2);
             this.getReactionNodeModels().add(process);
             //this.getReactionNodeModels().add(dissociation);
-            this.getLinkModels().add(l21);
+            this.addLinkModel(l21);
             //this.getLinkModels().add(l22);
-            this.getLinkModels().add(mergedLink1);
-            this.getLinkModels().add(mergedLink2);
+            this.addLinkModel(mergedLink1);
+            this.addLinkModel(mergedLink2);
 
             this.addModifiers(reactionW, process);
             this.addAdditionalReactants(reactionW, process);
@@ -1,8 +1,11 @@
 package fr.curie.cd2sbgnml.model;
 
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostics;
 import fr.curie.cd2sbgnml.graphics.AnchorPoint;
 import fr.curie.cd2sbgnml.graphics.GeometryUtils;
 import fr.curie.cd2sbgnml.graphics.Link;
+import fr.curie.cd2sbgnml.graphics.PolylineBuffer;
 
 import fr.curie.cd2sbgnml.xmlcdwrappers.*;
 import fr.curie.cd2sbgnml.xmlcdwrappers.LogicGateWrapper.LogicGateType;
@@ -25,19 +28,39 @@ public class GenericReactionModel {
     private List<ReactionNodeModel> reactionNodeModels;
     private List<ReactantModel> reactantModels;
     private List<LinkModel> linkModels;
+    /**
+     * Links starting or ending at each node, by node id, in the order they were added.
+     */
+    private Map<String, List<LinkModel>> incidentLinks;
 
     private ReactionType cdReactionType;
     private boolean hasProcess;
     private String id;
+    private IdGenerator idGenerator;
+    private Diagnostics diagnostics;
+    /**
+     * Reused by the conversions of all the links of the reaction.
+     */
+    private final PolylineBuffer polylineBuffer = new PolylineBuffer();
 
     public GenericReactionModel(ReactionWrapper reactionW) {
+        this(reactionW, new CounterIdGenerator(reactionW.getId()));
+    }
+
+    /**
+     * @param reactionW
+     * @param idGenerator gives the ids of the processes, links and logic gates created for this reaction
+     */
+    public GenericReactionModel(ReactionWrapper reactionW, IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
         this.reactionNodeModels = new ArrayList<>();
         this.reactantModels = new ArrayList<>();
         this.linkModels = new ArrayList<>();
+        this.incidentLinks = new HashMap<>();
         this.cdReactionType = reactionW.getReactionType();
         this.hasProcess = reactionW.hasProcess();
         this.id = reactionW.getId();
-
+        this.diagnostics = reactionW.getDiagnostics() != null ? reactionW.getDiagnostics() : new Diagnostics();
     }
 
     /**
@@ -46,44 +69,44 @@ public class GenericReactionModel {
      * @param process
      * @return
      */
-    private HashMap<ReactantWrapper, String> addLogicGates(ReactionWrapper reactionW, Process process) {
-        HashMap<ReactantWrapper, String> reactantToLogicGateMap = new HashMap<>();
+    private HashMap<ReactantWrapper, LogicGate> addLogicGates(ReactionWrapper reactionW, Process process) {
+        HashMap<ReactantWrapper, LogicGate> reactantToLogicGateMap = new HashMap<>();
+
+        // modifiers of each gate, found in one pass over the modifiers
+        Map<LogicGateWrapper, List<ReactantWrapper>> gateInputs = new IdentityHashMap<>();
+        for(ReactantWrapper reactantW: reactionW.getModifiers()) {
+            if(reactantW.getLogicGate() != null) {
+                gateInputs.computeIfAbsent(reactantW.getLogicGate(), k -> new ArrayList<>()).add(reactantW);
+            }
+        }
 
         for(LogicGateWrapper logicW: reactionW.getLogicGates()) {
-            logger.trace("logic gate: "+logicW.getModificationType()+" "+logicW.getType());
+            logger.trace("logic gate: {} {}", logicW.getModificationType(), logicW.getType());
 
 
             Point2D.Float processAnchorPoint = process.getAbsoluteAnchorCoords(logicW.getProcessAnchorIndex());
             // list edit points
             List<Point2D.Float> editPoints = logicW.getLineWrapper().getEditPoints(); // ReactionWrapper.getEditPointsForModifier(reactionW.getReaction(), logicW.getPositionIndex());
-            logger.trace("gate edit points "+editPoints);
+            logger.trace("gate edit points {}", editPoints);
 
             // process logic gate point
             Point2D.Float logicGateGlobalCoord = editPoints.get(editPoints.size() - 1); // last point listed in xml
             editPoints = editPoints.subList(0, editPoints.size() - 1);
-            logger.trace("Rest of edit points: "+editPoints);
+            logger.trace("Rest of edit points: {}", editPoints);
 
 
-            String logicId = "logicglyph_" + UUID.randomUUID();
+            String logicId = this.getIdGenerator().next("logicglyph");
             LogicGate logicGate = new LogicGate(logicGateGlobalCoord, logicId,
                     logicW.getType(),
                     // logic gate inherits the style of its link pointing to the process
                     new StyleInfo(logicW.getLineWrapper().getLineWidth(),
                             logicW.getLineWrapper().getLineColor(), logicId));
-            for(ReactantWrapper reactantW: reactionW.getModifiers()) {
-                if(reactantW.getLogicGate() != null && reactantW.getLogicGate().equals(logicW)) {
-                    reactantToLogicGateMap.put(reactantW, logicId);
-                }
+            for(ReactantWrapper reactantW: gateInputs.getOrDefault(logicW, Collections.emptyList())) {
+                reactantToLogicGateMap.put(reactantW, logicGate);
             }
 
-            AffineTransform transform =
-                    GeometryUtils.getTransformsToGlobalCoords(
-                            logicGateGlobalCoord,
-                            processAnchorPoint);
-            List<Point2D.Float> absoluteEditPoints = new ArrayList<>();
-            absoluteEditPoints.add(logicGateGlobalCoord);
-            absoluteEditPoints.addAll(GeometryUtils.convertPoints(editPoints, transform));
-            absoluteEditPoints.add(processAnchorPoint);
+            List<Point2D.Float> absoluteEditPoints =
+                    polylineBuffer.getGlobalPolyline(logicGateGlobalCoord, processAnchorPoint, editPoints);
 
             absoluteEditPoints = GeometryUtils.getNormalizedEndPoints(absoluteEditPoints,
                     logicGate.getGlyph(),
@@ -91,7 +114,7 @@ public class GenericReactionModel {
                     AnchorPoint.E,
                     AnchorPoint.E);
 
-            logger.trace("FINAL logic gate edit points "+absoluteEditPoints);
+            logger.trace("FINAL logic gate edit points {}", absoluteEditPoints);
 
             // port management
             Point2D.Float pIn = logicGate.getGlyph().getCenter();
@@ -101,14 +124,14 @@ public class GenericReactionModel {
             // replace the end and start points of the sublines by corresponding ports
             absoluteEditPoints.set(0, logicGate.getPortOut());
 
-            String logicArcId = "logicarc_" + UUID.randomUUID();
+            String logicArcId = this.getIdGenerator().next("logicarc");
             LinkModel logicLink = new LinkModel(logicGate, process, new Link(absoluteEditPoints),
                     logicArcId,
                     LinkModel.getSbgnClass(logicW.getModificationType()),
                     new StyleInfo(logicW.getLineWrapper().getLineWidth(),
                             logicW.getLineWrapper().getLineColor(), logicArcId));
             this.getReactionNodeModels().add(logicGate);
-            this.getLinkModels().add(logicLink);
+            this.addLinkModel(logicLink);
         }
 
         return reactantToLogicGateMap;
@@ -116,13 +139,14 @@ public class GenericReactionModel {
 
     public void addModifiers(ReactionWrapper reactionW, Process process) {
         // start with logic gates
-        HashMap<ReactantWrapper, String> reactantToLogicGateMap = this.addLogicGates(reactionW, process);
+        HashMap<ReactantWrapper, LogicGate> reactantToLogicGateMap = this.addLogicGates(reactionW, process);
         HashSet<ReactionNodeModel> logicGatesToBeRemoved = new HashSet<>();
         HashSet<LinkModel> logicLinksToBeRemoved = new HashSet<>();
+        List<String> redirectedModifiers = new ArrayList<>();
 
         for(ReactantWrapper reactantW: reactionW.getModifiers()) {
             // simple case, no logic gate
-            logger.trace("modifier: "+reactantW.getAliasW().getId());
+            logger.trace("modifier: {}", reactantW.getAliasW().getId());
 
             ReactantModel modifModel = new ReactantModel(reactantW);
 
@@ -136,25 +160,19 @@ public class GenericReactionModel {
             Point2D.Float genericNodeAnchorPoint;
             String linkType;
             if(reactantW.getLogicGate() != null) { // linked to logic gate
-                String logicId = reactantToLogicGateMap.get(reactantW);
-                for(ReactionNodeModel nodeModel: this.getReactionNodeModels()) {
-                    if(nodeModel.getId().equals(logicId)) {
-                        genericNode = nodeModel;
-                    }
-                }
+                genericNode = reactantToLogicGateMap.get(reactantW);
+                String logicId = genericNode.getId();
 
                 /*
                     Case of UNKNOWN logic gates, needs to be removed
                  */
                 LogicGateWrapper logicGate = reactantW.getLogicGate();
                 if(logicGate.getType() == LogicGateType.UNKNOWN) {
-                    logger.error("For reaction: "+this.getId()+" a glyph with ID: "+reactantW.getAliasW().getId()+
-                            " and glyph name: "+reactantW.getAliasW().getSpeciesW().getName()+
-                            " is linked to an UNKNOWN logic gate which cannot be translated. " +
-                            "The logic gate will be removed and the modifier will point directly to the process glyph.");
+                    redirectedModifiers.add("glyph with ID: "+reactantW.getAliasW().getId()+
+                            " and glyph name: "+reactantW.getAliasW().getSpeciesW().getName());
 
                     // find the link of this logic gate
-                    for(LinkModel linkModel: this.getLinkModels()) {
+                    for(LinkModel linkModel: this.getIncidentLinks(logicId)) {
                         if(linkModel.getStart().getId().equals(logicId)) {
                             logicLink = linkModel;
                         }
@@ -187,17 +205,12 @@ public class GenericReactionModel {
             }
 
 
-            logger.trace("edit points: "+editPoints);
+            logger.trace("edit points: {}", editPoints);
 
-            AffineTransform transform =
-                    GeometryUtils.getTransformsToGlobalCoords(
-                            modifModel.getAbsoluteAnchorCoordinate(
-                                    reactantW.getAnchorPoint()),
-                            genericNodeAnchorPoint);
-            List<Point2D.Float> absoluteEditPoints = new ArrayList<>();
-            absoluteEditPoints.add(modifModel.getAbsoluteAnchorCoordinate(reactantW.getAnchorPoint()));
-            absoluteEditPoints.addAll(GeometryUtils.convertPoints(editPoints, transform));
-            absoluteEditPoints.add(genericNodeAnchorPoint);
+            List<Point2D.Float> absoluteEditPoints = polylineBuffer.getGlobalPolyline(
+                    modifModel.getAbsoluteAnchorCoordinate(reactantW.getAnchorPoint()),
+                    genericNodeAnchorPoint,
+                    editPoints);
 
             absoluteEditPoints = GeometryUtils.getNormalizedEndPoints(absoluteEditPoints,
                     modifModel.getGlyph(),
@@ -205,7 +218,7 @@ public class GenericReactionModel {
                     modifModel.getAnchorPoint(),
                     AnchorPoint.E);
 
-            String modifId = "modif_" + UUID.randomUUID();
+            String modifId = this.getIdGenerator().next("modif");
             LinkModel modifLink = new LinkModel(modifModel, genericNode, new Link(absoluteEditPoints),
                     modifId,
                     linkType,
@@ -214,18 +227,21 @@ public class GenericReactionModel {
 
             // add everything to the reaction lists
             this.getReactantModels().add(modifModel);
-            this.getLinkModels().add(modifLink);
+            this.addLinkModel(modifLink);
         }
 
         // remove unwanted logic gates and their links
         if(logicGatesToBeRemoved.size() > 0) {
-            logger.error(logicGatesToBeRemoved.size()+" logic gates were removed for reaction "+this.getId());
+            diagnostics.error(Diagnostic.Type.LOGIC_GATE_REMOVED, this.getId(),
+                    logicGatesToBeRemoved.size()+" logic gates were removed for reaction "+this.getId()+
+                    ". UNKNOWN logic gates cannot be translated, the modifiers linked to them now point " +
+                    "directly to the process glyph: "+String.join(", ", redirectedModifiers));
         }
         for(ReactionNodeModel r: logicGatesToBeRemoved){
             this.getReactionNodeModels().remove(r);
         }
         for(LinkModel l: logicLinksToBeRemoved) {
-            this.getLinkModels().remove(l);
+            this.removeLinkModel(l);
         }
     }
 
@@ -233,23 +249,17 @@ public class GenericReactionModel {
         for(ReactantWrapper reactantW: reactionW.getAdditionalReactants()) {
             ReactantModel reactantModel = new ReactantModel(reactantW);
 
-            AffineTransform transform =
-                    GeometryUtils.getTransformsToGlobalCoords(
-                            reactantModel.getAbsoluteAnchorCoordinate(
-                                    reactantW.getAnchorPoint()),
-                            process.getAbsoluteAnchorCoords(0));
-
             int positionIndex = reactantW.getPositionIndex();
-            logger.trace("POSITION INDEX "+positionIndex);
+            logger.trace("POSITION INDEX {}", positionIndex);
             //Reaction reaction = reactionW.getReaction();
             List<Point2D.Float> editPoints = reactantW.getLineWrapper().getEditPoints();
-            logger.trace("ADDITIONAL REACT EDIT POINTS "+editPoints);
+            logger.trace("ADDITIONAL REACT EDIT POINTS {}", editPoints);
 
-            List<Point2D.Float> absoluteEditPoints = new ArrayList<>();
-            absoluteEditPoints.add(reactantModel.getAbsoluteAnchorCoordinate(reactantW.getAnchorPoint()));
-            absoluteEditPoints.addAll(GeometryUtils.convertPoints(editPoints, transform));
-            absoluteEditPoints.add(process.getAbsoluteAnchorCoords(0));
-            logger.trace("ABSOLUTE POINTS: "+absoluteEditPoints);
+            List<Point2D.Float> absoluteEditPoints = polylineBuffer.getGlobalPolyline(
+                    reactantModel.getAbsoluteAnchorCoordinate(reactantW.getAnchorPoint()),
+                    process.getAbsoluteAnchorCoords(0),
+                    editPoints);
+            logger.trace("ABSOLUTE POINTS: {}", absoluteEditPoints);
 
             Point2D.Float normalizedStart = GeometryUtils.normalizePoint(absoluteEditPoints.get(0),
                     absoluteEditPoints.get(1),
@@ -258,10 +268,10 @@ public class GenericReactionModel {
 
             List<Point2D.Float> normalizedEditPoints = new ArrayList<>();
             normalizedEditPoints.add(normalizedStart);
-            normalizedEditPoints.addAll(GeometryUtils.convertPoints(editPoints, transform));
+            normalizedEditPoints.addAll(absoluteEditPoints.subList(1, absoluteEditPoints.size() - 1));
             normalizedEditPoints.add(process.getPortIn());
 
-            String reactLinkId = "addreact_"+ UUID.randomUUID();
+            String reactLinkId = this.getIdGenerator().next("addreact");
             LinkModel reactLink = new LinkModel(reactantModel, process, new Link(normalizedEditPoints),
                     reactLinkId,
                     "consumption",
@@ -274,7 +284,7 @@ public class GenericReactionModel {
 
             // add everything to the reaction lists
             this.getReactantModels().add(reactantModel);
-            this.getLinkModels().add(reactLink);
+            this.addLinkModel(reactLink);
         }
     }
 
@@ -282,23 +292,17 @@ public class GenericReactionModel {
         for(ReactantWrapper reactantW: reactionW.getAdditionalProducts()) {
             ReactantModel reactantModel = new ReactantModel(reactantW);
 
-            AffineTransform transform =
-                    GeometryUtils.getTransformsToGlobalCoords(
-                            process.getAbsoluteAnchorCoords(1),
-                            reactantModel.getAbsoluteAnchorCoordinate(
-                                    reactantW.getAnchorPoint()));
-
             int positionIndex = reactantW.getPositionIndex();
-            logger.trace("POSITION INDEX "+positionIndex);
+            logger.trace("POSITION INDEX {}", positionIndex);
             //Reaction reaction = reactionW.getReaction();
             List<Point2D.Float> editPoints = reactantW.getLineWrapper().getEditPoints();
-            logger.trace("ADDITIONAL REACT EDIT POINTS "+editPoints);
+            logger.trace("ADDITIONAL REACT EDIT POINTS {}", editPoints);
 
-            List<Point2D.Float> absoluteEditPoints = new ArrayList<>();
-            absoluteEditPoints.add(process.getAbsoluteAnchorCoords(1));
-            absoluteEditPoints.addAll(GeometryUtils.convertPoints(editPoints, transform));
-            absoluteEditPoints.add(reactantModel.getAbsoluteAnchorCoordinate(reactantW.getAnchorPoint()));
-            logger.trace("ABSOLUTE POINTS: "+absoluteEditPoints);
+            List<Point2D.Float> absoluteEditPoints = polylineBuffer.getGlobalPolyline(
+                    process.getAbsoluteAnchorCoords(1),
+                    reactantModel.getAbsoluteAnchorCoordinate(reactantW.getAnchorPoint()),
+                    editPoints);
+            logger.trace("ABSOLUTE POINTS: {}", absoluteEditPoints);
 
             Point2D.Float normalizedEnd = GeometryUtils.normalizePoint(absoluteEditPoints.get(absoluteEditPoints.size() - 1),
                     absoluteEditPoints.get(absoluteEditPoints.size() - 2),
@@ -307,10 +311,10 @@ public class GenericReactionModel {
 
             List<Point2D.Float> normalizedEditPoints = new ArrayList<>();
             normalizedEditPoints.add(process.getPortOut());
-            normalizedEditPoints.addAll(GeometryUtils.convertPoints(editPoints, transform));
+            normalizedEditPoints.addAll(absoluteEditPoints.subList(1, absoluteEditPoints.size() - 1));
             normalizedEditPoints.add(normalizedEnd);
 
-            String reactLinkId = "addprod_" + UUID.randomUUID();
+            String reactLinkId = this.getIdGenerator().next("addprod");
             LinkModel reactLink = new LinkModel(process, reactantModel, new Link(normalizedEditPoints),
                     reactLinkId, "production",
                     new StyleInfo(reactantW.getLineWrapper().getLineWidth(),
@@ -318,7 +322,7 @@ public class GenericReactionModel {
 
             // add everything to the reaction lists
             this.getReactantModels().add(reactantModel);
-            this.getLinkModels().add(reactLink);
+            this.addLinkModel(reactLink);
         }
     }
 
@@ -353,25 +357,16 @@ public class GenericReactionModel {
     /**
      * already comprises start and end
      */
-    public static List<Point2D.Float> getBranchPoints(ReactionWrapper reactionW, Point2D.Float origin, Point2D.Float pX, int branch) {
-
-        List<Point2D.Float> absoluteEditPoints = new ArrayList<>();
-        absoluteEditPoints.add(origin);
-        logger.trace("local system: "+origin+" "+pX);
-        logger.trace("points for BRANCH "+branch+" "+ reactionW.getEditPointsForBranch(branch));
-
-        for (Point2D editP : reactionW.getEditPointsForBranch(branch)) {
-            Point2D p = new Point2D.Double(editP.getX(), editP.getY());
-
-            AffineTransform t = GeometryUtils.getTransformsToGlobalCoords(origin, pX);
-            t.transform(p, p);
-
-            logger.trace("BRANCH "+branch+" result: " + editP + " -> " + p.toString());
-            absoluteEditPoints.add(new Point2D.Float((float) p.getX(), (float) p.getY()));
+    public List<Point2D.Float> getBranchPoints(ReactionWrapper reactionW, Point2D.Float origin, Point2D.Float pX, int branch) {
 
+        logger.trace("local system: {} {}", origin, pX);
+        if(logger.isTraceEnabled()) {
+            logger.trace("points for BRANCH {} {}", branch, reactionW.getEditPointsForBranch(branch));
         }
-        absoluteEditPoints.add(pX);
-        logger.trace("BRANCH "+branch+" stack: "+absoluteEditPoints);
+
+        List<Point2D.Float> absoluteEditPoints = polylineBuffer.getGlobalPolyline(origin, pX,
+                reactionW.getEditPointsForBranch(branch));
+        logger.trace("BRANCH {} stack: {}", branch, absoluteEditPoints);
 
         return absoluteEditPoints;
     }
@@ -402,8 +397,46 @@ public class GenericReactionModel {
         return reactantModels;
     }
 
+    /**
+     * @return all links, in the order they were added. Use addLinkModel and removeLinkModel to change them.
+     */
     public List<LinkModel> getLinkModels() {
-        return linkModels;
+        return Collections.unmodifiableList(linkModels);
+    }
+
+    /**
+     * Add a link, and index it by the ids of its start and end.
+     * @param link
+     */
+    public void addLinkModel(LinkModel link) {
+        linkModels.add(link);
+        String startId = link.getStart().getId();
+        String endId = link.getEnd().getId();
+        incidentLinks.computeIfAbsent(startId, k -> new ArrayList<>()).add(link);
+        if(!endId.equals(startId)) {
+            incidentLinks.computeIfAbsent(endId, k -> new ArrayList<>()).add(link);
+        }
+    }
+
+    public void removeLinkModel(LinkModel link) {
+        if(!linkModels.remove(link)) {
+            return;
+        }
+        for(String nodeId: Arrays.asList(link.getStart().getId(), link.getEnd().getId())) {
+            List<LinkModel> links = incidentLinks.get(nodeId);
+            if(links != null) {
+                links.remove(link);
+            }
+        }
+    }
+
+    /**
+     * @param nodeId id of a process, logic gate or reactant of this reaction
+     * @return links starting or ending at this node, in the order they were added
+     */
+    public List<LinkModel> getIncidentLinks(String nodeId) {
+        List<LinkModel> links = incidentLinks.get(nodeId);
+        return links == null ? Collections.emptyList() : Collections.unmodifiableList(links);
     }
 
     public ReactionType getCdReactionType() {
@@ -414,7 +447,22 @@ public class GenericReactionModel {
         return hasProcess;
     }
 
+    /**
+     * @return where the problems found while building this reaction are reported
+     */
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
     public String getId() {
         return id;
     }
+
+    public PolylineBuffer getPolylineBuffer() {
+        return polylineBuffer;
+    }
+
+    public IdGenerator getIdGenerator() {
+        return idGenerator;
+    }
 }
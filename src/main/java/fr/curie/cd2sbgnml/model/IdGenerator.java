@@ -0,0 +1,16 @@
+package fr.curie.cd2sbgnml.model;
+
+/**
+ * Gives the ids of the elements created when converting a reaction: processes, links, logic gates...
+ *
+ * The default implementation is CounterIdGenerator, which gives the same ids at each conversion.
+ * Random ids, as used before, can be obtained with: prefix -> prefix + "_" + UUID.randomUUID()
+ */
+public interface IdGenerator {
+
+    /**
+     * @param prefix role of the element, ex: cons, prod, logicglyph
+     * @return a new id, starting with prefix, unique in the map
+     */
+    String next(String prefix);
+}
@@ -1,5 +1,6 @@
 package fr.curie.cd2sbgnml.model;
 
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
 import fr.curie.cd2sbgnml.graphics.*;
 import fr.curie.cd2sbgnml.xmlcdwrappers.ReactantWrapper;
 import fr.curie.cd2sbgnml.xmlcdwrappers.ReactionWrapper;
@@ -8,14 +9,12 @@ import fr.curie.cd2sbgnml.xmlcdwrappers.StyleInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * Used for construction of simple non-branching reactions.
@@ -25,7 +24,15 @@ public class SimpleReactionModel extends GenericReactionModel{
     private static final Logger logger = LoggerFactory.getLogger(SimpleReactionModel.class);
 
     public SimpleReactionModel(ReactionWrapper reactionW) {
-        super(reactionW);
+        this(reactionW, new CounterIdGenerator(reactionW.getId()));
+    }
+
+    /**
+     * @param reactionW
+     * @param idGenerator gives the ids of the processes, links and logic gates created for this reaction
+     */
+    public SimpleReactionModel(ReactionWrapper reactionW, IdGenerator idGenerator) {
+        super(reactionW, idGenerator);
 
         ReactantWrapper startR = reactionW.getBaseReactants().get(0);
         ReactantWrapper endR = reactionW.getBaseProducts().get(0);
@@ -37,12 +44,8 @@ public class SimpleReactionModel extends GenericReactionModel{
         Point2D.Float baseLinkEndPoint = endModel.getAbsoluteAnchorCoordinate(endR.getAnchorPoint());
 
         List<Point2D.Float> editPoints = reactionW.getLineWrapper().getEditPoints();
-        AffineTransform transform = GeometryUtils.getTransformsToGlobalCoords(baseLinkStartPoint, baseLinkEndPoint);
-
-        List<Point2D.Float> absoluteEditPoints = new ArrayList<>();
-        absoluteEditPoints.add(baseLinkStartPoint);
-        absoluteEditPoints.addAll(GeometryUtils.convertPoints(editPoints, transform));
-        absoluteEditPoints.add(baseLinkEndPoint);
+        List<Point2D.Float> absoluteEditPoints =
+                getPolylineBuffer().getGlobalPolyline(baseLinkStartPoint, baseLinkEndPoint, editPoints);
 
         absoluteEditPoints = GeometryUtils.getNormalizedEndPoints(absoluteEditPoints,
                 startModel.getGlyph(),
@@ -56,7 +59,7 @@ public class SimpleReactionModel extends GenericReactionModel{
                     absoluteEditPoints.get(reactionW.getProcessSegmentIndex() + 1));
             // corner case when both points of axis are the same, center is the same
 
-            String prId = "pr_"+UUID.randomUUID();
+            String prId = this.getIdGenerator().next("pr");
             Process process = new Process(
                     GeometryUtils.getMiddleOfPolylineSegment(absoluteEditPoints, reactionW.getProcessSegmentIndex()),
                     prId,
@@ -89,13 +92,13 @@ public class SimpleReactionModel extends GenericReactionModel{
             subLinesTuple1.set(subLinesTuple1.size() - 1, process.getPortIn());
             subLinesTuple2.set(0, process.getPortOut());
 
-            String l1Id = "cons_" + UUID.randomUUID();
+            String l1Id = this.getIdGenerator().next("cons");
             LinkModel l1 = new LinkModel(startModel, process, new Link(subLinesTuple1),
                     l1Id, "consumption",
                     new StyleInfo(reactionW.getLineWrapper().getLineWidth(),
                             reactionW.getLineWrapper().getLineColor(), l1Id));
 
-            String l2Id = "prod_" + UUID.randomUUID();
+            String l2Id = this.getIdGenerator().next("prod");
             LinkModel l2 = new LinkModel(process, endModel, new Link(subLinesTuple2),
                     l2Id, LinkModel.getSbgnClass(reactionW.getReactionType().toString()),
                     new StyleInfo(reactionW.getLineWrapper().getLineWidth(),
@@ -109,15 +112,15 @@ public class SimpleReactionModel extends GenericReactionModel{
             this.getReactantModels().add(startModel);
             this.getReactantModels().add(endModel);
             this.getReactionNodeModels().add(process);
-            this.getLinkModels().add(l1);
-            this.getLinkModels().add(l2);
+            this.addLinkModel(l1);
+            this.addLinkModel(l2);
 
             this.addModifiers(reactionW, process);
             this.addAdditionalReactants(reactionW, process);
             this.addAdditionalProducts(reactionW, process);
         }
         else {
-            String linkid = "direct_" + UUID.randomUUID();
+            String linkid = this.getIdGenerator().next("direct");
             LinkModel l1 = new LinkModel(startModel, endModel, new Link(absoluteEditPoints),
                     linkid, LinkModel.getSbgnClass(reactionW.getReactionType().toString()),
                     new StyleInfo(reactionW.getLineWrapper().getLineWidth(),
@@ -126,10 +129,11 @@ public class SimpleReactionModel extends GenericReactionModel{
             // add everything to the reaction lists
             this.getReactantModels().add(startModel);
             this.getReactantModels().add(endModel);
-            this.getLinkModels().add(l1);
+            this.addLinkModel(l1);
 
             if(reactionW.getModifiers().size() > 0) {
-                logger.error("Reaction "+reactionW.getId()+" with no process has "+reactionW.getModifiers().size()
+                getDiagnostics().error(Diagnostic.Type.INVALID_MODIFIER, reactionW.getId(),
+                        "Reaction with no process has "+reactionW.getModifiers().size()
                         +" modifier links that were removed.");
             }
 
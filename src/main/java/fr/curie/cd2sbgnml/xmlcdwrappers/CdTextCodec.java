@@ -0,0 +1,177 @@
+package fr.curie.cd2sbgnml.xmlcdwrappers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes and encodes the _token_ escapes CellDesigner uses in names (_br_, _plus_, _alpha_, _super_...).
+ *
+ * Both directions scan the string once, with tables built at class loading. No output is allocated when there
+ * is nothing to escape, the input string is returned as is.
+ */
+final class CdTextCodec {
+
+    /**
+     * CellDesigner token, without the surrounding underscores, and its UTF8 string.
+     */
+    private static final String[][] TOKENS = {
+            // special chars
+            {"br", "\n"}, {"plus", "+"}, {"minus", "-"}, {"slash", "/"}, {"underscore", "_"}, {"space", " "},
+            // greek small letters
+            {"alpha", "α"}, {"beta", "β"}, {"gamma", "γ"}, {"delta", "δ"}, {"epsilon", "ε"}, {"zeta", "ζ"},
+            {"eta", "η"}, {"theta", "θ"}, {"iota", "ι"}, {"kappa", "κ"}, {"lambda", "λ"}, {"mu", "μ"},
+            {"nu", "ν"}, {"xi", "ξ"}, {"omicron", "ο"}, {"pi", "π"}, {"rho", "ρ"}, {"sigma", "σ"},
+            {"tau", "τ"}, {"upsilon", "υ"}, {"phi", "φ"}, {"chi", "χ"}, {"psi", "ψ"}, {"omega", "ω"},
+            // greek capital letters
+            {"Alpha", "Α"}, {"Beta", "Β"}, {"Gamma", "Γ"}, {"Delta", "Δ"}, {"Epsilon", "Ε"}, {"Zeta", "Ζ"},
+            {"Eta", "Η"}, {"Theta", "Θ"}, {"Iota", "Ι"}, {"Kappa", "Κ"}, {"Lambda", "Λ"}, {"Mu", "Μ"},
+            {"Nu", "Ν"}, {"Xi", "Ξ"}, {"Omicron", "Ο"}, {"Pi", "Π"}, {"Rho", "Ρ"}, {"Sigma", "Σ"},
+            {"Tau", "Τ"}, {"Upsilon", "Υ"}, {"Phi", "Φ"}, {"Chi", "Χ"}, {"Psi", "Ψ"}, {"Omega", "Ω"},
+            // super and subscript are dropped, for lack of management possibility
+            {"super", ""}, {"endsuper", ""}, {"sub", ""}, {"endsub", ""}
+    };
+
+    private static final char FIRST_GREEK = 'Α';
+    private static final char LAST_GREEK = 'ω';
+
+    /**
+     * Tokens indexed by their first letter, ASCII letters only.
+     */
+    private static final String[][][] DECODE_TABLE = new String[128][][];
+
+    /**
+     * CellDesigner token of each greek letter, indexed by letter - FIRST_GREEK.
+     */
+    private static final String[] ENCODE_TABLE = new String[LAST_GREEK - FIRST_GREEK + 1];
+
+    static {
+        List<List<String[]>> buckets = new ArrayList<>();
+        for(int i=0; i < DECODE_TABLE.length; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for(String[] token: TOKENS) {
+            buckets.get(token[0].charAt(0)).add(token);
+            if(token[1].length() == 1 && token[1].charAt(0) >= FIRST_GREEK && token[1].charAt(0) <= LAST_GREEK) {
+                ENCODE_TABLE[token[1].charAt(0) - FIRST_GREEK] = "_" + token[0] + "_";
+            }
+        }
+        for(int i=0; i < DECODE_TABLE.length; i++) {
+            if(!buckets.get(i).isEmpty()) {
+                DECODE_TABLE[i] = buckets.get(i).toArray(new String[0][]);
+            }
+        }
+    }
+
+    private CdTextCodec() {}
+
+    /**
+     * Replace CellDesigner tokens by their UTF8 chars. Tokens are read from left to right and the decoded
+     * chars are not scanned again, so _underscore_alpha_ gives _alpha_.
+     * @param s
+     * @return
+     */
+    static String decode(String s) {
+        int start = s.indexOf('_');
+        if(start < 0) {
+            return s;
+        }
+
+        StringBuilder sb = null;
+        int copied = 0; // everything before this index is already in sb
+        int i = start;
+        while(i >= 0) {
+            int end = s.indexOf('_', i + 1);
+            if(end < 0) {
+                break;
+            }
+            String replacement = getReplacement(s, i + 1, end);
+            if(replacement == null) {
+                // the closing underscore may open the next token
+                i = end;
+                continue;
+            }
+            if(sb == null) {
+                sb = new StringBuilder(s.length());
+            }
+            sb.append(s, copied, i).append(replacement);
+            copied = end + 1;
+            i = s.indexOf('_', copied);
+        }
+
+        if(sb == null) {
+            return s;
+        }
+        return sb.append(s, copied, s.length()).toString();
+    }
+
+    /**
+     * @param s
+     * @param from start of the token name, after the opening underscore
+     * @param to index of the closing underscore
+     * @return the UTF8 string of the token, null if it isn't a known token
+     */
+    private static String getReplacement(String s, int from, int to) {
+        if(from == to) {
+            return null;
+        }
+        char first = s.charAt(from);
+        if(first >= DECODE_TABLE.length || DECODE_TABLE[first] == null) {
+            return null;
+        }
+        int length = to - from;
+        for(String[] token: DECODE_TABLE[first]) {
+            if(token[0].length() == length && s.regionMatches(from, token[0], 0, length)) {
+                return token[1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replace line breaks, +, -, /, spaces and greek letters by CellDesigner tokens. Encoded line breaks
+     * (&amp;#10;) are also turned into _br_. Underscores are left as is.
+     * @param s
+     * @return
+     */
+    static String encode(String s) {
+        StringBuilder sb = null;
+        int copied = 0;
+        for(int i=0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String replacement;
+            int skip = 0;
+            switch(c) {
+                case '\n': replacement = "_br_"; break;
+                case '+': replacement = "_plus_"; break;
+                case '-': replacement = "_minus_"; break;
+                case '/': replacement = "_slash_"; break;
+                case ' ': replacement = "_space_"; break;
+                case '&':
+                    if(s.startsWith("&#10;", i)) {
+                        replacement = "_br_";
+                        skip = 4;
+                    }
+                    else {
+                        replacement = null;
+                    }
+                    break;
+                default:
+                    replacement = c >= FIRST_GREEK && c <= LAST_GREEK ? ENCODE_TABLE[c - FIRST_GREEK] : null;
+            }
+            if(replacement == null) {
+                continue;
+            }
+            if(sb == null) {
+                sb = new StringBuilder(s.length() + 16);
+            }
+            sb.append(s, copied, i).append(replacement);
+            i += skip;
+            copied = i + 1;
+        }
+
+        if(sb == null) {
+            return s;
+        }
+        return sb.append(s, copied, s.length()).toString();
+    }
+}
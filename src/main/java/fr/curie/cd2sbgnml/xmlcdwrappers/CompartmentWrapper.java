@@ -83,7 +83,9 @@ public class CompartmentWrapper implements INotesFeature, IAnnotationsFeature {
             compartment.setNotes(notes);
         }
 
-        annotation.getAny().add(this.getAnnotations());
+        if(this.getAnnotations() != null) {
+            annotation.getAny().add(this.getAnnotations());
+        }
         return compartment;
     }
 
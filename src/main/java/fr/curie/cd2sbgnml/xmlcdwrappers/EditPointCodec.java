@@ -0,0 +1,206 @@
+package fr.curie.cd2sbgnml.xmlcdwrappers;
+
+/**
+ * Reads and writes the "x,y" strings CellDesigner uses for edit points.
+ *
+ * Parsing scans the chars once, without regex, split or substring. Decimal numbers are accumulated in a long
+ * and scaled by an exact power of ten, which gives the same float as Float.parseFloat. Rare inputs where
+ * this could round differently (too many digits, value close to the middle of 2 floats, large exponent,
+ * NaN...) go through Float.parseFloat.
+ * Writing uses a fixed number of decimals, instead of the 17 digits of the float widened to a double.
+ */
+final class EditPointCodec {
+
+    /**
+     * Decimals written for each coordinate. Edit points are relative coordinates, or absolute coordinates
+     * for logic gates, this is far below the pixel.
+     */
+    static final int FRACTION_DIGITS = 6;
+
+    private static final long FRACTION_SCALE = 1000000;
+
+    private static final long[] POWERS_OF_TEN_LONG = {1, 10, 100, 1000, 10000, 100000};
+
+    /**
+     * Above this, coordinates are written with Float.toString.
+     */
+    private static final float MAX_FIXED = 1e9f;
+
+    /**
+     * Max number of significant digits kept in the long, the rest is truncated.
+     */
+    private static final int MAX_DIGITS = 18;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private EditPointCodec() {}
+
+    /**
+     * Parse a "x,y" string.
+     * @param s
+     * @param out array receiving x at offset and y at offset + 1
+     * @param offset
+     * @throws NumberFormatException if s isn't 2 numbers separated by a comma
+     */
+    static void parse(String s, float[] out, int offset) {
+        int comma = s.indexOf(',');
+        if(comma < 0 || s.indexOf(',', comma + 1) >= 0) {
+            throw new NumberFormatException("Edit point should be of the form x,y: "+s);
+        }
+        out[offset] = parseFloat(s, 0, comma);
+        out[offset + 1] = parseFloat(s, comma + 1, s.length());
+    }
+
+    /**
+     * @param s
+     * @param start
+     * @param end
+     * @return the float written in s between start and end, with optional surrounding spaces
+     * @throws NumberFormatException
+     */
+    static float parseFloat(String s, int start, int end) {
+        while(start < end && s.charAt(start) == ' ') {
+            start++;
+        }
+        while(end > start && s.charAt(end - 1) == ' ') {
+            end--;
+        }
+
+        int i = start;
+        boolean negative = false;
+        if(i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean hasDigit = false;
+        for(; i < end && isDigit(s.charAt(i)); i++) {
+            hasDigit = true;
+            if(digits < MAX_DIGITS) {
+                mantissa = mantissa * 10 + (s.charAt(i) - '0');
+                if(mantissa != 0) {
+                    digits++;
+                }
+            }
+            else {
+                exponent++;
+            }
+        }
+        if(i < end && s.charAt(i) == '.') {
+            for(i++; i < end && isDigit(s.charAt(i)); i++) {
+                hasDigit = true;
+                if(digits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (s.charAt(i) - '0');
+                    if(mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                }
+            }
+        }
+        if(hasDigit && i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if(i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                negativeExponent = s.charAt(i) == '-';
+                i++;
+            }
+            int explicitExponent = 0;
+            int exponentStart = i;
+            for(; i < end && isDigit(s.charAt(i)) && i - exponentStart < 4; i++) {
+                explicitExponent = explicitExponent * 10 + (s.charAt(i) - '0');
+            }
+            if(i == exponentStart) {
+                hasDigit = false;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if(!hasDigit || i != end) {
+            // NaN, Infinity, hexadecimal, type suffix or malformed: let the JDK decide
+            return Float.parseFloat(s.substring(start, end));
+        }
+
+        if(mantissa == 0) {
+            return negative ? -0f : 0f;
+        }
+        if(exponent < -POWERS_OF_TEN.length + 1 || exponent > POWERS_OF_TEN.length - 1) {
+            return Float.parseFloat(s.substring(start, end));
+        }
+        double value = exponent < 0
+                ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+        float result = (float) value;
+        if(!isSafelyRounded(value, result)) {
+            return Float.parseFloat(s.substring(start, end));
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * The double is within a few ulps of the exact decimal value. Rounding it to a float gives the correctly
+     * rounded float, unless it is so close to a float midpoint that the exact value may be on the other side.
+     * @param value
+     * @param rounded
+     * @return
+     */
+    private static boolean isSafelyRounded(double value, float rounded) {
+        if(Float.isInfinite(rounded) || rounded < Float.MIN_NORMAL) {
+            return false;
+        }
+        double tolerance = 4 * Math.ulp(value);
+        double lowerMidpoint = ((double) rounded + Math.nextDown(rounded)) / 2;
+        double upperMidpoint = ((double) rounded + Math.nextUp(rounded)) / 2;
+        return Math.abs(value - lowerMidpoint) > tolerance && Math.abs(value - upperMidpoint) > tolerance;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @param x
+     * @param y
+     * @return the "x,y" string of an edit point
+     */
+    static String format(float x, float y) {
+        StringBuilder sb = new StringBuilder(24);
+        appendFloat(sb, x);
+        sb.append(',');
+        appendFloat(sb, y);
+        return sb.toString();
+    }
+
+    /**
+     * Append f with FRACTION_DIGITS decimals, trailing zeros removed but at least one decimal kept.
+     * @param sb
+     * @param f
+     */
+    static void appendFloat(StringBuilder sb, float f) {
+        if(!(Math.abs(f) < MAX_FIXED)) { // also true for NaN
+            sb.append(f);
+            return;
+        }
+        long scaled = Math.round((double) f * FRACTION_SCALE);
+        if(scaled < 0) {
+            sb.append('-');
+            scaled = -scaled;
+        }
+        sb.append(scaled / FRACTION_SCALE).append('.');
+
+        long fraction = scaled % FRACTION_SCALE;
+        int length = FRACTION_DIGITS;
+        while(length > 1 && fraction % 10 == 0) {
+            fraction /= 10;
+            length--;
+        }
+        for(long divisor = POWERS_OF_TEN_LONG[length - 1]; divisor > 0; divisor /= 10) {
+            sb.append((char) ('0' + fraction / divisor % 10));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package fr.curie.cd2sbgnml.xmlcdwrappers;
+
+import java.awt.geom.Point2D;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Edit points of a CellDesigner line, stored as x0, y0, x1, y1... in a single float array instead of one
+ * Point2D object per point.
+ *
+ * It can be used as any List of points: get() returns a new Point2D.Float each time, so modifying the returned
+ * point does nothing, use set() instead. getX and getY read the coordinates without creating a point.
+ */
+public class EditPointList extends AbstractList<Point2D.Float> implements RandomAccess {
+
+    private float[] coords;
+    private int size;
+
+    public EditPointList() {
+        this(0);
+    }
+
+    /**
+     * @param capacity number of points that can be added before the array needs to grow
+     */
+    public EditPointList(int capacity) {
+        this.coords = new float[capacity * 2];
+    }
+
+    /**
+     * @param points
+     * @return a packed copy of the points, or the list itself if it is already an EditPointList
+     */
+    public static EditPointList of(List<Point2D.Float> points) {
+        if(points instanceof EditPointList) {
+            return (EditPointList) points;
+        }
+        EditPointList result = new EditPointList(points.size());
+        for(Point2D.Float p: points) {
+            result.add(p.x, p.y);
+        }
+        return result;
+    }
+
+    /**
+     * @param editPoints "x,y" strings, as in the CellDesigner xml
+     * @return
+     * @throws NumberFormatException if a string isn't of the form x,y
+     */
+    public static EditPointList parse(List<String> editPoints) {
+        EditPointList result = new EditPointList(editPoints.size());
+        for(String pointString: editPoints) {
+            EditPointCodec.parse(pointString, result.coords, result.size * 2);
+            result.size++;
+        }
+        return result;
+    }
+
+    /**
+     * @return an independent list with the same points
+     */
+    public EditPointList copy() {
+        EditPointList result = new EditPointList();
+        result.coords = Arrays.copyOf(coords, size * 2);
+        result.size = size;
+        return result;
+    }
+
+    /**
+     * @return the "x,y" strings of the points, as in the CellDesigner xml
+     */
+    public List<String> toStringList() {
+        List<String> result = new ArrayList<>(size);
+        for(int i=0; i < size; i++) {
+            result.add(EditPointCodec.format(coords[2 * i], coords[2 * i + 1]));
+        }
+        return result;
+    }
+
+    public float getX(int index) {
+        checkIndex(index);
+        return coords[2 * index];
+    }
+
+    public float getY(int index) {
+        checkIndex(index);
+        return coords[2 * index + 1];
+    }
+
+    public void add(float x, float y) {
+        ensureCapacity(size + 1);
+        coords[2 * size] = x;
+        coords[2 * size + 1] = y;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Point2D.Float get(int index) {
+        checkIndex(index);
+        return new Point2D.Float(coords[2 * index], coords[2 * index + 1]);
+    }
+
+    @Override
+    public Point2D.Float set(int index, Point2D.Float point) {
+        Point2D.Float previous = get(index);
+        coords[2 * index] = point.x;
+        coords[2 * index + 1] = point.y;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Point2D.Float point) {
+        if(index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(coords, 2 * index, coords, 2 * index + 2, 2 * (size - index));
+        coords[2 * index] = point.x;
+        coords[2 * index + 1] = point.y;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Point2D.Float remove(int index) {
+        Point2D.Float previous = get(index);
+        System.arraycopy(coords, 2 * index + 2, coords, 2 * index, 2 * (size - index - 1));
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void ensureCapacity(int points) {
+        if(points * 2 > coords.length) {
+            coords = Arrays.copyOf(coords, Math.max(points * 2, coords.length * 2));
+        }
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+        }
+    }
+}
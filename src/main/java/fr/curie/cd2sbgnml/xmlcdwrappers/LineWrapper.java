@@ -17,7 +17,7 @@ public class LineWrapper {
     private String lineColor;
     private String lineType;
 
-    private List<Point2D.Float> editPoints;
+    private EditPointList editPoints = new EditPointList();
     private int num0, num1, num2;
     private int tShapeIndex;
 
@@ -40,30 +40,26 @@ public class LineWrapper {
 
     public LineWrapper(ConnectScheme connectScheme, List<String> editPoints, Line line) {
         this(connectScheme, line.getWidth().floatValue(), line.getColor(), null);
-        List<Point2D.Float> pointList = new ArrayList<>();
         if(editPoints != null) {
-            for (String pointString : editPoints) {
-                String[] tmp = pointString.split(",");
-                float x = Float.parseFloat(tmp[0]);
-                float y = Float.parseFloat(tmp[1]);
-                pointList.add(new Point2D.Float(x, y));
-            }
+            this.editPoints = EditPointList.parse(editPoints);
         }
-        this.editPoints = pointList;
+    }
+
+    public LineWrapper(ConnectScheme connectScheme, EditPointList editPoints, Line line) {
+        this(connectScheme, line.getWidth().floatValue(), line.getColor(), null);
+        this.editPoints = editPoints;
     }
 
     public LineWrapper(ConnectScheme connectScheme, List<String> editPoints, LineType2 line) {
         this(connectScheme, line.getWidth().floatValue(), line.getColor(), line.getType());
-        List<Point2D.Float> pointList = new ArrayList<>();
         if(editPoints != null) {
-            for (String pointString : editPoints) {
-                String[] tmp = pointString.split(",");
-                float x = Float.parseFloat(tmp[0]);
-                float y = Float.parseFloat(tmp[1]);
-                pointList.add(new Point2D.Float(x, y));
-            }
+            this.editPoints = EditPointList.parse(editPoints);
         }
-        this.editPoints = pointList;
+    }
+
+    public LineWrapper(ConnectScheme connectScheme, EditPointList editPoints, LineType2 line) {
+        this(connectScheme, line.getWidth().floatValue(), line.getColor(), line.getType());
+        this.editPoints = editPoints;
     }
 
     private LineWrapper(ConnectScheme connectScheme, float width, String color, String type) {
@@ -106,14 +102,7 @@ public class LineWrapper {
                 this.tShapeIndex = editPoints.getTShapeIndex();
             }
             if(editPoints.getValue() != null) { // should never be null
-                List<Point2D.Float> pointList = new ArrayList<>();
-                for (String pointString : editPoints.getValue()) {
-                    String[] tmp = pointString.split(",");
-                    float x = Float.parseFloat(tmp[0]);
-                    float y = Float.parseFloat(tmp[1]);
-                    pointList.add(new Point2D.Float(x, y));
-                }
-                this.editPoints = pointList;
+                this.editPoints = EditPointList.parse(editPoints.getValue());
             }
         }
     }
@@ -154,19 +143,13 @@ public class LineWrapper {
             editPoints.setTShapeIndex((short) this.gettShapeIndex());
         }
 
-        for(Point2D.Float p: this.getEditPoints()){
-            editPoints.getValue().add(p.getX()+","+p.getY());
-        }
+        editPoints.getValue().addAll(this.editPoints.toStringList());
 
         return editPoints;
     }
 
     public List<String> editPointsAsStringList() {
-        List<String> editPointString = new ArrayList<>();
-        for(Point2D.Float p: this.getEditPoints()) {
-            editPointString.add(p.getX()+","+p.getY());
-        }
-        return editPointString;
+        return editPoints.toStringList();
     }
 
     public float getLineWidth() {
@@ -193,15 +176,12 @@ public class LineWrapper {
         this.lineType = lineType;
     }
 
-    public List<Point2D.Float> getEditPoints() {
-        if(editPoints == null) {
-            return new ArrayList<>();
-        }
+    public EditPointList getEditPoints() {
         return editPoints;
     }
 
     public void setEditPoints(List<Point2D.Float> editPoints) {
-        this.editPoints = editPoints;
+        this.editPoints = editPoints == null ? new EditPointList() : EditPointList.of(editPoints);
     }
 
     public int getNum0() {
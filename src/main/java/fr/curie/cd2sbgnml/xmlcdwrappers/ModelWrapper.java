@@ -1,5 +1,7 @@
 package fr.curie.cd2sbgnml.xmlcdwrappers;
 
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostics;
 import org.sbml._2001.ns.celldesigner.*;
 import org.sbml.sbml.level2.version4.*;
 import org.sbml.sbml.level2.version4.Species;
@@ -9,13 +11,65 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Gives access to the elements of a CellDesigner model, through lists, maps by id and wrappers.
+ *
+ * Only the basic lists are set at creation. Maps and wrappers are built the first time they are needed, and
+ * then kept. Wrappers are built in groups: all the species and alias wrappers at once, all the reaction wrappers
+ * at once. A ModelWrapper can be shared between threads, each index is built only once.
+ */
 public class ModelWrapper {
 
     private final Logger logger = LoggerFactory.getLogger(ModelWrapper.class);
 
+    /**
+     * Value computed on first access, then kept. The value is published through a volatile field, so it is
+     * computed once and fully visible to all threads.
+     */
+    static final class Lazy<T> {
+        private final Supplier<T> supplier;
+        private volatile T value;
+
+        Lazy(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        T get() {
+            T result = value;
+            if(result == null) {
+                synchronized (this) {
+                    result = value;
+                    if(result == null) {
+                        result = supplier.get();
+                        value = result;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Species and alias wrappers, built together as species wrappers create their alias wrappers.
+     */
+    private static final class SpeciesIndex {
+        final List<SpeciesWrapper> listOfSpeciesWrapper = new ArrayList<>();
+        final List<AliasWrapper> listofAliasWrapper = new ArrayList<>();
+        final HashMap<String, SpeciesWrapper> mapOfSpeciesWrapper = new HashMap<>();
+        final HashMap<String, AliasWrapper> mapOfAliasWrapper = new HashMap<>();
+    }
+
+    private static final class ReactionIndex {
+        final List<ReactionWrapper> listOfReactionWrapper = new ArrayList<>();
+        final HashMap<String, ReactionWrapper> mapOfReactionWrapper = new HashMap<>();
+        final HashMap<String, List<ReactantWrapper>> alias2reactantWrapper = new HashMap<>();
+    }
 
     private Model model;
+    private Diagnostics diagnostics;
 
     // basic lists
     private List<Species> listOfSpecies;
@@ -31,39 +85,46 @@ public class ModelWrapper {
     private List<Gene> listOfGene;
     private List<Layer> listOfLayers;
 
-    private HashMap<String, Species> mapOfSpecies;
-    private HashMap<String, org.sbml._2001.ns.celldesigner.Species> mapOfIncludedSpecies;
-    private HashMap<String, Protein> mapOfProtein;
-    private HashMap<String, RNA> mapOfRna;
-    private HashMap<String, AntisenseRNA> mapOfAntisenseRna;
-    private HashMap<String, Gene> mapOfGene;
-
-    private HashMap<String, List<CompartmentAlias>> compartment2aliasMap;
-    private HashMap<String, List<SpeciesAlias>> species2aliasMap;
-    private HashMap<String, List<ComplexSpeciesAlias>> complexSpecies2aliasMap;
-
-    private List<SpeciesWrapper> listOfSpeciesWrapper; // doesn't contain included species!
-    private List<AliasWrapper> listofAliasWrapper;
-    private List<TextWrapper> listofTextWrapper;
-    private HashMap<String, SpeciesWrapper> mapOfSpeciesWrapper;
-    private HashMap<String, AliasWrapper> mapOfAliasWrapper;
-
-
-    private HashMap<String, List<AliasWrapper>> complexSpeciesAlias2speciesAliasWrapper;
-    //private HashMap<String, fr.curie.cd2sbgnml.xmlcdwrappers.AliasWrapper> globalAliasMap;
-
-    private List<ReactionWrapper> listOfReactionWrapper;
-    private HashMap<String, ReactionWrapper> mapOfReactionWrapper;
-    private HashMap<String, List<ReactantWrapper>> alias2reactantWrapper;
+    private final Lazy<HashMap<String, Species>> mapOfSpecies =
+            new Lazy<>(() -> indexById(listOfSpecies, Species::getId));
+    private final Lazy<HashMap<String, org.sbml._2001.ns.celldesigner.Species>> mapOfIncludedSpecies =
+            new Lazy<>(() -> indexById(listOfIncludedSpecies, org.sbml._2001.ns.celldesigner.Species::getId));
+    private final Lazy<HashMap<String, Protein>> mapOfProtein =
+            new Lazy<>(() -> indexById(listOfProtein, Protein::getId));
+    private final Lazy<HashMap<String, RNA>> mapOfRna =
+            new Lazy<>(() -> indexById(listOfRna, RNA::getId));
+    private final Lazy<HashMap<String, AntisenseRNA>> mapOfAntisenseRna =
+            new Lazy<>(() -> indexById(listOfAntisenseRna, AntisenseRNA::getId));
+    private final Lazy<HashMap<String, Gene>> mapOfGene =
+            new Lazy<>(() -> indexById(listOfGene, Gene::getId));
+
+    private final Lazy<HashMap<String, List<CompartmentAlias>>> compartment2aliasMap =
+            new Lazy<>(() -> groupBy(listOfCompartmentAliases, CompartmentAlias::getCompartment));
+    private final Lazy<HashMap<String, List<SpeciesAlias>>> species2aliasMap =
+            new Lazy<>(() -> groupBy(listOfSpeciesAliases, SpeciesAlias::getSpecies));
+    private final Lazy<HashMap<String, List<ComplexSpeciesAlias>>> complexSpecies2aliasMap =
+            new Lazy<>(() -> groupBy(listOfComplexSpeciesAliases, ComplexSpeciesAlias::getSpecies));
+
+    private final Lazy<SpeciesIndex> speciesIndex = new Lazy<>(this::buildSpeciesIndex);
+    private final Lazy<List<TextWrapper>> listofTextWrapper = new Lazy<>(this::buildTextWrappers);
+    private final Lazy<HashMap<String, List<AliasWrapper>>> complexSpeciesAlias2speciesAliasWrapper =
+            new Lazy<>(this::buildComplexNestingIndex);
+    private final Lazy<ReactionIndex> reactionIndex = new Lazy<>(this::buildReactionIndex);
 
     public static ModelWrapper create(Sbml sbmlDoc) {
+        return create(sbmlDoc, new Diagnostics());
+    }
+
+    /**
+     * @param sbmlDoc
+     * @param diagnostics receives the problems found while reading the model
+     * @return
+     */
+    public static ModelWrapper create(Sbml sbmlDoc, Diagnostics diagnostics) {
         ModelWrapper modelW = new ModelWrapper();
         modelW.model = sbmlDoc.getModel();
+        modelW.diagnostics = diagnostics;
         modelW.addBasicLists();
-        modelW.addBasicMaps();
-        modelW.addWrapperListsAndMaps();
-        modelW.addComplexNestingIndex();
-        modelW.addReactionStructures();
         return modelW;
     }
 
@@ -91,7 +152,7 @@ public class ModelWrapper {
 
         // list reactions if present
         if(model.getListOfReactions() == null || model.getListOfReactions().getReaction().size()  == 0) {
-            logger.warn("No reaction found.");
+            diagnostics.warn(Diagnostic.Type.NO_REACTION, null, "No reaction found.");
             this.listOfReactions = new ArrayList<>();
         }
         else {
@@ -102,162 +163,117 @@ public class ModelWrapper {
         this.listOfRna = model.getAnnotation().getExtension().getListOfRNAs().getRNA();
         this.listOfAntisenseRna = model.getAnnotation().getExtension().getListOfAntisenseRNAs().getAntisenseRNA();
         this.listOfGene = model.getAnnotation().getExtension().getListOfGenes().getGene();
-        this.listOfLayers = model.getAnnotation().getExtension().getListOfLayers().getLayer();
+        if(model.getAnnotation().getExtension().getListOfLayers() != null) {
+            this.listOfLayers = model.getAnnotation().getExtension().getListOfLayers().getLayer();
+        }
+        else {
+            this.listOfLayers = new ArrayList<>();
+        }
+    }
 
-        this.listofTextWrapper = new ArrayList<>();
+    private List<TextWrapper> buildTextWrappers() {
+        List<TextWrapper> textWrappers = new ArrayList<>();
         for(Layer layer: this.listOfLayers) {
             // loop through the texts of the layer, if texts are defined
             if(layer.getListOfTexts() != null) {
                 for(LayerSpeciesAlias text: layer.getListOfTexts().getLayerSpeciesAlias()) {
-                    this.listofTextWrapper.add(new TextWrapper(text, layer.isVisible()));
+                    textWrappers.add(new TextWrapper(text, layer.isVisible()));
                 }
             }
         }
+        return textWrappers;
     }
 
     /**
      * index celldesigner api elements through maps
      */
-    private void addBasicMaps() {
-        this.mapOfSpecies = new HashMap<>();
-        for(Species species: this.listOfSpecies) {
-            this.mapOfSpecies.put(species.getId(), species);
-        }
-
-        this.mapOfIncludedSpecies = new HashMap<>();
-        for(org.sbml._2001.ns.celldesigner.Species species: this.listOfIncludedSpecies) {
-            this.mapOfIncludedSpecies.put(species.getId(), species);
-        }
-
-        this.mapOfProtein = new HashMap<>();
-        for(Protein pr: this.listOfProtein) {
-            this.mapOfProtein.put(pr.getId(), pr);
-        }
-
-        this.mapOfRna = new HashMap<>();
-        for(RNA pr: this.listOfRna) {
-            this.mapOfRna.put(pr.getId(), pr);
-        }
-
-        this.mapOfAntisenseRna = new HashMap<>();
-        for(AntisenseRNA pr: this.listOfAntisenseRna) {
-            this.mapOfAntisenseRna.put(pr.getId(), pr);
-        }
-
-        this.mapOfGene = new HashMap<>();
-        for(Gene pr: this.listOfGene) {
-            this.mapOfGene.put(pr.getId(), pr);
-        }
-
-
-        this.compartment2aliasMap = new HashMap<>();
-        for(CompartmentAlias alias: this.listOfCompartmentAliases) {
-            if(!this.compartment2aliasMap.containsKey(alias.getCompartment())) {
-                this.compartment2aliasMap.put(alias.getCompartment(), new ArrayList<>());
-            }
-            this.compartment2aliasMap.get(alias.getCompartment()).add(alias);
-        }
-
-        this.species2aliasMap = new HashMap<>();
-        for(SpeciesAlias alias: this.listOfSpeciesAliases) {
-            if(!this.species2aliasMap.containsKey(alias.getSpecies())) {
-                this.species2aliasMap.put(alias.getSpecies(), new ArrayList<>());
-            }
-            this.species2aliasMap.get(alias.getSpecies()).add(alias);
+    private static <T> HashMap<String, T> indexById(List<T> elements, Function<T, String> getId) {
+        HashMap<String, T> map = new HashMap<>();
+        for(T element: elements) {
+            map.put(getId.apply(element), element);
         }
+        return map;
+    }
 
-        this.complexSpecies2aliasMap = new HashMap<>();
-        for(ComplexSpeciesAlias alias: this.listOfComplexSpeciesAliases) {
-            if(!this.complexSpecies2aliasMap.containsKey(alias.getSpecies())) {
-                this.complexSpecies2aliasMap.put(alias.getSpecies(), new ArrayList<>());
-            }
-            this.complexSpecies2aliasMap.get(alias.getSpecies()).add(alias);
+    private static <T> HashMap<String, List<T>> groupBy(List<? extends T> elements, Function<T, String> getKey) {
+        HashMap<String, List<T>> map = new HashMap<>();
+        for(T element: elements) {
+            map.computeIfAbsent(getKey.apply(element), k -> new ArrayList<>()).add(element);
         }
+        return map;
     }
 
     /**
      * create, store and index wrappers for celldesigner api elements
      */
-    private void addWrapperListsAndMaps() {
-        this.listOfSpeciesWrapper = new ArrayList<>();
-        this.listofAliasWrapper = new ArrayList<>();
-        this.mapOfSpeciesWrapper = new HashMap<>();
-        this.mapOfAliasWrapper = new HashMap<>();
+    private SpeciesIndex buildSpeciesIndex() {
+        SpeciesIndex index = new SpeciesIndex();
 
-        logger.info("Wrapping "+this.listOfSpecies.size()+" species");
+        logger.debug("Wrapping {} species", this.listOfSpecies.size());
         for(Species species: this.listOfSpecies) {
-            logger.debug("Parse species: "+species.getId());
-            SpeciesWrapper speciesW = new SpeciesWrapper(species, this);
-            this.listOfSpeciesWrapper.add(speciesW);
-            this.mapOfSpeciesWrapper.put(speciesW.getId(), speciesW);
-            for(AliasWrapper aliasW : speciesW.getAliases()) {
-                this.listofAliasWrapper.add(aliasW);
-                this.mapOfAliasWrapper.put(aliasW.getId(), aliasW);
-            }
+            logger.debug("Parse species: {}", species.getId());
+            addSpeciesWrapper(index, new SpeciesWrapper(species, this));
         }
-        logger.info(this.listofAliasWrapper.size()+" alias wrapper added");
+        logger.debug("{} alias wrapper added", index.listofAliasWrapper.size());
 
-        logger.info("Wrapping "+this.listOfIncludedSpecies.size()+" included species");
+        logger.debug("Wrapping {} included species", this.listOfIncludedSpecies.size());
         for(org.sbml._2001.ns.celldesigner.Species species: this.listOfIncludedSpecies) {
-            logger.debug("Parse included species: "+species.getId());
-            SpeciesWrapper speciesW = new SpeciesWrapper(species, this);
-            this.listOfSpeciesWrapper.add(speciesW);
-            this.mapOfSpeciesWrapper.put(speciesW.getId(), speciesW);
-            for(AliasWrapper aliasW : speciesW.getAliases()) {
-                this.listofAliasWrapper.add(aliasW);
-                this.mapOfAliasWrapper.put(aliasW.getId(), aliasW);
-            }
+            logger.debug("Parse included species: {}", species.getId());
+            addSpeciesWrapper(index, new SpeciesWrapper(species, this));
+        }
+        logger.debug("{} species wrapper total", index.listOfSpeciesWrapper.size());
+        logger.debug("{} alias wrapper total", index.listofAliasWrapper.size());
+        return index;
+    }
+
+    private static void addSpeciesWrapper(SpeciesIndex index, SpeciesWrapper speciesW) {
+        index.listOfSpeciesWrapper.add(speciesW);
+        index.mapOfSpeciesWrapper.put(speciesW.getId(), speciesW);
+        for(AliasWrapper aliasW : speciesW.getAliases()) {
+            index.listofAliasWrapper.add(aliasW);
+            index.mapOfAliasWrapper.put(aliasW.getId(), aliasW);
         }
-        logger.info(this.listOfSpeciesWrapper.size()+" species wrapper total");
-        logger.info(this.listofAliasWrapper.size()+" alias wrapper total");
-        //        logger.info(this.mapOfAliasWrapper.get("c_a157").toString());
     }
 
-    private void addComplexNestingIndex() {
+    private HashMap<String, List<AliasWrapper>> buildComplexNestingIndex() {
         // complex nesting tree
-        this.complexSpeciesAlias2speciesAliasWrapper = new HashMap<>();
-        //this.globalAliasMap = new HashMap<>();
+        HashMap<String, List<AliasWrapper>> nestingIndex = new HashMap<>();
         for(ComplexSpeciesAlias complexAlias: this.listOfComplexSpeciesAliases) {
-            //logger.info("Fetching wrapper for complex alias: "+complexAlias.getId());
-            AliasWrapper aliasW = this.getAliasWrapperFor(complexAlias.getId());
-            if(aliasW.getComplexAlias() != null) {
-                if(!this.complexSpeciesAlias2speciesAliasWrapper.containsKey(aliasW.getComplexAlias())) {
-                    this.complexSpeciesAlias2speciesAliasWrapper.put(aliasW.getComplexAlias(), new ArrayList<>());
-                }
-                this.complexSpeciesAlias2speciesAliasWrapper.get(aliasW.getComplexAlias()).add(aliasW);
-            }
-            //globalAliasMap.put(complexAlias.getId(), aliasW);
+            addToNestingIndex(nestingIndex, this.getAliasWrapperFor(complexAlias.getId()));
         }
         for(SpeciesAlias alias: this.listOfSpeciesAliases) {
-            //logger.info("Fetching wrapper for alias: "+alias.getId());
-            AliasWrapper aliasW = this.getAliasWrapperFor(alias.getId());
-            if(aliasW.getComplexAlias() != null) {
-                if(!this.complexSpeciesAlias2speciesAliasWrapper.containsKey(aliasW.getComplexAlias())) {
-                    this.complexSpeciesAlias2speciesAliasWrapper.put(aliasW.getComplexAlias(), new ArrayList<>());
-                }
-                this.complexSpeciesAlias2speciesAliasWrapper.get(aliasW.getComplexAlias()).add(aliasW);
-            }
-            //globalAliasMap.put(alias.getId(), aliasW);
+            addToNestingIndex(nestingIndex, this.getAliasWrapperFor(alias.getId()));
         }
+        return nestingIndex;
     }
 
-    private void addReactionStructures() {
-        this.listOfReactionWrapper = new ArrayList<>();
-        this.mapOfReactionWrapper = new HashMap<>();
-        this.alias2reactantWrapper = new HashMap<>();
+    private static void addToNestingIndex(HashMap<String, List<AliasWrapper>> nestingIndex, AliasWrapper aliasW) {
+        if(aliasW.getComplexAlias() != null) {
+            nestingIndex.computeIfAbsent(aliasW.getComplexAlias(), k -> new ArrayList<>()).add(aliasW);
+        }
+    }
+
+    private ReactionIndex buildReactionIndex() {
+        ReactionIndex index = new ReactionIndex();
 
         for(Reaction reaction: this.listOfReactions) {
-            logger.info("Parse reaction "+reaction.getId());
+            logger.debug("Parse reaction {}", reaction.getId());
             ReactionWrapper reactionW = new ReactionWrapper(reaction, this);
-            this.listOfReactionWrapper.add(reactionW);
-            this.mapOfReactionWrapper.put(reactionW.getId(), reactionW);
+            index.listOfReactionWrapper.add(reactionW);
+            index.mapOfReactionWrapper.put(reactionW.getId(), reactionW);
             for(ReactantWrapper reactantW: reactionW.getReactantList()) {
-                if(!this.alias2reactantWrapper.containsKey(reactantW.getAliasW().getId())) {
-                    this.alias2reactantWrapper.put(reactantW.getAliasW().getId(), new ArrayList<>());
-                }
-                this.alias2reactantWrapper.get(reactantW.getAliasW().getId()).add(reactantW);
+                index.alias2reactantWrapper.computeIfAbsent(reactantW.getAliasW().getId(), k -> new ArrayList<>())
+                        .add(reactantW);
             }
         }
+        return index;
+    }
+
+    /**
+     * @return problems found in this model, during reading and conversion
+     */
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
     }
 
     public Model getModel() {
@@ -269,7 +285,7 @@ public class ModelWrapper {
     }
 
     public Species getSpecies(String id) {
-        return this.mapOfSpecies.get(id);
+        return this.mapOfSpecies.get().get(id);
     }
 
     public List<Compartment> getListOfCompartments() {
@@ -281,7 +297,7 @@ public class ModelWrapper {
     }
 
     public org.sbml._2001.ns.celldesigner.Species getIncludedSpecies(String id) {
-        return this.mapOfIncludedSpecies.get(id);
+        return this.mapOfIncludedSpecies.get().get(id);
     }
 
     public List<CompartmentAlias> getListOfCompartmentAliases() {
@@ -317,63 +333,63 @@ public class ModelWrapper {
     }
 
     public Protein getProtein(String id) {
-        return this.mapOfProtein.get(id);
+        return this.mapOfProtein.get().get(id);
     }
 
     public RNA getRNA(String id) {
-        return this.mapOfRna.get(id);
+        return this.mapOfRna.get().get(id);
     }
 
     public AntisenseRNA getAntisenseRNA(String id) {
-        return this.mapOfAntisenseRna.get(id);
+        return this.mapOfAntisenseRna.get().get(id);
     }
 
     public Gene getGene(String id) {
-        return this.mapOfGene.get(id);
+        return this.mapOfGene.get().get(id);
     }
 
     public List<CompartmentAlias> getCompartmentAliasFor(String compartmentId) {
-        return this.compartment2aliasMap.get(compartmentId);
+        return this.compartment2aliasMap.get().get(compartmentId);
     }
 
     public List<SpeciesAlias> getSpeciesAliasFor(String speciesId) {
-        return this.species2aliasMap.get(speciesId);
+        return this.species2aliasMap.get().get(speciesId);
     }
 
     public List<ComplexSpeciesAlias> getComplexSpeciesAliasFor(String speciesId) {
-        return this.complexSpecies2aliasMap.get(speciesId);
+        return this.complexSpecies2aliasMap.get().get(speciesId);
     }
 
     public List<AliasWrapper> getIncludedAliasWrapperFor(String complexAliasId) {
-        return this.complexSpeciesAlias2speciesAliasWrapper.get(complexAliasId);
+        return this.complexSpeciesAlias2speciesAliasWrapper.get().get(complexAliasId);
     }
 
     public AliasWrapper getAliasWrapperFor(String aliasId) {
-        return this.mapOfAliasWrapper.get(aliasId);
+        return this.speciesIndex.get().mapOfAliasWrapper.get(aliasId);
     }
 
     public SpeciesWrapper getSpeciesWrapperFor(String speciesId) {
-        return this.mapOfSpeciesWrapper.get(speciesId);
+        return this.speciesIndex.get().mapOfSpeciesWrapper.get(speciesId);
     }
 
     public List<SpeciesWrapper> getListOfSpeciesWrapper() {
-        return listOfSpeciesWrapper;
+        return speciesIndex.get().listOfSpeciesWrapper;
     }
 
     public List<AliasWrapper> getListofAliasWrapper() {
-        return listofAliasWrapper;
+        return speciesIndex.get().listofAliasWrapper;
     }
 
     public List<ReactionWrapper> getListOfReactionWrapper() {
-        return listOfReactionWrapper;
+        return reactionIndex.get().listOfReactionWrapper;
     }
 
     public ReactionWrapper getReactionWrapperFor(String reactionId) {
-        return this.mapOfReactionWrapper.get(reactionId);
+        return this.reactionIndex.get().mapOfReactionWrapper.get(reactionId);
     }
 
     public List<ReactantWrapper> getReactionWrappersForAlias(String aliasId) {
-        return this.alias2reactantWrapper.get(aliasId);
+        return this.reactionIndex.get().alias2reactantWrapper.get(aliasId);
     }
 
     public List<Layer> getListOfLayers() {
@@ -381,7 +397,7 @@ public class ModelWrapper {
     }
 
     public List<TextWrapper> getListofTextWrapper() {
-        return listofTextWrapper;
+        return listofTextWrapper.get();
     }
 
 
@@ -218,7 +218,7 @@ public class ReactantWrapper {
 
         int i=0;
         for(Modification modif: listOfModification.getModification()) {
-            logger.debug("Parsing modification "+modif.getModifiers()+" "+modif.getType());
+            logger.debug("Parsing modification {} {}", modif.getModifiers(), modif.getType());
             if(isLogicGate(modif)){ // logic gate case
                 logicGateRef = new LogicGateWrapper(modif, i);
                 logicGateWrapperList.add(logicGateRef);
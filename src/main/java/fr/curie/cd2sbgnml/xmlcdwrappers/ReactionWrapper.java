@@ -1,5 +1,7 @@
 package fr.curie.cd2sbgnml.xmlcdwrappers;
 
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostics;
 import org.sbml._2001.ns.celldesigner.*;
 import org.sbml._2001.ns.celldesigner.ReactionAnnotationType.Extension;
 import org.sbml.sbml.level2.version4.*;
@@ -31,6 +33,7 @@ public class ReactionWrapper implements INotesFeature, IAnnotationsFeature {
     private LineWrapper lineWrapper;
     private Element notes;
     private Element annotations;
+    private Diagnostics diagnostics;
 
     public ReactionWrapper (String id, ReactionType type,
                             List<ReactantWrapper> baseReactants, List<ReactantWrapper> baseProducts) {
@@ -46,6 +49,7 @@ public class ReactionWrapper implements INotesFeature, IAnnotationsFeature {
 
     public ReactionWrapper (Reaction reaction, ModelWrapper modelW) {
         this.id = reaction.getId();
+        this.diagnostics = modelW.getDiagnostics();
 
         this.baseReactants = new ArrayList<>();
         this.baseProducts = new ArrayList<>();
@@ -53,6 +57,12 @@ public class ReactionWrapper implements INotesFeature, IAnnotationsFeature {
         this.additionalProducts = new ArrayList<>();
         this.modifiers = new ArrayList<>();
         this.logicGates = new ArrayList<>();
+        /*
+         * in ACSN, connectScheme element is missing in some places (apoptosis)
+         */
+        if(reaction.getAnnotation().getExtension().getConnectScheme() == null) {
+            diagnostics.warn(Diagnostic.Type.MISSING_CONNECT_SCHEME, this.id, "ConnectScheme element missing");
+        }
         this.processSegmentIndex = getProcessSegment(reaction);
         this.reactionType = ReactionType.valueOf(reaction.getAnnotation().getExtension().getReactionType());
         this.hasProcess = hasProcess(reaction);
@@ -112,11 +122,7 @@ public class ReactionWrapper implements INotesFeature, IAnnotationsFeature {
     public static int getProcessSegment(Reaction reaction) {
         ConnectScheme connectScheme = reaction.getAnnotation().getExtension().getConnectScheme();
 
-        /*
-         * in ACSN, connectScheme element is missing in some places (apoptosis)
-         */
         if(connectScheme == null) {
-            logger.warn("ConnectScheme element missing for reaction: "+reaction.getId());
             return 0;
         }
 
@@ -166,23 +172,11 @@ public class ReactionWrapper implements INotesFeature, IAnnotationsFeature {
      * @return
      */
     public static List<Point2D.Float> parseEditPointsString(String editPointString) {
-        List<Point2D.Float> editPoints = new ArrayList<>();
-        Arrays.stream(editPointString.split(" ")).
-                forEach(e -> {
-                    String[] tmp = e.split(",");
-                    editPoints.add(new Point2D.Float(Float.parseFloat(tmp[0]), Float.parseFloat(tmp[1])));
-                });
-        return editPoints;
+        return EditPointList.parse(Arrays.asList(editPointString.split(" ")));
     }
 
     public static List<Point2D.Float> parseEditPointsString(List<String> editPointString) {
-        List<Point2D.Float> editPoints = new ArrayList<>();
-        editPointString.stream().
-                forEach(e -> {
-                    String[] tmp = e.split(",");
-                    editPoints.add(new Point2D.Float(Float.parseFloat(tmp[0]), Float.parseFloat(tmp[1])));
-                });
-        return editPoints;
+        return EditPointList.parse(editPointString);
     }
 
     /**
@@ -331,7 +325,8 @@ public class ReactionWrapper implements INotesFeature, IAnnotationsFeature {
         ext.setLine(this.getLineWrapper().getCDLine());
         boolean isBranchType =
                 this.getReactionType() == ReactionType.HETERODIMER_ASSOCIATION
-                || this.getReactionType() == ReactionType.DISSOCIATION;
+                || this.getReactionType() == ReactionType.DISSOCIATION
+                || this.getReactionType() == ReactionType.TRUNCATION;
 
         if(this.getLineWrapper().getEditPoints().size() > 0) {
             ext.setEditPoints(this.getLineWrapper().getCDEditPoints(isBranchType));
@@ -403,15 +398,17 @@ public class ReactionWrapper implements INotesFeature, IAnnotationsFeature {
                 reaction.setListOfModifiers(listOfModifiers);
 
                 ListOfModification listOfModification = new ListOfModification();
-                logger.debug("Number of modifiers to serialize: " + this.getModifiers().size());
+                logger.debug("Number of modifiers to serialize: {}", this.getModifiers().size());
                 for (ReactantWrapper w : this.getModifiers()) {
                     listOfModification.getModification().add((Modification) w.getCDElement());
 
                     // create associated speciesReference for the sbml list
-                    logger.debug("modif type: " + w.getModificationLinkType() + " " + w.getAliasW() + " " + this.getId() +
-                            " " + this.getModifiers().size() + " " + (w instanceof LogicGateWrapper));
-                    if (w.getAliasW() != null)
-                        logger.debug("isincluded ? " + w.getAliasW().getSpeciesW().isIncludedSpecies());
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("modif type: {} {} {} {} {}", w.getModificationLinkType(), w.getAliasW(),
+                                this.getId(), this.getModifiers().size(), w instanceof LogicGateWrapper);
+                        if (w.getAliasW() != null)
+                            logger.debug("isincluded ? {}", w.getAliasW().getSpeciesW().isIncludedSpecies());
+                    }
                     /*
                         Logic gates are not listed in the species reference
                         If included species, the species reference must be the one of the topmost parent complex
@@ -541,6 +538,13 @@ public class ReactionWrapper implements INotesFeature, IAnnotationsFeature {
         return modifiers;
     }
 
+    /**
+     * @return problems found in the model of this reaction, null for reactions built from SBGN-ML
+     */
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
     public int getProcessSegmentIndex() {
         return processSegmentIndex;
     }
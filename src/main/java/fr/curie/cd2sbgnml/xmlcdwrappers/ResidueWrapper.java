@@ -1,12 +1,10 @@
 package fr.curie.cd2sbgnml.xmlcdwrappers;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostics;
 
 public class ResidueWrapper {
 
-    private static final Logger logger = LoggerFactory.getLogger(ResidueWrapper.class);
-
     public String id;
     public float angle;
     public float relativePos; // between 0 and 1
@@ -25,6 +23,16 @@ public class ResidueWrapper {
     }
 
     public static String getShortState(String state) {
+        return getShortState(state, new Diagnostics(), null);
+    }
+
+    /**
+     * @param state CellDesigner state, ex: phosphorylated
+     * @param diagnostics receives a warning if the state is not recognized
+     * @param elementId id of the element having the residue, can be null
+     * @return the SBGN state variable value, ex: P. Unrecognized states are left as is.
+     */
+    public static String getShortState(String state, Diagnostics diagnostics, String elementId) {
         switch(state) {
             case "phosphorylated": return "P";
             case "acetylated": return "Ac";
@@ -42,12 +50,23 @@ public class ResidueWrapper {
             case "": return "";
             case "empty": return "";
             default:
-                logger.warn("Residue state: "+state+" not recognized, left as is");
+                diagnostics.warn(Diagnostic.Type.UNKNOWN_RESIDUE_STATE, elementId,
+                        "Residue state: "+state+" not recognized, left as is");
                 return state;
         }
     }
 
     public static String getLongState(String state) {
+        return getLongState(state, new Diagnostics(), null);
+    }
+
+    /**
+     * @param state SBGN state variable value, ex: P
+     * @param diagnostics receives an error if the state is not recognized
+     * @param elementId id of the element having the state variable, can be null
+     * @return the CellDesigner state, ex: phosphorylated. Unrecognized states are set to empty.
+     */
+    public static String getLongState(String state, Diagnostics diagnostics, String elementId) {
         switch(state) {
             case "P": return "phosphorylated";
             case "Ac": return "acetylated";
@@ -64,7 +83,8 @@ public class ResidueWrapper {
             case "S": return "sulfated";
             case "": return "";
             default:
-                logger.warn("Residue state: "+state+" not recognized, set to empty as it will not be " +
+                diagnostics.error(Diagnostic.Type.UNKNOWN_RESIDUE_STATE, elementId,
+                        "Residue state: "+state+" not recognized, set to empty as it will not be " +
                         "recognized by CellDesigner.");
                 return "";
         }
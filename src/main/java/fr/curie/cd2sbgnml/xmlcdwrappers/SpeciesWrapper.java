@@ -1,5 +1,6 @@
 package fr.curie.cd2sbgnml.xmlcdwrappers;
 
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
 import org.sbgn.bindings.Glyph;
 import org.sbml._2001.ns.celldesigner.*;
 import org.sbml.sbml.level2.version4.SBase;
@@ -140,12 +141,12 @@ public class SpeciesWrapper implements INotesFeature, IAnnotationsFeature {
 
 
         if(this.isComplex) {
-            logger.debug("Species has "+modelW.getComplexSpeciesAliasFor(this.id).size()+" complexSpeciesAliases");
+            logger.debug("Species has {} complexSpeciesAliases", modelW.getComplexSpeciesAliasFor(this.id).size());
             for(ComplexSpeciesAlias complexAlias : modelW.getComplexSpeciesAliasFor(this.id)) {
                 if (complexAlias == null) {
                     continue;
                 }
-                logger.debug("Parse complex alias: " + complexAlias.getId());
+                logger.debug("Parse complex alias: {}", complexAlias.getId());
                 this.aliases.add(new AliasWrapper(complexAlias, this));
             }
         }
@@ -157,15 +158,16 @@ public class SpeciesWrapper implements INotesFeature, IAnnotationsFeature {
          */
         if(modelW.getSpeciesAliasFor(this.id) != null) {
             if(this.isComplex) {
-                logger.warn("Complex species: "+this.id+" shouldn't have non-complex aliases");
+                modelW.getDiagnostics().warn(Diagnostic.Type.COMPLEX_WITH_SIMPLE_ALIAS, this.id,
+                        "Complex species shouldn't have non-complex aliases");
             }
 
-            logger.debug("Species has "+modelW.getSpeciesAliasFor(this.id).size()+" speciesAliases");
+            logger.debug("Species has {} speciesAliases", modelW.getSpeciesAliasFor(this.id).size());
             for(SpeciesAlias alias : modelW.getSpeciesAliasFor(this.id)) {
                 if (alias == null) {
                     continue;
                 }
-                logger.debug("Parse alias: " + alias.getId());
+                logger.debug("Parse alias: {}", alias.getId());
                 this.aliases.add(new AliasWrapper(alias, this));
             }
         }
@@ -183,7 +185,7 @@ public class SpeciesWrapper implements INotesFeature, IAnnotationsFeature {
 
                 mapOfReferenceModif = new HashMap<>();
                 for (ModificationResidue modif : listOfReferenceModif) {
-                    logger.debug("Residue found for "+prot.getId()+" resid "+modif.getId()+" angle "+modif.getAngle());
+                    logger.debug("Residue found for {} resid {} angle {}", prot.getId(), modif.getId(), modif.getAngle());
                     ResidueWrapper residueWrapper = new ResidueWrapper(modif.getId());
                     residueWrapper.angle = modif.getAngle().floatValue();
                     if(modif.getName() != null) {
@@ -191,7 +193,7 @@ public class SpeciesWrapper implements INotesFeature, IAnnotationsFeature {
                     }
                     mapOfReferenceModif.put(residueWrapper.id, residueWrapper);
                 }
-                logger.debug(mapOfReferenceModif.size()+" res for protein "+protId);
+                logger.debug("{} res for protein {}", mapOfReferenceModif.size(), protId);
             }
 
             this.type = getTypeFromString(prot.getType());
@@ -234,7 +236,7 @@ public class SpeciesWrapper implements INotesFeature, IAnnotationsFeature {
             if(gene.getListOfRegions() != null) {
                 // loop through reference list of regions
                 mapOfReferenceModif = mapOfRegion(gene.getListOfRegions());
-                logger.debug("GENE MODIF COUNT: "+mapOfReferenceModif.size()+" "+gene.getListOfRegions().getRegion().size());
+                logger.debug("GENE MODIF COUNT: {} {}", mapOfReferenceModif.size(), gene.getListOfRegions().getRegion().size());
 
             }
 
@@ -267,7 +269,7 @@ public class SpeciesWrapper implements INotesFeature, IAnnotationsFeature {
 
                 // loop through the species' residues
                 for (ListOfModifications.Modification modif : listOfModif) {
-                    logger.debug("adding state: "+modif.getState()+" for res "+modif.getResidue());
+                    logger.debug("adding state: {} for res {}", modif.getState(), modif.getResidue());
                     String residueId = modif.getResidue();
                     ResidueWrapper residueWrapper = mapOfReferenceModif.get(residueId);
                     /*
@@ -279,7 +281,8 @@ public class SpeciesWrapper implements INotesFeature, IAnnotationsFeature {
                         residueWrapper.state = modif.getState();
                     }
                     else {
-                        logger.error("Residue "+residueId+" doesn't exist in referenced protein.");
+                        modelW.getDiagnostics().error(Diagnostic.Type.UNKNOWN_RESIDUE, this.id,
+                                "Residue "+residueId+" doesn't exist in referenced protein.");
                     }
                 }
 
@@ -288,7 +291,7 @@ public class SpeciesWrapper implements INotesFeature, IAnnotationsFeature {
         }
         // finally set this species' residue wrapper list
         this.residues.addAll(mapOfReferenceModif.values());
-        logger.debug("final residue size for species "+this.getId()+" : "+this.residues.size());
+        logger.debug("final residue size for species {} : {}", this.getId(), this.residues.size());
 
     }
 
@@ -2,7 +2,6 @@ package fr.curie.cd2sbgnml.xmlcdwrappers;
 
 import org.sbml._2001.ns.celldesigner.*;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -11,21 +10,21 @@ import java.util.Map;
  *
  * For compartments, thickness + outer/2 + inner/2 are fused together into lineWidth.
  * Gradients are not considered.
- * CellDesigner stores colors in argb format, all colors will be stored as lowercase argb hex string, no #.
+ * CellDesigner stores colors in argb format. Colors are stored packed in an int, and given as lowercase argb hex
+ * string, no #, by the String getters.
  */
 public class StyleInfo {
 
-    private static final String DEFAULT_BG_COLOR = "00ffffff"; // white transparent as default default
-    private static final String DEFAULT_LINE_COLOR = "ff000000"; // black opaque default
+    private static final int DEFAULT_BG_COLOR = 0x00ffffff; // white transparent as default default
+    private static final int DEFAULT_LINE_COLOR = 0xff000000; // black opaque default
     private static final float DEFAULT_FONT_SIZE = 12;
     private static final float DEFAULT_LINE_WIDTH = 1;
 
     private float lineWidth;
-    private String bgColor;
+    private int bgColor;
     private float fontSize;
-    private String lineColor;
+    private int lineColor;
     private String refId;
-    private String id;
 
     /**
      * Default value constructor
@@ -36,19 +35,17 @@ public class StyleInfo {
         this.lineColor = DEFAULT_LINE_COLOR;
         this.lineWidth = DEFAULT_LINE_WIDTH;
         this.refId = refId;
-        this.id = generateStyleId();
     }
 
     /**
      * Create style info from other style info, changing the reference.
      */
     public StyleInfo(StyleInfo previousInfo, String refId) {
-        this.bgColor = previousInfo.getBgColor();
+        this.bgColor = previousInfo.getBgArgb();
         this.fontSize = previousInfo.getFontSize();
-        this.lineColor = previousInfo.getLineColor();
+        this.lineColor = previousInfo.getLineArgb();
         this.lineWidth = previousInfo.getLineWidth();
         this.refId = refId;
-        this.id = generateStyleId();
     }
 
     public StyleInfo(CompartmentAlias compAlias, String refId) {
@@ -62,8 +59,7 @@ public class StyleInfo {
         this.lineWidth = doubleLine.getThickness().floatValue()
                 + doubleLine.getOuterWidth().floatValue() / 2
                 + doubleLine.getInnerWidth().floatValue() / 2;
-        this.lineColor = paint.getColor().toLowerCase();
-        this.id = generateStyleId();
+        this.lineColor = parseArgb(paint.getColor(), DEFAULT_LINE_COLOR);
     }
 
     public StyleInfo(ComplexSpeciesAlias complexAlias, String refId) {
@@ -71,8 +67,7 @@ public class StyleInfo {
         this.fontSize = complexAlias.getFont().getSize();
         this.lineColor = DEFAULT_LINE_COLOR;
         this.lineWidth = complexAlias.getUsualView().getSingleLine().getWidth().floatValue();
-        this.bgColor = complexAlias.getUsualView().getPaint().getColor().toLowerCase();
-        this.id = generateStyleId();
+        this.bgColor = parseArgb(complexAlias.getUsualView().getPaint().getColor(), DEFAULT_BG_COLOR);
     }
 
     public StyleInfo(SpeciesAlias speciesAlias, String refId) {
@@ -80,8 +75,7 @@ public class StyleInfo {
         this.fontSize = speciesAlias.getFont().getSize();
         this.lineColor = DEFAULT_LINE_COLOR;
         this.lineWidth = speciesAlias.getUsualView().getSingleLine().getWidth().floatValue();
-        this.bgColor = speciesAlias.getUsualView().getPaint().getColor().toLowerCase();
-        this.id = generateStyleId();
+        this.bgColor = parseArgb(speciesAlias.getUsualView().getPaint().getColor(), DEFAULT_BG_COLOR);
     }
 
     /**
@@ -91,40 +85,36 @@ public class StyleInfo {
     public StyleInfo(float width, String color, String refId) {
         this.refId = refId;
         this.lineWidth = width;
-        this.lineColor = color;
+        this.lineColor = parseArgb(color, DEFAULT_LINE_COLOR);
         this.bgColor = DEFAULT_BG_COLOR;
         this.fontSize = DEFAULT_FONT_SIZE;
-        this.id = generateStyleId();
     }
 
     public StyleInfo(Modification modif, String refId) {
         this.refId = refId;
         Line line = modif.getLine();
         this.lineWidth = line.getWidth().floatValue();
-        this.lineColor = line.getColor().toLowerCase();
+        this.lineColor = parseArgb(line.getColor(), DEFAULT_LINE_COLOR);
         this.bgColor = DEFAULT_BG_COLOR;
         this.fontSize = DEFAULT_FONT_SIZE;
-        this.id = generateStyleId();
     }
 
     public StyleInfo(ReactantLink reactantLink, String refId) {
         this.refId = refId;
 
         this.lineWidth = reactantLink.getLine().getWidth().floatValue();
-        this.lineColor = reactantLink.getLine().getColor().toLowerCase();
+        this.lineColor = parseArgb(reactantLink.getLine().getColor(), DEFAULT_LINE_COLOR);
         this.bgColor = DEFAULT_BG_COLOR;
         this.fontSize = DEFAULT_FONT_SIZE;
-        this.id = generateStyleId();
 
     }
 
     public StyleInfo(ProductLink productLink, String refId) {
         this.refId = refId;
         this.lineWidth = productLink.getLine().getWidth().floatValue();
-        this.lineColor = productLink.getLine().getColor().toLowerCase();
+        this.lineColor = parseArgb(productLink.getLine().getColor(), DEFAULT_LINE_COLOR);
         this.bgColor = DEFAULT_BG_COLOR;
         this.fontSize = DEFAULT_FONT_SIZE;
-        this.id = generateStyleId();
 
     }
 
@@ -132,26 +122,42 @@ public class StyleInfo {
      * Generate a kind of hash of the style, to be used as a unique id for it.
      * @return
      */
-    private String generateStyleId() {
-        return "style_"+this.lineWidth+this.bgColor+this.fontSize+this.lineColor;
+    static String generateStyleId(float lineWidth, int bgColor, float fontSize, int lineColor) {
+        return "style_"+lineWidth+toHex(bgColor)+fontSize+toHex(lineColor);
     }
 
     public static Map<String, String> getMapOfColorDefinitions(List<StyleInfo> styleInfoList) {
-        Map<String, String> result = new HashMap<>();
-        int i = 1; // color index
-
-        for(StyleInfo sinfo: styleInfoList) {
-            if(!result.containsKey(sinfo.getBgColor())) {
-                result.put(sinfo.getBgColor(), "color_"+i);
-                i++;
-            }
-            if(!result.containsKey(sinfo.getLineColor())) {
-                result.put(sinfo.getLineColor(), "color_"+i);
-                i++;
-            }
+        return new StyleTable(styleInfoList).getMapOfColorDefinitions();
+    }
+
+    /**
+     * @param argb
+     * @return the color as lowercase argb hex string, no #
+     */
+    public static String toHex(int argb) {
+        char[] chars = new char[8];
+        for(int i=7; i >= 0; i--) {
+            chars[i] = Character.forDigit(argb & 0xf, 16);
+            argb >>>= 4;
         }
+        return new String(chars);
+    }
 
-        return result;
+    /**
+     * @param color argb hex string, no #
+     * @param defaultColor
+     * @return the packed color, defaultColor if color is null or not an hex number
+     */
+    public static int parseArgb(String color, int defaultColor) {
+        // parseLong would also accept a sign
+        if(color == null || color.isEmpty() || color.length() > 8 || Character.digit(color.charAt(0), 16) < 0) {
+            return defaultColor;
+        }
+        try {
+            return (int) Long.parseLong(color, 16);
+        } catch (NumberFormatException e) {
+            return defaultColor;
+        }
     }
 
     public float getLineWidth() {
@@ -159,6 +165,10 @@ public class StyleInfo {
     }
 
     public String getBgColor() {
+        return toHex(bgColor);
+    }
+
+    public int getBgArgb() {
         return bgColor;
     }
 
@@ -167,6 +177,10 @@ public class StyleInfo {
     }
 
     public String getLineColor() {
+        return toHex(lineColor);
+    }
+
+    public int getLineArgb() {
         return lineColor;
     }
 
@@ -174,27 +188,36 @@ public class StyleInfo {
         return refId;
     }
 
+    /**
+     * @return id shared by all the StyleInfos having the same properties
+     */
     public String getId() {
-        return id;
+        return generateStyleId(lineWidth, bgColor, fontSize, lineColor);
     }
 
     public String toString() {
-        return "BgColor: "+this.bgColor+" lineColor: "+this.lineColor+" lineWidth: "+this.lineWidth+" fontSize: "+this.fontSize;
+        return "BgColor: "+this.getBgColor()+" lineColor: "+this.getLineColor()+" lineWidth: "+this.lineWidth+" fontSize: "+this.fontSize;
     }
 
     public void setLineWidth(float lineWidth) {
         this.lineWidth = lineWidth;
     }
 
+    /**
+     * @param bgColor argb hex string, no #. Ignored if null or not an hex number.
+     */
     public void setBgColor(String bgColor) {
-        this.bgColor = bgColor;
+        this.bgColor = parseArgb(bgColor, this.bgColor);
     }
 
     public void setFontSize(float fontSize) {
         this.fontSize = fontSize;
     }
 
+    /**
+     * @param lineColor argb hex string, no #. Ignored if null or not an hex number.
+     */
     public void setLineColor(String lineColor) {
-        this.lineColor = lineColor;
+        this.lineColor = parseArgb(lineColor, this.lineColor);
     }
 }
@@ -0,0 +1,250 @@
+package fr.curie.cd2sbgnml.xmlcdwrappers;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates StyleInfos sharing the same properties into distinct styles, each with the list of element ids
+ * it applies to, and numbers the colors they use.
+ *
+ * Styles are looked up by their raw properties (line width, fill, font size, stroke) in an open addressing
+ * table, so adding a StyleInfo creates no object except when the ids array of its style grows.
+ * Styles and colors are numbered in the order they are first seen.
+ */
+public class StyleTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // properties of each style, indexed by style number
+    private int[] lineWidths = new int[INITIAL_CAPACITY];
+    private int[] bgColors = new int[INITIAL_CAPACITY];
+    private int[] fontSizes = new int[INITIAL_CAPACITY];
+    private int[] lineColors = new int[INITIAL_CAPACITY];
+    private String[][] refIds = new String[INITIAL_CAPACITY][];
+    private int[] refCounts = new int[INITIAL_CAPACITY];
+    private int styleCount;
+    private int refCount;
+
+    // style number + 1 for each slot, 0 means empty slot
+    private int[] styleSlots = new int[2 * INITIAL_CAPACITY];
+
+    private int[] colors = new int[INITIAL_CAPACITY];
+    private int colorCount;
+    // color number + 1 for each slot, 0 means empty slot
+    private int[] colorSlots = new int[2 * INITIAL_CAPACITY];
+
+    public StyleTable() {}
+
+    public StyleTable(List<StyleInfo> styleInfoList) {
+        for(StyleInfo sinfo: styleInfoList) {
+            add(sinfo);
+        }
+    }
+
+    /**
+     * Add the refId of the StyleInfo to the style having the same properties, creating the style if needed.
+     * @param sinfo
+     * @return the number of the style
+     */
+    public int add(StyleInfo sinfo) {
+        int lineWidth = Float.floatToIntBits(sinfo.getLineWidth());
+        int bgColor = sinfo.getBgArgb();
+        int fontSize = Float.floatToIntBits(sinfo.getFontSize());
+        int lineColor = sinfo.getLineArgb();
+
+        int mask = styleSlots.length - 1;
+        int slot = mix(31 * (31 * (31 * lineWidth + bgColor) + fontSize) + lineColor) & mask;
+        int style;
+        while(true) {
+            if(styleSlots[slot] == 0) {
+                style = newStyle(lineWidth, bgColor, fontSize, lineColor);
+                styleSlots[slot] = style + 1;
+                if(2 * styleCount > styleSlots.length / 2) {
+                    rehashStyles();
+                }
+                break;
+            }
+            int candidate = styleSlots[slot] - 1;
+            if(lineWidths[candidate] == lineWidth && bgColors[candidate] == bgColor
+                    && fontSizes[candidate] == fontSize && lineColors[candidate] == lineColor) {
+                style = candidate;
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        String[] ids = refIds[style];
+        if(refCounts[style] == ids.length) {
+            ids = Arrays.copyOf(ids, 2 * ids.length);
+            refIds[style] = ids;
+        }
+        ids[refCounts[style]++] = sinfo.getRefId();
+        refCount++;
+        return style;
+    }
+
+    private int newStyle(int lineWidth, int bgColor, int fontSize, int lineColor) {
+        if(styleCount == lineWidths.length) {
+            int capacity = 2 * styleCount;
+            lineWidths = Arrays.copyOf(lineWidths, capacity);
+            bgColors = Arrays.copyOf(bgColors, capacity);
+            fontSizes = Arrays.copyOf(fontSizes, capacity);
+            lineColors = Arrays.copyOf(lineColors, capacity);
+            refIds = Arrays.copyOf(refIds, capacity);
+            refCounts = Arrays.copyOf(refCounts, capacity);
+        }
+        int style = styleCount++;
+        lineWidths[style] = lineWidth;
+        bgColors[style] = bgColor;
+        fontSizes[style] = fontSize;
+        lineColors[style] = lineColor;
+        refIds[style] = new String[4];
+
+        // colors are numbered in the order of the styles, fill first
+        addColor(bgColor);
+        addColor(lineColor);
+        return style;
+    }
+
+    private void rehashStyles() {
+        styleSlots = new int[2 * styleSlots.length];
+        int mask = styleSlots.length - 1;
+        for(int style=0; style < styleCount; style++) {
+            int slot = mix(31 * (31 * (31 * lineWidths[style] + bgColors[style]) + fontSizes[style])
+                    + lineColors[style]) & mask;
+            while(styleSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            styleSlots[slot] = style + 1;
+        }
+    }
+
+    private void addColor(int argb) {
+        int mask = colorSlots.length - 1;
+        int slot = mix(argb) & mask;
+        while(colorSlots[slot] != 0) {
+            if(colors[colorSlots[slot] - 1] == argb) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if(colorCount == colors.length) {
+            colors = Arrays.copyOf(colors, 2 * colorCount);
+        }
+        colors[colorCount++] = argb;
+        colorSlots[slot] = colorCount;
+
+        if(2 * colorCount > colorSlots.length / 2) {
+            colorSlots = new int[2 * colorSlots.length];
+            mask = colorSlots.length - 1;
+            for(int color=0; color < colorCount; color++) {
+                slot = mix(colors[color]) & mask;
+                while(colorSlots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                colorSlots[slot] = color + 1;
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @param argb
+     * @return the number of the color, -1 if no style uses it
+     */
+    public int getColorIndex(int argb) {
+        int mask = colorSlots.length - 1;
+        int slot = mix(argb) & mask;
+        while(colorSlots[slot] != 0) {
+            if(colors[colorSlots[slot] - 1] == argb) {
+                return colorSlots[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @param color number of the color
+     * @return the id used in the colorDefinition element
+     */
+    public String getColorId(int color) {
+        return "color_"+(color + 1);
+    }
+
+    /**
+     * @return argb hex strings mapped to their color id, in the order of the colors
+     */
+    public Map<String, String> getMapOfColorDefinitions() {
+        Map<String, String> result = new LinkedHashMap<>();
+        for(int color=0; color < colorCount; color++) {
+            result.put(StyleInfo.toHex(colors[color]), getColorId(color));
+        }
+        return result;
+    }
+
+    public int getColorCount() {
+        return colorCount;
+    }
+
+    public int getColor(int color) {
+        return colors[color];
+    }
+
+    public int getStyleCount() {
+        return styleCount;
+    }
+
+    /**
+     * @return number of StyleInfos added
+     */
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public float getLineWidth(int style) {
+        return Float.intBitsToFloat(lineWidths[style]);
+    }
+
+    public int getBgColor(int style) {
+        return bgColors[style];
+    }
+
+    public float getFontSize(int style) {
+        return Float.intBitsToFloat(fontSizes[style]);
+    }
+
+    public int getLineColor(int style) {
+        return lineColors[style];
+    }
+
+    /**
+     * @param style
+     * @return same id as the one given by StyleInfo.getId for this style
+     */
+    public String getStyleId(int style) {
+        return StyleInfo.generateStyleId(getLineWidth(style), bgColors[style], getFontSize(style), lineColors[style]);
+    }
+
+    /**
+     * @param style
+     * @return the refIds of the StyleInfos of this style, separated by spaces
+     */
+    public String getIdList(int style) {
+        StringBuilder sb = new StringBuilder();
+        String[] ids = refIds[style];
+        for(int i=0; i < refCounts[style]; i++) {
+            if(i > 0) {
+                sb.append(' ');
+            }
+            sb.append(ids[i]);
+        }
+        return sb.toString();
+    }
+}
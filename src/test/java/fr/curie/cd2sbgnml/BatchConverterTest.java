@@ -0,0 +1,80 @@
+package fr.curie.cd2sbgnml;
+
+import fr.curie.cd2sbgnml.diagnostics.Diagnostics;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchConverterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes the path of its input in its output.
+     */
+    private static final BatchConverter.FileConverter COPY_NAME = (input, output) -> {
+        Files.write(output, input.toString().getBytes(StandardCharsets.UTF_8));
+        return new ConversionResult(Collections.emptyList(), new ConversionMetrics(), new Diagnostics(null));
+    };
+
+    private Path newFile(String path) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, new byte[0]);
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void manifestKeepsRelativePaths() throws IOException {
+        Path first = newFile("in/a/map.xml");
+        Path second = newFile("in/b/map.xml");
+        Path manifest = folder.getRoot().toPath().resolve("in/manifest.txt");
+        Files.write(manifest, Arrays.asList("a/map.xml", "# comment", "", "b/map.xml"), StandardCharsets.UTF_8);
+        Path outputDir = folder.getRoot().toPath().resolve("out");
+
+        List<BatchConverter.FileResult> results = new BatchConverter(COPY_NAME, ".sbgn", 2)
+                .convertAll(manifest, true, null, outputDir, folder.newFile("summary.txt").toString());
+
+        assertEquals(2, results.size());
+        assertEquals(BatchConverter.Status.SUCCESS, results.get(0).getStatus());
+        assertEquals(BatchConverter.Status.SUCCESS, results.get(1).getStatus());
+        assertEquals(first.toString(), read(outputDir.resolve("a/map.sbgn")));
+        assertEquals(second.toString(), read(outputDir.resolve("b/map.sbgn")));
+    }
+
+    /**
+     * The second input giving the same output fails, the output is the one of the first.
+     */
+    @Test
+    public void sameOutputFails() throws IOException {
+        Path inputDir = folder.newFolder("in").toPath();
+        Path plain = newFile("in/map.xml");
+        Path compressed = newFile("in/map.xml.gz");
+        Path outside = newFile("other/map.xml");
+        Path outputDir = folder.getRoot().toPath().resolve("out");
+
+        List<BatchConverter.FileResult> results = new BatchConverter(COPY_NAME, ".sbgn", 2)
+                .run(Arrays.asList(plain, compressed, outside), inputDir, outputDir);
+
+        assertEquals(BatchConverter.Status.SUCCESS, results.get(0).getStatus());
+        assertEquals(BatchConverter.Status.FAILED, results.get(1).getStatus());
+        assertEquals(BatchConverter.Status.FAILED, results.get(2).getStatus());
+        assertEquals(compressed, results.get(1).getInput());
+        assertTrue(results.get(1).getWarnings().get(0).contains(plain.toString()));
+        assertEquals(plain.toString(), read(outputDir.resolve("map.sbgn")));
+    }
+}
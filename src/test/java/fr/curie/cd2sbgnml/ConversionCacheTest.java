@@ -0,0 +1,210 @@
+package fr.curie.cd2sbgnml;
+
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostics;
+import fr.curie.cd2sbgnml.io.ValidationMode;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ConversionCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path cacheDir;
+    private Path work;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDir = folder.newFolder("cache").toPath();
+        work = folder.newFolder("work").toPath();
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(work.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return key of an input with this content, converted with default options
+     */
+    private String key(ConversionCache cache, String content) throws IOException {
+        Path input = write("input-"+content.hashCode(), content);
+        return cache.getKey(input, ConversionCache.CD_TO_SBGN,
+                ConversionCache.getOptions("out.sbgn", ValidationMode.FAST));
+    }
+
+    @Test
+    public void key() throws IOException {
+        ConversionCache cache = new ConversionCache(cacheDir, 1000);
+        Path input = write("a.xml", "<sbml/>");
+        Path sameContent = write("b.xml", "<sbml/>");
+        String options = ConversionCache.getOptions("out.sbgn", ValidationMode.FAST);
+
+        String key = cache.getKey(input, ConversionCache.CD_TO_SBGN, options);
+        assertEquals(64, key.length());
+        assertTrue(key.matches("[0-9a-f]+"));
+        assertEquals(key, cache.getKey(sameContent, ConversionCache.CD_TO_SBGN, options));
+
+        assertNotEquals(key, cache.getKey(write("c.xml", "<sbml />"), ConversionCache.CD_TO_SBGN, options));
+        assertNotEquals(key, cache.getKey(input, ConversionCache.SBGN_TO_CD, options));
+        assertNotEquals(key, cache.getKey(input, ConversionCache.CD_TO_SBGN,
+                ConversionCache.getOptions("out.sbgn", ValidationMode.STRICT)));
+        assertNotEquals(key, cache.getKey(input, ConversionCache.CD_TO_SBGN,
+                ConversionCache.getOptions("out.sbgn.gz", ValidationMode.FAST)));
+
+        assertNull(cache.getKey(work.resolve("missing.xml"), ConversionCache.CD_TO_SBGN, options));
+    }
+
+    @Test
+    public void buildId() {
+        String buildId = ConversionCache.getBuildId();
+        assertNotEquals("unknown", buildId);
+        assertEquals(buildId, ConversionCache.getBuildId());
+    }
+
+    @Test
+    public void hitAndMiss() throws IOException {
+        ConversionCache cache = new ConversionCache(cacheDir, 1000);
+        String key = key(cache, "input");
+        Path output = work.resolve("out.sbgn");
+        assertNull(cache.get(key, output, new Diagnostics(null)));
+        assertFalse(Files.exists(output));
+
+        Diagnostics diagnostics = new Diagnostics(null);
+        diagnostics.warn(Diagnostic.Type.EMPTY_COMPLEX, "csa1", "complex is empty");
+        diagnostics.error(Diagnostic.Type.LOGIC_GATE_REMOVED, null, "logic gate removed");
+        cache.put(key, write("converted.sbgn", "converted"), Arrays.asList("problem 1", "problème 2"), diagnostics);
+        assertEquals(1, cache.getEntryCount());
+
+        Diagnostics cachedDiagnostics = new Diagnostics(null);
+        assertEquals(Arrays.asList("problem 1", "problème 2"), cache.get(key, output, cachedDiagnostics));
+        assertEquals("converted", read(output));
+        assertEquals(2, cachedDiagnostics.size());
+        Diagnostic first = cachedDiagnostics.getAll().get(0);
+        assertEquals(Diagnostic.Severity.WARNING, first.getSeverity());
+        assertEquals(Diagnostic.Type.EMPTY_COMPLEX, first.getType());
+        assertEquals("csa1", first.getElementId());
+        assertEquals("complex is empty", first.getMessage());
+        assertNull(cachedDiagnostics.getAll().get(1).getElementId());
+
+        // entries last between runs
+        ConversionCache reopened = new ConversionCache(cacheDir, 1000);
+        assertEquals(1, reopened.getEntryCount());
+        assertEquals(cache.getTotalBytes(), reopened.getTotalBytes());
+        Path output2 = work.resolve("out2.sbgn");
+        assertEquals(2, reopened.get(key, output2, new Diagnostics(null)).size());
+        assertEquals("converted", read(output2));
+        assertNull(reopened.get(key(reopened, "other input"), output2, new Diagnostics(null)));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() throws IOException {
+        Path output = write("converted.sbgn", "0123456789");
+        // 4 bytes for the number of problems, 4 for the number of diagnostics, 10 for the output: room for 2 entries
+        ConversionCache cache = new ConversionCache(cacheDir, 40);
+        String a = key(cache, "a");
+        String b = key(cache, "b");
+        String c = key(cache, "c");
+        cache.put(a, output, Collections.emptyList(), new Diagnostics(null));
+        cache.put(b, output, Collections.emptyList(), new Diagnostics(null));
+        assertEquals(36, cache.getTotalBytes());
+
+        assertNotNull(cache.get(a, work.resolve("out.sbgn"), new Diagnostics(null)));
+        cache.put(c, output, Collections.emptyList(), new Diagnostics(null));
+
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(36, cache.getTotalBytes());
+        assertNotNull(cache.get(a, work.resolve("out.sbgn"), new Diagnostics(null)));
+        assertNull(cache.get(b, work.resolve("out.sbgn"), new Diagnostics(null)));
+        assertNotNull(cache.get(c, work.resolve("out.sbgn"), new Diagnostics(null)));
+        assertFalse(Files.exists(cacheDir.resolve(b)));
+
+        // sizes over the limit are evicted when the cache is opened
+        assertEquals(1, new ConversionCache(cacheDir, 20).getEntryCount());
+    }
+
+    @Test
+    public void failedCopyDeletesEntry() throws IOException {
+        ConversionCache cache = new ConversionCache(cacheDir, 1000);
+        String key = key(cache, "input");
+        cache.put(key, write("converted.sbgn", "converted"), Collections.emptyList(), new Diagnostics(null));
+        Files.write(cacheDir.resolve(key), new byte[]{0, 0});
+
+        assertNull(cache.get(key, work.resolve("out.sbgn"), new Diagnostics(null)));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getTotalBytes());
+        assertFalse(Files.exists(cacheDir.resolve(key)));
+        assertFalse(Files.exists(work.resolve("out.sbgn")));
+    }
+
+    @Test
+    public void concurrentGetAndPut() throws Exception {
+        ConversionCache cache = new ConversionCache(cacheDir, 400);
+        int keyCount = 20;
+        List<String> keys = new ArrayList<>();
+        for(int i=0; i < keyCount; i++) {
+            keys.add(key(cache, "input "+i));
+            write("converted"+i, "converted "+i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int t=0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for(int n=0; n < 200; n++) {
+                        int i = (n * 7 + thread) % keyCount;
+                        Path output = work.resolve("out-"+thread+".sbgn");
+                        List<String> problems = cache.get(keys.get(i), output, new Diagnostics(null));
+                        if(problems == null) {
+                            cache.put(keys.get(i), work.resolve("converted"+i),
+                                    Collections.singletonList("problem "+i), new Diagnostics(null));
+                        }
+                        else {
+                            assertEquals(Collections.singletonList("problem "+i), problems);
+                            assertEquals("converted "+i, read(output));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for(Future<?> future: futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // index and directory agree
+        long bytes = 0;
+        File[] files = cacheDir.toFile().listFiles();
+        for(File file: files) {
+            bytes += file.length();
+        }
+        assertEquals(cache.getEntryCount(), files.length);
+        assertEquals(cache.getTotalBytes(), bytes);
+        assertTrue(cache.getTotalBytes() <= 400);
+    }
+}
@@ -0,0 +1,77 @@
+package fr.curie.cd2sbgnml;
+
+import com.beust.jcommander.JCommander;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class ConversionClientTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ConversionServer app;
+    private static HttpServer server;
+    private static URL url;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        app = new ConversionServer();
+        JCommander.newBuilder().addObject(app).build()
+                .parse("--port", "0", "--threads", "2", "--warmup", "0");
+        server = app.start();
+        url = new URL("http://localhost:"+server.getAddress().getPort());
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        app.stop(server);
+    }
+
+    @Test
+    public void bothDirections() throws IOException {
+        Path sbgn = folder.getRoot().toPath().resolve("reaction.sbgn");
+        assertTrue(ConversionClient.convert(url, ConversionCache.CD_TO_SBGN, Paths.get("samples/reaction.xml"), sbgn)
+                .isEmpty());
+        assertTrue(new String(Files.readAllBytes(sbgn), StandardCharsets.UTF_8).contains("<sbgn"));
+
+        Path cd = folder.getRoot().toPath().resolve("reaction.xml");
+        assertNotNull(ConversionClient.convert(url, ConversionCache.SBGN_TO_CD, sbgn, cd));
+        assertTrue(new String(Files.readAllBytes(cd), StandardCharsets.UTF_8).contains("<sbml"));
+
+        // only the output is left in the directory
+        assertEquals(2, folder.getRoot().list().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownDirection() throws IOException {
+        ConversionClient.convert(url, "cd2sbml", Paths.get("samples/reaction.xml"),
+                folder.getRoot().toPath().resolve("out"));
+    }
+
+    @Test
+    public void failedConversion() throws IOException {
+        Path input = folder.newFile("input.sbgn").toPath();
+        Files.write(input, "not xml".getBytes(StandardCharsets.UTF_8));
+        Path output = folder.getRoot().toPath().resolve("output.xml");
+        try {
+            ConversionClient.convert(url, ConversionCache.SBGN_TO_CD, input, output);
+            fail("Conversion of an invalid file must fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Server answered 400"));
+        }
+        assertFalse(Files.exists(output));
+    }
+}
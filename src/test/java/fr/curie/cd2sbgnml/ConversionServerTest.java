@@ -0,0 +1,149 @@
+package fr.curie.cd2sbgnml;
+
+import com.beust.jcommander.JCommander;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Scanner;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ConversionServerTest {
+
+    private static ConversionServer app;
+    private static HttpServer server;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        app = new ConversionServer();
+        JCommander.newBuilder().addObject(app).build()
+                .parse("--port", "0", "--threads", "2", "--warmup", "0", "--max-size", "1");
+        server = app.start();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        app.stop(server);
+    }
+
+    private static HttpURLConnection post(String path, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                "http://localhost:"+server.getAddress().getPort()+path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream os = connection.getOutputStream()) {
+            os.write(body);
+        }
+        return connection;
+    }
+
+    private static String read(InputStream is) {
+        try (Scanner scanner = new Scanner(is, "UTF-8").useDelimiter("\\A")) {
+            return scanner.hasNext() ? scanner.next() : "";
+        }
+    }
+
+    @Test
+    public void cdToSbgn() throws IOException {
+        HttpURLConnection connection = post("/cd2sbgn", Files.readAllBytes(Paths.get("samples/reaction.xml")));
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("application/xml", connection.getContentType());
+        assertNotNull(connection.getHeaderField(ConversionServer.PROBLEM_COUNT_HEADER));
+        assertNotNull(connection.getHeaderField(ConversionServer.DIAGNOSTIC_COUNT_HEADER));
+        assertTrue(read(connection.getInputStream()).contains("<sbgn"));
+    }
+
+    @Test
+    public void onlyPost() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                "http://localhost:"+server.getAddress().getPort()+"/sbgn2cd").openConnection();
+        assertEquals(405, connection.getResponseCode());
+        assertEquals("POST", connection.getHeaderField("Allow"));
+    }
+
+    @Test
+    public void unreadableInput() throws IOException {
+        HttpURLConnection connection = post("/sbgn2cd", "not xml".getBytes(StandardCharsets.UTF_8));
+        assertEquals(400, connection.getResponseCode());
+        assertFalse(read(connection.getErrorStream()).isEmpty());
+    }
+
+    /**
+     * The length is checked before anything is read, so no body is sent here.
+     */
+    @Test
+    public void inputTooLarge() throws IOException {
+        try (Socket socket = new Socket("localhost", server.getAddress().getPort())) {
+            socket.getOutputStream().write(("POST /cd2sbgn HTTP/1.1\r\nHost: localhost\r\n"
+                    +"Content-Length: "+(1024 * 1024 + 1)+"\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            assertTrue(reader.readLine().startsWith("HTTP/1.1 413"));
+        }
+    }
+
+    /**
+     * Depending on the JDK, the server refuses the request before the handler or the handler does.
+     */
+    @Test
+    public void invalidContentLength() throws IOException {
+        try (Socket socket = new Socket("localhost", server.getAddress().getPort())) {
+            socket.getOutputStream().write(("POST /cd2sbgn HTTP/1.1\r\nHost: localhost\r\n"
+                    +"Content-Length: 12abc\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            assertTrue(reader.readLine().startsWith("HTTP/1.1 400"));
+        }
+    }
+
+    /**
+     * A small compressed body is still refused when it expands past the limit.
+     */
+    @Test
+    public void decompressedInputTooLarge() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(new byte[2 * 1024 * 1024]);
+        }
+        assertTrue(compressed.size() < 1024 * 1024);
+        HttpURLConnection connection = post("/sbgn2cd", compressed.toByteArray());
+        assertEquals(413, connection.getResponseCode());
+    }
+
+    @Test
+    public void compressedInput() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(Files.readAllBytes(Paths.get("samples/SBGN-PD_all.sbgn")));
+        }
+        HttpURLConnection connection = post("/sbgn2cd", compressed.toByteArray());
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(read(connection.getInputStream()).contains("<sbml"));
+    }
+
+    @Test
+    public void readAllStopsAtLimit() throws IOException {
+        byte[] bytes = new byte[20000];
+        assertArrayEquals(bytes, ConversionServer.readAll(new ByteArrayInputStream(bytes), 20000));
+        assertNull(ConversionServer.readAll(new ByteArrayInputStream(bytes), 19999));
+        assertEquals(0, ConversionServer.readAll(new ByteArrayInputStream(new byte[0]), 0).length);
+    }
+}
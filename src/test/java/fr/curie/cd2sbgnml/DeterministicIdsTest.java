@@ -0,0 +1,61 @@
+package fr.curie.cd2sbgnml;
+
+import fr.curie.cd2sbgnml.io.SbgnReader;
+import fr.curie.cd2sbgnml.io.ValidationMode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sbgn.bindings.Arc;
+import org.sbgn.bindings.Glyph;
+import org.sbgn.bindings.Port;
+import org.sbgn.bindings.Sbgn;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ids created by the conversion come from counters, not random UUIDs: converting a map twice gives the same file.
+ */
+public class DeterministicIdsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void addIds(List<Glyph> glyphs, Set<String> ids) {
+        for(Glyph glyph: glyphs) {
+            assertTrue("duplicate id "+glyph.getId(), ids.add(glyph.getId()));
+            for(Port port: glyph.getPort()) {
+                assertTrue("duplicate id "+port.getId(), ids.add(port.getId()));
+            }
+            addIds(glyph.getGlyph(), ids);
+        }
+    }
+
+    @Test
+    public void sameOutputAndUniqueIds() throws Exception {
+        // components44 has logic gates and modifiers, dendcells state variables and units of information
+        for(String sample: new String[] { "components44", "dendcells" }) {
+            Path first = folder.newFile(sample+".1.sbgn").toPath();
+            Path second = folder.newFile(sample+".2.sbgn").toPath();
+            ConversionOptions options = new ConversionOptions().setValidation(ValidationMode.OFF);
+            Cd2SbgnmlScript.convertAndValidate("samples/"+sample+".xml", first.toString(), options);
+            Cd2SbgnmlScript.convertAndValidate("samples/"+sample+".xml", second.toString(), options);
+
+            assertArrayEquals(sample, Files.readAllBytes(first), Files.readAllBytes(second));
+
+            Sbgn sbgn = SbgnReader.read(first);
+            Set<String> ids = new HashSet<>();
+            addIds(sbgn.getMap().getGlyph(), ids);
+            for(Arc arc: sbgn.getMap().getArc()) {
+                assertTrue("duplicate id "+arc.getId(), ids.add(arc.getId()));
+                addIds(arc.getGlyph(), ids);
+            }
+        }
+    }
+}
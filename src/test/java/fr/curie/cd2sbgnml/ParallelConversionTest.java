@@ -0,0 +1,105 @@
+package fr.curie.cd2sbgnml;
+
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
+import fr.curie.cd2sbgnml.io.ValidationMode;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Conversions run on a pool must give the same files as serial ones.
+ */
+public class ParallelConversionTest {
+
+    private static final String[] SAMPLES = { "cellcycle_v1.1", "dendcells", "components44" };
+
+    /**
+     * More workers than the machine may have, so that elements are really built out of order.
+     */
+    private static ForkJoinPool pool;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void parallelReactionsSameAsSerial() throws Exception {
+        for(String sample: SAMPLES) {
+            String input = "samples/"+sample+".xml";
+            Path serial = folder.newFile(sample+".serial.sbgn").toPath();
+            Path parallel = folder.newFile(sample+".parallel.sbgn").toPath();
+
+            // parallel first: a cold run allocates more before the JIT removes allocations, and this must not
+            // make the parallel run look smaller than the serial one
+            ConversionResult parallelResult = Cd2SbgnmlScript.convertAndValidate(input, parallel.toString(),
+                    new ConversionOptions().setValidation(ValidationMode.OFF).setPool(pool));
+            ConversionResult serialResult = Cd2SbgnmlScript.convertAndValidate(input, serial.toString(),
+                    new ConversionOptions().setValidation(ValidationMode.OFF));
+
+            assertArrayEquals(sample, Files.readAllBytes(serial), Files.readAllBytes(parallel));
+
+            // the allocations of the workers are counted in the stage, without them only a small part is left
+            long serialBytes = serialResult.getMetrics().getStage("reactions").getAllocatedBytes();
+            long parallelBytes = parallelResult.getMetrics().getStage("reactions").getAllocatedBytes();
+            assertTrue(sample+" "+serialBytes+" "+parallelBytes, serialBytes < 0 || parallelBytes > serialBytes / 2);
+        }
+    }
+
+    private static List<String> toStrings(List<Diagnostic> diagnostics) {
+        List<String> result = new ArrayList<>();
+        for(Diagnostic diagnostic: diagnostics) {
+            result.add(diagnostic.getSeverity()+" "+diagnostic);
+        }
+        return result;
+    }
+
+    /**
+     * Same files, and same diagnostics in the same order. SBGN-PD_all has diagnostics on its EPNs.
+     */
+    @Test
+    public void parallelEpnsSameAsSerial() throws Exception {
+        List<String> inputs = new ArrayList<>();
+        inputs.add("samples/SBGN-PD_all.sbgn");
+        for(String sample: SAMPLES) {
+            Path sbgn = folder.newFile(sample+".sbgn").toPath();
+            Cd2SbgnmlScript.convertAndValidate("samples/"+sample+".xml", sbgn.toString(),
+                    new ConversionOptions().setValidation(ValidationMode.OFF));
+            inputs.add(sbgn.toString());
+        }
+
+        for(String input: inputs) {
+            Path serial = folder.newFile().toPath();
+            Path parallel = folder.newFile().toPath();
+
+            ConversionResult serialResult = Sbgnml2CdScript.convertAndValidate(input, serial.toString(),
+                    new ConversionOptions().setValidation(ValidationMode.OFF));
+            ConversionResult parallelResult = Sbgnml2CdScript.convertAndValidate(input, parallel.toString(),
+                    new ConversionOptions().setValidation(ValidationMode.OFF).setPool(pool));
+
+            assertArrayEquals(input, Files.readAllBytes(serial), Files.readAllBytes(parallel));
+            assertEquals(input, toStrings(serialResult.getDiagnostics().getAll()),
+                    toStrings(parallelResult.getDiagnostics().getAll()));
+        }
+    }
+}
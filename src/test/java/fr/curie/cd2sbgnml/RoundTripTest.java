@@ -0,0 +1,92 @@
+package fr.curie.cd2sbgnml;
+
+import fr.curie.cd2sbgnml.xmlcdwrappers.CompartmentWrapper;
+import fr.curie.cd2sbgnml.xmlcdwrappers.ModelWrapper;
+import fr.curie.cd2sbgnml.xmlcdwrappers.ReactionWrapper;
+import org.junit.Test;
+import org.sbgn.bindings.Glyph;
+import org.sbgn.bindings.Sbgn;
+import org.sbml._2001.ns.celldesigner.EditPoints;
+import org.sbml.sbml.level2.version4.Reaction;
+import org.sbml.sbml.level2.version4.Sbml;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class RoundTripTest {
+
+    private static Sbml readCellDesigner(String fileName) throws Exception {
+        CellDesignerSBFCModel model = new CellDesignerSBFCModel();
+        model.setModelFromFile(fileName);
+        return model.getSbml();
+    }
+
+    private static Reaction getReaction(Sbml sbml, String reactionType) {
+        for(Reaction reaction: sbml.getModel().getListOfReactions().getReaction()) {
+            if(reaction.getAnnotation().getExtension().getReactionType().equals(reactionType)) {
+                return reaction;
+            }
+        }
+        return null;
+    }
+
+    private static int countGlyphs(Sbgn sbgn, String clazz) {
+        int count = 0;
+        for(Glyph glyph: sbgn.getMap().getGlyph()) {
+            if(glyph.getClazz().equals(clazz)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A truncation has one reactant and 2 products on a branch, CellDesigner needs the branch edit point
+     * attributes to read it.
+     */
+    @Test
+    public void truncationKeepsItsBranches() throws Exception {
+        Sbml cd = readCellDesigner("samples/components44.xml");
+        Reaction truncation = getReaction(cd, "TRUNCATION");
+        assertNotNull(truncation);
+        Sbgn sbgn = new CD2SBGNML().toSbgn(cd);
+
+        // write the reaction again from its wrapper, as SBGNML2CD does
+        ReactionWrapper reactionW = ModelWrapper.create(cd).getReactionWrapperFor(truncation.getId());
+        Reaction truncationBack = reactionW.getCDReaction();
+        List<Reaction> reactions = cd.getModel().getListOfReactions().getReaction();
+        reactions.set(reactions.indexOf(truncation), truncationBack);
+
+        EditPoints editPoints = truncationBack.getAnnotation().getExtension().getEditPoints();
+        assertNotNull(editPoints.getNum0());
+        assertNotNull(editPoints.getNum1());
+        assertNotNull(editPoints.getNum2());
+        assertNotNull(editPoints.getTShapeIndex());
+
+        // read back, the reaction keeps its process and its arcs
+        Sbgn sbgnBack = new CD2SBGNML().toSbgn(cd);
+        assertEquals(countGlyphs(sbgn, "process"), countGlyphs(sbgnBack, "process"));
+        assertEquals(sbgn.getMap().getArc().size(), sbgnBack.getMap().getArc().size());
+    }
+
+    /**
+     * SBGNML2CD writes models without layers, they must be read back.
+     */
+    @Test
+    public void modelWithoutLayers() throws Exception {
+        Sbml cd = readCellDesigner("samples/reaction.xml");
+        cd.getModel().getAnnotation().getExtension().setListOfLayers(null);
+        assertTrue(ModelWrapper.create(cd).getListOfLayers().isEmpty());
+        assertNotNull(new CD2SBGNML().toSbgn(cd));
+    }
+
+    @Test
+    public void compartmentWithoutAnnotations() {
+        CompartmentWrapper compW = new CompartmentWrapper("c1", "compartment", new Rectangle2D.Float(0, 0, 100, 50));
+        assertTrue(compW.getCDCompartment().getAnnotation().getAny().isEmpty());
+    }
+}
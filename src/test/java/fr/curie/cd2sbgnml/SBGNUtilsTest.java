@@ -0,0 +1,154 @@
+package fr.curie.cd2sbgnml;
+
+import fr.curie.cd2sbgnml.diagnostics.Diagnostic;
+import fr.curie.cd2sbgnml.diagnostics.Diagnostics;
+import org.junit.Before;
+import org.junit.Test;
+import org.sbgn.bindings.Arc;
+import org.sbgn.bindings.Glyph;
+import org.sbgn.bindings.Map;
+import org.sbgn.bindings.Port;
+import org.sbgn.bindings.SBGNBase;
+import org.sbgn.bindings.Sbgn;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import static org.junit.Assert.*;
+
+public class SBGNUtilsTest {
+
+    private Sbgn sbgn;
+    private Map map;
+
+    @Before
+    public void setUp() {
+        sbgn = new Sbgn();
+        map = new Map();
+        sbgn.setMap(map);
+    }
+
+    private Glyph addGlyph(String id) {
+        Glyph glyph = new Glyph();
+        glyph.setId(id);
+        glyph.setClazz("macromolecule");
+        map.getGlyph().add(glyph);
+        return glyph;
+    }
+
+    private Arc addArc(String id, Object source, Object target) {
+        Arc arc = new Arc();
+        arc.setId(id);
+        arc.setClazz("consumption");
+        arc.setSource(source);
+        arc.setTarget(target);
+        map.getArc().add(arc);
+        return arc;
+    }
+
+    private Element addStyle(String idList) throws ParserConfigurationException {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element renderInformation = doc.createElement("renderInformation");
+        Element style = doc.createElement("style");
+        style.setAttribute("idList", idList);
+        renderInformation.appendChild(style);
+        SBGNBase.Extension extension = new SBGNBase.Extension();
+        extension.getAny().add(renderInformation);
+        map.setExtension(extension);
+        return style;
+    }
+
+    @Test
+    public void idsWithoutDashAreKept() {
+        Glyph glyph = addGlyph("glyph1");
+        Diagnostics diagnostics = new Diagnostics(null);
+        assertTrue(SBGNUtils.sanitizeIds(sbgn, diagnostics).isEmpty());
+        assertEquals("glyph1", glyph.getId());
+        assertTrue(diagnostics.getAll().isEmpty());
+    }
+
+    @Test
+    public void dashesAreReplaced() {
+        Glyph glyph = addGlyph("glyph-1");
+        Glyph subglyph = new Glyph();
+        subglyph.setId("glyph-1-sub");
+        glyph.getGlyph().add(subglyph);
+        Port port = new Port();
+        port.setId("glyph-1.port");
+        glyph.getPort().add(port);
+        Glyph other = addGlyph("glyph2");
+        Arc arc = addArc("arc-1", port, other);
+
+        java.util.Map<String, String> newIds = SBGNUtils.sanitizeIds(sbgn, new Diagnostics(null));
+        assertEquals("glyph_1", glyph.getId());
+        assertEquals("glyph_1_sub", subglyph.getId());
+        assertEquals("glyph_1.port", port.getId());
+        assertEquals("arc_1", arc.getId());
+        assertEquals(4, newIds.size());
+        assertEquals("glyph_1", newIds.get("glyph-1"));
+
+        // arc ends are the elements themselves
+        assertSame(port, arc.getSource());
+        assertSame(other, arc.getTarget());
+    }
+
+    @Test
+    public void collision() {
+        Glyph dashed = addGlyph("a-b");
+        Glyph existing = addGlyph("a_b");
+        Diagnostics diagnostics = new Diagnostics(null);
+
+        assertEquals("a_b_2", SBGNUtils.sanitizeIds(sbgn, diagnostics).get("a-b"));
+        assertEquals("a_b_2", dashed.getId());
+        assertEquals("a_b", existing.getId());
+        assertEquals(1, diagnostics.size());
+        Diagnostic diagnostic = diagnostics.getAll().get(0);
+        assertEquals(Diagnostic.Type.ID_COLLISION, diagnostic.getType());
+        assertEquals(Diagnostic.Severity.WARNING, diagnostic.getSeverity());
+        assertEquals("a-b", diagnostic.getElementId());
+    }
+
+    /**
+     * The suffixed ids can also be taken, by existing ids or by ids given earlier in the same pass.
+     */
+    @Test
+    public void chainedCollision() {
+        addGlyph("a_b");
+        addGlyph("a_b_2");
+        Glyph first = addGlyph("a-b");
+        Arc second = addArc("a_b-", null, null);
+        Arc third = addArc("a-b_", null, null);
+        Glyph fourth = addGlyph("a_b_");
+        Diagnostics diagnostics = new Diagnostics(null);
+
+        SBGNUtils.sanitizeIds(sbgn, diagnostics);
+        assertEquals("a_b_3", first.getId());
+        // a_b_ is used by the fourth glyph, which keeps it
+        assertEquals("a_b__2", second.getId());
+        assertEquals("a_b__3", third.getId());
+        assertEquals("a_b_", fourth.getId());
+        assertEquals(3, diagnostics.size());
+    }
+
+    @Test
+    public void styleIdListsFollowTheNewIds() throws ParserConfigurationException {
+        addGlyph("a_b");
+        addGlyph("a-b");
+        addGlyph("c-d");
+        addGlyph("e");
+        Element style = addStyle("a-b  c-d e a_b");
+
+        SBGNUtils.sanitizeIds(sbgn, new Diagnostics(null));
+        // spaces are kept, the renamed id gets the same suffix as its glyph
+        assertEquals("a_b_2  c_d e a_b", style.getAttribute("idList"));
+    }
+
+    @Test
+    public void styleIdListOfUnknownIds() throws ParserConfigurationException {
+        Element style = addStyle("x-1 y");
+        SBGNUtils.sanitizeIds(sbgn, new Diagnostics(null));
+        assertEquals("x_1 y", style.getAttribute("idList"));
+    }
+}
@@ -0,0 +1,102 @@
+package fr.curie.cd2sbgnml;
+
+import fr.curie.cd2sbgnml.UnitsOfInfo.Marker;
+import org.junit.Test;
+import org.sbgn.bindings.Glyph;
+import org.sbgn.bindings.Label;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class UnitsOfInfoTest {
+
+    private static Glyph subglyph(String clazz, String text) {
+        Glyph glyph = new Glyph();
+        glyph.setClazz(clazz);
+        if(text != null) {
+            Label label = new Label();
+            label.setText(text);
+            glyph.setLabel(label);
+        }
+        return glyph;
+    }
+
+    private static Glyph unit(String text) {
+        return subglyph("unit of information", text);
+    }
+
+    private static Glyph glyphWith(Glyph... subglyphs) {
+        Glyph glyph = new Glyph();
+        glyph.setClazz("macromolecule");
+        glyph.getGlyph().addAll(Arrays.asList(subglyphs));
+        return glyph;
+    }
+
+    @Test
+    public void antisenseRnaIsAlsoRna() {
+        Glyph asRna = unit("asRNA");
+        UnitsOfInfo units = UnitsOfInfo.classify(glyphWith(asRna));
+        assertSame(asRna, units.get(Marker.RNA).get());
+        assertSame(asRna, units.get(Marker.ANTISENSE_RNA).get());
+        assertFalse(units.has(Marker.RECEPTOR));
+        assertEquals(Optional.empty(), units.get(Marker.DRUG));
+    }
+
+    @Test
+    public void firstMatchWins() {
+        Glyph first = unit("receptor A");
+        Glyph second = unit("Receptor B");
+        // ion channel also contains ion
+        Glyph channel = unit("ion channel");
+        Glyph ion = unit("ion");
+        UnitsOfInfo units = UnitsOfInfo.classify(glyphWith(first, second, channel, ion));
+        assertSame(first, units.get(Marker.RECEPTOR).get());
+        assertSame(channel, units.get(Marker.ION_CHANNEL).get());
+        assertSame(channel, units.get(Marker.ION).get());
+        assertEquals(Arrays.asList(first, second, channel, ion), units.getUnits());
+    }
+
+    @Test
+    public void multimer() {
+        assertEquals(3, UnitsOfInfo.classify(glyphWith(unit("N:3"))).getMultimer());
+        assertEquals(12, UnitsOfInfo.classify(glyphWith(unit("drug"), unit("n : 12"), unit("N:4")))
+                .getMultimer());
+        assertEquals(0, UnitsOfInfo.classify(glyphWith(unit("N:"), unit("truncated"))).getMultimer());
+    }
+
+    /**
+     * Units without label are listed but carry no marker, the ones after them are still read.
+     */
+    @Test
+    public void unlabeledUnitIsSkipped() {
+        Glyph unlabeled = unit(null);
+        Glyph drug = unit("drug");
+        Glyph dimer = unit("N:2");
+        UnitsOfInfo units = UnitsOfInfo.classify(glyphWith(unlabeled, drug, dimer));
+        assertEquals(Arrays.asList(unlabeled, drug, dimer), units.getUnits());
+        assertSame(drug, units.get(Marker.DRUG).get());
+        assertEquals(2, units.getMultimer());
+    }
+
+    @Test
+    public void otherSubglyphsAreIgnored() {
+        UnitsOfInfo units = UnitsOfInfo.classify(glyphWith(subglyph("state variable", "rna"),
+                subglyph("macromolecule", "N:5")));
+        assertTrue(units.getUnits().isEmpty());
+        assertFalse(units.has(Marker.RNA));
+        assertEquals(0, units.getMultimer());
+    }
+
+    @Test
+    public void sameAsGetUnitOfInfo() {
+        Glyph glyph = glyphWith(unit("truncated"), unit("asRNA"), unit("ion channel"), unit("N:7"));
+        UnitsOfInfo units = UnitsOfInfo.classify(glyph);
+        String[] regexps = { "receptor", "ion channel", "truncated", "rna", "asrna", "ion", "drug" };
+        for(int i=0; i < regexps.length; i++) {
+            assertEquals(regexps[i], SBGNUtils.getUnitOfInfo(glyph, regexps[i]), units.get(Marker.values()[i]));
+        }
+        assertEquals(SBGNUtils.getMultimerFromInfo(glyph), units.getMultimer());
+    }
+}
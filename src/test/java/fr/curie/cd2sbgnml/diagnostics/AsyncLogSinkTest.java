@@ -0,0 +1,92 @@
+package fr.curie.cd2sbgnml.diagnostics;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncLogSinkTest {
+
+    /**
+     * Logger enabled for all levels, counting the diagnostics logged and the reports of dropped diagnostics.
+     */
+    private static Logger countingLogger(AtomicInteger logged, List<Object> dropReports) {
+        return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[]{Logger.class},
+                (proxy, method, args) -> {
+                    if(method.getName().startsWith("is")) {
+                        return true;
+                    }
+                    if(args != null && args.length == 2 && args[1] instanceof Diagnostic) {
+                        logged.incrementAndGet();
+                    }
+                    else if(args != null && args.length == 2 && args[1] instanceof Long) {
+                        synchronized (dropReports) {
+                            dropReports.add(args[1]);
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    private static Diagnostic event(int i) {
+        return new Diagnostic(Diagnostic.Severity.WARNING, Diagnostic.Type.EMPTY_COMPLEX, "csa"+i, "event "+i);
+    }
+
+    @Test
+    public void publishAfterIdle() throws InterruptedException {
+        AtomicInteger logged = new AtomicInteger();
+        AsyncLogSink sink = new AsyncLogSink(countingLogger(logged, new ArrayList<>()), 16);
+        for(int round=0; round < 3; round++) {
+            // the background thread is blocked on the empty buffer, publishing must wake it up
+            Thread.sleep(20);
+            assertTrue(sink.publish(event(round)));
+            assertTrue(sink.flush(1000));
+            assertEquals(round + 1, logged.get());
+        }
+    }
+
+    @Test
+    public void eventsAreLoggedOrCountedAsDropped() throws InterruptedException {
+        AtomicInteger logged = new AtomicInteger();
+        List<Object> dropReports = new ArrayList<>();
+        AsyncLogSink sink = new AsyncLogSink(countingLogger(logged, dropReports), 8);
+
+        int threads = 4;
+        int events = 2000;
+        AtomicInteger published = new AtomicInteger();
+        List<Thread> publishers = new ArrayList<>();
+        for(int t=0; t < threads; t++) {
+            Thread publisher = new Thread(() -> {
+                for(int i=0; i < events; i++) {
+                    if(sink.publish(event(i))) {
+                        published.incrementAndGet();
+                    }
+                }
+            });
+            publishers.add(publisher);
+            publisher.start();
+        }
+        for(Thread publisher: publishers) {
+            publisher.join();
+        }
+
+        assertTrue(sink.flush(5000));
+        assertEquals(published.get(), logged.get());
+        assertEquals(threads * events, published.get() + sink.getDroppedCount());
+
+        // flush has reported all the drops
+        long reported = 0;
+        synchronized (dropReports) {
+            for(Object drops: dropReports) {
+                reported += (Long) drops;
+            }
+        }
+        assertEquals(sink.getDroppedCount(), reported);
+    }
+}
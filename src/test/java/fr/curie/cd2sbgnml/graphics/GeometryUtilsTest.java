@@ -7,6 +7,7 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -356,4 +357,137 @@ public class GeometryUtilsTest {
     }
 
     //    <<<<< END convertPoints >>>>>
+
+    //    <<<<< START float[] kernels >>>>>
+
+    @Test
+    public void globalPolylineArbitraryAxis() {
+        float[] local = {0, 1, 0.5f, -0.5f};
+        float[] dst = new float[8];
+        GeometryUtils.getGlobalPolyline(20, 10, 20, 50, local, 0, 2, new AffineTransform(), dst);
+        assertEquals(20, dst[0], 1E-6);
+        assertEquals(10, dst[1], 1E-6);
+        assertEquals(-20, dst[2], 1E-6);
+        assertEquals(10, dst[3], 1E-6);
+        assertEquals(40, dst[4], 1E-6);
+        assertEquals(30, dst[5], 1E-6);
+        assertEquals(20, dst[6], 1E-6);
+        assertEquals(50, dst[7], 1E-6);
+    }
+
+    @Test
+    public void globalPolylineSameAsConvertPoints() {
+        List<Point2D.Float> local = Arrays.asList(new Point2D.Float(0.3f, 0.7f), new Point2D.Float(-1.2f, 0.1f));
+        List<Point2D.Float> expected = GeometryUtils.convertPoints(local,
+                GeometryUtils.getTransformsToGlobalCoords(p2010, pneg5));
+        List<Point2D.Float> result = GeometryUtils.getGlobalPolyline(p2010, pneg5, local);
+        assertEquals(4, result.size());
+        assertEquals(expected, result.subList(1, 3));
+    }
+
+    @Test
+    public void localEditPointsInPlace() {
+        float[] coords = {40, 30};
+        GeometryUtils.getLocalEditPoints(20, 10, 20, 50, coords, 1, new AffineTransform(), coords);
+        assertEquals(0.5, coords[0], 1E-6);
+        assertEquals(-0.5, coords[1], 1E-6);
+    }
+
+    /**
+     * A buffer reused for polylines of growing then shrinking sizes gives the same points as a new one.
+     */
+    @Test
+    public void polylineBufferReused() {
+        PolylineBuffer buffer = new PolylineBuffer();
+        for(int count: new int[] {0, 3, 40, 2}) {
+            List<Point2D.Float> editPoints = new ArrayList<>();
+            for(int i=0; i < count; i++) {
+                editPoints.add(new Point2D.Float(i * 0.3f, 5 - i));
+            }
+            assertEquals(new PolylineBuffer().getGlobalPolyline(p2010, pneg5, editPoints),
+                    buffer.getGlobalPolyline(p2010, pneg5, editPoints));
+            assertEquals(new PolylineBuffer().getLocalEditPoints(p2010, pneg5, editPoints),
+                    buffer.getLocalEditPoints(p2010, pneg5, editPoints));
+        }
+    }
+
+    /**
+     * The transform as it was computed before setToLocalCoords, with separate concatenated transforms.
+     */
+    private static AffineTransform concatenatedTransformsToLocalCoords(Point2D origin, Point2D px) {
+        Point2D pxCopy = new Point2D.Double(px.getX(), px.getY());
+        AffineTransform t1 = new AffineTransform();
+        t1.translate(-origin.getX(), -origin.getY());
+        t1.transform(pxCopy, pxCopy);
+        double angle = GeometryUtils.angle(new Point2D.Float(1,0), pxCopy);
+        AffineTransform t2 = new AffineTransform();
+        t2.rotate(-angle);
+        t2.transform(pxCopy, pxCopy);
+        AffineTransform t3 = new AffineTransform();
+        t3.scale(1 / pxCopy.getX(), 1 / pxCopy.getX());
+
+        AffineTransform finalTransform = new AffineTransform();
+        finalTransform.concatenate(t3);
+        finalTransform.concatenate(t2);
+        finalTransform.concatenate(t1);
+        return finalTransform;
+    }
+
+    /**
+     * Same matrix, signed zeros and NaNs included (Double.equals tells them apart).
+     */
+    @Test
+    public void localCoordsSameAsConcatenatedTransforms() {
+        List<Point2D.Float> points = Arrays.asList(p0, p10, pneg5, psmall, p2010, p2050,
+                new Point2D.Float(-0f, 0), new Point2D.Float(0, -0f), new Point2D.Float(-0f, -0f),
+                new Point2D.Float(30, 10), new Point2D.Float(10, 10), new Point2D.Float(20, -7),
+                new Point2D.Float(20, 10.5f), new Point2D.Float(-3.7f, 12.25f));
+        double[] expected = new double[6];
+        double[] result = new double[6];
+        for(Point2D.Float origin: points) {
+            // zero length when px is origin, axis aligned when they share a coordinate
+            for(Point2D.Float px: points) {
+                concatenatedTransformsToLocalCoords(origin, px).getMatrix(expected);
+                GeometryUtils.getTransformsToLocalCoords(origin, px).getMatrix(result);
+                for(int i=0; i < 6; i++) {
+                    assertEquals(origin+" "+px+" "+i, Double.valueOf(expected[i]), Double.valueOf(result[i]));
+                }
+            }
+        }
+    }
+
+    //    <<<<< END float[] kernels >>>>>
+
+    //    <<<<< START anchor tables >>>>>
+
+    @Test
+    public void anchorTablesMatchShapeFormulas() {
+        // square, flat, tall, fractional and degenerate boxes
+        float[][] sizes = { {40, 40}, {120, 40}, {40, 120}, {75.5f, 13.25f}, {1, 200}, {0, 30}, {30, 0} };
+        for(CdShape shape: CdShape.values()) {
+            for(float[] size: sizes) {
+                for(AnchorPoint anchorPoint: AnchorPoint.values()) {
+                    String message = shape+" "+size[0]+"x"+size[1]+" "+anchorPoint;
+                    Point2D.Float expected = GeometryUtils.computeRelativeAnchorCoordinate(
+                            shape, size[0], size[1], anchorPoint);
+                    Point2D.Float res = GeometryUtils.getRelativeAnchorCoordinate(shape, size[0], size[1], anchorPoint);
+                    assertEquals(message, expected.getX(), res.getX(), 1E-4);
+                    assertEquals(message, expected.getY(), res.getY(), 1E-4);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void nearestAnchorPointOfEllipse() {
+        Rectangle2D.Float bbox = new Rectangle2D.Float(0, 0, 80, 40);
+        assertEquals(AnchorPoint.E, GeometryUtils.getNearestAnchorPoint(
+                new Point2D.Float(81, 20), bbox, CdShape.ELLIPSE));
+        assertEquals(AnchorPoint.N, GeometryUtils.getNearestAnchorPoint(
+                new Point2D.Float(40, -1), bbox, CdShape.ELLIPSE));
+        assertEquals(AnchorPoint.CENTER, GeometryUtils.getNearestAnchorPoint(
+                new Point2D.Float(40, 20), bbox, CdShape.ELLIPSE));
+    }
+
+    //    <<<<< END anchor tables >>>>>
 }
@@ -0,0 +1,76 @@
+package fr.curie.cd2sbgnml.io;
+
+import fr.curie.cd2sbgnml.CD2SBGNML;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sbgn.bindings.Sbgn;
+import org.sbml.sbml.level2.version4.Sbml;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class CellDesignerReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * @param doctype
+     * @return samples/reaction.xml with the doctype, and a reference to entity x in its first notes
+     */
+    private static String reactionWithDoctype(String doctype) throws Exception {
+        String content = new String(Files.readAllBytes(Paths.get("samples/reaction.xml")), StandardCharsets.UTF_8);
+        int prolog = content.indexOf("?>") + 2;
+        return content.substring(0, prolog) + "\n" + doctype
+                + content.substring(prolog).replaceFirst("<notes>", "<notes>&x;");
+    }
+
+    @Test
+    public void externalEntityIsRejected() throws Exception {
+        File secret = folder.newFile("secret.txt");
+        Files.write(secret.toPath(), "secret content".getBytes(StandardCharsets.UTF_8));
+        try {
+            CellDesignerReader.read(reactionWithDoctype(
+                    "<!DOCTYPE sbml [<!ENTITY x SYSTEM \""+secret.toURI()+"\">]>"));
+            fail("External entities must not be read");
+        } catch (SAXException e) {
+            assertTrue(e.getMessage().contains("External entities are not allowed"));
+        }
+    }
+
+    /**
+     * The pre-scan looking for celldesigner:extension elements must not fail on entities, or all the
+     * annotations would be wrapped a second time.
+     */
+    @Test
+    public void internalEntityIsResolved() throws Exception {
+        Sbml sbml = CellDesignerReader.read(reactionWithDoctype("<!DOCTYPE sbml [<!ENTITY x \"internal\">]>"));
+        assertNotNull(sbml.getModel().getAnnotation().getExtension().getListOfSpeciesAliases());
+
+        Sbgn sbgn = new CD2SBGNML().toSbgn(sbml);
+        Sbgn expected = new CD2SBGNML().toSbgn(CellDesignerReader.read(Paths.get("samples/reaction.xml")));
+        assertEquals(expected.getMap().getGlyph().size(), sbgn.getMap().getGlyph().size());
+        assertEquals(expected.getMap().getArc().size(), sbgn.getMap().getArc().size());
+    }
+
+    /**
+     * A document that failed in the middle doesn't leave its state to the next one.
+     */
+    @Test
+    public void readAfterFailure() throws Exception {
+        try {
+            CellDesignerReader.read(reactionWithDoctype("<!DOCTYPE sbml [<!ENTITY x SYSTEM \"file:///nonexistent\">]>"));
+            fail("External entities must not be read");
+        } catch (SAXException e) {
+            // expected
+        }
+        Sbml sbml = CellDesignerReader.read(Paths.get("samples/reaction.xml"));
+        assertFalse(sbml.getModel().getListOfSpecies().getSpecies().isEmpty());
+    }
+}
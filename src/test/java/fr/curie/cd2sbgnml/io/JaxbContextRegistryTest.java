@@ -0,0 +1,138 @@
+package fr.curie.cd2sbgnml.io;
+
+import org.junit.Test;
+import org.sbgn.bindings.Sbgn;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.ValidationEvent;
+import javax.xml.bind.ValidationEventHandler;
+import javax.xml.bind.helpers.ValidationEventImpl;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JaxbContextRegistryTest {
+
+    private static final File SAMPLE = new File("samples/SBGN-PD_all.sbgn");
+
+    /**
+     * @return a schema declaring no element, against which every document is invalid
+     */
+    private static Schema emptySchema() throws Exception {
+        return SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(new StreamSource(
+                new StringReader("<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\"/>")));
+    }
+
+    private static final ValidationEventHandler ACCEPT_ALL = event -> true;
+
+    private static final Unmarshaller.Listener UNMARSHAL_LISTENER = new Unmarshaller.Listener() {};
+
+    private static final Marshaller.Listener MARSHAL_LISTENER = new Marshaller.Listener() {};
+
+    private static ValidationEvent event(int severity) {
+        return new ValidationEventImpl(severity, "test", null);
+    }
+
+    /**
+     * Borrow from the pool until the given unmarshaller comes back. Other tests may have left some in the pool.
+     * @param registry
+     * @param expected
+     * @param borrowed receives everything borrowed, to be released by the caller
+     * @return expected, once borrowed again
+     */
+    private static Unmarshaller borrowAgain(JaxbContextRegistry registry, Unmarshaller expected,
+                                            List<Unmarshaller> borrowed) throws JAXBException {
+        for(int i=0; i < 100; i++) {
+            Unmarshaller unmarshaller = registry.borrowUnmarshaller();
+            borrowed.add(unmarshaller);
+            if(unmarshaller == expected) {
+                return unmarshaller;
+            }
+        }
+        throw new AssertionError("Released unmarshaller was not pooled");
+    }
+
+    private static Marshaller borrowAgain(JaxbContextRegistry registry, Marshaller expected,
+                                          List<Marshaller> borrowed) throws JAXBException {
+        for(int i=0; i < 100; i++) {
+            Marshaller marshaller = registry.borrowMarshaller();
+            borrowed.add(marshaller);
+            if(marshaller == expected) {
+                return marshaller;
+            }
+        }
+        throw new AssertionError("Released marshaller was not pooled");
+    }
+
+    @Test
+    public void unmarshallerIsResetOnRelease() throws Exception {
+        JaxbContextRegistry registry = JaxbContextRegistry.SBGN;
+        Unmarshaller unmarshaller = registry.borrowUnmarshaller();
+        unmarshaller.setSchema(emptySchema());
+        unmarshaller.setEventHandler(ACCEPT_ALL);
+        unmarshaller.setListener(UNMARSHAL_LISTENER);
+        registry.release(unmarshaller);
+
+        List<Unmarshaller> borrowed = new ArrayList<>();
+        try {
+            Unmarshaller again = borrowAgain(registry, unmarshaller, borrowed);
+            assertNull(again.getSchema());
+            assertNull(again.getListener());
+            // back to the lenient handler: only fatal errors stop
+            assertNotSame(ACCEPT_ALL, again.getEventHandler());
+            assertTrue(again.getEventHandler().handleEvent(event(ValidationEvent.ERROR)));
+            assertFalse(again.getEventHandler().handleEvent(event(ValidationEvent.FATAL_ERROR)));
+            // no schema left to reject the file
+            assertTrue(again.unmarshal(SAMPLE) instanceof Sbgn);
+        } finally {
+            for(Unmarshaller u: borrowed) {
+                registry.release(u);
+            }
+        }
+    }
+
+    @Test
+    public void marshallerIsResetOnRelease() throws Exception {
+        JaxbContextRegistry registry = JaxbContextRegistry.SBGN;
+        Sbgn sbgn;
+        Unmarshaller unmarshaller = registry.borrowUnmarshaller();
+        try {
+            sbgn = (Sbgn) unmarshaller.unmarshal(SAMPLE);
+        } finally {
+            registry.release(unmarshaller);
+        }
+
+        Marshaller marshaller = registry.borrowMarshaller();
+        marshaller.setSchema(emptySchema());
+        marshaller.setEventHandler(ACCEPT_ALL);
+        marshaller.setListener(MARSHAL_LISTENER);
+        registry.release(marshaller);
+
+        List<Marshaller> borrowed = new ArrayList<>();
+        try {
+            Marshaller again = borrowAgain(registry, marshaller, borrowed);
+            assertNull(again.getSchema());
+            assertNull(again.getListener());
+            assertNotSame(ACCEPT_ALL, again.getEventHandler());
+            // no schema left to reject the document, and still configured by the registry
+            StringWriter writer = new StringWriter();
+            again.marshal(sbgn, writer);
+            assertTrue(writer.toString().contains("<sbgn"));
+            assertEquals(true, again.getProperty(Marshaller.JAXB_FORMATTED_OUTPUT));
+        } finally {
+            for(Marshaller m: borrowed) {
+                registry.release(m);
+            }
+        }
+    }
+}
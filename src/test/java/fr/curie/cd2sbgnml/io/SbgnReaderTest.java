@@ -0,0 +1,87 @@
+package fr.curie.cd2sbgnml.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sbgn.bindings.Sbgn;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class SbgnReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * @param doctype
+     * @return an SBGN-ML document with the doctype, and a reference to entity x in the notes of its map
+     */
+    private static String sbgn(String doctype) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"+doctype+"\n"
+                +"<sbgn xmlns=\"http://sbgn.org/libsbgn/0.2\"><map language=\"process description\">"
+                +"<notes><html xmlns=\"http://www.w3.org/1999/xhtml\"><body>&x;</body></html></notes>"
+                +"</map></sbgn>";
+    }
+
+    private static Sbgn read(String content) throws Exception {
+        return SbgnReader.read(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void externalEntityIsRejected() throws Exception {
+        File secret = folder.newFile("secret.txt");
+        Files.write(secret.toPath(), "secret content".getBytes(StandardCharsets.UTF_8));
+        try {
+            read(sbgn("<!DOCTYPE sbgn [<!ENTITY x SYSTEM \""+secret.toURI()+"\">]>"));
+            fail("External entities must not be read");
+        } catch (SAXException e) {
+            assertTrue(e.getMessage().contains("External entities are not allowed"));
+        }
+    }
+
+    @Test
+    public void externalDtdIsNotLoaded() throws Exception {
+        File dtd = folder.newFile("entities.dtd");
+        Files.write(dtd.toPath(), "<!ENTITY x \"secret content\">".getBytes(StandardCharsets.UTF_8));
+        // x is not declared, it is skipped
+        Sbgn sbgn = read(sbgn("<!DOCTYPE sbgn SYSTEM \""+dtd.toURI()+"\">"));
+        assertEquals("", sbgn.getMap().getNotes().getAny().get(0).getTextContent());
+    }
+
+    /**
+     * A document that failed in the middle doesn't leave its state to the next one.
+     */
+    @Test
+    public void readAfterFailure() throws Exception {
+        for(int i=0; i < 2; i++) {
+            try {
+                read(sbgn("<!DOCTYPE sbgn [<!ENTITY x SYSTEM \"file:///nonexistent\">]>"));
+                fail("External entities must not be read");
+            } catch (SAXException e) {
+                // expected
+            }
+            assertEquals("internal", read(sbgn("<!DOCTYPE sbgn [<!ENTITY x \"internal\">]>"))
+                    .getMap().getNotes().getAny().get(0).getTextContent());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void compressedNameWithoutGzipContent() throws Exception {
+        File file = folder.newFile("map.sbgn.gz");
+        Files.write(file.toPath(), sbgn("").getBytes(StandardCharsets.UTF_8));
+        SbgnReader.open(file.toPath()).close();
+    }
+
+    @Test
+    public void internalEntityIsResolved() throws Exception {
+        Sbgn sbgn = read(sbgn("<!DOCTYPE sbgn [<!ENTITY x \"internal\">]>"));
+        assertEquals("internal", sbgn.getMap().getNotes().getAny().get(0).getTextContent());
+    }
+}
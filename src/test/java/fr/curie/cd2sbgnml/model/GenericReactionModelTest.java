@@ -0,0 +1,128 @@
+package fr.curie.cd2sbgnml.model;
+
+import fr.curie.cd2sbgnml.CellDesignerSBFCModel;
+import fr.curie.cd2sbgnml.xmlcdwrappers.ModelWrapper;
+import fr.curie.cd2sbgnml.xmlcdwrappers.ReactionWrapper;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class GenericReactionModelTest {
+
+    private static ModelWrapper modelW;
+
+    /**
+     * Keeps the ids it gives, to find the elements created then removed by the models.
+     */
+    private static class RecordingIdGenerator implements IdGenerator {
+        private final IdGenerator generator;
+        private final List<String> ids = new ArrayList<>();
+
+        RecordingIdGenerator(String base) {
+            this.generator = new CounterIdGenerator(base);
+        }
+
+        @Override
+        public String next(String prefix) {
+            String id = generator.next(prefix);
+            ids.add(id);
+            return id;
+        }
+    }
+
+    @BeforeClass
+    public static void readSample() throws Exception {
+        // has a reaction with an UNKNOWN logic gate
+        CellDesignerSBFCModel model = new CellDesignerSBFCModel();
+        model.setModelFromFile("samples/components44.xml");
+        modelW = ModelWrapper.create(model.getSbml());
+    }
+
+    /**
+     * Every link is indexed at its start and end, and the index only contains the links of the model.
+     * @param model
+     * @param nodeIds ids of all the nodes the model had, removed ones included
+     */
+    private static void assertIndexConsistent(GenericReactionModel model, Set<String> nodeIds) {
+        int expected = 0;
+        for(LinkModel link: model.getLinkModels()) {
+            assertTrue(model.getIncidentLinks(link.getStart().getId()).contains(link));
+            assertTrue(model.getIncidentLinks(link.getEnd().getId()).contains(link));
+            expected += link.getStart().getId().equals(link.getEnd().getId()) ? 1 : 2;
+        }
+
+        int indexed = 0;
+        for(String nodeId: nodeIds) {
+            for(LinkModel link: model.getIncidentLinks(nodeId)) {
+                assertTrue(model.getLinkModels().contains(link));
+                assertTrue(link.getStart().getId().equals(nodeId) || link.getEnd().getId().equals(nodeId));
+                indexed++;
+            }
+        }
+        assertEquals(expected, indexed);
+    }
+
+    private static Set<String> getNodeIds(GenericReactionModel model, RecordingIdGenerator idGenerator) {
+        Set<String> nodeIds = new HashSet<>(idGenerator.ids);
+        for(ReactionNodeModel node: model.getReactionNodeModels()) {
+            nodeIds.add(node.getId());
+        }
+        for(ReactantModel reactant: model.getReactantModels()) {
+            nodeIds.add(reactant.getId());
+        }
+        return nodeIds;
+    }
+
+    @Test
+    public void removedLogicGatesLeaveNoLinks() {
+        int removedGates = 0;
+        for(ReactionWrapper reactionW: modelW.getListOfReactionWrapper()) {
+            RecordingIdGenerator idGenerator = new RecordingIdGenerator(reactionW.getId());
+            GenericReactionModel model = ReactionModelFactory.create(reactionW, idGenerator);
+
+            Set<String> remainingNodes = new HashSet<>();
+            for(ReactionNodeModel node: model.getReactionNodeModels()) {
+                remainingNodes.add(node.getId());
+            }
+            for(String id: idGenerator.ids) {
+                if(id.startsWith("logicglyph") && !remainingNodes.contains(id)) {
+                    assertTrue(model.getIncidentLinks(id).isEmpty());
+                    removedGates++;
+                }
+            }
+            assertIndexConsistent(model, getNodeIds(model, idGenerator));
+        }
+        assertTrue(removedGates > 0);
+    }
+
+    @Test
+    public void removeLinkModel() {
+        for(ReactionWrapper reactionW: modelW.getListOfReactionWrapper()) {
+            RecordingIdGenerator idGenerator = new RecordingIdGenerator(reactionW.getId());
+            GenericReactionModel model = ReactionModelFactory.create(reactionW, idGenerator);
+            Set<String> nodeIds = getNodeIds(model, idGenerator);
+
+            int linkCount = model.getLinkModels().size();
+            LinkModel removed = model.getLinkModels().get(linkCount - 1);
+            model.removeLinkModel(removed);
+            assertEquals(linkCount - 1, model.getLinkModels().size());
+            assertFalse(model.getIncidentLinks(removed.getStart().getId()).contains(removed));
+            assertFalse(model.getIncidentLinks(removed.getEnd().getId()).contains(removed));
+            assertIndexConsistent(model, nodeIds);
+
+            // a link that isn't in the model is ignored
+            model.removeLinkModel(removed);
+            assertEquals(linkCount - 1, model.getLinkModels().size());
+            assertIndexConsistent(model, nodeIds);
+
+            model.addLinkModel(removed);
+            assertIndexConsistent(model, nodeIds);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package fr.curie.cd2sbgnml.xmlcdwrappers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CdTextCodecTest {
+
+    private static final String[] SPECIAL_TOKENS = {"br", "plus", "minus", "slash", "underscore", "space"};
+    private static final String SPECIAL_CHARS = "\n+-/_ ";
+
+    private static final String[] GREEK_TOKENS = {"alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta",
+            "theta", "iota", "kappa", "lambda", "mu", "nu", "xi", "omicron", "pi", "rho", "sigma", "tau", "upsilon",
+            "phi", "chi", "psi", "omega"};
+    private static final String GREEK_SMALL = "αβγδεζηθικλμνξοπρστυφχψω";
+    private static final String GREEK_CAPITAL = "ΑΒΓΔΕΖΗΘΙΚΛΜΝΞΟΠΡΣΤΥΦΧΨΩ";
+
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+
+    @Test
+    public void decodeSpecialChars() {
+        for(int i=0; i < SPECIAL_TOKENS.length; i++) {
+            assertEquals(SPECIAL_TOKENS[i], "a" + SPECIAL_CHARS.charAt(i) + "b",
+                    CdTextCodec.decode("a_" + SPECIAL_TOKENS[i] + "_b"));
+        }
+    }
+
+    @Test
+    public void decodeGreekLetters() {
+        for(int i=0; i < GREEK_TOKENS.length; i++) {
+            assertEquals(String.valueOf(GREEK_SMALL.charAt(i)), CdTextCodec.decode("_" + GREEK_TOKENS[i] + "_"));
+            assertEquals(String.valueOf(GREEK_CAPITAL.charAt(i)),
+                    CdTextCodec.decode("_" + capitalize(GREEK_TOKENS[i]) + "_"));
+        }
+    }
+
+    @Test
+    public void superAndSubscriptAreDropped() {
+        assertEquals("Ca2+", CdTextCodec.decode("Ca_super_2_plus__endsuper_"));
+        assertEquals("H2O", CdTextCodec.decode("H_sub_2_endsub_O"));
+    }
+
+    @Test
+    public void decodeAdjacentTokens() {
+        assertEquals("αβ", CdTextCodec.decode("_alpha__beta_"));
+        assertEquals("\n\n", CdTextCodec.decode("_br__br_"));
+        // the closing underscore of an unknown token opens the next one
+        assertEquals("_fooα", CdTextCodec.decode("_foo_alpha_"));
+        assertEquals("α_foo_", CdTextCodec.decode("_alpha__foo_"));
+        // the closing underscore of a known token is not reused
+        assertEquals("αbeta_", CdTextCodec.decode("_alpha_beta_"));
+        // decoded chars are not scanned again
+        assertEquals("_alpha_", CdTextCodec.decode("_underscore_alpha_"));
+    }
+
+    @Test
+    public void decodeWithoutTokens() {
+        String s = "no token here";
+        assertSame(s, CdTextCodec.decode(s));
+        String unknown = "_foo_ a_b _ __";
+        assertSame(unknown, CdTextCodec.decode(unknown));
+        assertEquals("", CdTextCodec.decode(""));
+        // case matters
+        assertEquals("_ALPHA_", CdTextCodec.decode("_ALPHA_"));
+    }
+
+    @Test
+    public void encodeEachChar() {
+        for(int i=0; i < SPECIAL_TOKENS.length; i++) {
+            // underscores are left as is
+            String expected = SPECIAL_CHARS.charAt(i) == '_' ? "a_b" : "a_" + SPECIAL_TOKENS[i] + "_b";
+            assertEquals(SPECIAL_TOKENS[i], expected, CdTextCodec.encode("a" + SPECIAL_CHARS.charAt(i) + "b"));
+        }
+        for(int i=0; i < GREEK_TOKENS.length; i++) {
+            assertEquals("_" + GREEK_TOKENS[i] + "_", CdTextCodec.encode(String.valueOf(GREEK_SMALL.charAt(i))));
+            assertEquals("_" + capitalize(GREEK_TOKENS[i]) + "_",
+                    CdTextCodec.encode(String.valueOf(GREEK_CAPITAL.charAt(i))));
+        }
+    }
+
+    @Test
+    public void encodeLineBreakEntity() {
+        assertEquals("a_br_b", CdTextCodec.encode("a&#10;b"));
+        assertEquals("a&amp;b", CdTextCodec.encode("a&amp;b"));
+        assertEquals("_br__br_", CdTextCodec.encode("&#10;\n"));
+    }
+
+    @Test
+    public void encodeWithoutSpecialChars() {
+        String s = "ATP_synthase";
+        assertSame(s, CdTextCodec.encode(s));
+        // only greek letters are encoded, not the chars around them
+        assertEquals("ς", CdTextCodec.encode("ς"));
+    }
+
+    @Test
+    public void roundTrip() {
+        String s = "NF-κB p50/p65 + IκBα\nTNFα_receptor";
+        assertEquals(s, CdTextCodec.decode(CdTextCodec.encode(s)));
+    }
+}
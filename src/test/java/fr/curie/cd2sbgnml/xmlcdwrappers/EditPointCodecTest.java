@@ -0,0 +1,86 @@
+package fr.curie.cd2sbgnml.xmlcdwrappers;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class EditPointCodecTest {
+
+    private static float parse(String s) {
+        return EditPointCodec.parseFloat(s, 0, s.length());
+    }
+
+    private static void assertSameAsJdk(String s) {
+        assertEquals(s, Float.floatToIntBits(Float.parseFloat(s)), Float.floatToIntBits(parse(s)));
+    }
+
+    @Test
+    public void parseFloatCommonForms() {
+        for(String s: Arrays.asList("0", "-0", "0.0", "-0.0", "1", "+1.5", "-12.25", ".5", "5.", "0.4000000059604645",
+                "0.3963963963963964", "-0.46296296296296297", "1.0E-4", "2.5e3", "-7.0E+2", "123456789012345678901234",
+                "0.00000000000000000000000000000000000000000001", "3.4028235E38", "1e39", "NaN", "-Infinity")) {
+            assertSameAsJdk(s);
+        }
+    }
+
+    @Test
+    public void parseFloatRandomValues() {
+        Random random = new Random(42);
+        for(int i=0; i < 100000; i++) {
+            float f = (random.nextFloat() - 0.5f) * (float) Math.pow(10, random.nextInt(12) - 4);
+            assertSameAsJdk(Double.toString(f));
+            assertSameAsJdk(Float.toString(f));
+            assertSameAsJdk(Double.toString(random.nextDouble() * 2 - 1));
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseMalformed() {
+        EditPointCodec.parse("0.5;0.2", new float[2], 0);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseMalformedNumber() {
+        EditPointCodec.parse("0.5,0.2e", new float[2], 0);
+    }
+
+    @Test
+    public void format() {
+        assertEquals("0.0,-1.0", EditPointCodec.format(0, -1));
+        assertEquals("0.4,-0.05", EditPointCodec.format(0.4f, -0.05f));
+        assertEquals("123.456001,0.000001", EditPointCodec.format(123.456f, 0.000001f));
+        assertEquals("0.0,0.0", EditPointCodec.format(-0f, -0.0000001f));
+        assertEquals("1.0E10,NaN", EditPointCodec.format(1e10f, Float.NaN));
+    }
+
+    @Test
+    public void formatThenParse() {
+        Random random = new Random(42);
+        float[] parsed = new float[2];
+        for(int i=0; i < 10000; i++) {
+            float x = (random.nextFloat() - 0.5f) * 4;
+            float y = (random.nextFloat() - 0.5f) * 2000;
+            EditPointCodec.parse(EditPointCodec.format(x, y), parsed, 0);
+            assertEquals(x, parsed[0], 6e-7);
+            assertEquals(y, parsed[1], 1e-4);
+        }
+    }
+
+    @Test
+    public void editPointList() {
+        List<String> strings = Arrays.asList("0.25,-0.5", "10.0,20.5", "1.0E-4,3");
+        EditPointList list = EditPointList.parse(strings);
+        assertEquals(3, list.size());
+        assertEquals(20.5f, list.getY(1), 0);
+        assertEquals(1e-4f, list.get(2).x, 0);
+        assertEquals(Arrays.asList("0.25,-0.5", "10.0,20.5", "0.0001,3.0"), list.toStringList());
+
+        list.remove(0);
+        list.add(0, list.get(1));
+        assertEquals(Arrays.asList("0.0001,3.0", "10.0,20.5", "0.0001,3.0"), list.toStringList());
+    }
+}
@@ -0,0 +1,160 @@
+package fr.curie.cd2sbgnml.xmlcdwrappers;
+
+import fr.curie.cd2sbgnml.CellDesignerSBFCModel;
+import org.junit.Test;
+import org.sbml._2001.ns.celldesigner.AntisenseRNA;
+import org.sbml._2001.ns.celldesigner.Gene;
+import org.sbml._2001.ns.celldesigner.Protein;
+import org.sbml._2001.ns.celldesigner.RNA;
+import org.sbml.sbml.level2.version4.Compartment;
+import org.sbml.sbml.level2.version4.Sbml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ModelWrapperTest {
+
+    private static final int THREADS = 8;
+
+    private static Sbml readCellDesigner(String fileName) throws Exception {
+        CellDesignerSBFCModel model = new CellDesignerSBFCModel();
+        model.setModelFromFile(fileName);
+        return model.getSbml();
+    }
+
+    /**
+     * Run the task on THREADS threads released at the same time.
+     * @param task
+     * @return the results, in thread order
+     */
+    private static <T> List<T> runTogether(Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for(int i=0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for(Future<T> future: futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static int size(List<?> list) {
+        return list == null ? -1 : list.size();
+    }
+
+    /**
+     * @param modelW
+     * @return everything the indexes of modelW answer for the ids of the model, the first call builds them all
+     */
+    private static List<String> describe(ModelWrapper modelW) {
+        List<String> result = new ArrayList<>();
+        for(SpeciesWrapper speciesW: modelW.getListOfSpeciesWrapper()) {
+            String id = speciesW.getId();
+            result.add("species "+id+" "+(modelW.getSpecies(id) != null)+" "
+                    +(modelW.getIncludedSpecies(id) != null)+" "
+                    +size(modelW.getSpeciesAliasFor(id))+" "+size(modelW.getComplexSpeciesAliasFor(id))+" "
+                    +(modelW.getSpeciesWrapperFor(id) == speciesW));
+        }
+        for(AliasWrapper aliasW: modelW.getListofAliasWrapper()) {
+            String id = aliasW.getId();
+            result.add("alias "+id+" "+(modelW.getAliasWrapperFor(id) == aliasW)+" "
+                    +size(modelW.getIncludedAliasWrapperFor(id))+" "+size(modelW.getReactionWrappersForAlias(id)));
+            List<ReactantWrapper> reactants = modelW.getReactionWrappersForAlias(id);
+            if(reactants != null) {
+                for(ReactantWrapper reactantW: reactants) {
+                    result.add("reactant "+reactantW.getAliasW().getId()+" "+reactantW.getReactantType());
+                }
+            }
+        }
+        for(ReactionWrapper reactionW: modelW.getListOfReactionWrapper()) {
+            String id = reactionW.getId();
+            result.add("reaction "+id+" "+(modelW.getReactionWrapperFor(id) == reactionW));
+        }
+        for(Compartment compartment: modelW.getListOfCompartments()) {
+            result.add("compartment "+compartment.getId()+" "+size(modelW.getCompartmentAliasFor(compartment.getId())));
+        }
+        for(Protein protein: modelW.getListOfProtein()) {
+            result.add("protein "+protein.getId()+" "+(modelW.getProtein(protein.getId()) == protein));
+        }
+        for(RNA rna: modelW.getListOfRna()) {
+            result.add("rna "+rna.getId()+" "+(modelW.getRNA(rna.getId()) == rna));
+        }
+        for(AntisenseRNA asRna: modelW.getListOfAntisenseRna()) {
+            result.add("asrna "+asRna.getId()+" "+(modelW.getAntisenseRNA(asRna.getId()) == asRna));
+        }
+        for(Gene gene: modelW.getListOfGene()) {
+            result.add("gene "+gene.getId()+" "+(modelW.getGene(gene.getId()) == gene));
+        }
+        result.add("texts "+modelW.getListofTextWrapper().size());
+        return result;
+    }
+
+    @Test
+    public void lazyBuiltOnce() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        ModelWrapper.Lazy<Object> lazy = new ModelWrapper.Lazy<>(() -> {
+            calls.incrementAndGet();
+            try {
+                // leave the other threads time to reach get()
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Object();
+        });
+
+        List<Object> values = runTogether(lazy::get);
+
+        assertEquals(1, calls.get());
+        for(Object value: values) {
+            assertSame(values.get(0), value);
+        }
+    }
+
+    /**
+     * A fresh wrapper queried by several threads at once gives the same answers as one queried by a single thread,
+     * and all threads see the same wrappers.
+     */
+    @Test
+    public void concurrentQueriesSameAsEager() throws Exception {
+        List<String> expected = describe(ModelWrapper.create(readCellDesigner("samples/components44.xml")));
+        ModelWrapper modelW = ModelWrapper.create(readCellDesigner("samples/components44.xml"));
+
+        // each thread keeps the wrapper lists it got, to check they are the ones of the other threads
+        List<List<Object>> results = runTogether(() -> {
+            List<Object> result = new ArrayList<>();
+            result.add(describe(modelW));
+            result.add(modelW.getListOfSpeciesWrapper());
+            result.add(modelW.getListofAliasWrapper());
+            result.add(modelW.getListOfReactionWrapper());
+            result.add(modelW.getListofTextWrapper());
+            return result;
+        });
+
+        for(List<Object> result: results) {
+            assertEquals(expected, result.get(0));
+            for(int i=1; i < result.size(); i++) {
+                assertSame(results.get(0).get(i), result.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package fr.curie.cd2sbgnml.xmlcdwrappers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StyleTableTest {
+
+    private static StyleInfo style(String refId, float lineWidth, String bgColor, float fontSize, String lineColor) {
+        StyleInfo sinfo = new StyleInfo(refId);
+        sinfo.setLineWidth(lineWidth);
+        sinfo.setBgColor(bgColor);
+        sinfo.setFontSize(fontSize);
+        sinfo.setLineColor(lineColor);
+        return sinfo;
+    }
+
+    @Test
+    public void parseArgb() {
+        assertEquals(0xffccff66, StyleInfo.parseArgb("ffccff66", 0));
+        assertEquals(0xffccff66, StyleInfo.parseArgb("FFCCFF66", 0));
+        assertEquals(0x00ffffff, StyleInfo.parseArgb("ffffff", 0));
+        assertEquals(0, StyleInfo.parseArgb("0", 1));
+        // not argb hex strings
+        assertEquals(7, StyleInfo.parseArgb(null, 7));
+        assertEquals(7, StyleInfo.parseArgb("", 7));
+        assertEquals(7, StyleInfo.parseArgb("ffccff661", 7));
+        assertEquals(7, StyleInfo.parseArgb("#fccff66", 7));
+        assertEquals(7, StyleInfo.parseArgb("ffccffgg", 7));
+        assertEquals(7, StyleInfo.parseArgb("-1", 7));
+        assertEquals(7, StyleInfo.parseArgb("+ff", 7));
+    }
+
+    @Test
+    public void invalidColorsKeepThePreviousOne() {
+        StyleInfo sinfo = new StyleInfo("sa1");
+        sinfo.setBgColor("ff112233");
+        sinfo.setBgColor("not a color");
+        sinfo.setLineColor(null);
+        assertEquals("ff112233", sinfo.getBgColor());
+        assertEquals("ff000000", sinfo.getLineColor());
+    }
+
+    @Test
+    public void toHex() {
+        assertEquals("ffccff66", StyleInfo.toHex(0xffccff66));
+        assertEquals("00000000", StyleInfo.toHex(0));
+        assertEquals("00ffffff", StyleInfo.toHex(0x00ffffff));
+        assertEquals("0000000a", StyleInfo.toHex(10));
+        assertEquals("ffffffff", StyleInfo.toHex(-1));
+        for(String hex: Arrays.asList("80123456", "7fabcdef", "00000001")) {
+            assertEquals(hex, StyleInfo.toHex(StyleInfo.parseArgb(hex, 0)));
+        }
+    }
+
+    @Test
+    public void stylesAreNumberedInTheOrderTheyAreFirstSeen() {
+        StyleTable table = new StyleTable(Arrays.asList(
+                style("sa1", 1, "ffccff66", 12, "ff000000"),
+                style("sa2", 2, "ffccff66", 12, "ff000000"),
+                style("sa3", 1, "ffccff66", 12, "ff000000"),
+                style("re1", 1, "00ffffff", 12, "ff0000ff"),
+                style("sa4", 2, "ffccff66", 12, "ff000000")));
+
+        assertEquals(3, table.getStyleCount());
+        assertEquals(5, table.getRefCount());
+        assertEquals("sa1 sa3", table.getIdList(0));
+        assertEquals("sa2 sa4", table.getIdList(1));
+        assertEquals("re1", table.getIdList(2));
+
+        assertEquals(2, table.getLineWidth(1), 0);
+        assertEquals(0xffccff66, table.getBgColor(1));
+        assertEquals(12, table.getFontSize(1), 0);
+        assertEquals(0xff0000ff, table.getLineColor(2));
+        assertEquals(style("x", 1, "00ffffff", 12, "ff0000ff").getId(), table.getStyleId(2));
+    }
+
+    @Test
+    public void colorsAreNumberedInTheOrderTheyAreFirstSeen() {
+        StyleTable table = new StyleTable(Arrays.asList(
+                style("sa1", 1, "ffccff66", 12, "ff000000"),
+                style("sa2", 1, "ff000000", 12, "ffccff66"),
+                style("re1", 1, "00ffffff", 12, "ff0000ff")));
+
+        // fill then stroke of each new style
+        assertEquals(4, table.getColorCount());
+        assertEquals(0xffccff66, table.getColor(0));
+        assertEquals(0xff000000, table.getColor(1));
+        assertEquals(0x00ffffff, table.getColor(2));
+        assertEquals(0xff0000ff, table.getColor(3));
+        assertEquals(1, table.getColorIndex(0xff000000));
+        assertEquals(-1, table.getColorIndex(0xff123456));
+        assertEquals("color_2", table.getColorId(1));
+
+        Map<String, String> definitions = table.getMapOfColorDefinitions();
+        assertEquals(Arrays.asList("ffccff66", "ff000000", "00ffffff", "ff0000ff"),
+                new ArrayList<>(definitions.keySet()));
+        assertEquals(Arrays.asList("color_1", "color_2", "color_3", "color_4"),
+                new ArrayList<>(definitions.values()));
+    }
+
+    /**
+     * Enough styles and colors to grow the tables several times.
+     */
+    @Test
+    public void manyStyles() {
+        List<StyleInfo> styleInfos = new ArrayList<>();
+        for(int i=0; i < 1000; i++) {
+            styleInfos.add(style("sa"+i, i % 300, StyleInfo.toHex(0xff000000 | i % 500), 12, "ff000000"));
+        }
+        StyleTable table = new StyleTable(styleInfos);
+
+        // i % 300 and i % 500 are both the same for i and i + 1500 only
+        assertEquals(1000, table.getStyleCount());
+        // the stroke of all the styles is the fill of the first one
+        assertEquals(500, table.getColorCount());
+        for(int i=0; i < 1000; i++) {
+            assertEquals(styleInfos.get(i).getId(), table.getStyleId(i));
+            assertEquals("sa"+i, table.getIdList(i));
+        }
+        for(int i=0; i < 500; i++) {
+            assertEquals(i, table.getColorIndex(0xff000000 | i));
+        }
+
+        // adding them again only extends the id lists
+        for(StyleInfo sinfo: styleInfos) {
+            table.add(new StyleInfo(sinfo, sinfo.getRefId()+"_bis"));
+        }
+        assertEquals(1000, table.getStyleCount());
+        assertEquals(2000, table.getRefCount());
+        assertEquals("sa999 sa999_bis", table.getIdList(999));
+    }
+}